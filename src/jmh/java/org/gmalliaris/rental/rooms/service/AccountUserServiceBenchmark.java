@@ -0,0 +1,90 @@
+package org.gmalliaris.rental.rooms.service;
+
+import org.gmalliaris.rental.rooms.config.JwtConfigurationProperties;
+import org.gmalliaris.rental.rooms.dto.AccountUserAuthResponse;
+import org.gmalliaris.rental.rooms.dto.JwtType;
+import org.gmalliaris.rental.rooms.entity.AccountUser;
+import org.gmalliaris.rental.rooms.repository.AccountUserRepository;
+import org.gmalliaris.rental.rooms.util.JwtUtils;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class AccountUserServiceBenchmark {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private JwtConfigurationProperties jwtConfigurationProperties;
+    private AccountUserRepository accountUserRepository;
+    private AccountUserService accountUserService;
+    private UUID userId;
+    private String refreshHeader;
+
+    @Setup
+    public void setUp() {
+        var user = new AccountUser();
+        userId = UUID.randomUUID();
+        user.setId(userId);
+
+        // stub only mocks do not record invocations, so they do not grow during the run
+        accountUserRepository = Mockito.mock(AccountUserRepository.class, Mockito.withSettings().stubOnly());
+        Mockito.when(accountUserRepository.findById(userId))
+                .thenReturn(Optional.of(user));
+        var blacklistService = Mockito.mock(BlacklistService.class, Mockito.withSettings().stubOnly());
+
+        jwtConfigurationProperties = new JwtConfigurationProperties(null, null, null, null, null, null);
+        JwtUtils.useVerifiedClaimsCache(jwtConfigurationProperties.getVerifiedClaimsCacheMaximumSize(),
+                Duration.ofSeconds(jwtConfigurationProperties.getVerifiedClaimsCacheExpirationSeconds()));
+        var sessionEpochService = Mockito.mock(SessionEpochService.class, Mockito.withSettings().stubOnly());
+        var jwtService = new JwtService(jwtConfigurationProperties, blacklistService, sessionEpochService);
+        accountUserService = new AccountUserService(accountUserRepository, null, null, null, jwtService,
+                null, null, null);
+
+        // expires within the refresh threshold for the whole run, so every refresh replaces the token group
+        var now = Instant.now();
+        refreshHeader = BEARER_PREFIX + JwtUtils.generateToken(Date.from(now),
+                Date.from(now.plusSeconds(jwtConfigurationProperties.getRefreshExpirationThresholdSeconds() - 10)),
+                JwtType.REFRESH, userId, UUID.randomUUID().toString());
+    }
+
+    @Benchmark
+    public AccountUserAuthResponse refreshAuthTokens() {
+        return accountUserService.refreshAuthTokens(userId, refreshHeader);
+    }
+
+    // previous flow, the new refresh token was verified again to read back its token group id
+    @Benchmark
+    public AccountUserAuthResponse refreshAuthTokens_baseline() {
+        var claims = JwtUtils.extractValidClaimsFromHeader(refreshHeader, JwtType.REFRESH)
+                .orElseThrow();
+        var user = accountUserRepository.findById(userId)
+                .orElseThrow();
+        JwtUtils.extractTokenGroupIdFromClaims(claims);
+
+        var refreshCreated = Instant.now();
+        var refreshToken = JwtUtils.generateToken(Date.from(refreshCreated),
+                Date.from(refreshCreated.plus(jwtConfigurationProperties.getRefreshExpirationMinutes(), ChronoUnit.MINUTES)),
+                JwtType.REFRESH, user.getId(), UUID.randomUUID().toString());
+        var newTokenGroupId = JwtUtils.extractValidClaimsFromToken(refreshToken, JwtType.REFRESH)
+                .map(JwtUtils::extractTokenGroupIdFromClaims)
+                .orElseThrow();
+        var accessCreated = Instant.now();
+        var accessToken = JwtUtils.generateToken(Date.from(accessCreated),
+                Date.from(accessCreated.plusSeconds(jwtConfigurationProperties.getAccessExpirationSeconds())),
+                JwtType.ACCESS, user.getId(), newTokenGroupId);
+        return new AccountUserAuthResponse(accessToken, refreshToken);
+    }
+}
@@ -0,0 +1,95 @@
+package org.gmalliaris.rental.rooms.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.types.Expiration;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Needs a running redis, every invocation flushes the configured database before filling it
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(1)
+public class BlacklistMemoryBenchmark {
+
+    private static final int BATCH_SIZE = 10_000;
+    private static final byte[] LEGACY_ENTRY_VALUE = "group".getBytes(StandardCharsets.UTF_8);
+    private static final Expiration ENTRY_EXPIRATION = Expiration.from(1, TimeUnit.HOURS);
+
+    @Param({"binary", "legacy"})
+    private String encoding;
+
+    @Param("1000000")
+    private int entries;
+
+    @Param("localhost")
+    private String host;
+
+    @Param("6379")
+    private int port;
+
+    @Param("15")
+    private int database;
+
+    private JedisConnectionFactory connectionFactory;
+    private RedisConnection connection;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class MemoryCounters {
+        public long bytesPerEntry;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var configuration = new RedisStandaloneConfiguration(host, port);
+        configuration.setDatabase(database);
+        connectionFactory = new JedisConnectionFactory(configuration);
+        connectionFactory.afterPropertiesSet();
+        connection = connectionFactory.getConnection();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        connection.serverCommands().flushDb();
+        connection.close();
+        connectionFactory.destroy();
+    }
+
+    @Benchmark
+    public void blacklistTokenGroups(MemoryCounters counters) {
+        connection.serverCommands().flushDb();
+        var usedMemoryBefore = usedMemory();
+
+        for (var written = 0; written < entries; written += BATCH_SIZE) {
+            connection.openPipeline();
+            for (var i = written; i < Math.min(entries, written + BATCH_SIZE); i++) {
+                var tokenGroupId = UUID.randomUUID();
+                if ("binary".equals(encoding)) {
+                    connection.stringCommands().set(BlacklistService.tokenGroupKey(tokenGroupId), new byte[0],
+                            ENTRY_EXPIRATION, RedisStringCommands.SetOption.upsert());
+                }
+                else {
+                    connection.stringCommands().set(tokenGroupId.toString().getBytes(StandardCharsets.UTF_8),
+                            LEGACY_ENTRY_VALUE, ENTRY_EXPIRATION, RedisStringCommands.SetOption.upsert());
+                }
+            }
+            connection.closePipeline();
+        }
+
+        counters.bytesPerEntry = (usedMemory() - usedMemoryBefore) / entries;
+    }
+
+    private long usedMemory() {
+        var info = connection.serverCommands().info("memory");
+        return Long.parseLong(info.getProperty("used_memory").trim());
+    }
+}
@@ -0,0 +1,47 @@
+package org.gmalliaris.rental.rooms.service;
+
+import org.gmalliaris.rental.rooms.config.MailSendingConfig;
+import org.gmalliaris.rental.rooms.config.MailTemplateConfigurationProperties;
+import org.gmalliaris.rental.rooms.entity.AccountUser;
+import org.gmalliaris.rental.rooms.entity.ConfirmationToken;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class MailServiceBenchmark {
+
+    @Param({"true", "false"})
+    private boolean cacheable;
+
+    private MailService mailService;
+    private ConfirmationToken token;
+
+    @Setup
+    public void setUp() {
+        var properties = new MailTemplateConfigurationProperties(cacheable, null);
+        var templateEngine = new MailSendingConfig().springTemplateEngine(properties);
+        mailService = new MailService(templateEngine, null, properties);
+
+        var user = new AccountUser();
+        user.setFirstName("first");
+        user.setLastName("last");
+        user.setEmail("user@example.eg");
+        token = new ConfirmationToken();
+        token.setId(UUID.randomUUID());
+        token.setExpirationDate(LocalDate.now().plusDays(1));
+        token.setAccountUser(user);
+    }
+
+    @Benchmark
+    public String renderRegistrationConfirmationEmail() {
+        return mailService.renderRegistrationConfirmationEmail(token);
+    }
+}
@@ -0,0 +1,55 @@
+package org.gmalliaris.rental.rooms.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class CommonUtilsBenchmark {
+
+    private String validUuid;
+    private String invalidUuid;
+
+    @Setup
+    public void setUp() {
+        validUuid = UUID.randomUUID().toString();
+        invalidUuid = "access_" + validUuid.substring(7);
+    }
+
+    @Benchmark
+    public Optional<UUID> uuidFromString_valid() {
+        return CommonUtils.uuidFromString(validUuid);
+    }
+
+    @Benchmark
+    public Optional<UUID> uuidFromString_invalid() {
+        return CommonUtils.uuidFromString(invalidUuid);
+    }
+
+    @Benchmark
+    public Optional<UUID> uuidFromString_valid_baseline() {
+        return baselineUuidFromString(validUuid);
+    }
+
+    @Benchmark
+    public Optional<UUID> uuidFromString_invalid_baseline() {
+        return baselineUuidFromString(invalidUuid);
+    }
+
+    // previous implementation, kept as a reference point
+    private static Optional<UUID> baselineUuidFromString(String uuid) {
+        try {
+            return Optional.of(UUID.fromString(uuid));
+        }
+        catch (IllegalArgumentException exception) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package org.gmalliaris.rental.rooms.util;
+
+import io.jsonwebtoken.Claims;
+import org.gmalliaris.rental.rooms.config.JwtConfigurationProperties;
+import org.gmalliaris.rental.rooms.dto.JwtType;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(2)
+public class JwtUtilsBenchmark {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private UUID userId;
+    private String tokenGroupId;
+    private String validToken;
+    private String validHeader;
+    private String expiredHeader;
+    private String tamperedHeader;
+    private String refreshHeader;
+    private Claims validClaims;
+
+    @Setup
+    public void setUp() {
+        var jwtConfigurationProperties = new JwtConfigurationProperties(null, null, null, null, null, null);
+        JwtUtils.useVerifiedClaimsCache(jwtConfigurationProperties.getVerifiedClaimsCacheMaximumSize(),
+                Duration.ofSeconds(jwtConfigurationProperties.getVerifiedClaimsCacheExpirationSeconds()));
+
+        var now = Instant.now();
+        userId = UUID.randomUUID();
+        tokenGroupId = UUID.randomUUID().toString();
+
+        validToken = JwtUtils.generateToken(Date.from(now), Date.from(now.plusSeconds(3600)),
+                JwtType.ACCESS, userId, tokenGroupId);
+        validHeader = BEARER_PREFIX + validToken;
+        expiredHeader = BEARER_PREFIX + JwtUtils.generateToken(Date.from(now.minusSeconds(120)),
+                Date.from(now.minusSeconds(60)), JwtType.ACCESS, userId, tokenGroupId);
+        // flip a character in the middle of the signature, the last one may only carry unused padding bits
+        var signatureStart = validToken.lastIndexOf('.') + 1;
+        var flipIndex = signatureStart + (validToken.length() - signatureStart) / 2;
+        var tamperedToken = validToken.substring(0, flipIndex) + (validToken.charAt(flipIndex) == 'A' ? 'B' : 'A')
+                + validToken.substring(flipIndex + 1);
+        if (JwtUtils.verifyClaimsFromToken(tamperedToken, JwtType.ACCESS).isPresent()) {
+            throw new IllegalStateException("Tampered token still verifies");
+        }
+        tamperedHeader = BEARER_PREFIX + tamperedToken;
+        refreshHeader = BEARER_PREFIX + JwtUtils.generateToken(Date.from(now), Date.from(now.plusSeconds(3600)),
+                JwtType.REFRESH, userId, tokenGroupId);
+
+        validClaims = JwtUtils.verifyClaimsFromToken(validToken, JwtType.ACCESS)
+                .orElseThrow();
+    }
+
+    @Benchmark
+    public String generateToken() {
+        var now = Instant.now();
+        return JwtUtils.generateToken(Date.from(now), Date.from(now.plusSeconds(300)),
+                JwtType.ACCESS, userId, tokenGroupId);
+    }
+
+    @Benchmark
+    public Optional<Claims> extractValidClaimsFromHeader_valid() {
+        return JwtUtils.extractValidClaimsFromHeader(validHeader, JwtType.ACCESS);
+    }
+
+    // bypasses the verified claims cache, i.e. the first request carrying a token
+    @Benchmark
+    public Optional<Claims> verifyClaimsFromToken_valid() {
+        return JwtUtils.verifyClaimsFromToken(validToken, JwtType.ACCESS);
+    }
+
+    @Benchmark
+    public Optional<Claims> extractValidClaimsFromHeader_expired() {
+        return JwtUtils.extractValidClaimsFromHeader(expiredHeader, JwtType.ACCESS);
+    }
+
+    @Benchmark
+    public Optional<Claims> extractValidClaimsFromHeader_tampered() {
+        return JwtUtils.extractValidClaimsFromHeader(tamperedHeader, JwtType.ACCESS);
+    }
+
+    @Benchmark
+    public Optional<Claims> extractValidClaimsFromHeader_wrongType() {
+        return JwtUtils.extractValidClaimsFromHeader(refreshHeader, JwtType.ACCESS);
+    }
+
+    @Benchmark
+    public UUID extractUserIdFromValidClaims() {
+        return JwtUtils.extractUserIdFromValidClaims(validClaims, JwtType.ACCESS);
+    }
+
+    // previous split based subject parsing, kept as a reference point
+    @Benchmark
+    public UUID extractUserIdFromValidClaims_baseline() {
+        var subjectIdComponents = validClaims.getSubject().split("_");
+        if (subjectIdComponents.length != 2
+                || !JwtType.ACCESS.getValue().equals(subjectIdComponents[0])) {
+            return null;
+        }
+        try {
+            return UUID.fromString(subjectIdComponents[1]);
+        }
+        catch (IllegalArgumentException exception) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public String formatSubject() {
+        return JwtType.ACCESS.getValue() + '_' + userId;
+    }
+
+    @Benchmark
+    public String formatSubject_baseline() {
+        return String.format("%s_%s", JwtType.ACCESS.getValue(), userId);
+    }
+}
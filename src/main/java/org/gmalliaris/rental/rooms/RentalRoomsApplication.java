@@ -1,7 +1,17 @@
 package org.gmalliaris.rental.rooms;
 
+import org.gmalliaris.rental.rooms.config.BlacklistConfigurationProperties;
+import org.gmalliaris.rental.rooms.config.ConfirmationExpiryConfigurationProperties;
 import org.gmalliaris.rental.rooms.config.JwtConfigurationProperties;
+import org.gmalliaris.rental.rooms.config.JwtKeyRingConfigurationProperties;
+import org.gmalliaris.rental.rooms.config.MailOutboxConfigurationProperties;
+import org.gmalliaris.rental.rooms.config.MailTemplateConfigurationProperties;
+import org.gmalliaris.rental.rooms.config.PasswordHashingConfigurationProperties;
+import org.gmalliaris.rental.rooms.config.PrincipalCacheConfigurationProperties;
+import org.gmalliaris.rental.rooms.config.RateLimitConfigurationProperties;
 import org.gmalliaris.rental.rooms.config.RedisConfigurationProperties;
+import org.gmalliaris.rental.rooms.config.SessionEpochConfigurationProperties;
+import org.gmalliaris.rental.rooms.config.UserImportConfigurationProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.web.servlet.error.ErrorMvcAutoConfiguration;
@@ -10,7 +20,17 @@ import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 @SpringBootApplication(exclude = {ErrorMvcAutoConfiguration.class})
 @ConfigurationPropertiesScan(basePackageClasses = {
 		RedisConfigurationProperties.class,
-		JwtConfigurationProperties.class
+		JwtConfigurationProperties.class,
+		BlacklistConfigurationProperties.class,
+		PrincipalCacheConfigurationProperties.class,
+		MailOutboxConfigurationProperties.class,
+		MailTemplateConfigurationProperties.class,
+		PasswordHashingConfigurationProperties.class,
+		UserImportConfigurationProperties.class,
+		ConfirmationExpiryConfigurationProperties.class,
+		RateLimitConfigurationProperties.class,
+		JwtKeyRingConfigurationProperties.class,
+		SessionEpochConfigurationProperties.class
 })
 public class  RentalRoomsApplication {
 
@@ -0,0 +1,102 @@
+package org.gmalliaris.rental.rooms.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+@ConfigurationProperties(prefix = "blacklist")
+@ConstructorBinding
+@Validated
+public class BlacklistConfigurationProperties {
+
+    private static final int NEAR_CACHE_DEFAULT_MAXIMUM_SIZE = 100_000;
+    private static final int NEAR_CACHE_DEFAULT_NEGATIVE_EXPIRATION_SECONDS = 5;
+    private static final int FILTER_DEFAULT_EXPECTED_INSERTIONS = 1_000_000;
+    private static final int BREAKER_DEFAULT_FAILURE_THRESHOLD = 5;
+    private static final int BREAKER_DEFAULT_OPEN_SECONDS = 10;
+    private static final int SNAPSHOT_DEFAULT_MAXIMUM_SIZE = 1_000_000;
+
+    @Min(1_000)
+    @Max(1_000_000)
+    private final Integer nearCacheMaximumSize;
+
+    @Min(1)
+    @Max(60)
+    private final Integer nearCacheNegativeExpirationSeconds;
+
+    @Min(10_000)
+    @Max(100_000_000)
+    private final Integer filterExpectedInsertions;
+
+    @Min(1)
+    @Max(100)
+    private final Integer breakerFailureThreshold;
+
+    @Min(1)
+    @Max(300)
+    private final Integer breakerOpenSeconds;
+
+    @Min(10_000)
+    @Max(10_000_000)
+    private final Integer snapshotMaximumSize;
+
+    public BlacklistConfigurationProperties(Integer nearCacheMaximumSize,
+                                            Integer nearCacheNegativeExpirationSeconds,
+                                            Integer filterExpectedInsertions,
+                                            Integer breakerFailureThreshold,
+                                            Integer breakerOpenSeconds,
+                                            Integer snapshotMaximumSize) {
+        if (nearCacheMaximumSize == null) {
+            nearCacheMaximumSize = NEAR_CACHE_DEFAULT_MAXIMUM_SIZE;
+        }
+        if (nearCacheNegativeExpirationSeconds == null) {
+            nearCacheNegativeExpirationSeconds = NEAR_CACHE_DEFAULT_NEGATIVE_EXPIRATION_SECONDS;
+        }
+        if (filterExpectedInsertions == null) {
+            filterExpectedInsertions = FILTER_DEFAULT_EXPECTED_INSERTIONS;
+        }
+        if (breakerFailureThreshold == null) {
+            breakerFailureThreshold = BREAKER_DEFAULT_FAILURE_THRESHOLD;
+        }
+        if (breakerOpenSeconds == null) {
+            breakerOpenSeconds = BREAKER_DEFAULT_OPEN_SECONDS;
+        }
+        if (snapshotMaximumSize == null) {
+            snapshotMaximumSize = SNAPSHOT_DEFAULT_MAXIMUM_SIZE;
+        }
+
+        this.nearCacheMaximumSize = nearCacheMaximumSize;
+        this.nearCacheNegativeExpirationSeconds = nearCacheNegativeExpirationSeconds;
+        this.filterExpectedInsertions = filterExpectedInsertions;
+        this.breakerFailureThreshold = breakerFailureThreshold;
+        this.breakerOpenSeconds = breakerOpenSeconds;
+        this.snapshotMaximumSize = snapshotMaximumSize;
+    }
+
+    public Integer getNearCacheMaximumSize() {
+        return nearCacheMaximumSize;
+    }
+
+    public Integer getNearCacheNegativeExpirationSeconds() {
+        return nearCacheNegativeExpirationSeconds;
+    }
+
+    public Integer getFilterExpectedInsertions() {
+        return filterExpectedInsertions;
+    }
+
+    public Integer getBreakerFailureThreshold() {
+        return breakerFailureThreshold;
+    }
+
+    public Integer getBreakerOpenSeconds() {
+        return breakerOpenSeconds;
+    }
+
+    public Integer getSnapshotMaximumSize() {
+        return snapshotMaximumSize;
+    }
+}
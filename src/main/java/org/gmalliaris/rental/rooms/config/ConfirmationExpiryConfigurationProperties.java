@@ -0,0 +1,56 @@
+package org.gmalliaris.rental.rooms.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+@ConfigurationProperties(prefix = "confirmation.expiry")
+@ConstructorBinding
+@Validated
+public class ConfirmationExpiryConfigurationProperties {
+
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final int DEFAULT_UNCONFIRMED_USER_GRACE_DAYS = 30;
+
+    @Min(1)
+    @Max(10000)
+    private final Integer batchSize;
+
+    private final Boolean purgeUnconfirmedUsers;
+
+    @Min(1)
+    @Max(3650)
+    private final Integer unconfirmedUserGraceDays;
+
+    public ConfirmationExpiryConfigurationProperties(Integer batchSize, Boolean purgeUnconfirmedUsers,
+                                                     Integer unconfirmedUserGraceDays) {
+        if (batchSize == null) {
+            batchSize = DEFAULT_BATCH_SIZE;
+        }
+        if (purgeUnconfirmedUsers == null) {
+            purgeUnconfirmedUsers = false;
+        }
+        if (unconfirmedUserGraceDays == null) {
+            unconfirmedUserGraceDays = DEFAULT_UNCONFIRMED_USER_GRACE_DAYS;
+        }
+
+        this.batchSize = batchSize;
+        this.purgeUnconfirmedUsers = purgeUnconfirmedUsers;
+        this.unconfirmedUserGraceDays = unconfirmedUserGraceDays;
+    }
+
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    public boolean isPurgeUnconfirmedUsers() {
+        return purgeUnconfirmedUsers;
+    }
+
+    public Integer getUnconfirmedUserGraceDays() {
+        return unconfirmedUserGraceDays;
+    }
+}
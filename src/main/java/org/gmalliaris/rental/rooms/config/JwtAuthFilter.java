@@ -1,13 +1,19 @@
 package org.gmalliaris.rental.rooms.config;
 
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.gmalliaris.rental.rooms.dto.AccountUserSecurityDetails;
 import org.gmalliaris.rental.rooms.dto.JwtType;
 import org.gmalliaris.rental.rooms.service.AccountUserSecurityService;
 import org.gmalliaris.rental.rooms.service.BlacklistService;
+import org.gmalliaris.rental.rooms.service.SessionEpochService;
 import org.gmalliaris.rental.rooms.util.JwtUtils;
 import org.springframework.context.annotation.Profile;
 import org.springframework.lang.NonNull;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
@@ -16,6 +22,7 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Optional;
 import java.util.function.Predicate;
 
 @Component
@@ -26,13 +33,44 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
     private static final String BEARER_HEADER = "Authorization";
     private static final String REFRESH_URI = "/auth/refresh";
+    private static final String FAST_REJECT_COUNTER = "jwt.filter.fast.rejects";
+    // Issued tokens stay well below this even with many roles, anything longer is never handed to the parser
+    private static final int MAX_TOKEN_LENGTH = 4096;
+    private static final char TOKEN_SEGMENT_SEPARATOR = '.';
+    private static final int TOKEN_SEGMENT_SEPARATORS = 2;
 
     private final AccountUserSecurityService accountUserSecurityService;
     private final BlacklistService blacklistService;
+    private final SessionEpochService sessionEpochService;
+    private final JwtConfigurationProperties jwtConfigurationProperties;
 
-    public JwtAuthFilter(AccountUserSecurityService accountUserSecurityService, BlacklistService blacklistService) {
+    private final Counter schemeRejectCounter;
+    private final Counter sizeRejectCounter;
+    private final Counter segmentsRejectCounter;
+
+    public JwtAuthFilter(AccountUserSecurityService accountUserSecurityService, BlacklistService blacklistService,
+                         SessionEpochService sessionEpochService, JwtConfigurationProperties jwtConfigurationProperties,
+                         MeterRegistry meterRegistry) {
         this.accountUserSecurityService = accountUserSecurityService;
         this.blacklistService = blacklistService;
+        this.sessionEpochService = sessionEpochService;
+        this.jwtConfigurationProperties = jwtConfigurationProperties;
+
+        this.schemeRejectCounter = Counter.builder(FAST_REJECT_COUNTER)
+                .tag("reason", "scheme")
+                .register(meterRegistry);
+        this.sizeRejectCounter = Counter.builder(FAST_REJECT_COUNTER)
+                .tag("reason", "size")
+                .register(meterRegistry);
+        this.segmentsRejectCounter = Counter.builder(FAST_REJECT_COUNTER)
+                .tag("reason", "segments")
+                .register(meterRegistry);
+    }
+
+    // Public endpoints never read the authentication, so a stale header there is not even looked at
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return PublicEndpoints.MATCHER.matches(request);
     }
 
     @Override
@@ -44,13 +82,68 @@ public class JwtAuthFilter extends OncePerRequestFilter {
                 ? JwtType.REFRESH : JwtType.ACCESS;
 
         var header = request.getHeader(BEARER_HEADER);
-        var jwtOptionalClaims = JwtUtils.extractValidClaimsFromHeader(header, type);
+        var jwtOptionalClaims = extractWellFormedToken(header)
+                .flatMap(token -> JwtUtils.extractValidClaimsFromToken(token, type));
         jwtOptionalClaims.filter(Predicate.not(blacklistService::tokenWithClaimsIsBlackListed))
-            .map(claims -> JwtUtils.extractUserIdFromValidClaims(claims, type))
-            .map(accountUserSecurityService::loadUserById)
+            .map(claims -> loadUserDetails(claims, type))
             .map(userDetails -> new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities()))
             .ifPresent(userPwdAuth -> SecurityContextHolder.getContext().setAuthentication(userPwdAuth));
 
         filterChain.doFilter(request, response);
     }
+
+    // Rejects headers that can not hold a compact JWS before the parser decodes or verifies anything
+    private Optional<String> extractWellFormedToken(String header) {
+
+        if (header == null) {
+            return Optional.empty();
+        }
+        if (!header.startsWith(JwtUtils.BEARER_PREFIX)) {
+            schemeRejectCounter.increment();
+            return Optional.empty();
+        }
+
+        var token = header.substring(JwtUtils.BEARER_PREFIX.length());
+        if (token.length() > MAX_TOKEN_LENGTH) {
+            sizeRejectCounter.increment();
+            return Optional.empty();
+        }
+        if (!hasTokenSegments(token)) {
+            segmentsRejectCounter.increment();
+            return Optional.empty();
+        }
+        return Optional.of(token);
+    }
+
+    // Stops at the first separator past the expected ones
+    private static boolean hasTokenSegments(String token) {
+
+        var separators = 0;
+        for (var index = token.indexOf(TOKEN_SEGMENT_SEPARATOR); index >= 0;
+             index = token.indexOf(TOKEN_SEGMENT_SEPARATOR, index + 1)) {
+            if (++separators > TOKEN_SEGMENT_SEPARATORS) {
+                return false;
+            }
+        }
+        return separators == TOKEN_SEGMENT_SEPARATORS;
+    }
+
+    private UserDetails loadUserDetails(Claims claims, JwtType type) {
+
+        var userId = JwtUtils.extractUserIdFromValidClaims(claims, type);
+        if (userId == null || sessionEpochService.tokenWithClaimsIsRevoked(userId, claims)) {
+            return null;
+        }
+
+        // Access tokens issued in stateless mode carry the roles and enabled flag, refresh tokens always go to the DB
+        if (type == JwtType.ACCESS && jwtConfigurationProperties.isStateless()) {
+            var roleNames = JwtUtils.extractRoleNamesFromClaims(claims);
+            var enabled = JwtUtils.extractEnabledFromClaims(claims);
+            if (roleNames.isPresent() && enabled.isPresent()) {
+                return new AccountUserSecurityDetails(userId, enabled.get(), roleNames.get());
+            }
+        }
+
+        return accountUserSecurityService.loadUserById(userId);
+    }
 }
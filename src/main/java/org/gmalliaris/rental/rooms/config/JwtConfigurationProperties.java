@@ -15,6 +15,8 @@ public class JwtConfigurationProperties {
     private static final int ACCESS_TOKEN_MIN_EXPIRATION_SECONDS = 120;
     private static final int REFRESH_TOKEN_MIN_EXPIRATION_MINUTES = 60;
     private static final int REFRESH_TOKEN_EXPIRATION_MIN_THRESHOLD_SECONDS = 120;
+    private static final int DEFAULT_VERIFIED_CLAIMS_CACHE_MAXIMUM_SIZE = 10_000;
+    private static final int DEFAULT_VERIFIED_CLAIMS_CACHE_EXPIRATION_SECONDS = 300;
 
     @Min(120)
     @Max(300)
@@ -28,9 +30,23 @@ public class JwtConfigurationProperties {
     @Max(300)
     private final Integer refreshExpirationThresholdSeconds;
 
+    private final Boolean stateless;
+
+    @Min(0)
+    @Max(1_000_000)
+    private final Integer verifiedClaimsCacheMaximumSize;
+
+    // Upper bound only, cached claims never outlive their token
+    @Min(1)
+    @Max(3600)
+    private final Integer verifiedClaimsCacheExpirationSeconds;
+
     public JwtConfigurationProperties(Integer accessExpirationSeconds,
                                       Integer refreshExpirationMinutes,
-                                      Integer refreshExpirationThresholdSeconds) {
+                                      Integer refreshExpirationThresholdSeconds,
+                                      Boolean stateless,
+                                      Integer verifiedClaimsCacheMaximumSize,
+                                      Integer verifiedClaimsCacheExpirationSeconds) {
         if (accessExpirationSeconds == null) {
             accessExpirationSeconds = ACCESS_TOKEN_MIN_EXPIRATION_SECONDS;
         }
@@ -40,10 +56,22 @@ public class JwtConfigurationProperties {
         if (refreshExpirationThresholdSeconds == null) {
             refreshExpirationThresholdSeconds = REFRESH_TOKEN_EXPIRATION_MIN_THRESHOLD_SECONDS;
         }
+        if (stateless == null) {
+            stateless = false;
+        }
+        if (verifiedClaimsCacheMaximumSize == null) {
+            verifiedClaimsCacheMaximumSize = DEFAULT_VERIFIED_CLAIMS_CACHE_MAXIMUM_SIZE;
+        }
+        if (verifiedClaimsCacheExpirationSeconds == null) {
+            verifiedClaimsCacheExpirationSeconds = DEFAULT_VERIFIED_CLAIMS_CACHE_EXPIRATION_SECONDS;
+        }
 
         this.accessExpirationSeconds = accessExpirationSeconds;
         this.refreshExpirationMinutes = refreshExpirationMinutes;
         this.refreshExpirationThresholdSeconds = refreshExpirationThresholdSeconds;
+        this.stateless = stateless;
+        this.verifiedClaimsCacheMaximumSize = verifiedClaimsCacheMaximumSize;
+        this.verifiedClaimsCacheExpirationSeconds = verifiedClaimsCacheExpirationSeconds;
     }
 
     public Integer getAccessExpirationSeconds() {
@@ -57,4 +85,16 @@ public class JwtConfigurationProperties {
     public Integer getRefreshExpirationThresholdSeconds() {
         return refreshExpirationThresholdSeconds;
     }
+
+    public boolean isStateless() {
+        return stateless;
+    }
+
+    public Integer getVerifiedClaimsCacheMaximumSize() {
+        return verifiedClaimsCacheMaximumSize;
+    }
+
+    public Integer getVerifiedClaimsCacheExpirationSeconds() {
+        return verifiedClaimsCacheExpirationSeconds;
+    }
 }
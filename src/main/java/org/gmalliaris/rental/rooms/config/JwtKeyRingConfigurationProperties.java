@@ -0,0 +1,58 @@
+package org.gmalliaris.rental.rooms.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.NotBlank;
+import java.time.Instant;
+import java.util.Map;
+
+@ConfigurationProperties(prefix = "jwt.keyring")
+@ConstructorBinding
+@Validated
+public class JwtKeyRingConfigurationProperties {
+
+    private static final String DEFAULT_KEYSTORE_TYPE = "PKCS12";
+
+    private final String keystorePath;
+
+    @NotBlank
+    private final String keystoreType;
+
+    private final String keystorePassword;
+
+    // Keystore alias to the instant its key starts signing, shared by all nodes so that they switch together
+    private final Map<String, Instant> activations;
+
+    public JwtKeyRingConfigurationProperties(String keystorePath, String keystoreType, String keystorePassword,
+                                             Map<String, Instant> activations) {
+        if (keystoreType == null) {
+            keystoreType = DEFAULT_KEYSTORE_TYPE;
+        }
+        if (activations == null) {
+            activations = Map.of();
+        }
+
+        this.keystorePath = keystorePath;
+        this.keystoreType = keystoreType;
+        this.keystorePassword = keystorePassword;
+        this.activations = Map.copyOf(activations);
+    }
+
+    public String getKeystorePath() {
+        return keystorePath;
+    }
+
+    public String getKeystoreType() {
+        return keystoreType;
+    }
+
+    public String getKeystorePassword() {
+        return keystorePassword;
+    }
+
+    public Map<String, Instant> getActivations() {
+        return activations;
+    }
+}
@@ -0,0 +1,85 @@
+package org.gmalliaris.rental.rooms.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+@ConfigurationProperties(prefix = "mail.outbox")
+@ConstructorBinding
+@Validated
+public class MailOutboxConfigurationProperties {
+
+    private static final int DEFAULT_BATCH_SIZE = 50;
+    private static final int DEFAULT_WORKER_THREADS = 2;
+    private static final int DEFAULT_MAX_ATTEMPTS = 5;
+    private static final int DEFAULT_RETRY_BACKOFF_SECONDS = 30;
+    private static final int DEFAULT_CLAIM_LEASE_SECONDS = 300;
+
+    @Min(1)
+    @Max(500)
+    private final Integer batchSize;
+
+    @Min(1)
+    @Max(16)
+    private final Integer workerThreads;
+
+    @Min(1)
+    @Max(20)
+    private final Integer maxAttempts;
+
+    @Min(1)
+    @Max(3600)
+    private final Integer retryBackoffSeconds;
+
+    @Min(60)
+    @Max(3600)
+    private final Integer claimLeaseSeconds;
+
+    public MailOutboxConfigurationProperties(Integer batchSize, Integer workerThreads, Integer maxAttempts,
+                                             Integer retryBackoffSeconds, Integer claimLeaseSeconds) {
+        if (batchSize == null) {
+            batchSize = DEFAULT_BATCH_SIZE;
+        }
+        if (workerThreads == null) {
+            workerThreads = DEFAULT_WORKER_THREADS;
+        }
+        if (maxAttempts == null) {
+            maxAttempts = DEFAULT_MAX_ATTEMPTS;
+        }
+        if (retryBackoffSeconds == null) {
+            retryBackoffSeconds = DEFAULT_RETRY_BACKOFF_SECONDS;
+        }
+        if (claimLeaseSeconds == null) {
+            claimLeaseSeconds = DEFAULT_CLAIM_LEASE_SECONDS;
+        }
+
+        this.batchSize = batchSize;
+        this.workerThreads = workerThreads;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffSeconds = retryBackoffSeconds;
+        this.claimLeaseSeconds = claimLeaseSeconds;
+    }
+
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    public Integer getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public Integer getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public Integer getRetryBackoffSeconds() {
+        return retryBackoffSeconds;
+    }
+
+    public Integer getClaimLeaseSeconds() {
+        return claimLeaseSeconds;
+    }
+}
@@ -7,24 +7,27 @@ import org.thymeleaf.templatemode.TemplateMode;
 import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
 
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
 
 @Configuration
 public class MailSendingConfig {
 
     @Bean
-    public SpringTemplateEngine springTemplateEngine() {
+    public SpringTemplateEngine springTemplateEngine(MailTemplateConfigurationProperties mailTemplateConfigurationProperties) {
         SpringTemplateEngine templateEngine = new SpringTemplateEngine();
-        templateEngine.addTemplateResolver(htmlTemplateResolver());
+        templateEngine.addTemplateResolver(htmlTemplateResolver(mailTemplateConfigurationProperties));
         return templateEngine;
     }
 
-    public ClassLoaderTemplateResolver htmlTemplateResolver(){
+    public ClassLoaderTemplateResolver htmlTemplateResolver(MailTemplateConfigurationProperties mailTemplateConfigurationProperties){
         var emailTemplateResolver = new ClassLoaderTemplateResolver();
         emailTemplateResolver.setPrefix("/templates/");
         emailTemplateResolver.setSuffix(".html");
         emailTemplateResolver.setTemplateMode(TemplateMode.HTML);
         emailTemplateResolver.setCharacterEncoding(StandardCharsets.UTF_8.name());
-        emailTemplateResolver.setCacheable(false);
+        // parsed templates are kept by the engine, disable it in dev to pick up template edits
+        emailTemplateResolver.setCacheable(mailTemplateConfigurationProperties.isCacheable());
+        emailTemplateResolver.setCacheTTLMs(TimeUnit.MINUTES.toMillis(mailTemplateConfigurationProperties.getCacheTtlMinutes()));
         return emailTemplateResolver;
     }
 }
@@ -0,0 +1,42 @@
+package org.gmalliaris.rental.rooms.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+@ConfigurationProperties(prefix = "mail.templates")
+@ConstructorBinding
+@Validated
+public class MailTemplateConfigurationProperties {
+
+    private static final int DEFAULT_CACHE_TTL_MINUTES = 60;
+
+    private final Boolean cacheable;
+
+    @Min(1)
+    @Max(1440)
+    private final Integer cacheTtlMinutes;
+
+    public MailTemplateConfigurationProperties(Boolean cacheable, Integer cacheTtlMinutes) {
+        if (cacheable == null) {
+            cacheable = true;
+        }
+        if (cacheTtlMinutes == null) {
+            cacheTtlMinutes = DEFAULT_CACHE_TTL_MINUTES;
+        }
+
+        this.cacheable = cacheable;
+        this.cacheTtlMinutes = cacheTtlMinutes;
+    }
+
+    public boolean isCacheable() {
+        return cacheable;
+    }
+
+    public Integer getCacheTtlMinutes() {
+        return cacheTtlMinutes;
+    }
+}
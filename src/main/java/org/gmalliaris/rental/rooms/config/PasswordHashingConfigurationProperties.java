@@ -0,0 +1,82 @@
+package org.gmalliaris.rental.rooms.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+@ConfigurationProperties(prefix = "password.hashing")
+@ConstructorBinding
+@Validated
+public class PasswordHashingConfigurationProperties {
+
+    private static final int DEFAULT_THREADS = 2;
+    private static final int DEFAULT_QUEUE_CAPACITY = 64;
+    private static final int DEFAULT_STRENGTH = 10;
+    private static final int DEFAULT_CALIBRATION_TARGET_MILLIS = 250;
+
+    @Min(1)
+    @Max(64)
+    private final Integer threads;
+
+    @Min(1)
+    @Max(10_000)
+    private final Integer queueCapacity;
+
+    @Min(4)
+    @Max(16)
+    private final Integer strength;
+
+    private final Boolean calibrate;
+
+    @Min(10)
+    @Max(5_000)
+    private final Integer calibrationTargetMillis;
+
+    public PasswordHashingConfigurationProperties(Integer threads, Integer queueCapacity, Integer strength,
+                                                  Boolean calibrate, Integer calibrationTargetMillis) {
+        if (threads == null) {
+            threads = DEFAULT_THREADS;
+        }
+        if (queueCapacity == null) {
+            queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        }
+        if (strength == null) {
+            strength = DEFAULT_STRENGTH;
+        }
+        if (calibrate == null) {
+            calibrate = false;
+        }
+        if (calibrationTargetMillis == null) {
+            calibrationTargetMillis = DEFAULT_CALIBRATION_TARGET_MILLIS;
+        }
+
+        this.threads = threads;
+        this.queueCapacity = queueCapacity;
+        this.strength = strength;
+        this.calibrate = calibrate;
+        this.calibrationTargetMillis = calibrationTargetMillis;
+    }
+
+    public Integer getThreads() {
+        return threads;
+    }
+
+    public Integer getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public Integer getStrength() {
+        return strength;
+    }
+
+    public boolean isCalibrate() {
+        return calibrate;
+    }
+
+    public Integer getCalibrationTargetMillis() {
+        return calibrationTargetMillis;
+    }
+}
@@ -0,0 +1,45 @@
+package org.gmalliaris.rental.rooms.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+@ConfigurationProperties(prefix = "principal")
+@ConstructorBinding
+@Validated
+public class PrincipalCacheConfigurationProperties {
+
+    private static final int CACHE_DEFAULT_EXPIRATION_SECONDS = 30;
+    private static final int CACHE_DEFAULT_MAXIMUM_SIZE = 10_000;
+
+    @Min(1)
+    @Max(300)
+    private final Integer cacheExpirationSeconds;
+
+    @Min(100)
+    @Max(1_000_000)
+    private final Integer cacheMaximumSize;
+
+    public PrincipalCacheConfigurationProperties(Integer cacheExpirationSeconds, Integer cacheMaximumSize) {
+        if (cacheExpirationSeconds == null) {
+            cacheExpirationSeconds = CACHE_DEFAULT_EXPIRATION_SECONDS;
+        }
+        if (cacheMaximumSize == null) {
+            cacheMaximumSize = CACHE_DEFAULT_MAXIMUM_SIZE;
+        }
+
+        this.cacheExpirationSeconds = cacheExpirationSeconds;
+        this.cacheMaximumSize = cacheMaximumSize;
+    }
+
+    public Integer getCacheExpirationSeconds() {
+        return cacheExpirationSeconds;
+    }
+
+    public Integer getCacheMaximumSize() {
+        return cacheMaximumSize;
+    }
+}
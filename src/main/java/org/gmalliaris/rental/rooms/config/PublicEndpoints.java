@@ -0,0 +1,25 @@
+package org.gmalliaris.rental.rooms.config;
+
+import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public final class PublicEndpoints {
+
+    private static final String[] PERMITTED_ENDPOINTS = new String[]{"/auth/register",
+            "/auth/login", "/auth/confirm/**"};
+    private static final String[] SWAGGER_ENDPOINTS = new String[]{ "/swagger-ui/**", "/v3/api-docs/**"};
+
+    // Compiled once and shared by the security config and the jwt filter, so both always agree on what is public
+    public static final RequestMatcher MATCHER = new OrRequestMatcher(
+            Stream.concat(Stream.of(PERMITTED_ENDPOINTS), Stream.of(SWAGGER_ENDPOINTS))
+                    .map(AntPathRequestMatcher::new)
+                    .collect(Collectors.toList()));
+
+    private PublicEndpoints() {
+        // hide implicit constructor
+    }
+}
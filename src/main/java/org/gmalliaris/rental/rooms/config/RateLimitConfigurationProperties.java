@@ -0,0 +1,45 @@
+package org.gmalliaris.rental.rooms.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+@ConfigurationProperties(prefix = "rate.limit")
+@ConstructorBinding
+@Validated
+public class RateLimitConfigurationProperties {
+
+    private static final int DEFAULT_CONFIRM_RESET_MAX_REQUESTS = 3;
+    private static final int DEFAULT_CONFIRM_RESET_WINDOW_SECONDS = 600;
+
+    @Min(1)
+    @Max(100)
+    private final Integer confirmResetMaxRequests;
+
+    @Min(10)
+    @Max(86400)
+    private final Integer confirmResetWindowSeconds;
+
+    public RateLimitConfigurationProperties(Integer confirmResetMaxRequests, Integer confirmResetWindowSeconds) {
+        if (confirmResetMaxRequests == null) {
+            confirmResetMaxRequests = DEFAULT_CONFIRM_RESET_MAX_REQUESTS;
+        }
+        if (confirmResetWindowSeconds == null) {
+            confirmResetWindowSeconds = DEFAULT_CONFIRM_RESET_WINDOW_SECONDS;
+        }
+
+        this.confirmResetMaxRequests = confirmResetMaxRequests;
+        this.confirmResetWindowSeconds = confirmResetWindowSeconds;
+    }
+
+    public Integer getConfirmResetMaxRequests() {
+        return confirmResetMaxRequests;
+    }
+
+    public Integer getConfirmResetWindowSeconds() {
+        return confirmResetWindowSeconds;
+    }
+}
@@ -1,25 +1,40 @@
 package org.gmalliaris.rental.rooms.config;
 
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.SocketOptions;
+import org.gmalliaris.rental.rooms.service.BlacklistService;
+import org.gmalliaris.rental.rooms.service.SessionEpochService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
-import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.RedisPassword;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.jedis.JedisClientConfiguration;
 import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.lang.NonNull;
+import redis.clients.jedis.JedisPoolConfig;
+
+import java.time.Duration;
 
 @Configuration
 @EnableCaching
 @Profile("!disable-jwt-auth")
-public class RedisConfiguration {
+public class RedisConfiguration implements ApplicationListener<ApplicationReadyEvent> {
     private static final Logger LOGGER = LoggerFactory.getLogger(RedisConfiguration.class);
-    private static final String CONNECTION_CHECK = "check";
 
     private final RedisConfigurationProperties redisConfigurationProperties;
 
@@ -29,32 +44,83 @@ public class RedisConfiguration {
     }
 
     @Bean
-    public RedisTemplate<String, String> redisTemplate() {
+    public RedisConnectionFactory redisConnectionFactory() {
+        var configuration = new RedisStandaloneConfiguration(redisConfigurationProperties.getHost(),
+                redisConfigurationProperties.getPort());
+        configuration.setPassword(RedisPassword.of(redisConfigurationProperties.getPassword()));
+
+        if (redisConfigurationProperties.getClientType() == RedisProperties.ClientType.LETTUCE) {
+            return lettuceConnectionFactory(configuration);
+        }
+        return jedisConnectionFactory(configuration);
+    }
+
+    @Bean
+    public RedisTemplate<String, String> redisTemplate(RedisConnectionFactory redisConnectionFactory) {
         final var redisTemplate = new RedisTemplate<String, String>();
 
         var serializer = new StringRedisSerializer();
         redisTemplate.setKeySerializer(serializer);
         redisTemplate.setValueSerializer(serializer);
+        redisTemplate.setConnectionFactory(redisConnectionFactory);
 
-        var configuration = new RedisStandaloneConfiguration(redisConfigurationProperties.getHost(),
-                redisConfigurationProperties.getPort());
-        configuration.setPassword(RedisPassword.of(redisConfigurationProperties.getPassword()));
-        var jedisClientConfiguration = JedisClientConfiguration.builder().build();
-        var jedisConnectionFactory = new JedisConnectionFactory(configuration, jedisClientConfiguration);
-        jedisConnectionFactory.afterPropertiesSet();
-
-        redisTemplate.setConnectionFactory(jedisConnectionFactory);
-        redisTemplate.afterPropertiesSet();
+        return redisTemplate;
+    }
 
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                       BlacklistService blacklistService,
+                                                                       SessionEpochService sessionEpochService) {
+        var container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(blacklistService, new ChannelTopic(BlacklistService.TOKEN_GROUP_BLACKLIST_CHANNEL));
+        container.addMessageListener(sessionEpochService, new ChannelTopic(SessionEpochService.SESSION_EPOCH_CHANNEL));
+        return container;
+    }
 
-        try {
-            redisTemplate.opsForValue().get(CONNECTION_CHECK);
+    // Connections are established on demand, an unreachable redis is reported here and by the health endpoint
+    @Override
+    public void onApplicationEvent(@NonNull ApplicationReadyEvent event) {
+        try (var connection = redisConnectionFactory().getConnection()) {
+            connection.ping();
         }
-        catch (RedisConnectionFailureException ex) {
-            LOGGER.error("Failed to connect to redis cache");
-            throw ex;
+        catch (DataAccessException ex) {
+            LOGGER.warn("Failed to connect to redis cache, retrying on demand", ex);
         }
+    }
 
-        return redisTemplate;
+    private JedisConnectionFactory jedisConnectionFactory(RedisStandaloneConfiguration configuration) {
+        var poolConfig = new JedisPoolConfig();
+        poolConfig.setMaxTotal(redisConfigurationProperties.getPoolMaxActive());
+        poolConfig.setMaxIdle(redisConfigurationProperties.getPoolMaxIdle());
+        poolConfig.setMinIdle(redisConfigurationProperties.getPoolMinIdle());
+        poolConfig.setMaxWait(Duration.ofMillis(redisConfigurationProperties.getPoolMaxWaitMillis()));
+
+        var clientConfiguration = JedisClientConfiguration.builder()
+                .connectTimeout(Duration.ofMillis(redisConfigurationProperties.getConnectTimeoutMillis()))
+                .readTimeout(Duration.ofMillis(redisConfigurationProperties.getCommandTimeoutMillis()))
+                .usePooling()
+                .poolConfig(poolConfig)
+                .build();
+        return new JedisConnectionFactory(configuration, clientConfiguration);
+    }
+
+    // A single multiplexed connection is shared by all threads, no pool to wait on
+    private LettuceConnectionFactory lettuceConnectionFactory(RedisStandaloneConfiguration configuration) {
+        var socketOptions = SocketOptions.builder()
+                .connectTimeout(Duration.ofMillis(redisConfigurationProperties.getConnectTimeoutMillis()))
+                .build();
+        var clientOptions = ClientOptions.builder()
+                .socketOptions(socketOptions)
+                .disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS)
+                .build();
+
+        var clientConfiguration = LettuceClientConfiguration.builder()
+                .commandTimeout(Duration.ofMillis(redisConfigurationProperties.getCommandTimeoutMillis()))
+                .clientOptions(clientOptions)
+                .build();
+        var lettuceConnectionFactory = new LettuceConnectionFactory(configuration, clientConfiguration);
+        lettuceConnectionFactory.setShareNativeConnection(true);
+        return lettuceConnectionFactory;
     }
 }
@@ -1,9 +1,12 @@
 package org.gmalliaris.rental.rooms.config;
 
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.boot.context.properties.ConstructorBinding;
 import org.springframework.validation.annotation.Validated;
 
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 
@@ -12,6 +15,14 @@ import javax.validation.constraints.NotNull;
 @ConstructorBinding
 public class RedisConfigurationProperties {
 
+    private static final RedisProperties.ClientType DEFAULT_CLIENT_TYPE = RedisProperties.ClientType.JEDIS;
+    private static final int DEFAULT_POOL_MAX_ACTIVE = 16;
+    private static final int DEFAULT_POOL_MAX_IDLE = 16;
+    private static final int DEFAULT_POOL_MIN_IDLE = 2;
+    private static final int DEFAULT_POOL_MAX_WAIT_MILLIS = 500;
+    private static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 2000;
+    private static final int DEFAULT_COMMAND_TIMEOUT_MILLIS = 2000;
+
     @NotBlank
     private final String host;
 
@@ -21,10 +32,69 @@ public class RedisConfigurationProperties {
     @NotBlank
     private final String password;
 
-    public RedisConfigurationProperties(String host, Integer port, String password) {
+    @NotNull
+    private final RedisProperties.ClientType clientType;
+
+    @Min(1)
+    @Max(512)
+    private final Integer poolMaxActive;
+
+    @Min(0)
+    @Max(512)
+    private final Integer poolMaxIdle;
+
+    @Min(0)
+    @Max(512)
+    private final Integer poolMinIdle;
+
+    @Min(1)
+    @Max(60000)
+    private final Integer poolMaxWaitMillis;
+
+    @Min(100)
+    @Max(60000)
+    private final Integer connectTimeoutMillis;
+
+    @Min(100)
+    @Max(60000)
+    private final Integer commandTimeoutMillis;
+
+    public RedisConfigurationProperties(String host, Integer port, String password,
+                                        RedisProperties.ClientType clientType, Integer poolMaxActive,
+                                        Integer poolMaxIdle, Integer poolMinIdle, Integer poolMaxWaitMillis,
+                                        Integer connectTimeoutMillis, Integer commandTimeoutMillis) {
+        if (clientType == null) {
+            clientType = DEFAULT_CLIENT_TYPE;
+        }
+        if (poolMaxActive == null) {
+            poolMaxActive = DEFAULT_POOL_MAX_ACTIVE;
+        }
+        if (poolMaxIdle == null) {
+            poolMaxIdle = DEFAULT_POOL_MAX_IDLE;
+        }
+        if (poolMinIdle == null) {
+            poolMinIdle = DEFAULT_POOL_MIN_IDLE;
+        }
+        if (poolMaxWaitMillis == null) {
+            poolMaxWaitMillis = DEFAULT_POOL_MAX_WAIT_MILLIS;
+        }
+        if (connectTimeoutMillis == null) {
+            connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+        }
+        if (commandTimeoutMillis == null) {
+            commandTimeoutMillis = DEFAULT_COMMAND_TIMEOUT_MILLIS;
+        }
+
         this.host = host;
         this.port = port;
         this.password = password;
+        this.clientType = clientType;
+        this.poolMaxActive = poolMaxActive;
+        this.poolMaxIdle = poolMaxIdle;
+        this.poolMinIdle = poolMinIdle;
+        this.poolMaxWaitMillis = poolMaxWaitMillis;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.commandTimeoutMillis = commandTimeoutMillis;
     }
 
     public String getHost() {
@@ -38,4 +108,32 @@ public class RedisConfigurationProperties {
     public String getPassword() {
         return password;
     }
+
+    public RedisProperties.ClientType getClientType() {
+        return clientType;
+    }
+
+    public Integer getPoolMaxActive() {
+        return poolMaxActive;
+    }
+
+    public Integer getPoolMaxIdle() {
+        return poolMaxIdle;
+    }
+
+    public Integer getPoolMinIdle() {
+        return poolMinIdle;
+    }
+
+    public Integer getPoolMaxWaitMillis() {
+        return poolMaxWaitMillis;
+    }
+
+    public Integer getConnectTimeoutMillis() {
+        return connectTimeoutMillis;
+    }
+
+    public Integer getCommandTimeoutMillis() {
+        return commandTimeoutMillis;
+    }
 }
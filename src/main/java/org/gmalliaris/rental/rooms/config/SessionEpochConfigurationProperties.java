@@ -0,0 +1,72 @@
+package org.gmalliaris.rental.rooms.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+@ConfigurationProperties(prefix = "session.epoch")
+@ConstructorBinding
+@Validated
+public class SessionEpochConfigurationProperties {
+
+    private static final int CACHE_DEFAULT_MAXIMUM_SIZE = 100_000;
+    private static final int CACHE_DEFAULT_REFRESH_SECONDS = 5;
+    private static final int BREAKER_DEFAULT_FAILURE_THRESHOLD = 5;
+    private static final int BREAKER_DEFAULT_OPEN_SECONDS = 10;
+
+    @Min(1_000)
+    @Max(1_000_000)
+    private final Integer cacheMaximumSize;
+
+    @Min(1)
+    @Max(60)
+    private final Integer cacheRefreshSeconds;
+
+    @Min(1)
+    @Max(100)
+    private final Integer breakerFailureThreshold;
+
+    @Min(1)
+    @Max(300)
+    private final Integer breakerOpenSeconds;
+
+    public SessionEpochConfigurationProperties(Integer cacheMaximumSize, Integer cacheRefreshSeconds,
+                                               Integer breakerFailureThreshold, Integer breakerOpenSeconds) {
+        if (cacheMaximumSize == null) {
+            cacheMaximumSize = CACHE_DEFAULT_MAXIMUM_SIZE;
+        }
+        if (cacheRefreshSeconds == null) {
+            cacheRefreshSeconds = CACHE_DEFAULT_REFRESH_SECONDS;
+        }
+        if (breakerFailureThreshold == null) {
+            breakerFailureThreshold = BREAKER_DEFAULT_FAILURE_THRESHOLD;
+        }
+        if (breakerOpenSeconds == null) {
+            breakerOpenSeconds = BREAKER_DEFAULT_OPEN_SECONDS;
+        }
+
+        this.cacheMaximumSize = cacheMaximumSize;
+        this.cacheRefreshSeconds = cacheRefreshSeconds;
+        this.breakerFailureThreshold = breakerFailureThreshold;
+        this.breakerOpenSeconds = breakerOpenSeconds;
+    }
+
+    public Integer getCacheMaximumSize() {
+        return cacheMaximumSize;
+    }
+
+    public Integer getCacheRefreshSeconds() {
+        return cacheRefreshSeconds;
+    }
+
+    public Integer getBreakerFailureThreshold() {
+        return breakerFailureThreshold;
+    }
+
+    public Integer getBreakerOpenSeconds() {
+        return breakerOpenSeconds;
+    }
+}
@@ -0,0 +1,32 @@
+package org.gmalliaris.rental.rooms.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.ConstructorBinding;
+import org.springframework.validation.annotation.Validated;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+@ConfigurationProperties(prefix = "user.import")
+@ConstructorBinding
+@Validated
+public class UserImportConfigurationProperties {
+
+    private static final int DEFAULT_BATCH_SIZE = 500;
+
+    @Min(1)
+    @Max(5_000)
+    private final Integer batchSize;
+
+    public UserImportConfigurationProperties(Integer batchSize) {
+        if (batchSize == null) {
+            batchSize = DEFAULT_BATCH_SIZE;
+        }
+
+        this.batchSize = batchSize;
+    }
+
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+}
@@ -1,5 +1,6 @@
 package org.gmalliaris.rental.rooms.config;
 
+import org.gmalliaris.rental.rooms.entity.UserRoleName;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -19,9 +20,7 @@ import java.util.List;
 @EnableGlobalMethodSecurity(prePostEnabled = true)
 public class WebSecurityConfig {
 
-    private static final String[] PERMITTED_ENDPOINTS = new String[]{"/auth/register",
-            "/auth/login", "/auth/confirm/**"};
-    private static final String[] SWAGGER_ENDPOINTS = new String[]{ "/swagger-ui/**", "/v3/api-docs/**"};
+    private static final String[] ACTUATOR_ENDPOINTS = new String[]{ "/actuator/**" };
 
     @Value("${cors.allowedOrigins:}")
     private List<String> allowedOrigins;
@@ -38,8 +37,8 @@ public class WebSecurityConfig {
     protected SecurityFilterChain securityFilterChain(HttpSecurity http, CorsConfiguration corsConfiguration) throws Exception {
         http.csrf().disable()
                 .authorizeRequests()
-                .antMatchers(PERMITTED_ENDPOINTS).permitAll()
-                .antMatchers(SWAGGER_ENDPOINTS).permitAll()
+                .requestMatchers(PublicEndpoints.MATCHER).permitAll()
+                .antMatchers(ACTUATOR_ENDPOINTS).hasRole(UserRoleName.ROLE_ADMIN.getValue())
                 .anyRequest().authenticated()
                 .and()
                 .exceptionHandling()
@@ -1,10 +1,10 @@
 package org.gmalliaris.rental.rooms.config;
 
 import org.gmalliaris.rental.rooms.service.AccountUserSecurityService;
+import org.gmalliaris.rental.rooms.service.PasswordHashingService;
 import org.springframework.context.annotation.Profile;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.stereotype.Component;
 
@@ -13,12 +13,12 @@ import org.springframework.stereotype.Component;
 public class WebSecurityConfigServiceImpl implements WebSecurityConfigService {
 
     private final JwtAuthFilter jwtAuthFilter;
-    private final BCryptPasswordEncoder bCryptPasswordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final AccountUserSecurityService accountUserSecurityService;
 
-    public WebSecurityConfigServiceImpl(JwtAuthFilter jwtAuthFilter, BCryptPasswordEncoder bCryptPasswordEncoder, AccountUserSecurityService accountUserSecurityService) {
+    public WebSecurityConfigServiceImpl(JwtAuthFilter jwtAuthFilter, PasswordHashingService passwordHashingService, AccountUserSecurityService accountUserSecurityService) {
         this.jwtAuthFilter = jwtAuthFilter;
-        this.bCryptPasswordEncoder = bCryptPasswordEncoder;
+        this.passwordHashingService = passwordHashingService;
         this.accountUserSecurityService = accountUserSecurityService;
     }
 
@@ -30,7 +30,7 @@ public class WebSecurityConfigServiceImpl implements WebSecurityConfigService {
     @Override
     public void configureHttpSecurityAuthenticationProvider(HttpSecurity httpSecurity) {
         var authProvider = new DaoAuthenticationProvider();
-        authProvider.setPasswordEncoder(bCryptPasswordEncoder);
+        authProvider.setPasswordEncoder(passwordHashingService);
         authProvider.setUserDetailsService(accountUserSecurityService);
         httpSecurity.authenticationProvider(authProvider);
     }
@@ -6,15 +6,21 @@ public final class ApiExceptionMessageConstants {
     public static final String UNAUTHORIZED_MESSAGE = "User is unauthorized.";
     public static final String USER_TABLES_INIT_ERROR = "Failed to initialize user tables on startup.";
     public static final String INVALID_USER_ROLES_REGISTRATION = "Cannot register as admin user.";
+    public static final String UNKNOWN_USER_ROLES = "User roles must be existing roles.";
     public static final String USED_EMAIL = "Provided email is already in use.";
     public static final String USED_PHONE_NUMBER = "Provided phone number is already in use.";
     public static final String INVALID_CREDENTIALS = "Invalid username and/or password.";
     public static final String ENTITY_NOT_FOUND_TEMPLATE = "%s entity '%s' not found.";
     public static final String ENTITY_OF_ENTITY_NOT_FOUND_TEMPLATE = "%s entity of %s entity '%s' not found.";
-    public static final String FAILED_EMAIL = "Failed to send email for %s.";
     public static final String CONFIRMATION_TOKEN_EXPIRED = "Confirmation token has expired.";
     public static final String CONFIRMATION_TOKEN_ALREADY_USED = "Confirmation token has already used to confirm registration.";
     public static final String USER_ALREADY_CONFIRMED = "User registration has already been confirmed.";
+    public static final String INVALID_PAGE_LIMIT_TEMPLATE = "Page limit must be between 1 and %d.";
+    public static final String INVALID_PAGE_CURSOR = "Invalid page cursor.";
+    public static final String CONFIRMATION_RESET_RATE_LIMITED = "Too many confirmation emails requested, try again later.";
+    public static final String PASSWORD_HASHING_UNAVAILABLE = "Too many requests are being processed, try again later.";
+    public static final String SESSION_REVOCATION_UNAVAILABLE = "Sessions could not be revoked, try again later.";
+    public static final String SESSION_UNAVAILABLE = "Sessions are temporarily unavailable, try again later.";
 
     private ApiExceptionMessageConstants(){
         // hide implicit constructor
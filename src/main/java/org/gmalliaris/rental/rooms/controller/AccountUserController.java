@@ -7,26 +7,44 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import org.gmalliaris.rental.rooms.config.exception.ExceptionResponse;
+import org.gmalliaris.rental.rooms.dto.AccountUserPageResponse;
+import org.gmalliaris.rental.rooms.dto.AccountUserSortKey;
 import org.gmalliaris.rental.rooms.dto.CurrentAccountUserResponse;
+import org.gmalliaris.rental.rooms.dto.UserImportResult;
+import org.gmalliaris.rental.rooms.entity.UserRoleName;
+import org.gmalliaris.rental.rooms.service.AccountUserImportService;
 import org.gmalliaris.rental.rooms.service.AccountUserService;
 import org.gmalliaris.rental.rooms.service.SecurityService;
 import org.modelmapper.ModelMapper;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
 @RestController
 @RequestMapping("/users")
 @SecurityRequirement(name = "BearerAccessToken")
 public class AccountUserController {
 
+    private static final String DEFAULT_PAGE_LIMIT = "50";
+
     private final AccountUserService accountUserService;
+    private final AccountUserImportService accountUserImportService;
     private final SecurityService securityService;
     private final ModelMapper modelMapper;
 
-    public AccountUserController(AccountUserService accountUserService, SecurityService securityService, ModelMapper modelMapper) {
+    public AccountUserController(AccountUserService accountUserService, AccountUserImportService accountUserImportService,
+                                 SecurityService securityService, ModelMapper modelMapper) {
         this.accountUserService = accountUserService;
+        this.accountUserImportService = accountUserImportService;
         this.securityService = securityService;
         this.modelMapper = modelMapper;
     }
@@ -51,4 +69,52 @@ public class AccountUserController {
         var currentUser = accountUserService.findAccountUserById(currentUserId);
         return modelMapper.map(currentUser, CurrentAccountUserResponse.class);
     }
+
+    @GetMapping
+    @PreAuthorize("hasRole('ADMIN')")
+    @Transactional(readOnly = true)
+    @Operation(summary = "List users, page by page")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "Requested page of users",
+                    content = { @Content(schema = @Schema(implementation = AccountUserPageResponse.class)) }),
+            @ApiResponse(responseCode = "400",
+                    description = "Invalid page limit or cursor",
+                    content = { @Content(schema = @Schema(implementation = ExceptionResponse.class)) }),
+            @ApiResponse(responseCode = "401",
+                    description = "Current user is unauthorized",
+                    content = { @Content(schema = @Schema(implementation = ExceptionResponse.class)) }),
+            @ApiResponse(responseCode = "403",
+                    description = "Current user is not an admin",
+                    content = { @Content(schema = @Schema(implementation = ExceptionResponse.class)) })
+    })
+    public AccountUserPageResponse findAccountUsers(@RequestParam(defaultValue = "ID") AccountUserSortKey sortBy,
+                                                    @RequestParam(required = false) String after,
+                                                    @RequestParam(required = false) UserRoleName role,
+                                                    @RequestParam(required = false) Boolean enabled,
+                                                    @RequestParam(defaultValue = DEFAULT_PAGE_LIMIT) int limit){
+        return accountUserService.findAccountUsers(sortBy, after, role, enabled, limit);
+    }
+
+    @PostMapping(value = "/import",
+            consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE },
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Import users from a JSON array or NDJSON stream")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200",
+                    description = "One result per imported record, streamed as NDJSON",
+                    content = { @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE,
+                            schema = @Schema(implementation = UserImportResult.class)) }),
+            @ApiResponse(responseCode = "401",
+                    description = "Current user is unauthorized",
+                    content = { @Content(schema = @Schema(implementation = ExceptionResponse.class)) }),
+            @ApiResponse(responseCode = "403",
+                    description = "Current user is not an admin",
+                    content = { @Content(schema = @Schema(implementation = ExceptionResponse.class)) })
+    })
+    public void importUsers(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        accountUserImportService.importUsers(request.getInputStream(), response.getOutputStream());
+    }
 }
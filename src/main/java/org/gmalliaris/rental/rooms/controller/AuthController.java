@@ -51,7 +51,6 @@ public class AuthController {
     }
 
     @PostMapping("/login")
-    @Transactional(readOnly = true)
     @Operation(summary = "Login as user")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200",
@@ -59,6 +58,9 @@ public class AuthController {
                     content = { @Content(schema = @Schema(implementation = AccountUserAuthResponse.class)) }),
             @ApiResponse(responseCode = "401",
                     description = "Invalid user credentials",
+                    content = { @Content(schema = @Schema(implementation = ExceptionResponse.class)) }),
+            @ApiResponse(responseCode = "503",
+                    description = "Sessions are temporarily unavailable",
                     content = { @Content(schema = @Schema(implementation = ExceptionResponse.class)) })
     })
     public AccountUserAuthResponse loginAccountUser(@RequestBody @Valid LoginRequest loginRequest){
@@ -81,6 +83,25 @@ public class AuthController {
         accountUserService.logoutUser(authorizationHeader);
     }
 
+    @PostMapping("/logout-all")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    @Operation(summary = "Logout user from all devices", security = { @SecurityRequirement(name = "BearerAccessToken") })
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "204",
+                    description = "User logged out from all devices",
+                    content = { @Content(schema = @Schema )}),
+            @ApiResponse(responseCode = "401",
+                    description = "Invalid user credentials",
+                    content = { @Content(schema = @Schema(implementation = ExceptionResponse.class)) }),
+            @ApiResponse(responseCode = "503",
+                    description = "Sessions could not be revoked",
+                    content = { @Content(schema = @Schema(implementation = ExceptionResponse.class)) })
+    })
+    public void logoutAccountUserEverywhere(){
+        var currentUserId = securityService.getCurrentUserId();
+        accountUserService.logoutUserEverywhere(currentUserId);
+    }
+
     @GetMapping("/refresh")
     @Transactional(readOnly = true)
     @Operation(summary = "Refresh auth token(s)", security = { @SecurityRequirement(name = "BearerRefreshToken") })
@@ -93,6 +114,9 @@ public class AuthController {
                     content = { @Content(schema = @Schema(implementation = ExceptionResponse.class)) }),
             @ApiResponse(responseCode = "500",
                     description = "Current user not found",
+                    content = { @Content(schema = @Schema(implementation = ExceptionResponse.class)) }),
+            @ApiResponse(responseCode = "503",
+                    description = "Sessions are temporarily unavailable",
                     content = { @Content(schema = @Schema(implementation = ExceptionResponse.class)) })
     })
     public AccountUserAuthResponse refreshAuthTokens(@Schema(hidden = true) @RequestHeader("Authorization") String authorizationHeader){
@@ -117,6 +141,9 @@ public class AuthController {
             @ApiResponse(responseCode = "409",
                     description = "Invalid user action",
                     content = { @Content(schema = @Schema(implementation = ExceptionResponse.class)) }),
+            @ApiResponse(responseCode = "429",
+                    description = "Too many confirmation emails requested",
+                    content = { @Content(schema = @Schema(implementation = ExceptionResponse.class)) }),
             @ApiResponse(responseCode = "500",
                     description = "Current user not found",
                     content = { @Content(schema = @Schema(implementation = ExceptionResponse.class)) })
@@ -0,0 +1,30 @@
+package org.gmalliaris.rental.rooms.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import javax.validation.constraints.NotNull;
+import java.util.List;
+
+@Schema
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AccountUserPageResponse {
+
+    @NotNull
+    private final List<AccountUserSummaryResponse> users;
+    // pass as 'after' to get the next page, missing on the last page
+    private final String nextCursor;
+
+    public AccountUserPageResponse(List<AccountUserSummaryResponse> users, String nextCursor) {
+        this.users = users;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<AccountUserSummaryResponse> getUsers() {
+        return users;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -5,10 +5,10 @@ import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 public class AccountUserSecurityDetails implements UserDetails {
 
@@ -25,8 +25,21 @@ public class AccountUserSecurityDetails implements UserDetails {
         this.email = user.getEmail();
         this.password = user.getPassword();
         this.enabled = user.isEnabled();
-        this.authorities = new ArrayList<>();
-        user.getRoles().forEach(role -> authorities.add(new SimpleGrantedAuthority(ROLE_PREFIX.concat(role.getName().getValue()))));
+        this.authorities = user.getRoles()
+                .stream()
+                .map(role -> new SimpleGrantedAuthority(ROLE_PREFIX.concat(role.getName().getValue())))
+                .collect(Collectors.toUnmodifiableList());
+    }
+
+    // Built from access token claims only, so the e-mail and password are not available
+    public AccountUserSecurityDetails(UUID id, boolean enabled, Collection<String> roleNames) {
+        this.id = id;
+        this.email = null;
+        this.password = null;
+        this.enabled = enabled;
+        this.authorities = roleNames.stream()
+                .map(roleName -> new SimpleGrantedAuthority(ROLE_PREFIX.concat(roleName)))
+                .collect(Collectors.toUnmodifiableList());
     }
 
     public UUID getId() {
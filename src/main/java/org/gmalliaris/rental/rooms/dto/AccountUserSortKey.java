@@ -0,0 +1,6 @@
+package org.gmalliaris.rental.rooms.dto;
+
+public enum AccountUserSortKey {
+    ID,
+    EMAIL
+}
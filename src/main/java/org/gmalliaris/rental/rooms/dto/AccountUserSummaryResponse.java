@@ -0,0 +1,55 @@
+package org.gmalliaris.rental.rooms.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import java.util.UUID;
+
+@Schema
+public class AccountUserSummaryResponse {
+
+    @NotNull
+    private final UUID id;
+    @NotBlank
+    private final String email;
+    @NotBlank
+    private final String firstName;
+    private final String lastName;
+    private final String phoneNumber;
+    private final boolean enabled;
+
+    public AccountUserSummaryResponse(UUID id, String email, String firstName, String lastName,
+                                      String phoneNumber, boolean enabled) {
+        this.id = id;
+        this.email = email;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.phoneNumber = phoneNumber;
+        this.enabled = enabled;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+}
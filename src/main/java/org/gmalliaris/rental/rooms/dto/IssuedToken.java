@@ -0,0 +1,34 @@
+package org.gmalliaris.rental.rooms.dto;
+
+import java.util.Date;
+
+public class IssuedToken {
+
+    private final String token;
+    private final String tokenId;
+    private final String tokenGroupId;
+    private final Date expiration;
+
+    public IssuedToken(String token, String tokenId, String tokenGroupId, Date expiration) {
+        this.token = token;
+        this.tokenId = tokenId;
+        this.tokenGroupId = tokenGroupId;
+        this.expiration = expiration;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public String getTokenGroupId() {
+        return tokenGroupId;
+    }
+
+    public Date getExpiration() {
+        return expiration;
+    }
+}
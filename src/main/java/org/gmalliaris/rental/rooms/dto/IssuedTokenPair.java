@@ -0,0 +1,21 @@
+package org.gmalliaris.rental.rooms.dto;
+
+public class IssuedTokenPair {
+
+    private final IssuedToken accessToken;
+    // null when the current refresh token is kept
+    private final IssuedToken refreshToken;
+
+    public IssuedTokenPair(IssuedToken accessToken, IssuedToken refreshToken) {
+        this.accessToken = accessToken;
+        this.refreshToken = refreshToken;
+    }
+
+    public IssuedToken getAccessToken() {
+        return accessToken;
+    }
+
+    public IssuedToken getRefreshToken() {
+        return refreshToken;
+    }
+}
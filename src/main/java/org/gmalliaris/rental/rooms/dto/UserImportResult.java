@@ -0,0 +1,37 @@
+package org.gmalliaris.rental.rooms.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+@Schema
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UserImportResult {
+
+    private final long index;
+    private final String email;
+    private final UserImportStatus status;
+    private final String message;
+
+    public UserImportResult(long index, String email, UserImportStatus status, String message) {
+        this.index = index;
+        this.email = email;
+        this.status = status;
+        this.message = message;
+    }
+
+    public long getIndex() {
+        return index;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public UserImportStatus getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
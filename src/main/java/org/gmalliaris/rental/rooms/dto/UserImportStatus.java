@@ -0,0 +1,7 @@
+package org.gmalliaris.rental.rooms.dto;
+
+public enum UserImportStatus {
+    CREATED,
+    INVALID,
+    CONFLICT
+}
@@ -0,0 +1,6 @@
+package org.gmalliaris.rental.rooms.entity;
+
+public enum MailOutboxStatus {
+    PENDING,
+    DEAD
+}
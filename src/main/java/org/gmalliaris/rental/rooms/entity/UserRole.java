@@ -1,5 +1,7 @@
 package org.gmalliaris.rental.rooms.entity;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.Immutable;
 
 import javax.persistence.*;
@@ -7,6 +9,8 @@ import java.util.Objects;
 
 @Entity
 @Immutable
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.NONSTRICT_READ_WRITE)
 @Table(name = "USER_ROLES")
 public class UserRole extends DefaultPersistable{
 
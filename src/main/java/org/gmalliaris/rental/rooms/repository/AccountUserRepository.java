@@ -1,19 +1,46 @@
 package org.gmalliaris.rental.rooms.repository;
 
 import org.gmalliaris.rental.rooms.entity.AccountUser;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
-public interface AccountUserRepository extends JpaRepository<AccountUser, UUID>
+public interface AccountUserRepository extends JpaRepository<AccountUser, UUID>, AccountUserRepositoryCustom
 {
+    // Roles are read by every caller, fetch them with the user instead of lazily
+    @Override
+    @EntityGraph(attributePaths = "roles")
+    Optional<AccountUser> findById(UUID id);
+
+    @EntityGraph(attributePaths = "roles")
     Optional<AccountUser> findByEmail(String email);
 
-    long countByEmail(String email);
+    // Served by the unique indexes of both columns, at most one row matches each
+    @Query("SELECT u.email FROM AccountUser u " +
+            "WHERE u.email = :email OR u.phoneNumber = :phoneNumber")
+    List<String> findEmailsByEmailOrPhoneNumber(@Param("email") String email,
+                                                @Param("phoneNumber") String phoneNumber);
+
+    @Query("SELECT u.email FROM AccountUser u WHERE u.email IN :emails")
+    List<String> findEmailsByEmailIn(@Param("emails") Collection<String> emails);
+
+    @Modifying
+    @Query("UPDATE AccountUser u SET u.enabled = true WHERE u.id = :id AND u.enabled = false")
+    int enableAccountUser(@Param("id") UUID id);
 
-    long countByPhoneNumber(String phoneNumber);
+    @Transactional
+    @Modifying
+    @Query("UPDATE AccountUser u SET u.password = :newPassword WHERE u.id = :id AND u.password = :oldPassword")
+    int updatePassword(@Param("id") UUID id, @Param("oldPassword") String oldPassword,
+                       @Param("newPassword") String newPassword);
 
     @Query("SELECT count(u) FROM AccountUser u " +
             "JOIN u.roles r " +
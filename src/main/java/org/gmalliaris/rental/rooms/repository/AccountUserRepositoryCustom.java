@@ -0,0 +1,14 @@
+package org.gmalliaris.rental.rooms.repository;
+
+import org.gmalliaris.rental.rooms.dto.AccountUserSortKey;
+import org.gmalliaris.rental.rooms.dto.AccountUserSummaryResponse;
+import org.gmalliaris.rental.rooms.entity.UserRoleName;
+
+import java.util.List;
+
+public interface AccountUserRepositoryCustom {
+
+    // Seeks past 'after' in the order of the sort key, neither entities nor their roles are loaded
+    List<AccountUserSummaryResponse> findSummariesAfter(AccountUserSortKey sortKey, Object after,
+                                                        UserRoleName role, Boolean enabled, int limit);
+}
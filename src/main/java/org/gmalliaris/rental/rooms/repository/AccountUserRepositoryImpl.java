@@ -0,0 +1,57 @@
+package org.gmalliaris.rental.rooms.repository;
+
+import org.gmalliaris.rental.rooms.dto.AccountUserSortKey;
+import org.gmalliaris.rental.rooms.dto.AccountUserSummaryResponse;
+import org.gmalliaris.rental.rooms.entity.AccountUser;
+import org.gmalliaris.rental.rooms.entity.UserRoleName;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.Predicate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+public class AccountUserRepositoryImpl implements AccountUserRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<AccountUserSummaryResponse> findSummariesAfter(AccountUserSortKey sortKey, Object after,
+                                                               UserRoleName role, Boolean enabled, int limit) {
+
+        var builder = entityManager.getCriteriaBuilder();
+        var query = builder.createQuery(AccountUserSummaryResponse.class);
+        var user = query.from(AccountUser.class);
+        query.select(builder.construct(AccountUserSummaryResponse.class,
+                user.get("id"), user.get("email"), user.get("firstName"), user.get("lastName"),
+                user.get("phoneNumber"), user.get("enabled")));
+
+        var predicates = new ArrayList<Predicate>();
+        var sortPath = sortKey == AccountUserSortKey.EMAIL ? "email" : "id";
+        if (after != null) {
+            predicates.add(sortKey == AccountUserSortKey.EMAIL
+                    ? builder.greaterThan(user.get(sortPath), (String) after)
+                    : builder.greaterThan(user.get(sortPath), (UUID) after));
+        }
+        if (enabled != null) {
+            predicates.add(builder.equal(user.get("enabled"), enabled));
+        }
+        if (role != null) {
+            // semi-join, a plain join would load and multiply rows per role
+            var subquery = query.subquery(UUID.class);
+            var subUser = subquery.correlate(user);
+            var subRole = subUser.join("roles");
+            subquery.select(subRole.get("id"))
+                    .where(builder.equal(subRole.get("name"), role));
+            predicates.add(builder.exists(subquery));
+        }
+
+        query.where(predicates.toArray(new Predicate[0]))
+                .orderBy(builder.asc(user.get(sortPath)));
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
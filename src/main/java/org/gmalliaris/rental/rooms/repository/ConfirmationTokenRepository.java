@@ -2,11 +2,30 @@ package org.gmalliaris.rental.rooms.repository;
 
 import org.gmalliaris.rental.rooms.entity.ConfirmationToken;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface ConfirmationTokenRepository extends JpaRepository<ConfirmationToken, UUID> {
 
     Optional<ConfirmationToken> findByAccountUserId(UUID accountUserId);
+
+    // Status and expiration are checked by the update itself, concurrent attempts cannot both consume the token.
+    // The user id is returned as text, hibernate has no scalar mapping for the uuid column type.
+    @Query(value = "UPDATE CONFIRMATION_TOKEN SET STATUS = 'ACTIVATED' " +
+            "WHERE ID = :id AND STATUS = 'PENDING' AND EXPIRATION_DATE >= :today " +
+            "RETURNING CAST(USER_ID AS VARCHAR)", nativeQuery = true)
+    Optional<String> consumePendingToken(@Param("id") UUID id, @Param("today") LocalDate today);
+
+    // Rotates the unused token of the user within its row, instead of deleting it and inserting a new one.
+    // Tokens already marked expired by the expiry job are put back to pending.
+    @Modifying
+    @Query(value = "UPDATE CONFIRMATION_TOKEN SET ID = :newId, EXPIRATION_DATE = :expirationDate, STATUS = 'PENDING' " +
+            "WHERE USER_ID = :userId AND STATUS IN ('PENDING', 'EXPIRED')", nativeQuery = true)
+    int rotatePendingToken(@Param("userId") UUID userId, @Param("newId") UUID newId,
+                           @Param("expirationDate") LocalDate expirationDate);
 }
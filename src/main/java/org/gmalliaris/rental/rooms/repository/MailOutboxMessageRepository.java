@@ -0,0 +1,30 @@
+package org.gmalliaris.rental.rooms.repository;
+
+import org.gmalliaris.rental.rooms.entity.MailOutboxMessage;
+import org.gmalliaris.rental.rooms.entity.MailOutboxStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+public interface MailOutboxMessageRepository extends JpaRepository<MailOutboxMessage, UUID> {
+
+    // -2 is hibernate's SKIP LOCKED, concurrent workers claim disjoint batches
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT m FROM MailOutboxMessage m " +
+            "WHERE m.status = :status AND m.nextAttemptAt <= :now " +
+            "ORDER BY m.nextAttemptAt")
+    List<MailOutboxMessage> findDueForUpdate(@Param("status") MailOutboxStatus status,
+                                             @Param("now") Instant now, Pageable pageable);
+
+    long countByStatus(MailOutboxStatus status);
+}
@@ -0,0 +1,282 @@
+package org.gmalliaris.rental.rooms.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.gmalliaris.rental.rooms.config.UserImportConfigurationProperties;
+import org.gmalliaris.rental.rooms.config.exception.ApiExceptionMessageConstants;
+import org.gmalliaris.rental.rooms.dto.CreateUserRequest;
+import org.gmalliaris.rental.rooms.dto.UserImportResult;
+import org.gmalliaris.rental.rooms.dto.UserImportStatus;
+import org.gmalliaris.rental.rooms.entity.UserRoleName;
+import org.gmalliaris.rental.rooms.repository.AccountUserRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Streams users from a JSON array or NDJSON body, one committed chunk at a time, and streams back a result per record
+@Service
+public class AccountUserImportService {
+
+    private static final String INSERT_USER_SQL = "INSERT INTO USERS " +
+            "(ID, EMAIL, PASSWORD, FIRST_NAME, LAST_NAME, PHONE_NUMBER, ENABLED) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?) ON CONFLICT DO NOTHING";
+    private static final String INSERT_USER_ROLE_SQL = "INSERT INTO USERS_X_USER_ROLES " +
+            "(USER_ID, USER_ROLE_ID) VALUES (?, ?)";
+    private static final String NULL_RECORD = "User record must not be null";
+    private static final String MALFORMED_INPUT_TEMPLATE = "Malformed JSON input, import stopped: %s";
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter resultWriter;
+    private final Validator validator;
+    private final JdbcTemplate jdbcTemplate;
+    private final AccountUserRepository accountUserRepository;
+    private final UserRoleService userRoleService;
+    private final PasswordHashingService passwordHashingService;
+    private final TransactionTemplate transactionTemplate;
+    private final UserImportConfigurationProperties userImportConfigurationProperties;
+
+    public AccountUserImportService(ObjectMapper objectMapper, Validator validator, JdbcTemplate jdbcTemplate,
+                                    AccountUserRepository accountUserRepository,
+                                    UserRoleService userRoleService,
+                                    PasswordHashingService passwordHashingService,
+                                    PlatformTransactionManager transactionManager,
+                                    UserImportConfigurationProperties userImportConfigurationProperties) {
+        this.objectMapper = objectMapper;
+        this.resultWriter = objectMapper.writer()
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.validator = validator;
+        this.jdbcTemplate = jdbcTemplate;
+        this.accountUserRepository = accountUserRepository;
+        this.userRoleService = userRoleService;
+        this.passwordHashingService = passwordHashingService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.userImportConfigurationProperties = userImportConfigurationProperties;
+    }
+
+    public void importUsers(InputStream input, OutputStream output) throws IOException {
+
+        var roleIds = new EnumMap<UserRoleName, UUID>(UserRoleName.class);
+        userRoleService.findAllUserRoles()
+                .forEach((name, role) -> roleIds.put(name, role.getId()));
+
+        var batchSize = userImportConfigurationProperties.getBatchSize();
+        try (var parser = objectMapper.getFactory().createParser(input);
+             var generator = objectMapper.getFactory().createGenerator(output)) {
+            generator.setRootValueSeparator(new SerializedString(System.lineSeparator()));
+
+            var chunk = new ArrayList<ImportRecord>(batchSize);
+            long index = 0;
+            try {
+                var token = parser.nextToken();
+                var arrayInput = token == JsonToken.START_ARRAY;
+                if (arrayInput) {
+                    token = parser.nextToken();
+                }
+                while (token != null && !(arrayInput && token == JsonToken.END_ARRAY)) {
+                    chunk.add(readRecord(parser, index));
+                    index++;
+                    if (chunk.size() == batchSize) {
+                        writeResults(generator, importChunk(chunk, roleIds));
+                        chunk.clear();
+                    }
+                    token = parser.nextToken();
+                }
+            }
+            catch (JsonProcessingException exception) {
+                writeResults(generator, importChunk(chunk, roleIds));
+                chunk.clear();
+                var errMsg = String.format(MALFORMED_INPUT_TEMPLATE, exception.getOriginalMessage());
+                writeResults(generator, List.of(new UserImportResult(index, null, UserImportStatus.INVALID, errMsg)));
+            }
+            writeResults(generator, importChunk(chunk, roleIds));
+        }
+    }
+
+    // Binding and validation errors only affect their own record, the tree keeps the parser in place
+    private ImportRecord readRecord(JsonParser parser, long index) throws IOException {
+
+        JsonNode tree = parser.readValueAsTree();
+        CreateUserRequest request;
+        try {
+            request = objectMapper.treeToValue(tree, CreateUserRequest.class);
+        }
+        catch (JsonProcessingException exception) {
+            return ImportRecord.failed(index, tree.path("email").textValue(),
+                    UserImportStatus.INVALID, exception.getOriginalMessage());
+        }
+        if (request == null) {
+            return ImportRecord.failed(index, null, UserImportStatus.INVALID, NULL_RECORD);
+        }
+
+        var violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            var errMsg = violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+            return ImportRecord.failed(index, request.getEmail(), UserImportStatus.INVALID, errMsg);
+        }
+        if (request.getRoles().contains(UserRoleName.ROLE_ADMIN)) {
+            return ImportRecord.failed(index, request.getEmail(), UserImportStatus.INVALID,
+                    ApiExceptionMessageConstants.INVALID_USER_ROLES_REGISTRATION);
+        }
+        return new ImportRecord(index, request);
+    }
+
+    List<UserImportResult> importChunk(List<ImportRecord> chunk, Map<UserRoleName, UUID> roleIds) {
+
+        if (chunk.isEmpty()) {
+            return List.of();
+        }
+
+        var emails = new HashSet<String>();
+        var phoneNumbers = new HashSet<String>();
+        var pending = new ArrayList<ImportRecord>(chunk.size());
+        for (var importRecord : chunk) {
+            if (importRecord.result != null) {
+                continue;
+            }
+            var request = importRecord.request;
+            // a role without an id would fail the batched role inserts of the whole chunk
+            if (!rolesAreKnown(request, roleIds)) {
+                importRecord.complete(UserImportStatus.INVALID, ApiExceptionMessageConstants.UNKNOWN_USER_ROLES);
+            }
+            else if (!emails.add(request.getEmail())) {
+                importRecord.complete(UserImportStatus.CONFLICT, ApiExceptionMessageConstants.USED_EMAIL);
+            }
+            else if (request.getPhoneNumber() != null && !phoneNumbers.add(request.getPhoneNumber())) {
+                importRecord.complete(UserImportStatus.CONFLICT, ApiExceptionMessageConstants.USED_PHONE_NUMBER);
+            }
+            else {
+                pending.add(importRecord);
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            // hashed before the transaction, which then only lasts for the inserts
+            var encodedPasswords = passwordHashingService.encodeAll(pending.stream()
+                    .map(importRecord -> importRecord.request.getPassword())
+                    .collect(Collectors.toList()));
+            for (var i = 0; i < pending.size(); i++) {
+                pending.get(i).encodedPassword = encodedPasswords.get(i);
+            }
+            transactionTemplate.executeWithoutResult(status -> insertUsers(pending, roleIds));
+        }
+
+        return chunk.stream()
+                .map(importRecord -> importRecord.result)
+                .collect(Collectors.toList());
+    }
+
+    private static boolean rolesAreKnown(CreateUserRequest request, Map<UserRoleName, UUID> roleIds) {
+
+        var roles = request.getRoles();
+        return roles != null && !roles.isEmpty()
+                && roles.stream().allMatch(roleName -> roleName != null && roleIds.get(roleName) != null);
+    }
+
+    private void insertUsers(List<ImportRecord> pending, Map<UserRoleName, UUID> roleIds) {
+
+        var batchSize = userImportConfigurationProperties.getBatchSize();
+        var insertCounts = jdbcTemplate.batchUpdate(INSERT_USER_SQL, pending, batchSize, (statement, importRecord) -> {
+            var request = importRecord.request;
+            statement.setObject(1, importRecord.id);
+            statement.setString(2, request.getEmail());
+            statement.setString(3, importRecord.encodedPassword);
+            statement.setString(4, request.getFirstName());
+            statement.setString(5, request.getLastName());
+            statement.setString(6, request.getPhoneNumber());
+            // imported by an admin on behalf of partners, so there is no confirmation step
+            statement.setBoolean(7, true);
+        });
+
+        var inserted = new ArrayList<ImportRecord>(pending.size());
+        var conflicting = new ArrayList<ImportRecord>();
+        var position = 0;
+        for (var batchCounts : insertCounts) {
+            for (var count : batchCounts) {
+                var importRecord = pending.get(position++);
+                (count == 0 ? conflicting : inserted).add(importRecord);
+            }
+        }
+
+        var userRoles = new ArrayList<UUID[]>(inserted.size());
+        for (var importRecord : inserted) {
+            importRecord.complete(UserImportStatus.CREATED, null);
+            importRecord.request.getRoles()
+                    .stream()
+                    .distinct()
+                    .forEach(roleName -> userRoles.add(new UUID[]{importRecord.id, roleIds.get(roleName)}));
+        }
+        jdbcTemplate.batchUpdate(INSERT_USER_ROLE_SQL, userRoles, batchSize, (statement, userRole) -> {
+            statement.setObject(1, userRole[0]);
+            statement.setObject(2, userRole[1]);
+        });
+
+        if (!conflicting.isEmpty()) {
+            var usedEmails = new HashSet<>(accountUserRepository.findEmailsByEmailIn(conflicting.stream()
+                    .map(importRecord -> importRecord.request.getEmail())
+                    .collect(Collectors.toList())));
+            conflicting.forEach(importRecord -> importRecord.complete(UserImportStatus.CONFLICT,
+                    usedEmails.contains(importRecord.request.getEmail())
+                            ? ApiExceptionMessageConstants.USED_EMAIL
+                            : ApiExceptionMessageConstants.USED_PHONE_NUMBER));
+        }
+    }
+
+    private void writeResults(JsonGenerator generator, List<UserImportResult> results) throws IOException {
+
+        for (var result : results) {
+            resultWriter.writeValue(generator, result);
+        }
+        generator.flush();
+    }
+
+    static final class ImportRecord {
+
+        private final long index;
+        private final UUID id = UUID.randomUUID();
+        private final CreateUserRequest request;
+        private final String email;
+        private String encodedPassword;
+        private UserImportResult result;
+
+        ImportRecord(long index, CreateUserRequest request) {
+            this.index = index;
+            this.request = request;
+            this.email = request.getEmail();
+        }
+
+        private ImportRecord(long index, String email) {
+            this.index = index;
+            this.request = null;
+            this.email = email;
+        }
+
+        static ImportRecord failed(long index, String email, UserImportStatus status, String message) {
+            var importRecord = new ImportRecord(index, email);
+            importRecord.complete(status, message);
+            return importRecord;
+        }
+
+        private void complete(UserImportStatus status, String message) {
+            this.result = new UserImportResult(index, email, status, message);
+        }
+    }
+}
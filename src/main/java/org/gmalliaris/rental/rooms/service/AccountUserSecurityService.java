@@ -1,22 +1,42 @@
 package org.gmalliaris.rental.rooms.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.gmalliaris.rental.rooms.config.PrincipalCacheConfigurationProperties;
 import org.gmalliaris.rental.rooms.dto.AccountUserSecurityDetails;
 import org.gmalliaris.rental.rooms.repository.AccountUserRepository;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.util.Objects;
 import java.util.UUID;
 
 @Service
 public class AccountUserSecurityService implements UserDetailsService {
 
     private final AccountUserRepository accountUserRepository;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+    // Immutable principal snapshots, so that authenticated requests do not need a database round trip
+    private final Cache<UUID, AccountUserSecurityDetails> principalCache;
 
-    public AccountUserSecurityService(AccountUserRepository accountUserRepository) {
+    public AccountUserSecurityService(AccountUserRepository accountUserRepository,
+                                      PlatformTransactionManager transactionManager,
+                                      PrincipalCacheConfigurationProperties principalCacheConfigurationProperties) {
         this.accountUserRepository = accountUserRepository;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.principalCache = Caffeine.newBuilder()
+                .maximumSize(principalCacheConfigurationProperties.getCacheMaximumSize())
+                .expireAfterWrite(Duration.ofSeconds(principalCacheConfigurationProperties.getCacheExpirationSeconds()))
+                .build();
     }
 
     @Override
@@ -30,13 +50,34 @@ public class AccountUserSecurityService implements UserDetailsService {
         return new AccountUserSecurityDetails(optionalUser.get());
     }
 
-    @Transactional(readOnly = true)
     public UserDetails loadUserById(UUID userId) {
 
-        var optionalUser = accountUserRepository.findById(userId);
-        if (optionalUser.isEmpty()){
-            return null;
+        var cachedUser = principalCache.getIfPresent(userId);
+        if (cachedUser != null) {
+            return cachedUser;
+        }
+
+        var loadedUser = readOnlyTransactionTemplate.execute(status -> accountUserRepository.findById(userId)
+                .map(AccountUserSecurityDetails::new)
+                .orElse(null));
+        if (loadedUser != null) {
+            principalCache.put(userId, loadedUser);
+        }
+        return loadedUser;
+    }
+
+    public void evictUser(UUID userId) {
+
+        Objects.requireNonNull(userId);
+        principalCache.invalidate(userId);
+        // Evict again once committed, a concurrent request may have cached the old state in the meantime
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    principalCache.invalidate(userId);
+                }
+            });
         }
-        return new AccountUserSecurityDetails(optionalUser.get());
     }
 }
@@ -4,43 +4,57 @@ import io.jsonwebtoken.Claims;
 import org.gmalliaris.rental.rooms.config.exception.ApiException;
 import org.gmalliaris.rental.rooms.config.exception.ApiExceptionMessageConstants;
 import org.gmalliaris.rental.rooms.dto.AccountUserAuthResponse;
+import org.gmalliaris.rental.rooms.dto.AccountUserPageResponse;
+import org.gmalliaris.rental.rooms.dto.AccountUserSortKey;
 import org.gmalliaris.rental.rooms.dto.CreateUserRequest;
+import org.gmalliaris.rental.rooms.dto.IssuedTokenPair;
 import org.gmalliaris.rental.rooms.dto.JwtType;
 import org.gmalliaris.rental.rooms.dto.LoginRequest;
 import org.gmalliaris.rental.rooms.entity.AccountUser;
-import org.gmalliaris.rental.rooms.entity.ConfirmationToken;
 import org.gmalliaris.rental.rooms.entity.UserRoleName;
 import org.gmalliaris.rental.rooms.repository.AccountUserRepository;
+import org.gmalliaris.rental.rooms.util.CommonUtils;
 import org.gmalliaris.rental.rooms.util.JwtUtils;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import javax.mail.MessagingException;
+import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
 
 @Service
 public class AccountUserService {
 
+    // default postgres names of the USERS unique constraints
+    private static final String EMAIL_UNIQUE_CONSTRAINT = "users_email_key";
+    private static final String PHONE_NUMBER_UNIQUE_CONSTRAINT = "users_phone_number_key";
+    public static final int MAX_PAGE_LIMIT = 500;
+
     private final AccountUserRepository accountUserRepository;
     private final UserRoleService userRoleService;
     private final ConfirmationTokenService tokenService;
-    private final BCryptPasswordEncoder bCryptPasswordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final JwtService jwtService;
     private final MailService mailService;
+    private final AccountUserSecurityService accountUserSecurityService;
+    private final RateLimitService rateLimitService;
 
     public AccountUserService(AccountUserRepository accountUserRepository, UserRoleService userRoleService,
-                              ConfirmationTokenService tokenService, BCryptPasswordEncoder bCryptPasswordEncoder,
-                              JwtService jwtService, MailService mailService) {
+                              ConfirmationTokenService tokenService, PasswordHashingService passwordHashingService,
+                              JwtService jwtService, MailService mailService,
+                              AccountUserSecurityService accountUserSecurityService, RateLimitService rateLimitService) {
         this.accountUserRepository = accountUserRepository;
         this.userRoleService = userRoleService;
         this.tokenService = tokenService;
-        this.bCryptPasswordEncoder = bCryptPasswordEncoder;
+        this.passwordHashingService = passwordHashingService;
         this.jwtService = jwtService;
         this.mailService = mailService;
+        this.accountUserSecurityService = accountUserSecurityService;
+        this.rateLimitService = rateLimitService;
     }
 
     @Transactional(propagation = Propagation.MANDATORY)
@@ -50,20 +64,21 @@ public class AccountUserService {
             throw new ApiException(HttpStatus.BAD_REQUEST, ApiExceptionMessageConstants.INVALID_USER_ROLES_REGISTRATION);
         }
 
-        if (accountUserRepository.countByEmail(request.getEmail()) > 0){
-            throw new ApiException(HttpStatus.CONFLICT, ApiExceptionMessageConstants.USED_EMAIL);
-        }
-
-        if ( request.getPhoneNumber() != null
-            && accountUserRepository.countByPhoneNumber(request.getPhoneNumber()) > 0){
-            throw new ApiException(HttpStatus.CONFLICT, ApiExceptionMessageConstants.USED_PHONE_NUMBER);
+        // fails fast before hashing, concurrent registrations are caught by the unique constraints
+        var usedEmails = accountUserRepository.findEmailsByEmailOrPhoneNumber(request.getEmail(),
+                request.getPhoneNumber());
+        if (!usedEmails.isEmpty()){
+            var errMsg = usedEmails.contains(request.getEmail())
+                    ? ApiExceptionMessageConstants.USED_EMAIL
+                    : ApiExceptionMessageConstants.USED_PHONE_NUMBER;
+            throw new ApiException(HttpStatus.CONFLICT, errMsg);
         }
 
         var user = new AccountUser();
         user.setEmail(request.getEmail());
         user.setFirstName(request.getFirstName());
         user.setLastName(request.getLastName());
-        var encodedPassword = bCryptPasswordEncoder.encode(request.getPassword());
+        var encodedPassword = passwordHashingService.encode(request.getPassword());
         user.setPassword(encodedPassword);
         user.setPhoneNumber(request.getPhoneNumber());
         user.setEnabled(false);
@@ -74,40 +89,49 @@ public class AccountUserService {
                 var userRole = userRoleService.findUserRoleByName(roleName);
                 user.addRole(userRole);
             });
-        accountUserRepository.save(user);
+        try {
+            accountUserRepository.saveAndFlush(user);
+        }
+        catch (DataIntegrityViolationException exception) {
+            throw translateUniqueViolation(exception);
+        }
 
         var confirmationToken = tokenService.createTokenForUser(user);
-        sendRegistrationConfirmationEmail(confirmationToken);
+        mailService.queueRegistrationConfirmationEmail(confirmationToken);
     }
 
     @Transactional(propagation = Propagation.MANDATORY)
     public void confirmAccountUserRegistration(UUID confirmationToken){
 
-        var activatedToken = tokenService.useConfirmationToken(confirmationToken);
+        var userId = tokenService.useConfirmationToken(confirmationToken);
 
-        var user = activatedToken.getAccountUser();
-        if (user.isEnabled()){
+        if (accountUserRepository.enableAccountUser(userId) == 0){
             throw new ApiException(HttpStatus.CONFLICT, ApiExceptionMessageConstants.USER_ALREADY_CONFIRMED);
         }
-        user.setEnabled(true);
-        accountUserRepository.save(user);
+        accountUserSecurityService.evictUser(userId);
     }
 
-    @Transactional(readOnly = true)
+    // Not transactional, so that no connection is held while waiting on the hashing pool,
+    // the rehash is written by its own short update
     public AccountUserAuthResponse login(LoginRequest loginRequest){
         var user = accountUserRepository.findByEmail(loginRequest.getUsername())
                 .orElseThrow(() -> {
                     throw new ApiException(HttpStatus.UNAUTHORIZED, ApiExceptionMessageConstants.INVALID_CREDENTIALS);
                 });
         var encryptedPwd = user.getPassword();
-        if (!bCryptPasswordEncoder.matches(loginRequest.getPassword(), encryptedPwd)){
+        if (!passwordHashingService.matches(loginRequest.getPassword(), encryptedPwd)){
             throw new ApiException(HttpStatus.UNAUTHORIZED, ApiExceptionMessageConstants.INVALID_CREDENTIALS);
         }
+        if (passwordHashingService.upgradeEncoding(encryptedPwd)){
+            var upgradedPwd = passwordHashingService.encode(loginRequest.getPassword());
+            // skipped when the password changed since it was read
+            if (accountUserRepository.updatePassword(user.getId(), encryptedPwd, upgradedPwd) > 0){
+                user.setPassword(upgradedPwd);
+                accountUserSecurityService.evictUser(user.getId());
+            }
+        }
 
-        var randomTokenGroupId = UUID.randomUUID();
-        var accessToken = jwtService.generateAccessToken(user, randomTokenGroupId.toString());
-        var refreshToken = jwtService.generateRefreshToken(user, randomTokenGroupId.toString());
-        return new AccountUserAuthResponse(accessToken, refreshToken);
+        return toAuthResponse(jwtService.issueTokenPair(user));
     }
 
     @Transactional(readOnly = true, propagation = Propagation.MANDATORY)
@@ -122,6 +146,35 @@ public class AccountUserService {
                 });
     }
 
+    @Transactional(readOnly = true, propagation = Propagation.MANDATORY)
+    public AccountUserPageResponse findAccountUsers(AccountUserSortKey sortKey, String after, UserRoleName role,
+                                                    Boolean enabled, int limit){
+
+        if (limit < 1 || limit > MAX_PAGE_LIMIT){
+            var errMsg = String.format(ApiExceptionMessageConstants.INVALID_PAGE_LIMIT_TEMPLATE, MAX_PAGE_LIMIT);
+            throw new ApiException(HttpStatus.BAD_REQUEST, errMsg);
+        }
+
+        Object afterKey = after;
+        if (after != null && sortKey == AccountUserSortKey.ID){
+            afterKey = CommonUtils.uuidFromString(after)
+                    .orElseThrow(() -> {
+                        throw new ApiException(HttpStatus.BAD_REQUEST, ApiExceptionMessageConstants.INVALID_PAGE_CURSOR);
+                    });
+        }
+
+        // one extra row tells whether there is a next page
+        var users = accountUserRepository.findSummariesAfter(sortKey, afterKey, role, enabled, limit + 1);
+        if (users.size() <= limit){
+            return new AccountUserPageResponse(users, null);
+        }
+
+        var page = users.subList(0, limit);
+        var last = page.get(limit - 1);
+        var nextCursor = sortKey == AccountUserSortKey.ID ? last.getId().toString() : last.getEmail();
+        return new AccountUserPageResponse(List.copyOf(page), nextCursor);
+    }
+
     @Transactional(readOnly = true)
     public AccountUserAuthResponse refreshAuthTokens(UUID userId, String authHeader){
 
@@ -130,50 +183,57 @@ public class AccountUserService {
         var refreshExpiration = validClaims.getExpiration();
         var user = findAccountUserById(userId);
 
-        var newRefreshTokenOptional = jwtService.generateRefreshTokenIfNeeded(user, refreshExpiration, tokenGroupId);
-
-        if (newRefreshTokenOptional.isEmpty()) { // no refresh token generated
-            var accessToken = jwtService.generateAccessToken(user, tokenGroupId);
-            return new AccountUserAuthResponse(accessToken, null);
-        }
-
-        var newRefreshToken = newRefreshTokenOptional.get();
-        var newTokenGroupId = JwtUtils.extractValidClaimsFromToken(newRefreshToken, JwtType.REFRESH)
-                .map(JwtUtils::extractTokenGroupIdFromClaims)
-                .orElseThrow(() -> {
-                    var errMsg = "Invalid token, token group id is missing.";
-                    throw new IllegalStateException(errMsg);
-                });
-        var accessToken = jwtService.generateAccessToken(user, newTokenGroupId);
-        return new AccountUserAuthResponse(accessToken, newRefreshToken);
+        return toAuthResponse(jwtService.refreshTokens(user, tokenGroupId, refreshExpiration));
     }
 
     @Transactional
     public void resetConfirmationProcess(UUID currentUserId){
 
+        if (!rateLimitService.tryAcquireConfirmationReset(currentUserId)){
+            throw new ApiException(HttpStatus.TOO_MANY_REQUESTS, ApiExceptionMessageConstants.CONFIRMATION_RESET_RATE_LIMITED);
+        }
         var currentUser = findAccountUserById(currentUserId);
         if (currentUser.isEnabled()){
             throw new ApiException(HttpStatus.CONFLICT, ApiExceptionMessageConstants.USER_ALREADY_CONFIRMED);
         }
         var newToken = tokenService.replaceConfirmationTokenForUser(currentUser);
 
-        sendRegistrationConfirmationEmail(newToken);
-    }
-
-    private void sendRegistrationConfirmationEmail(ConfirmationToken token){
-        try {
-            mailService.sendRegistrationConfirmationEmail(token);
-        } catch (MessagingException e) {
-            throw new ApiException(HttpStatus.INTERNAL_SERVER_ERROR,
-                    String.format(ApiExceptionMessageConstants.FAILED_EMAIL, "Registration Confirmation"));
-        }
+        mailService.queueRegistrationConfirmationEmail(newToken);
     }
 
     public void logoutUser(String authHeader) {
 
         var validClaims = extractValidClaimsFromHeader(authHeader, JwtType.ACCESS);
         var tokenGroupId = JwtUtils.extractTokenGroupIdFromClaims(validClaims);
-        jwtService.blacklistTokenGroup(tokenGroupId);
+        jwtService.blacklistTokenGroup(tokenGroupId, validClaims.getIssuedAt());
+    }
+
+    public void logoutUserEverywhere(UUID currentUserId) {
+
+        Objects.requireNonNull(currentUserId);
+        jwtService.revokeAllTokens(currentUserId);
+    }
+
+    private static AccountUserAuthResponse toAuthResponse(IssuedTokenPair tokens) {
+
+        var refreshToken = tokens.getRefreshToken() == null ? null : tokens.getRefreshToken().getToken();
+        return new AccountUserAuthResponse(tokens.getAccessToken().getToken(), refreshToken);
+    }
+
+    private static RuntimeException translateUniqueViolation(DataIntegrityViolationException exception) {
+
+        for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException) {
+                var constraintName = ((ConstraintViolationException) cause).getConstraintName();
+                if (EMAIL_UNIQUE_CONSTRAINT.equalsIgnoreCase(constraintName)) {
+                    return new ApiException(HttpStatus.CONFLICT, ApiExceptionMessageConstants.USED_EMAIL);
+                }
+                if (PHONE_NUMBER_UNIQUE_CONSTRAINT.equalsIgnoreCase(constraintName)) {
+                    return new ApiException(HttpStatus.CONFLICT, ApiExceptionMessageConstants.USED_PHONE_NUMBER);
+                }
+            }
+        }
+        return exception;
     }
 
     private static Claims extractValidClaimsFromHeader(String authHeader, JwtType type) {
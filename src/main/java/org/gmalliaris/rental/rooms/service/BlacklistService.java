@@ -1,35 +1,383 @@
 package org.gmalliaris.rental.rooms.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.gmalliaris.rental.rooms.config.BlacklistConfigurationProperties;
 import org.gmalliaris.rental.rooms.config.JwtConfigurationProperties;
+import org.gmalliaris.rental.rooms.util.CircuitBreaker;
+import org.gmalliaris.rental.rooms.util.CommonUtils;
 import org.gmalliaris.rental.rooms.util.JwtUtils;
+import org.gmalliaris.rental.rooms.util.TokenGroupBloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 @Service
-public class BlacklistService {
+public class BlacklistService implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(BlacklistService.class);
+
+    public static final String TOKEN_GROUP_BLACKLIST_CHANNEL = "blacklist:token-group";
+    private static final byte[] TOKEN_GROUP_BLACKLIST_CHANNEL_BYTES = TOKEN_GROUP_BLACKLIST_CHANNEL.getBytes(StandardCharsets.UTF_8);
+    // Entries are the 16 bytes of the token group id under a short prefix, with an empty value
+    private static final byte[] TOKEN_GROUP_KEY_PREFIX = "bl:".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] TOKEN_GROUP_KEY_PATTERN = "bl:*".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] TOKEN_GROUP_ENTRY_VALUE = new byte[0];
+    private static final int TOKEN_GROUP_KEY_LENGTH = TOKEN_GROUP_KEY_PREFIX.length + 16;
+    // Entries written as token group id strings before the binary encoding, they expire within a refresh
+    // token lifetime after the upgrade and are still honoured until then
+    private static final byte[] LEGACY_TOKEN_GROUP_KEY_PATTERN =
+            "????????-????-????-????-????????????".getBytes(StandardCharsets.UTF_8);
+    private static final long TOKEN_GROUP_SCAN_COUNT = 1_000;
+    private static final double FILTER_FALSE_POSITIVE_PROBABILITY = 0.01;
+    private static final long SNAPSHOT_NEVER_SYNCED = Long.MIN_VALUE;
 
-    private static final String TOKEN_GROUP_ENTRY_DUMMY_VALUE = "group";
     private final RedisTemplate<String, String> redisTemplate;
     private final JwtConfigurationProperties jwtConfigurationProperties;
+    private final BlacklistConfigurationProperties blacklistConfigurationProperties;
+    // Near-cache of blacklist lookups, blacklisted groups are also pushed here by every node through pub/sub
+    private final Cache<String, Boolean> nearCache;
+    // Local copy of the blacklisted groups, warmed by the filter rebuild and kept current through pub/sub,
+    // it answers lookups while redis is unavailable
+    private final Cache<String, Boolean> snapshot;
+    // Stays unset until the first filter rebuild synced the snapshot with redis
+    private volatile long snapshotSyncedAt = SNAPSHOT_NEVER_SYNCED;
+    // Groups blacklisted while redis was unavailable with their expiration, written and published once it recovers
+    private final Map<String, Long> pendingTokenGroups = new ConcurrentHashMap<>();
+    private final CircuitBreaker redisCircuitBreaker;
+
+    // Guards filter swaps, so that groups blacklisted while rebuilding end up in the new filter as well
+    private final Object filterLock = new Object();
+    private volatile TokenGroupBloomFilter filter;
+    private volatile TokenGroupBloomFilter rebuildingFilter;
+    private volatile boolean filterReady;
 
-    public BlacklistService(RedisTemplate<String, String> redisTemplate, JwtConfigurationProperties jwtConfigurationProperties) {
+    private final Counter filterNegativeCounter;
+    private final Counter filterPositiveCounter;
+    private final Counter filterFalsePositiveCounter;
+    private final Counter fallbackLookupCounter;
+
+    public BlacklistService(RedisTemplate<String, String> redisTemplate, JwtConfigurationProperties jwtConfigurationProperties,
+                            BlacklistConfigurationProperties blacklistConfigurationProperties, MeterRegistry meterRegistry) {
         this.redisTemplate = redisTemplate;
         this.jwtConfigurationProperties = jwtConfigurationProperties;
+        this.blacklistConfigurationProperties = blacklistConfigurationProperties;
+        this.nearCache = Caffeine.newBuilder()
+                .maximumSize(blacklistConfigurationProperties.getNearCacheMaximumSize())
+                .expireAfter(new NearCacheExpiry(
+                        TimeUnit.MINUTES.toNanos(jwtConfigurationProperties.getRefreshExpirationMinutes()),
+                        TimeUnit.SECONDS.toNanos(blacklistConfigurationProperties.getNearCacheNegativeExpirationSeconds())))
+                .build();
+        this.snapshot = Caffeine.newBuilder()
+                .maximumSize(blacklistConfigurationProperties.getSnapshotMaximumSize())
+                .expireAfterWrite(Duration.ofMinutes(jwtConfigurationProperties.getRefreshExpirationMinutes()))
+                .build();
+        this.redisCircuitBreaker = new CircuitBreaker(blacklistConfigurationProperties.getBreakerFailureThreshold(),
+                Duration.ofSeconds(blacklistConfigurationProperties.getBreakerOpenSeconds()));
+        this.filter = newFilter();
+
+        this.filterNegativeCounter = Counter.builder("blacklist.filter.checks")
+                .tag("result", "negative")
+                .register(meterRegistry);
+        this.filterPositiveCounter = Counter.builder("blacklist.filter.checks")
+                .tag("result", "positive")
+                .register(meterRegistry);
+        this.filterFalsePositiveCounter = Counter.builder("blacklist.filter.false.positives")
+                .register(meterRegistry);
+        Gauge.builder("blacklist.filter.saturation", this, service -> service.filter.saturation())
+                .register(meterRegistry);
+        Gauge.builder("blacklist.filter.expected.false.positive.probability", this,
+                        service -> service.filter.expectedFalsePositiveProbability())
+                .register(meterRegistry);
+        Gauge.builder("blacklist.filter.false.positive.rate", this, BlacklistService::observedFalsePositiveRate)
+                .register(meterRegistry);
+
+        this.fallbackLookupCounter = Counter.builder("blacklist.fallback.lookups")
+                .register(meterRegistry);
+        for (var state : CircuitBreaker.State.values()) {
+            Gauge.builder("blacklist.redis.breaker.state", this,
+                            service -> service.redisCircuitBreaker.getState() == state ? 1 : 0)
+                    .tag("state", state.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry);
+        }
+        Gauge.builder("blacklist.snapshot.staleness.seconds", this, BlacklistService::snapshotStalenessSeconds)
+                .register(meterRegistry);
+        Gauge.builder("blacklist.pending.writes", pendingTokenGroups, Map::size)
+                .register(meterRegistry);
     }
 
-    public void blacklistTokenGroup(String tokenGroupId) {
+    // The entry lives until the last token of the group expires
+    public void blacklistTokenGroup(String tokenGroupId, Date expiration) {
         Objects.requireNonNull(tokenGroupId);
-        redisTemplate.opsForValue().set(tokenGroupId, TOKEN_GROUP_ENTRY_DUMMY_VALUE,
-                jwtConfigurationProperties.getRefreshExpirationMinutes(), TimeUnit.MINUTES);
+        Objects.requireNonNull(expiration);
+        if (CommonUtils.uuidFromString(tokenGroupId).isEmpty()) {
+            throw new IllegalArgumentException("Invalid token group id");
+        }
+
+        markBlacklisted(tokenGroupId);
+        var tokenGroupExpiration = Map.of(tokenGroupId, expiration.getTime());
+        if (!writeToRedis(tokenGroupExpiration)) {
+            pendingTokenGroups.putAll(tokenGroupExpiration);
+        }
     }
 
     public boolean tokenWithClaimsIsBlackListed(Claims claims) {
         var tokenGroupId = JwtUtils.extractTokenGroupIdFromClaims(claims);
         Objects.requireNonNull(tokenGroupId);
-        return TOKEN_GROUP_ENTRY_DUMMY_VALUE.equals(redisTemplate.opsForValue().get(tokenGroupId));
+
+        var checkedByFilter = filterReady;
+        if (checkedByFilter) {
+            var parsedTokenGroupId = CommonUtils.uuidFromString(tokenGroupId);
+            if (parsedTokenGroupId.isPresent() && !filter.mightContain(parsedTokenGroupId.get())) {
+                filterNegativeCounter.increment();
+                return false;
+            }
+            filterPositiveCounter.increment();
+        }
+
+        var blacklisted = nearCache.get(tokenGroupId, this::tokenGroupIsBlacklistedInRedis);
+        if (blacklisted == null) {
+            fallbackLookupCounter.increment();
+            blacklisted = snapshot.getIfPresent(tokenGroupId) != null;
+        }
+        if (checkedByFilter && !blacklisted) {
+            filterFalsePositiveCounter.increment();
+        }
+        return blacklisted;
+    }
+
+    @Override
+    public void onMessage(@NonNull Message message, byte[] pattern) {
+        var tokenGroupId = new String(message.getBody(), StandardCharsets.UTF_8);
+        markBlacklisted(tokenGroupId);
+    }
+
+    @Scheduled(fixedDelayString = "${blacklist.filterRebuildIntervalSeconds:300}", timeUnit = TimeUnit.SECONDS)
+    public void rebuildFilter() {
+        if (!redisCircuitBreaker.tryAcquirePermission()) {
+            logger.debug("Redis is unavailable, keeping the previous blacklist filter");
+            return;
+        }
+
+        synchronized (filterLock) {
+            rebuildingFilter = newFilter();
+        }
+
+        try {
+            var rebuilt = rebuildingFilter;
+            redisTemplate.execute((RedisCallback<Void>) connection -> {
+                scanKeys(connection, TOKEN_GROUP_KEY_PATTERN, key -> tokenGroupIdFromKey(key)
+                        .ifPresent(tokenGroupId -> addRebuilt(rebuilt, tokenGroupId)));
+                scanKeys(connection, LEGACY_TOKEN_GROUP_KEY_PATTERN, key -> CommonUtils
+                        .uuidFromString(new String(key, StandardCharsets.UTF_8))
+                        .ifPresent(tokenGroupId -> addRebuilt(rebuilt, tokenGroupId)));
+                return null;
+            });
+            redisCircuitBreaker.onSuccess();
+            snapshotSyncedAt = System.nanoTime();
+
+            synchronized (filterLock) {
+                filter = rebuilt;
+                rebuildingFilter = null;
+                filterReady = true;
+            }
+            logger.debug("Rebuilt blacklist filter, saturation {}", rebuilt.saturation());
+        }
+        catch (DataAccessException exception) {
+            redisCircuitBreaker.onFailure();
+            synchronized (filterLock) {
+                rebuildingFilter = null;
+            }
+            logger.warn("Failed to rebuild blacklist filter, keeping the previous one", exception);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${blacklist.pendingReplayIntervalSeconds:5}", timeUnit = TimeUnit.SECONDS)
+    public void replayPendingTokenGroups() {
+        if (pendingTokenGroups.isEmpty()) {
+            return;
+        }
+
+        var tokenGroupExpirations = Map.copyOf(pendingTokenGroups);
+        if (writeToRedis(tokenGroupExpirations)) {
+            tokenGroupExpirations.forEach(pendingTokenGroups::remove);
+            logger.info("Replayed {} token groups blacklisted while redis was unavailable", tokenGroupExpirations.size());
+        }
+    }
+
+    static byte[] tokenGroupKey(UUID tokenGroupId) {
+        return ByteBuffer.allocate(TOKEN_GROUP_KEY_LENGTH)
+                .put(TOKEN_GROUP_KEY_PREFIX)
+                .putLong(tokenGroupId.getMostSignificantBits())
+                .putLong(tokenGroupId.getLeastSignificantBits())
+                .array();
+    }
+
+    static Optional<UUID> tokenGroupIdFromKey(byte[] key) {
+        if (key.length != TOKEN_GROUP_KEY_LENGTH) {
+            return Optional.empty();
+        }
+        var buffer = ByteBuffer.wrap(key, TOKEN_GROUP_KEY_PREFIX.length, 16);
+        return Optional.of(new UUID(buffer.getLong(), buffer.getLong()));
+    }
+
+    // Entries expire together with the tokens of their group, groups whose tokens already expired are skipped
+    private boolean writeToRedis(Map<String, Long> tokenGroupExpirations) {
+        if (!redisCircuitBreaker.tryAcquirePermission()) {
+            return false;
+        }
+
+        try {
+            // The entries and their notifications are sent in one round trip
+            redisTemplate.executePipelined((RedisCallback<Void>) connection -> {
+                var now = System.currentTimeMillis();
+                tokenGroupExpirations.forEach((tokenGroupId, expiresAt) -> {
+                    var timeToLive = expiresAt - now;
+                    var parsedTokenGroupId = CommonUtils.uuidFromString(tokenGroupId);
+                    if (timeToLive <= 0 || parsedTokenGroupId.isEmpty()) {
+                        return;
+                    }
+                    connection.stringCommands().set(tokenGroupKey(parsedTokenGroupId.get()), TOKEN_GROUP_ENTRY_VALUE,
+                            Expiration.milliseconds(timeToLive), RedisStringCommands.SetOption.upsert());
+                    connection.publish(TOKEN_GROUP_BLACKLIST_CHANNEL_BYTES, tokenGroupId.getBytes(StandardCharsets.UTF_8));
+                });
+                return null;
+            });
+            redisCircuitBreaker.onSuccess();
+            return true;
+        }
+        catch (DataAccessException exception) {
+            redisCircuitBreaker.onFailure();
+            logger.warn("Failed to write blacklisted token groups to redis, queueing them for replay", exception);
+            return false;
+        }
+    }
+
+    private void scanKeys(RedisConnection connection, byte[] pattern, Consumer<byte[]> keyConsumer) {
+        var scanOptions = ScanOptions.scanOptions()
+                .match(pattern)
+                .count(TOKEN_GROUP_SCAN_COUNT)
+                .build();
+        try (var cursor = connection.keyCommands().scan(scanOptions)) {
+            cursor.forEachRemaining(keyConsumer);
+        }
+    }
+
+    private void addRebuilt(TokenGroupBloomFilter rebuilt, UUID tokenGroupId) {
+        rebuilt.put(tokenGroupId);
+        snapshot.put(tokenGroupId.toString(), Boolean.TRUE);
+    }
+
+    private void markBlacklisted(String tokenGroupId) {
+        nearCache.put(tokenGroupId, Boolean.TRUE);
+        snapshot.put(tokenGroupId, Boolean.TRUE);
+        CommonUtils.uuidFromString(tokenGroupId)
+                .ifPresent(parsedTokenGroupId -> {
+                    synchronized (filterLock) {
+                        filter.put(parsedTokenGroupId);
+                        if (rebuildingFilter != null) {
+                            rebuildingFilter.put(parsedTokenGroupId);
+                        }
+                    }
+                });
+    }
+
+    // Returns null while redis is unavailable, so that the fallback answer is not kept in the near-cache
+    private Boolean tokenGroupIsBlacklistedInRedis(String tokenGroupId) {
+        var parsedTokenGroupId = CommonUtils.uuidFromString(tokenGroupId);
+        if (parsedTokenGroupId.isEmpty()) {
+            return false;
+        }
+        if (!redisCircuitBreaker.tryAcquirePermission()) {
+            return null;
+        }
+
+        try {
+            var existing = redisTemplate.execute((RedisCallback<Long>) connection -> connection.keyCommands()
+                    .exists(tokenGroupKey(parsedTokenGroupId.get()), tokenGroupId.getBytes(StandardCharsets.UTF_8)));
+            redisCircuitBreaker.onSuccess();
+            return existing != null && existing > 0;
+        }
+        catch (DataAccessException exception) {
+            redisCircuitBreaker.onFailure();
+            logger.warn("Failed to look up token group in redis, answering from the local snapshot: {}",
+                    exception.getMessage());
+            return null;
+        }
+    }
+
+    private TokenGroupBloomFilter newFilter() {
+        return new TokenGroupBloomFilter(blacklistConfigurationProperties.getFilterExpectedInsertions(),
+                FILTER_FALSE_POSITIVE_PROBABILITY);
+    }
+
+    // Reports no value until the snapshot was synced at least once
+    private double snapshotStalenessSeconds() {
+        var syncedAt = snapshotSyncedAt;
+        return syncedAt == SNAPSHOT_NEVER_SYNCED
+                ? Double.NaN : TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - syncedAt);
+    }
+
+    private double observedFalsePositiveRate() {
+        var falsePositives = filterFalsePositiveCounter.count();
+        var negatives = falsePositives + filterNegativeCounter.count();
+        return negatives == 0 ? 0 : falsePositives / negatives;
+    }
+
+    private static final class NearCacheExpiry implements Expiry<String, Boolean> {
+
+        private final long blacklistedExpirationNanos;
+        private final long notBlacklistedExpirationNanos;
+
+        private NearCacheExpiry(long blacklistedExpirationNanos, long notBlacklistedExpirationNanos) {
+            this.blacklistedExpirationNanos = blacklistedExpirationNanos;
+            this.notBlacklistedExpirationNanos = notBlacklistedExpirationNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(String tokenGroupId, Boolean blacklisted, long currentTime) {
+            return Boolean.TRUE.equals(blacklisted) ? blacklistedExpirationNanos : notBlacklistedExpirationNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String tokenGroupId, Boolean blacklisted, long currentTime,
+                                      long currentDuration) {
+            return expireAfterCreate(tokenGroupId, blacklisted, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String tokenGroupId, Boolean blacklisted, long currentTime,
+                                    long currentDuration) {
+            return currentDuration;
+        }
     }
 }
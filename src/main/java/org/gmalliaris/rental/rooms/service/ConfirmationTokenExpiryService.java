@@ -0,0 +1,106 @@
+package org.gmalliaris.rental.rooms.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.gmalliaris.rental.rooms.config.ConfirmationExpiryConfigurationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class ConfirmationTokenExpiryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConfirmationTokenExpiryService.class);
+
+    static final long EXPIRY_LOCK_KEY = "confirmation-token-expiry".hashCode();
+    static final String TRY_LOCK_SQL = "SELECT pg_try_advisory_lock(?)";
+    static final String UNLOCK_SQL = "SELECT pg_advisory_unlock(?)";
+    static final String EXPIRE_TOKENS_SQL = "UPDATE CONFIRMATION_TOKEN SET STATUS = 'EXPIRED' " +
+            "WHERE ID IN (SELECT ID FROM CONFIRMATION_TOKEN " +
+            "WHERE STATUS = 'PENDING' AND EXPIRATION_DATE < ? " +
+            "LIMIT ? FOR UPDATE SKIP LOCKED)";
+    // Referencing rows are deleted in the same statement, the foreign keys are checked at its end
+    static final String PURGE_USERS_SQL = "WITH PURGED_TOKENS AS (" +
+            "DELETE FROM CONFIRMATION_TOKEN WHERE ID IN (SELECT t.ID FROM CONFIRMATION_TOKEN t " +
+            "JOIN USERS u ON u.ID = t.USER_ID " +
+            "WHERE t.STATUS = 'EXPIRED' AND t.EXPIRATION_DATE < ? AND u.ENABLED = false " +
+            "LIMIT ? FOR UPDATE OF t SKIP LOCKED) " +
+            "RETURNING USER_ID), " +
+            "PURGED_ROLES AS (DELETE FROM USERS_X_USER_ROLES WHERE USER_ID IN (SELECT USER_ID FROM PURGED_TOKENS)) " +
+            "DELETE FROM USERS WHERE ID IN (SELECT USER_ID FROM PURGED_TOKENS)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConfirmationExpiryConfigurationProperties confirmationExpiryConfigurationProperties;
+
+    private final Counter expiredCounter;
+    private final Counter purgedCounter;
+
+    public ConfirmationTokenExpiryService(JdbcTemplate jdbcTemplate,
+                                          ConfirmationExpiryConfigurationProperties confirmationExpiryConfigurationProperties,
+                                          MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.confirmationExpiryConfigurationProperties = confirmationExpiryConfigurationProperties;
+
+        this.expiredCounter = Counter.builder("confirmation.tokens.expired")
+                .register(meterRegistry);
+        this.purgedCounter = Counter.builder("users.unconfirmed.purged")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${confirmation.expiry.intervalSeconds:3600}", timeUnit = TimeUnit.SECONDS)
+    public void expireConfirmationTokens() {
+
+        // The advisory lock belongs to the session, so the lock and the chunks share one connection.
+        // The connection is in auto-commit mode, every chunk commits on its own.
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            var connectionTemplate = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+            runExclusively(connectionTemplate, LocalDate.now());
+            return null;
+        });
+    }
+
+    void runExclusively(JdbcOperations connectionTemplate, LocalDate today) {
+
+        var locked = connectionTemplate.queryForObject(TRY_LOCK_SQL, Boolean.class, EXPIRY_LOCK_KEY);
+        if (!Boolean.TRUE.equals(locked)) {
+            logger.debug("Confirmation token expiry is running on another node, skipping.");
+            return;
+        }
+
+        try {
+            var expired = updateInChunks(connectionTemplate, EXPIRE_TOKENS_SQL, today);
+            expiredCounter.increment(expired);
+
+            long purged = 0;
+            if (confirmationExpiryConfigurationProperties.isPurgeUnconfirmedUsers()) {
+                var purgeBefore = today.minusDays(confirmationExpiryConfigurationProperties.getUnconfirmedUserGraceDays());
+                purged = updateInChunks(connectionTemplate, PURGE_USERS_SQL, purgeBefore);
+                purgedCounter.increment(purged);
+            }
+            logger.debug("Expired {} confirmation tokens, purged {} unconfirmed users.", expired, purged);
+        }
+        finally {
+            connectionTemplate.queryForObject(UNLOCK_SQL, Boolean.class, EXPIRY_LOCK_KEY);
+        }
+    }
+
+    private long updateInChunks(JdbcOperations connectionTemplate, String sql, LocalDate before) {
+
+        var batchSize = confirmationExpiryConfigurationProperties.getBatchSize();
+        long total = 0;
+        int updated;
+        do {
+            updated = connectionTemplate.update(sql, before, batchSize);
+            total += updated;
+        } while (updated >= batchSize);
+        return total;
+    }
+}
@@ -45,15 +45,19 @@ public class ConfirmationTokenService {
     }
 
     @Transactional
-    public ConfirmationToken useConfirmationToken(UUID tokenId){
+    public UUID useConfirmationToken(UUID tokenId){
 
-        var optionalToken = repository.findById(tokenId);
+        var userId = repository.consumePendingToken(tokenId, LocalDate.now());
+        if (userId.isPresent()) {
+            return UUID.fromString(userId.get());
+        }
 
+        // Only failed attempts read the token, to report why it could not be used
+        var optionalToken = repository.findById(tokenId);
         var errMsg = String.format(ApiExceptionMessageConstants.ENTITY_NOT_FOUND_TEMPLATE,
                 "ConfirmationToken", tokenId);
-        var token = extractPendingFromOptional(optionalToken, errMsg);
-        token.setStatus(ConfirmationTokenStatus.ACTIVATED);
-        return repository.save(token);
+        extractPendingFromOptional(optionalToken, errMsg);
+        throw new ApiException(HttpStatus.CONFLICT, ApiExceptionMessageConstants.CONFIRMATION_TOKEN_EXPIRED);
     }
 
     @Transactional
@@ -69,14 +73,29 @@ public class ConfirmationTokenService {
     @Transactional
     public ConfirmationToken replaceConfirmationTokenForUser(AccountUser user){
 
-        var optionalToken = repository.findByAccountUserId(user.getId());
-        var errMsg = String.format(ApiExceptionMessageConstants.ENTITY_OF_ENTITY_NOT_FOUND_TEMPLATE,
-                "ConfirmationToken", "AccountUser", user.getId());
+        var newTokenId = UUID.randomUUID();
+        var expirationDate = LocalDate.now().plusDays(durationInDays);
+        if (repository.rotatePendingToken(user.getId(), newTokenId, expirationDate) == 0) {
+            // Only failed rotations read the token, to report why it could not be replaced
+            var optionalToken = repository.findByAccountUserId(user.getId());
+            var errMsg = String.format(ApiExceptionMessageConstants.ENTITY_OF_ENTITY_NOT_FOUND_TEMPLATE,
+                    "ConfirmationToken", "AccountUser", user.getId());
+            var token = optionalToken
+                    .orElseThrow(() -> new ApiException(HttpStatus.NOT_FOUND, errMsg));
+            // Expired tokens are rotated back to pending, only a used token can not be replaced
+            if (ConfirmationTokenStatus.ACTIVATED == token.getStatus()){
+                throw new ApiException(HttpStatus.CONFLICT, ApiExceptionMessageConstants.CONFIRMATION_TOKEN_ALREADY_USED);
+            }
+            throw new IllegalStateException(String.format("ConfirmationToken of AccountUser '%s' changed concurrently.",
+                    user.getId()));
+        }
 
-        var token = extractPendingFromOptional(optionalToken, errMsg);
-        repository.delete(token);
-        repository.flush();
-        return createTokenForUser(user);
+        var confirmationToken = new ConfirmationToken();
+        confirmationToken.setId(newTokenId);
+        confirmationToken.setStatus(ConfirmationTokenStatus.PENDING);
+        confirmationToken.setExpirationDate(expirationDate);
+        confirmationToken.setAccountUser(user);
+        return confirmationToken;
     }
 
 }
@@ -0,0 +1,156 @@
+package org.gmalliaris.rental.rooms.service;
+
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.gmalliaris.rental.rooms.config.JwtConfigurationProperties;
+import org.gmalliaris.rental.rooms.config.JwtKeyRingConfigurationProperties;
+import org.gmalliaris.rental.rooms.util.JwtKeyRing;
+import org.gmalliaris.rental.rooms.util.JwtUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class JwtKeyRingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtKeyRingService.class);
+
+    private static final Comparator<Map.Entry<String, Instant>> BY_ACTIVATION =
+            Map.Entry.<String, Instant>comparingByValue()
+                    .thenComparing(Map.Entry.comparingByKey());
+
+    private final JwtKeyRingConfigurationProperties jwtKeyRingConfigurationProperties;
+    private volatile JwtKeyRing keyRing;
+
+    private final Counter reloadFailureCounter;
+
+    public JwtKeyRingService(JwtKeyRingConfigurationProperties jwtKeyRingConfigurationProperties,
+                             JwtConfigurationProperties jwtConfigurationProperties, MeterRegistry meterRegistry) {
+        this.jwtKeyRingConfigurationProperties = jwtKeyRingConfigurationProperties;
+        JwtUtils.useVerifiedClaimsCache(jwtConfigurationProperties.getVerifiedClaimsCacheMaximumSize(),
+                Duration.ofSeconds(jwtConfigurationProperties.getVerifiedClaimsCacheExpirationSeconds()));
+
+        this.reloadFailureCounter = Counter.builder("jwt.keyring.reload.failures")
+                .register(meterRegistry);
+        Gauge.builder("jwt.keyring.keys", this, service -> service.keyRing == null ? 0 : service.keyRing.size())
+                .register(meterRegistry);
+
+        if (!StringUtils.hasText(jwtKeyRingConfigurationProperties.getKeystorePath())) {
+            logger.warn("No jwt keystore configured, issued tokens are only valid on this node until it restarts");
+            return;
+        }
+        // A keystore that cannot be loaded fails the startup, later reloads keep the previous keys instead
+        useKeyRing(loadKeyRing(Instant.now()));
+    }
+
+    @Scheduled(fixedDelayString = "${jwt.keyring.reloadIntervalSeconds:300}",
+            initialDelayString = "${jwt.keyring.reloadIntervalSeconds:300}", timeUnit = TimeUnit.SECONDS)
+    public void reloadKeyRing() {
+        if (!StringUtils.hasText(jwtKeyRingConfigurationProperties.getKeystorePath())) {
+            return;
+        }
+
+        try {
+            useKeyRing(loadKeyRing(Instant.now()));
+        }
+        catch (IllegalStateException exception) {
+            reloadFailureCounter.increment();
+            logger.warn("Failed to reload jwt keystore, keeping the previous keys", exception);
+        }
+    }
+
+    JwtKeyRing loadKeyRing(Instant now) {
+        var keystorePath = jwtKeyRingConfigurationProperties.getKeystorePath();
+        var keystorePassword = jwtKeyRingConfigurationProperties.getKeystorePassword();
+        if (keystorePassword == null) {
+            throw new IllegalStateException("Jwt keystore password is required");
+        }
+        var password = keystorePassword.toCharArray();
+
+        var verificationKeys = new HashMap<String, Key>();
+        var signingKeys = new HashMap<String, Key>();
+        try (var inputStream = Files.newInputStream(Path.of(keystorePath))) {
+            var keyStore = KeyStore.getInstance(jwtKeyRingConfigurationProperties.getKeystoreType());
+            keyStore.load(inputStream, password);
+
+            // The alias of each entry is the kid of the tokens it signs
+            for (var alias : Collections.list(keyStore.aliases())) {
+                if (keyStore.isCertificateEntry(alias)) {
+                    verificationKeys.put(alias, keyStore.getCertificate(alias).getPublicKey());
+                    continue;
+                }
+
+                var key = keyStore.getKey(alias, password);
+                if (key instanceof SecretKey) {
+                    verificationKeys.put(alias, key);
+                }
+                else if (key instanceof PrivateKey && keyStore.getCertificate(alias) != null) {
+                    verificationKeys.put(alias, keyStore.getCertificate(alias).getPublicKey());
+                }
+                else {
+                    throw new IllegalStateException("Unsupported jwt keystore entry " + alias);
+                }
+                SignatureAlgorithm.forSigningKey(key);
+                signingKeys.put(alias, key);
+            }
+        }
+        catch (IOException | GeneralSecurityException | JwtException exception) {
+            throw new IllegalStateException("Failed to load jwt keystore " + keystorePath, exception);
+        }
+
+        if (verificationKeys.isEmpty()) {
+            throw new IllegalStateException("Jwt keystore " + keystorePath + " has no keys");
+        }
+        var signingKeyId = selectSigningKeyId(jwtKeyRingConfigurationProperties.getActivations(),
+                signingKeys.keySet(), now)
+                .orElseThrow(() -> new IllegalStateException("No key of jwt keystore " + keystorePath
+                        + " is active, configure jwt.keyring.activations"));
+        return new JwtKeyRing(verificationKeys, signingKeyId, signingKeys.get(signingKeyId));
+    }
+
+    // The most recently activated key signs, a key whose activation is still ahead only verifies,
+    // the previous keys keep verifying tokens until they are removed from the keystore
+    static Optional<String> selectSigningKeyId(Map<String, Instant> activations, Set<String> signingKeyIds,
+                                               Instant now) {
+        return activations.entrySet()
+                .stream()
+                .filter(entry -> signingKeyIds.contains(entry.getKey()))
+                .filter(entry -> !entry.getValue().isAfter(now))
+                .max(BY_ACTIVATION)
+                .map(Map.Entry::getKey);
+    }
+
+    private void useKeyRing(JwtKeyRing newKeyRing) {
+        var previousKeyRing = keyRing;
+        if (previousKeyRing == null
+                || !Objects.equals(previousKeyRing.getSigningKeyId(), newKeyRing.getSigningKeyId())) {
+            logger.info("Signing jwt with key '{}', {} keys verify", newKeyRing.getSigningKeyId(), newKeyRing.size());
+        }
+        keyRing = newKeyRing;
+        JwtUtils.useKeyRing(newKeyRing);
+    }
+}
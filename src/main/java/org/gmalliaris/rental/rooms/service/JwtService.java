@@ -1,6 +1,8 @@
 package org.gmalliaris.rental.rooms.service;
 
 import org.gmalliaris.rental.rooms.config.JwtConfigurationProperties;
+import org.gmalliaris.rental.rooms.dto.IssuedToken;
+import org.gmalliaris.rental.rooms.dto.IssuedTokenPair;
 import org.gmalliaris.rental.rooms.dto.JwtType;
 import org.gmalliaris.rental.rooms.entity.AccountUser;
 import org.gmalliaris.rental.rooms.util.JwtUtils;
@@ -10,64 +12,90 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 public class JwtService {
 
     private final JwtConfigurationProperties jwtConfigurationProperties;
     private final BlacklistService blacklistService;
+    private final SessionEpochService sessionEpochService;
 
-    public JwtService(JwtConfigurationProperties jwtConfigurationProperties, BlacklistService blacklistService) {
+    public JwtService(JwtConfigurationProperties jwtConfigurationProperties, BlacklistService blacklistService,
+                      SessionEpochService sessionEpochService) {
         this.jwtConfigurationProperties = jwtConfigurationProperties;
         this.blacklistService = blacklistService;
+        this.sessionEpochService = sessionEpochService;
     }
 
-    public String generateAccessToken(AccountUser user, String tokenGroupId){
-        return generateToken(user, JwtType.ACCESS, tokenGroupId);
+    public IssuedTokenPair issueTokenPair(AccountUser user){
+
+        Objects.requireNonNull(user);
+        var sessionEpoch = sessionEpochService.currentEpoch(user.getId());
+        return issueTokenPair(user, UUID.randomUUID().toString(), sessionEpoch, Instant.now());
     }
 
-    public String generateRefreshToken(AccountUser user, String tokenGroupId){
-        return generateToken(user, JwtType.REFRESH, tokenGroupId);
+    // The current refresh token is kept until it is about to expire, then its group is replaced by a new one
+    public IssuedTokenPair refreshTokens(AccountUser user, String tokenGroupId, Date refreshExpiration){
+
+        // read before blacklisting, so that the current group stays usable when no token can be issued
+        var sessionEpoch = sessionEpochService.currentEpoch(user.getId());
+        var now = Instant.now();
+        var expiresInSeconds = ChronoUnit.SECONDS.between(now, refreshExpiration.toInstant());
+        if (expiresInSeconds > jwtConfigurationProperties.getRefreshExpirationThresholdSeconds()) {
+            return new IssuedTokenPair(issueToken(user, JwtType.ACCESS, tokenGroupId, sessionEpoch, now), null);
+        }
+
+        blacklistService.blacklistTokenGroup(tokenGroupId, refreshExpiration);
+        return issueTokenPair(user, UUID.randomUUID().toString(), sessionEpoch, now);
     }
 
-    private String generateToken(AccountUser user, JwtType type, String tokenGroupId){
+    private IssuedTokenPair issueTokenPair(AccountUser user, String tokenGroupId, long sessionEpoch,
+                                           Instant issuedAt){
+
+        return new IssuedTokenPair(issueToken(user, JwtType.ACCESS, tokenGroupId, sessionEpoch, issuedAt),
+                issueToken(user, JwtType.REFRESH, tokenGroupId, sessionEpoch, issuedAt));
+    }
+
+    private IssuedToken issueToken(AccountUser user, JwtType type, String tokenGroupId, long sessionEpoch,
+                                   Instant issuedAt){
 
-        Objects.requireNonNull(user);
         Objects.requireNonNull(user.getId());
         Objects.requireNonNull(type);
 
-        var created = Instant.now();
         Instant expiration;
         if (type == JwtType.ACCESS){
-            expiration = created.plusSeconds(jwtConfigurationProperties.getAccessExpirationSeconds());
+            expiration = issuedAt.plusSeconds(jwtConfigurationProperties.getAccessExpirationSeconds());
         }
         else {
-            expiration = created.plus(jwtConfigurationProperties.getRefreshExpirationMinutes(), ChronoUnit.MINUTES);
+            expiration = issuedAt.plus(jwtConfigurationProperties.getRefreshExpirationMinutes(), ChronoUnit.MINUTES);
         }
 
-        return JwtUtils.generateToken(Date.from(created), Date.from(expiration),
-                type, user.getId(), tokenGroupId);
-    }
-
-    public Optional<String> generateRefreshTokenIfNeeded(AccountUser user, Date expiration, String tokenGroupId ){
-
-        var nowInstant = Instant.now();
-        var expirationInstant = expiration.toInstant();
-
-        var expiresInSeconds = ChronoUnit.SECONDS.between(nowInstant, expirationInstant);
-        var refreshExpirationThresholdSeconds = jwtConfigurationProperties.getRefreshExpirationThresholdSeconds();
-
-        if (expiresInSeconds > refreshExpirationThresholdSeconds) {
-            return Optional.empty();
+        if (type == JwtType.ACCESS && jwtConfigurationProperties.isStateless()) {
+            var roleNames = user.getRoles()
+                    .stream()
+                    .map(role -> role.getName().getValue())
+                    .collect(Collectors.toList());
+            return JwtUtils.issueToken(Date.from(issuedAt), Date.from(expiration),
+                    type, user.getId(), tokenGroupId, sessionEpoch, roleNames, user.isEnabled());
         }
 
-        blacklistService.blacklistTokenGroup(tokenGroupId);
-        return Optional.of(generateRefreshToken(user, UUID.randomUUID().toString()));
+        return JwtUtils.issueToken(Date.from(issuedAt), Date.from(expiration),
+                type, user.getId(), tokenGroupId, sessionEpoch);
+    }
+
+    // The refresh token of a group is issued before any of its access tokens, so it expires no later than
+    // a refresh token lifetime after the given access token was issued
+    public void blacklistTokenGroup(String tokenGroupId, Date accessTokenIssuedAt) {
+        Objects.requireNonNull(accessTokenIssuedAt);
+        var expiration = accessTokenIssuedAt.toInstant()
+                .plus(jwtConfigurationProperties.getRefreshExpirationMinutes(), ChronoUnit.MINUTES);
+        blacklistService.blacklistTokenGroup(tokenGroupId, Date.from(expiration));
     }
 
-    public void blacklistTokenGroup(String tokenGroupId) {
-        blacklistService.blacklistTokenGroup(tokenGroupId);
+    // Revokes every token issued to the user so far with a single write, instead of blacklisting each token group
+    public void revokeAllTokens(UUID userId) {
+        sessionEpochService.advanceEpoch(userId);
     }
 }
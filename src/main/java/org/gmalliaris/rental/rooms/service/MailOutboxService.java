@@ -0,0 +1,224 @@
+package org.gmalliaris.rental.rooms.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.gmalliaris.rental.rooms.config.MailOutboxConfigurationProperties;
+import org.gmalliaris.rental.rooms.entity.MailOutboxMessage;
+import org.gmalliaris.rental.rooms.entity.MailOutboxStatus;
+import org.gmalliaris.rental.rooms.repository.MailOutboxMessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import javax.mail.internet.MimeMessage;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+public class MailOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MailOutboxService.class);
+
+    private static final int LAST_ERROR_MAX_LENGTH = 1024;
+
+    private final MailOutboxMessageRepository mailOutboxMessageRepository;
+    private final JavaMailSender mailSender;
+    private final MailOutboxConfigurationProperties mailOutboxConfigurationProperties;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService workers;
+    private final AtomicInteger inFlightBatches = new AtomicInteger();
+
+    private final Counter sentCounter;
+    private final Counter retriedCounter;
+    private final Counter deadCounter;
+
+    public MailOutboxService(MailOutboxMessageRepository mailOutboxMessageRepository, JavaMailSender mailSender,
+                             PlatformTransactionManager transactionManager,
+                             MailOutboxConfigurationProperties mailOutboxConfigurationProperties,
+                             MeterRegistry meterRegistry) {
+        this.mailOutboxMessageRepository = mailOutboxMessageRepository;
+        this.mailSender = mailSender;
+        this.mailOutboxConfigurationProperties = mailOutboxConfigurationProperties;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.workers = Executors.newFixedThreadPool(mailOutboxConfigurationProperties.getWorkerThreads(),
+                new CustomizableThreadFactory("mail-outbox-"));
+
+        this.sentCounter = Counter.builder("mail.outbox.sent")
+                .register(meterRegistry);
+        this.retriedCounter = Counter.builder("mail.outbox.retried")
+                .register(meterRegistry);
+        this.deadCounter = Counter.builder("mail.outbox.dead")
+                .register(meterRegistry);
+        Gauge.builder("mail.outbox.in.flight.batches", inFlightBatches, AtomicInteger::get)
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${mail.outbox.pollIntervalMillis:1000}")
+    public void drainOutbox() {
+
+        while (inFlightBatches.get() < mailOutboxConfigurationProperties.getWorkerThreads()) {
+            var batch = claimBatch();
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            inFlightBatches.incrementAndGet();
+            try {
+                workers.execute(() -> {
+                    try {
+                        sendBatch(batch);
+                    }
+                    finally {
+                        inFlightBatches.decrementAndGet();
+                    }
+                });
+            }
+            catch (RejectedExecutionException exception) {
+                // shutting down, the claim lease expires and another node picks the batch up
+                inFlightBatches.decrementAndGet();
+                return;
+            }
+        }
+    }
+
+    // Claims and sends a single batch on the calling thread, returns the number of claimed messages
+    public int sendPendingBatch() {
+
+        var batch = claimBatch();
+        if (!batch.isEmpty()) {
+            sendBatch(batch);
+        }
+        return batch.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    List<MailOutboxMessage> claimBatch() {
+
+        var claimed = transactionTemplate.execute(status -> {
+            var now = Instant.now();
+            var batch = mailOutboxMessageRepository.findDueForUpdate(MailOutboxStatus.PENDING, now,
+                    PageRequest.of(0, mailOutboxConfigurationProperties.getBatchSize()));
+            var leaseExpiration = now.plusSeconds(mailOutboxConfigurationProperties.getClaimLeaseSeconds());
+            batch.forEach(message -> message.setNextAttemptAt(leaseExpiration));
+            return batch;
+        });
+        return claimed == null ? List.of() : claimed;
+    }
+
+    void sendBatch(List<MailOutboxMessage> batch) {
+
+        var failures = new HashMap<UUID, String>();
+        var mimeMessages = new LinkedHashMap<MimeMessage, MailOutboxMessage>();
+        for (var message : batch) {
+            try {
+                mimeMessages.put(createMimeMessage(message), message);
+            }
+            catch (MessagingException exception) {
+                failures.put(message.getId(), describe(exception));
+            }
+        }
+
+        if (!mimeMessages.isEmpty()) {
+            try {
+                // a single call reuses one SMTP connection for the whole batch
+                mailSender.send(mimeMessages.keySet().toArray(MimeMessage[]::new));
+            }
+            catch (MailSendException exception) {
+                var failedMessages = exception.getFailedMessages();
+                if (failedMessages.isEmpty()) {
+                    mimeMessages.values().forEach(message -> failures.put(message.getId(), describe(exception)));
+                }
+                failedMessages.forEach((failedMessage, failure) -> {
+                    var message = mimeMessages.get(failedMessage);
+                    if (message != null) {
+                        failures.put(message.getId(), describe(failure));
+                    }
+                });
+            }
+            catch (MailException exception) {
+                mimeMessages.values().forEach(message -> failures.put(message.getId(), describe(exception)));
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> recordResults(batch, failures));
+    }
+
+    protected MimeMessage createMimeMessage(MailOutboxMessage message) throws MessagingException {
+
+        var mimeMessage = mailSender.createMimeMessage();
+        var helper = new MimeMessageHelper(mimeMessage,
+                MimeMessageHelper.MULTIPART_MODE_MIXED_RELATED,
+                StandardCharsets.UTF_8.name());
+        helper.setSubject(message.getSubject());
+        helper.setTo(message.getRecipient());
+        helper.setText(message.getBody(), true);
+        return mimeMessage;
+    }
+
+    private void recordResults(List<MailOutboxMessage> batch, Map<UUID, String> failures) {
+
+        var now = Instant.now();
+        var sentIds = new ArrayList<UUID>();
+        var failedMessages = new ArrayList<MailOutboxMessage>();
+        for (var message : batch) {
+            var failure = failures.get(message.getId());
+            if (failure == null) {
+                sentIds.add(message.getId());
+                continue;
+            }
+
+            var attempts = message.getAttempts() + 1;
+            message.setAttempts(attempts);
+            message.setLastError(failure);
+            if (attempts >= mailOutboxConfigurationProperties.getMaxAttempts()) {
+                message.setStatus(MailOutboxStatus.DEAD);
+                deadCounter.increment();
+                logger.warn("Giving up on mail {} after {} attempts: {}", message.getId(), attempts, failure);
+            }
+            else {
+                var backoffSeconds = (long) mailOutboxConfigurationProperties.getRetryBackoffSeconds() << (attempts - 1);
+                message.setNextAttemptAt(now.plusSeconds(backoffSeconds));
+                retriedCounter.increment();
+                logger.debug("Mail {} failed, attempt {}: {}", message.getId(), attempts, failure);
+            }
+            failedMessages.add(message);
+        }
+
+        if (!sentIds.isEmpty()) {
+            mailOutboxMessageRepository.deleteAllByIdInBatch(sentIds);
+            sentCounter.increment(sentIds.size());
+        }
+        if (!failedMessages.isEmpty()) {
+            mailOutboxMessageRepository.saveAll(failedMessages);
+        }
+    }
+
+    private static String describe(Exception exception) {
+
+        var description = exception.getMessage() == null
+                ? exception.getClass().getName() : exception.getMessage();
+        return description.length() > LAST_ERROR_MAX_LENGTH
+                ? description.substring(0, LAST_ERROR_MAX_LENGTH) : description;
+    }
+}
@@ -1,48 +1,68 @@
 package org.gmalliaris.rental.rooms.service;
 
+import org.gmalliaris.rental.rooms.config.MailTemplateConfigurationProperties;
 import org.gmalliaris.rental.rooms.entity.ConfirmationToken;
-import org.springframework.data.util.Pair;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
+import org.gmalliaris.rental.rooms.entity.MailOutboxMessage;
+import org.gmalliaris.rental.rooms.entity.MailOutboxStatus;
+import org.gmalliaris.rental.rooms.repository.MailOutboxMessageRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 import org.thymeleaf.context.Context;
 import org.thymeleaf.spring5.SpringTemplateEngine;
 
-import javax.mail.MessagingException;
-import javax.mail.internet.MimeMessage;
-import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.ZoneId;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 
 @Service
-public class MailService {
+public class MailService implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final Logger logger = LoggerFactory.getLogger(MailService.class);
+
+    private static final String REGISTRATION_CONFIRMATION_TEMPLATE = "registration-confirmation";
+    private static final String REGISTRATION_CONFIRMATION_SUBJECT = "Registration Confirmation";
+    private static final List<String> TEMPLATES = List.of(REGISTRATION_CONFIRMATION_TEMPLATE);
 
-    private final JavaMailSender mailSender;
     private final SpringTemplateEngine templateEngine;
+    private final MailOutboxMessageRepository mailOutboxMessageRepository;
+    private final MailTemplateConfigurationProperties mailTemplateConfigurationProperties;
 
-    public MailService(JavaMailSender mailSender, SpringTemplateEngine templateEngine) {
-        this.mailSender = mailSender;
+    public MailService(SpringTemplateEngine templateEngine, MailOutboxMessageRepository mailOutboxMessageRepository,
+                       MailTemplateConfigurationProperties mailTemplateConfigurationProperties) {
         this.templateEngine = templateEngine;
+        this.mailOutboxMessageRepository = mailOutboxMessageRepository;
+        this.mailTemplateConfigurationProperties = mailTemplateConfigurationProperties;
     }
 
-    protected Pair<MimeMessage, MimeMessageHelper> createMimeClasses() throws MessagingException {
-        var message = mailSender.createMimeMessage();
-        var helper = new MimeMessageHelper(message,
-                MimeMessageHelper.MULTIPART_MODE_MIXED_RELATED,
-                StandardCharsets.UTF_8.name());
+    // Parses every template once, so that the first mails after startup are not paying for it
+    @Override
+    public void onApplicationEvent(@NonNull ApplicationReadyEvent event) {
+
+        if (!mailTemplateConfigurationProperties.isCacheable()) {
+            return;
+        }
 
-        return Pair.of(message, helper);
+        logger.info("Warming up mail templates.");
+        TEMPLATES.forEach(template -> templateEngine.process(template, new Context()));
     }
 
-    public void sendRegistrationConfirmationEmail(ConfirmationToken token) throws MessagingException {
+    // Stored in the caller's transaction, MailOutboxService delivers it once committed
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void queueRegistrationConfirmationEmail(ConfirmationToken token) {
 
-        var registrationConfirmationTemplate = "registration-confirmation";
-        var registrationConfirmationSubject = "Registration Confirmation";
+        var html = renderRegistrationConfirmationEmail(token);
+        queueEmail(token.getAccountUser().getEmail(), REGISTRATION_CONFIRMATION_SUBJECT, html);
+    }
 
-        var mimePair = createMimeClasses();
-        var message = mimePair.getFirst();
-        var helper = mimePair.getSecond();
+    public String renderRegistrationConfirmationEmail(ConfirmationToken token) {
 
         var props = new HashMap<String, Object>();
         props.put("firstName", token.getAccountUser().getFirstName());
@@ -54,12 +74,20 @@ public class MailService {
 
         var context = new Context();
         context.setVariables(props);
-        var html = templateEngine.process(registrationConfirmationTemplate, context);
+        return templateEngine.process(REGISTRATION_CONFIRMATION_TEMPLATE, context);
+    }
 
-        helper.setSubject(registrationConfirmationSubject);
-        helper.setTo(token.getAccountUser().getEmail());
-        helper.setText(html, true);
+    private void queueEmail(String recipient, String subject, String html) {
 
-        mailSender.send(message);
+        var now = Instant.now();
+        var message = new MailOutboxMessage();
+        message.setRecipient(recipient);
+        message.setSubject(subject);
+        message.setBody(html);
+        message.setStatus(MailOutboxStatus.PENDING);
+        message.setAttempts(0);
+        message.setNextAttemptAt(now);
+        message.setCreatedAt(now);
+        mailOutboxMessageRepository.save(message);
     }
 }
@@ -0,0 +1,195 @@
+package org.gmalliaris.rental.rooms.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.gmalliaris.rental.rooms.config.PasswordHashingConfigurationProperties;
+import org.gmalliaris.rental.rooms.config.exception.ApiException;
+import org.gmalliaris.rental.rooms.config.exception.ApiExceptionMessageConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.IntToLongFunction;
+import java.util.function.Supplier;
+
+// Runs BCrypt on a bounded pool, so that bursts of logins cannot take every request thread's cpu
+@Service
+public class PasswordHashingService implements PasswordEncoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHashingService.class);
+
+    static final int MIN_STRENGTH = 4;
+    static final int MAX_STRENGTH = 16;
+    private static final String CALIBRATION_PASSWORD = "calibration-password";
+    // bcrypt hashes look like $2a$10$..., the cost is the two digits after the version
+    private static final int HASH_COST_OFFSET = 4;
+    private static final int HASH_PREFIX_LENGTH = 7;
+
+    private final int strength;
+    private final BCryptPasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejectedCounter;
+
+    public PasswordHashingService(PasswordHashingConfigurationProperties passwordHashingConfigurationProperties,
+                                  MeterRegistry meterRegistry) {
+        this.strength = passwordHashingConfigurationProperties.isCalibrate()
+                ? calibrateStrength(TimeUnit.MILLISECONDS.toNanos(passwordHashingConfigurationProperties.getCalibrationTargetMillis()),
+                        PasswordHashingService::measureEncodeNanos)
+                : passwordHashingConfigurationProperties.getStrength();
+        logger.info("Using BCrypt strength {}", strength);
+        this.passwordEncoder = new BCryptPasswordEncoder(strength);
+
+        var threads = passwordHashingConfigurationProperties.getThreads();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(passwordHashingConfigurationProperties.getQueueCapacity()),
+                new CustomizableThreadFactory("password-hashing-"), new ThreadPoolExecutor.AbortPolicy());
+
+        this.encodeTimer = Timer.builder("password.hashing")
+                .tag("operation", "encode")
+                .register(meterRegistry);
+        this.matchesTimer = Timer.builder("password.hashing")
+                .tag("operation", "matches")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("password.hashing.rejected")
+                .register(meterRegistry);
+        Gauge.builder("password.hashing.queue.depth", executor, pool -> pool.getQueue().size())
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return submit(() -> encodeTimer.record(() -> passwordEncoder.encode(rawPassword)));
+    }
+
+    // Keeps at most one hash per thread in flight, so that bulk work leaves the queue to logins,
+    // and hashes on the calling thread instead of failing when the queue is full anyway
+    public List<String> encodeAll(List<? extends CharSequence> rawPasswords) {
+
+        var window = executor.getMaximumPoolSize();
+        var futures = new ArrayList<Future<String>>(rawPasswords.size());
+        var oldestPending = 0;
+        for (var rawPassword : rawPasswords) {
+            if (futures.size() - oldestPending >= window) {
+                await(futures.get(oldestPending++));
+            }
+            Supplier<String> task = () -> encodeTimer.record(() -> passwordEncoder.encode(rawPassword));
+            try {
+                futures.add(executor.submit(task::get));
+            }
+            catch (RejectedExecutionException exception) {
+                futures.add(CompletableFuture.completedFuture(task.get()));
+            }
+        }
+
+        var encodedPasswords = new ArrayList<String>(futures.size());
+        futures.forEach(future -> encodedPasswords.add(await(future)));
+        return encodedPasswords;
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return submit(() -> matchesTimer.record(() -> passwordEncoder.matches(rawPassword, encodedPassword)));
+    }
+
+    // True only when the stored hash is cheaper than the current cost, nodes calibrated to different
+    // strengths must not rehash the same user back and forth or downgrade stronger hashes
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.length() < HASH_PREFIX_LENGTH
+                || encodedPassword.charAt(HASH_PREFIX_LENGTH - 1) != '$') {
+            return false;
+        }
+
+        var tens = Character.digit(encodedPassword.charAt(HASH_COST_OFFSET), 10);
+        var units = Character.digit(encodedPassword.charAt(HASH_COST_OFFSET + 1), 10);
+        if (tens < 0 || units < 0) {
+            return false;
+        }
+        return tens * 10 + units < strength;
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private <T> T submit(Supplier<T> task) {
+
+        Future<T> future;
+        try {
+            future = executor.submit(task::get);
+        }
+        catch (RejectedExecutionException exception) {
+            rejectedCounter.increment();
+            throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, ApiExceptionMessageConstants.PASSWORD_HASHING_UNAVAILABLE);
+        }
+        return await(future);
+    }
+
+    private static <T> T await(Future<T> future) {
+
+        try {
+            return future.get();
+        }
+        catch (InterruptedException exception) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for password hashing.", exception);
+        }
+        catch (ExecutionException exception) {
+            var cause = exception.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Password hashing failed.", cause);
+        }
+    }
+
+    // Every step doubles the cost, picks the strength whose hash time is closest to the target
+    static int calibrateStrength(long targetNanos, IntToLongFunction encodeNanos) {
+
+        var previousNanos = encodeNanos.applyAsLong(MIN_STRENGTH);
+        if (previousNanos >= targetNanos) {
+            return MIN_STRENGTH;
+        }
+
+        for (var candidate = MIN_STRENGTH + 1; candidate <= MAX_STRENGTH; candidate++) {
+            var nanos = encodeNanos.applyAsLong(candidate);
+            if (nanos >= targetNanos) {
+                return nanos - targetNanos < targetNanos - previousNanos ? candidate : candidate - 1;
+            }
+            previousNanos = nanos;
+        }
+        return MAX_STRENGTH;
+    }
+
+    private static long measureEncodeNanos(int strength) {
+
+        var encoder = new BCryptPasswordEncoder(strength);
+        // the first run warms up the jit, keep the faster of two
+        var best = Long.MAX_VALUE;
+        for (var i = 0; i < 2; i++) {
+            var start = System.nanoTime();
+            encoder.encode(CALIBRATION_PASSWORD);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
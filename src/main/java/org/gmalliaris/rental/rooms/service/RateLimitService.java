@@ -0,0 +1,68 @@
+package org.gmalliaris.rental.rooms.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.gmalliaris.rental.rooms.config.RateLimitConfigurationProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.UUID;
+
+@Service
+public class RateLimitService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitService.class);
+
+    static final String KEY_PREFIX = "rl:";
+    static final String CONFIRM_RESET_LIMIT = "confirm-reset";
+    // Fixed window counter, the window starts with the first request and the increment and expiry are atomic
+    static final RedisScript<Long> INCREMENT_SCRIPT = new DefaultRedisScript<>(
+            "local count = redis.call('INCR', KEYS[1]) " +
+            "if count == 1 then redis.call('EXPIRE', KEYS[1], ARGV[1]) end " +
+            "return count", Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final RateLimitConfigurationProperties rateLimitConfigurationProperties;
+    private final Counter confirmResetRejectedCounter;
+
+    public RateLimitService(RedisTemplate<String, String> redisTemplate,
+                            RateLimitConfigurationProperties rateLimitConfigurationProperties,
+                            MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.rateLimitConfigurationProperties = rateLimitConfigurationProperties;
+        this.confirmResetRejectedCounter = Counter.builder("rate.limit.rejected")
+                .tag("limit", CONFIRM_RESET_LIMIT)
+                .register(meterRegistry);
+    }
+
+    public boolean tryAcquireConfirmationReset(UUID userId) {
+
+        var acquired = tryAcquire(CONFIRM_RESET_LIMIT, userId.toString(),
+                rateLimitConfigurationProperties.getConfirmResetMaxRequests(),
+                rateLimitConfigurationProperties.getConfirmResetWindowSeconds());
+        if (!acquired) {
+            confirmResetRejectedCounter.increment();
+        }
+        return acquired;
+    }
+
+    private boolean tryAcquire(String limit, String subject, int maxRequests, int windowSeconds) {
+
+        var key = KEY_PREFIX + limit + ":" + subject;
+        try {
+            var count = redisTemplate.execute(INCREMENT_SCRIPT, List.of(key), String.valueOf(windowSeconds));
+            return count == null || count <= maxRequests;
+        }
+        catch (DataAccessException exception) {
+            // the limit only protects against floods, an unavailable redis should not block users
+            logger.warn("Failed to check rate limit {}, allowing request", limit, exception);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package org.gmalliaris.rental.rooms.service;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.gmalliaris.rental.rooms.config.JwtConfigurationProperties;
+import org.gmalliaris.rental.rooms.config.SessionEpochConfigurationProperties;
+import org.gmalliaris.rental.rooms.config.exception.ApiException;
+import org.gmalliaris.rental.rooms.config.exception.ApiExceptionMessageConstants;
+import org.gmalliaris.rental.rooms.util.CircuitBreaker;
+import org.gmalliaris.rental.rooms.util.CommonUtils;
+import org.gmalliaris.rental.rooms.util.JwtUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+@Service
+public class SessionEpochService implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionEpochService.class);
+
+    public static final String SESSION_EPOCH_CHANNEL = "session:epoch";
+    private static final String SESSION_EPOCH_KEY_PREFIX = "epoch:";
+    private static final char MESSAGE_SEPARATOR = ' ';
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final CircuitBreaker redisCircuitBreaker;
+    // Epochs of the users seen on this node, refreshed in the background so that lookups of cached users never
+    // wait on redis, epochs advanced on other nodes are pushed here through pub/sub
+    private final LoadingCache<UUID, Long> epochCache;
+
+    private final Counter advanceCounter;
+    private final Counter lookupFailureCounter;
+    private final Counter uncheckedCounter;
+
+    public SessionEpochService(RedisTemplate<String, String> redisTemplate,
+                               JwtConfigurationProperties jwtConfigurationProperties,
+                               SessionEpochConfigurationProperties sessionEpochConfigurationProperties,
+                               MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.redisCircuitBreaker = new CircuitBreaker(sessionEpochConfigurationProperties.getBreakerFailureThreshold(),
+                Duration.ofSeconds(sessionEpochConfigurationProperties.getBreakerOpenSeconds()));
+        this.epochCache = Caffeine.newBuilder()
+                .maximumSize(sessionEpochConfigurationProperties.getCacheMaximumSize())
+                .refreshAfterWrite(Duration.ofSeconds(sessionEpochConfigurationProperties.getCacheRefreshSeconds()))
+                .expireAfterAccess(Duration.ofMinutes(jwtConfigurationProperties.getRefreshExpirationMinutes()))
+                .build(new EpochLoader());
+
+        this.advanceCounter = Counter.builder("session.epoch.advances")
+                .register(meterRegistry);
+        this.lookupFailureCounter = Counter.builder("session.epoch.lookup.failures")
+                .register(meterRegistry);
+        this.uncheckedCounter = Counter.builder("session.epoch.unchecked")
+                .register(meterRegistry);
+    }
+
+    // Epoch embedded in newly issued tokens, issuing fails while it is unknown, since a guessed epoch would either
+    // revive revoked sessions or get the new tokens revoked once redis is back
+    public long currentEpoch(UUID userId) {
+        Objects.requireNonNull(userId);
+        var epoch = epochCache.get(userId);
+        if (epoch == null) {
+            throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, ApiExceptionMessageConstants.SESSION_UNAVAILABLE);
+        }
+        return epoch;
+    }
+
+    // Tokens issued before the last advance of their user's epoch are revoked. Verification fails open:
+    // while the epoch of a user is unknown their tokens are accepted, so that a redis outage does not log
+    // everyone out, revocations of users not cached on this node are then only enforced once redis is back
+    public boolean tokenWithClaimsIsRevoked(UUID userId, Claims claims) {
+        Objects.requireNonNull(userId);
+        var epoch = epochCache.get(userId);
+        if (epoch == null) {
+            uncheckedCounter.increment();
+            return false;
+        }
+        return JwtUtils.extractSessionEpochFromClaims(claims) < epoch;
+    }
+
+    public long advanceEpoch(UUID userId) {
+        Objects.requireNonNull(userId);
+        if (!redisCircuitBreaker.tryAcquirePermission()) {
+            throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, ApiExceptionMessageConstants.SESSION_REVOCATION_UNAVAILABLE);
+        }
+
+        long epoch;
+        try {
+            epoch = Objects.requireNonNull(redisTemplate.opsForValue().increment(epochKey(userId)));
+            redisCircuitBreaker.onSuccess();
+        }
+        catch (DataAccessException exception) {
+            redisCircuitBreaker.onFailure();
+            logger.warn("Failed to advance session epoch in redis", exception);
+            throw new ApiException(HttpStatus.SERVICE_UNAVAILABLE, ApiExceptionMessageConstants.SESSION_REVOCATION_UNAVAILABLE);
+        }
+        advanceCounter.increment();
+        epochCache.asMap().merge(userId, epoch, Math::max);
+
+        try {
+            redisTemplate.convertAndSend(SESSION_EPOCH_CHANNEL, userId.toString() + MESSAGE_SEPARATOR + epoch);
+        }
+        catch (DataAccessException exception) {
+            logger.warn("Failed to publish session epoch, other nodes pick it up at their next refresh", exception);
+        }
+        return epoch;
+    }
+
+    @Override
+    public void onMessage(@NonNull Message message, byte[] pattern) {
+        var body = new String(message.getBody(), StandardCharsets.UTF_8);
+        var separatorIndex = body.indexOf(MESSAGE_SEPARATOR);
+        var userId = separatorIndex < 0
+                ? Optional.<UUID>empty() : CommonUtils.uuidFromString(body.substring(0, separatorIndex));
+        var epoch = userId.isPresent() ? parseEpoch(body.substring(separatorIndex + 1)) : null;
+        if (epoch == null) {
+            logger.debug("Ignoring malformed session epoch message");
+            return;
+        }
+
+        // Users not cached here read the new epoch from redis on their next lookup
+        epochCache.asMap().computeIfPresent(userId.get(), (key, currentEpoch) -> Math.max(currentEpoch, epoch));
+    }
+
+    // Returns null while redis is unavailable
+    private Long readEpoch(UUID userId) {
+        if (!redisCircuitBreaker.tryAcquirePermission()) {
+            return null;
+        }
+
+        try {
+            var epoch = redisTemplate.opsForValue().get(epochKey(userId));
+            redisCircuitBreaker.onSuccess();
+            return epoch == null ? 0L : Long.parseLong(epoch);
+        }
+        catch (DataAccessException exception) {
+            redisCircuitBreaker.onFailure();
+            lookupFailureCounter.increment();
+            logger.warn("Failed to look up session epoch in redis: {}", exception.getMessage());
+            return null;
+        }
+    }
+
+    private static Long parseEpoch(String value) {
+        try {
+            var epoch = Long.parseLong(value);
+            return epoch < 0 ? null : epoch;
+        }
+        catch (NumberFormatException exception) {
+            return null;
+        }
+    }
+
+    private static String epochKey(UUID userId) {
+        return SESSION_EPOCH_KEY_PREFIX + userId;
+    }
+
+    private final class EpochLoader implements CacheLoader<UUID, Long> {
+
+        // Users first seen while redis is unavailable are not cached, they are read again on their next lookup
+        @Override
+        public Long load(@NonNull UUID userId) {
+            return readEpoch(userId);
+        }
+
+        // Epochs only move forward, a failed or stale read keeps the cached one
+        @Override
+        public Long reload(@NonNull UUID userId, @NonNull Long cachedEpoch) {
+            var epoch = readEpoch(userId);
+            return epoch == null ? cachedEpoch : Math.max(cachedEpoch, epoch);
+        }
+    }
+}
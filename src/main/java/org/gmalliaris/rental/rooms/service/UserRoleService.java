@@ -1,5 +1,7 @@
 package org.gmalliaris.rental.rooms.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.gmalliaris.rental.rooms.config.exception.ApiException;
 import org.gmalliaris.rental.rooms.config.exception.ApiExceptionMessageConstants;
 import org.gmalliaris.rental.rooms.entity.UserRole;
@@ -8,21 +10,64 @@ import org.gmalliaris.rental.rooms.repository.UserRoleRepository;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
 @Service
 public class UserRoleService {
 
     private final UserRoleRepository userRoleRepository;
+    // Roles are immutable and few, registered at startup by the initializer and never evicted
+    private volatile Map<UserRoleName, UserRole> registry = Collections.emptyMap();
+
+    private final Counter registryHitCounter;
+    private final Counter registryMissCounter;
 
-    public UserRoleService(UserRoleRepository userRoleRepository) {
+    public UserRoleService(UserRoleRepository userRoleRepository, MeterRegistry meterRegistry) {
         this.userRoleRepository = userRoleRepository;
+        this.registryHitCounter = Counter.builder("user.roles.lookups")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.registryMissCounter = Counter.builder("user.roles.lookups")
+                .tag("result", "miss")
+                .register(meterRegistry);
     }
 
     public UserRole findUserRoleByName(UserRoleName name){
-        return userRoleRepository.findByName(name)
+        var userRole = registry.get(name);
+        if (userRole != null) {
+            registryHitCounter.increment();
+            return userRole;
+        }
+
+        registryMissCounter.increment();
+        userRole = userRoleRepository.findByName(name)
                 .orElseThrow( () -> {
                     var errMsg = String.format(ApiExceptionMessageConstants.ENTITY_NOT_FOUND_TEMPLATE,
                             UserRole.class.getSimpleName(), name);
                     throw new ApiException(HttpStatus.NOT_FOUND, errMsg);
                 });
+        registerUserRoles(Collections.singleton(userRole));
+        return userRole;
+    }
+
+    public Map<UserRoleName, UserRole> findAllUserRoles(){
+        if (registry.size() < UserRoleName.values().length) {
+            registryMissCounter.increment();
+            registerUserRoles(userRoleRepository.findAll());
+        }
+        else {
+            registryHitCounter.increment();
+        }
+        return registry;
+    }
+
+    public synchronized void registerUserRoles(Collection<UserRole> userRoles){
+        var updatedRegistry = new EnumMap<UserRoleName, UserRole>(UserRoleName.class);
+        updatedRegistry.putAll(registry);
+        userRoles.forEach(userRole -> updatedRegistry.put(userRole.getName(), userRole));
+        registry = Collections.unmodifiableMap(updatedRegistry);
     }
 }
@@ -14,7 +14,6 @@ import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.ApplicationListener;
 import org.springframework.http.HttpStatus;
 import org.springframework.lang.NonNull;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Component;
 
 import java.util.Arrays;
@@ -32,12 +31,15 @@ public class UserTablesInitializer implements ApplicationListener<ApplicationRea
 
     private final AccountUserRepository accountUserRepository;
     private final UserRoleRepository userRoleRepository;
-    private final BCryptPasswordEncoder bCryptPasswordEncoder;
+    private final UserRoleService userRoleService;
+    private final PasswordHashingService passwordHashingService;
 
-    public UserTablesInitializer(AccountUserRepository accountUserRepository, UserRoleRepository userRoleRepository, BCryptPasswordEncoder bCryptPasswordEncoder) {
+    public UserTablesInitializer(AccountUserRepository accountUserRepository, UserRoleRepository userRoleRepository,
+                                 UserRoleService userRoleService, PasswordHashingService passwordHashingService) {
         this.accountUserRepository = accountUserRepository;
         this.userRoleRepository = userRoleRepository;
-        this.bCryptPasswordEncoder = bCryptPasswordEncoder;
+        this.userRoleService = userRoleService;
+        this.passwordHashingService = passwordHashingService;
     }
 
     @Override
@@ -45,6 +47,7 @@ public class UserTablesInitializer implements ApplicationListener<ApplicationRea
         logger.info("Running user roles and admin user initializer.");
 
         var userRoles = initUserRoles();
+        userRoleService.registerUserRoles(userRoles);
 
         if (accountUserRepository.countAdminAccountUsers() == 0){
             initAdminUser(userRoles);
@@ -82,7 +85,7 @@ public class UserTablesInitializer implements ApplicationListener<ApplicationRea
 
         var adminUser = new AccountUser();
         adminUser.setEmail(adminEmail);
-        var encodedPassword = bCryptPasswordEncoder
+        var encodedPassword = passwordHashingService
                 .encode(adminPassword);
         adminUser.setFirstName("Admin");
         adminUser.setLastName("istrator");
@@ -0,0 +1,86 @@
+package org.gmalliaris.rental.rooms.util;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+public final class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final LongSupplier nanoClock;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile State state = State.CLOSED;
+    private volatile long stateChangedAt;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this(failureThreshold, openDuration, System::nanoTime);
+    }
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier nanoClock) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("Failure threshold must be positive");
+        }
+        if (openDuration.isNegative() || openDuration.isZero()) {
+            throw new IllegalArgumentException("Open duration must be positive");
+        }
+
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.nanoClock = nanoClock;
+        this.stateChangedAt = nanoClock.getAsLong();
+    }
+
+    public boolean tryAcquirePermission() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+
+        synchronized (this) {
+            if (state == State.CLOSED) {
+                return true;
+            }
+            var now = nanoClock.getAsLong();
+            if (now - stateChangedAt < openDurationNanos) {
+                return false;
+            }
+            // A single trial call per open period, a trial that never reports back is retried after another period
+            transitionTo(State.HALF_OPEN, now);
+            return true;
+        }
+    }
+
+    public void onSuccess() {
+        if (consecutiveFailures.get() != 0) {
+            consecutiveFailures.set(0);
+        }
+        if (state != State.CLOSED) {
+            synchronized (this) {
+                transitionTo(State.CLOSED, nanoClock.getAsLong());
+            }
+        }
+    }
+
+    public void onFailure() {
+        synchronized (this) {
+            if (state == State.HALF_OPEN || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+                consecutiveFailures.set(0);
+                transitionTo(State.OPEN, nanoClock.getAsLong());
+            }
+        }
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    private void transitionTo(State newState, long now) {
+        stateChangedAt = now;
+        state = newState;
+    }
+}
@@ -1,25 +1,73 @@
 package org.gmalliaris.rental.rooms.util;
 
+import java.util.Arrays;
 import java.util.Optional;
 import java.util.UUID;
 
 public final class CommonUtils {
 
+    static final int UUID_LENGTH = 36;
+    private static final byte[] HEX_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(HEX_VALUES, (byte) -1);
+        for (var i = 0; i < 10; i++) {
+            HEX_VALUES['0' + i] = (byte) i;
+        }
+        for (var i = 0; i < 6; i++) {
+            HEX_VALUES['a' + i] = (byte) (10 + i);
+            HEX_VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
+
     private CommonUtils() {
         // hide implicit constructor
     }
 
     public static Optional<UUID> uuidFromString(String uuid) {
 
-        if (uuid == null) {
+        if (uuid == null || uuid.length() != UUID_LENGTH) {
             return Optional.empty();
         }
 
-        try {
-            return Optional.of(UUID.fromString(uuid));
+        return uuidFromString(uuid, 0);
+    }
+
+    // Parses the canonical 8-4-4-4-12 form at the given offset, without the exception path of UUID.fromString
+    static Optional<UUID> uuidFromString(String value, int offset) {
+
+        if (value.length() - offset < UUID_LENGTH
+                || value.charAt(offset + 8) != '-'
+                || value.charAt(offset + 13) != '-'
+                || value.charAt(offset + 18) != '-'
+                || value.charAt(offset + 23) != '-') {
+            return Optional.empty();
         }
-        catch (IllegalArgumentException exception) {
+
+        var timeLow = parseHex(value, offset, 8);
+        var timeMid = parseHex(value, offset + 9, 4);
+        var timeHigh = parseHex(value, offset + 14, 4);
+        var clockSequence = parseHex(value, offset + 19, 4);
+        var node = parseHex(value, offset + 24, 12);
+        if ((timeLow | timeMid | timeHigh | clockSequence | node) < 0) {
             return Optional.empty();
         }
+
+        return Optional.of(new UUID(timeLow << 32 | timeMid << 16 | timeHigh, clockSequence << 48 | node));
+    }
+
+    // at most 12 digits are parsed, so a valid result is never negative
+    private static long parseHex(String value, int beginIndex, int length) {
+
+        long result = 0;
+        for (var i = beginIndex; i < beginIndex + length; i++) {
+            var character = value.charAt(i);
+            var digit = character < HEX_VALUES.length ? HEX_VALUES[character] : -1;
+            if (digit < 0) {
+                return -1;
+            }
+            result = result << 4 | digit;
+        }
+        return result;
     }
 }
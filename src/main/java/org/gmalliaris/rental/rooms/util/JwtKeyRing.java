@@ -0,0 +1,72 @@
+package org.gmalliaris.rental.rooms.util;
+
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+
+import java.security.Key;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+public final class JwtKeyRing {
+
+    private final Map<String, Key> verificationKeys;
+    private final String signingKeyId;
+    private final Key signingKey;
+
+    // Without a signing key the ring only verifies tokens issued by other nodes
+    public JwtKeyRing(Map<String, Key> verificationKeys, String signingKeyId, Key signingKey) {
+        Objects.requireNonNull(verificationKeys);
+        if ((signingKeyId == null) != (signingKey == null)) {
+            throw new IllegalArgumentException("Signing key id and signing key must be given together");
+        }
+        if (signingKeyId != null && !verificationKeys.containsKey(signingKeyId)) {
+            throw new IllegalArgumentException("Signing key must also be a verification key");
+        }
+
+        this.verificationKeys = Collections.unmodifiableMap(new HashMap<>(verificationKeys));
+        this.signingKeyId = signingKeyId;
+        this.signingKey = signingKey;
+    }
+
+    public static JwtKeyRing ephemeral() {
+        var keyId = UUID.randomUUID().toString();
+        var key = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+        return new JwtKeyRing(Map.of(keyId, key), keyId, key);
+    }
+
+    public Key findVerificationKey(String keyId) {
+        return keyId == null ? null : verificationKeys.get(keyId);
+    }
+
+    public boolean canSign() {
+        return signingKey != null;
+    }
+
+    public String getSigningKeyId() {
+        return signingKeyId;
+    }
+
+    public Key getSigningKey() {
+        return signingKey;
+    }
+
+    public int size() {
+        return verificationKeys.size();
+    }
+
+    // Key ids of this ring that the other ring no longer verifies with the same key
+    Set<String> keyIdsChangedIn(JwtKeyRing other) {
+        var changedKeyIds = new HashSet<String>();
+        verificationKeys.forEach((keyId, key) -> {
+            if (!key.equals(other.findVerificationKey(keyId))) {
+                changedKeyIds.add(keyId);
+            }
+        });
+        return changedKeyIds;
+    }
+}
@@ -1,13 +1,23 @@
 package org.gmalliaris.rental.rooms.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.*;
-import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureException;
+import org.gmalliaris.rental.rooms.dto.IssuedToken;
 import org.gmalliaris.rental.rooms.dto.JwtType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 public final class JwtUtils {
 
@@ -15,37 +25,113 @@ public final class JwtUtils {
 
     private static final String ISS_AUD = "rental-rooms-api";
     private static final String TOKEN_GROUP_ID_CUSTOM_CLAIM = "tgid";
-    private static final String BEARER_PREFIX = "Bearer ";
-    private static final SecretKey SIGN_KEY = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+    private static final String ROLES_CUSTOM_CLAIM = "rol";
+    private static final String ENABLED_CUSTOM_CLAIM = "enb";
+    private static final String SESSION_EPOCH_CUSTOM_CLAIM = "sep";
+    public static final String BEARER_PREFIX = "Bearer ";
+    private static final char SUBJECT_SEPARATOR = '_';
+    private static final String TOKEN_DIGEST_ALGORITHM = "SHA-256";
+
+    // Replaced by the key ring service when keys are provisioned, otherwise tokens only verify on this node
+    private static volatile JwtKeyRing keyRing = JwtKeyRing.ephemeral();
+
+    // Built parsers are immutable and thread-safe, so a single instance is shared by all calls
+    private static final JwtParser PARSER = Jwts.parserBuilder()
+            .requireIssuer(ISS_AUD)
+            .requireAudience(ISS_AUD)
+            .setSigningKeyResolver(new KeyRingSigningKeyResolver())
+            .build();
+
+    // Tokens that already passed signature and claim validation, each entry expires no later than the token itself.
+    // Entries are keyed by the SHA-256 digest of the token, so the bearer tokens themselves are not kept in memory.
+    // Disabled, i.e. null, until sized by the key ring service.
+    private static volatile Cache<ByteBuffer, VerifiedClaims> verifiedClaimsCache;
 
     private JwtUtils(){
         // hide implicit constructor
     }
 
+    // A maximum size of 0 disables the cache, every token is then verified on each request
+    public static void useVerifiedClaimsCache(long maximumSize, Duration maximumExpiration) {
+        Objects.requireNonNull(maximumExpiration);
+        verifiedClaimsCache = maximumSize == 0 ? null : Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new VerifiedClaimsExpiry(maximumExpiration))
+                .build();
+    }
+
+    public static void useKeyRing(JwtKeyRing newKeyRing) {
+        Objects.requireNonNull(newKeyRing);
+        var previousKeyRing = keyRing;
+        keyRing = newKeyRing;
+
+        // Only tokens verified with keys that left the ring or changed must be verified again
+        var cache = verifiedClaimsCache;
+        var changedKeyIds = previousKeyRing.keyIdsChangedIn(newKeyRing);
+        if (cache != null && !changedKeyIds.isEmpty()) {
+            cache.asMap()
+                    .values()
+                    .removeIf(verifiedClaims -> changedKeyIds.contains(verifiedClaims.getKeyId()));
+        }
+    }
+
     public static String generateToken(Date issuedAt, Date expiration,
                                        JwtType type, UUID userId, String tokenGroupId){
 
-        return Jwts.builder()
-                .setClaims(Map.of(TOKEN_GROUP_ID_CUSTOM_CLAIM, tokenGroupId))
+        return issueToken(issuedAt, expiration, type, userId, tokenGroupId, 0).getToken();
+    }
+
+    public static String generateToken(Date issuedAt, Date expiration, JwtType type, UUID userId,
+                                       String tokenGroupId, List<String> roleNames, boolean enabled){
+
+        return issueToken(issuedAt, expiration, type, userId, tokenGroupId, 0, roleNames, enabled).getToken();
+    }
+
+    public static IssuedToken issueToken(Date issuedAt, Date expiration, JwtType type, UUID userId,
+                                         String tokenGroupId, long sessionEpoch){
+
+        return issueToken(issuedAt, expiration, type, userId, tokenGroupId, Map.of(TOKEN_GROUP_ID_CUSTOM_CLAIM, tokenGroupId,
+                SESSION_EPOCH_CUSTOM_CLAIM, sessionEpoch));
+    }
+
+    public static IssuedToken issueToken(Date issuedAt, Date expiration, JwtType type, UUID userId,
+                                         String tokenGroupId, long sessionEpoch,
+                                         List<String> roleNames, boolean enabled){
+
+        Objects.requireNonNull(roleNames);
+        return issueToken(issuedAt, expiration, type, userId, tokenGroupId, Map.of(TOKEN_GROUP_ID_CUSTOM_CLAIM, tokenGroupId,
+                SESSION_EPOCH_CUSTOM_CLAIM, sessionEpoch,
+                ROLES_CUSTOM_CLAIM, roleNames,
+                ENABLED_CUSTOM_CLAIM, enabled));
+    }
+
+    private static IssuedToken issueToken(Date issuedAt, Date expiration, JwtType type, UUID userId,
+                                          String tokenGroupId, Map<String, Object> claims){
+
+        var signingKeyRing = keyRing;
+        if (!signingKeyRing.canSign()) {
+            throw new IllegalStateException("No jwt signing key available on this node");
+        }
+
+        var tokenId = UUID.randomUUID().toString();
+        var token = Jwts.builder()
+                .setHeaderParam(JwsHeader.KEY_ID, signingKeyRing.getSigningKeyId())
+                .setClaims(claims)
                 .setIssuer(ISS_AUD)
                 .setAudience(ISS_AUD)
-                .setSubject(String.format("%s_%s", type.getValue(), userId))
+                .setSubject(type.getValue() + SUBJECT_SEPARATOR + userId)
                 .setIssuedAt(issuedAt)
                 .setExpiration(expiration)
-                .setId(UUID.randomUUID().toString())
-                .signWith(SIGN_KEY)
+                .setId(tokenId)
+                .signWith(signingKeyRing.getSigningKey())
                 .compact();
+        return new IssuedToken(token, tokenId, tokenGroupId, expiration);
     }
 
     private static Jws<Claims> extractClaims(String token)
             throws JwtException {
 
-        return Jwts.parserBuilder()
-                .requireIssuer(ISS_AUD)
-                .requireAudience(ISS_AUD)
-                .setSigningKey(SIGN_KEY)
-                .build()
-                .parseClaimsJws(token);
+        return PARSER.parseClaimsJws(token);
     }
 
     public static Optional<Claims> extractValidClaimsFromHeader(String header, JwtType type) {
@@ -60,9 +146,59 @@ public final class JwtUtils {
 
     public static Optional<Claims> extractValidClaimsFromToken(String token, JwtType type) {
 
-        Claims claims;
+        if (token == null) {
+            return Optional.empty();
+        }
+
+        var cache = verifiedClaimsCache;
+        if (cache == null) {
+            return verifyClaimsFromToken(token, type)
+                    .map(UnmodifiableClaims::new);
+        }
+
+        var tokenDigest = tokenDigest(token);
+        var verifiedClaims = cache.getIfPresent(tokenDigest);
+        if (verifiedClaims != null) {
+            return verifiedClaims.getType() == type
+                    ? Optional.of(verifiedClaims.getClaims()) : Optional.empty();
+        }
+
+        var validJws = verifyJwsFromToken(token, type);
+        if (validJws.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Claims validClaims = new UnmodifiableClaims(validJws.get().getBody());
+        if (validClaims.getExpiration() != null) {
+            cache.put(tokenDigest,
+                    new VerifiedClaims(validClaims, type, validJws.get().getHeader().getKeyId()));
+        }
+        return Optional.of(validClaims);
+    }
+
+    private static ByteBuffer tokenDigest(String token) {
+
         try {
-            claims = extractClaims(token).getBody();
+            var digest = MessageDigest.getInstance(TOKEN_DIGEST_ALGORITHM);
+            return ByteBuffer.wrap(digest.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        }
+        catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    static Optional<Claims> verifyClaimsFromToken(String token, JwtType type) {
+
+        return verifyJwsFromToken(token, type)
+                .map(Jws::getBody);
+    }
+
+    private static Optional<Jws<Claims>> verifyJwsFromToken(String token, JwtType type) {
+
+        Jws<Claims> jws;
+        try {
+            jws = extractClaims(token);
+            var claims = jws.getBody();
 
             var tokenId = CommonUtils.uuidFromString(claims.getId());
             if (tokenId.isEmpty()) {
@@ -85,7 +221,7 @@ public final class JwtUtils {
             return Optional.empty();
         }
 
-        return Optional.of(claims);
+        return Optional.of(jws);
     }
 
     private static Optional<UUID> extractUserIdFromClaims(Claims claims, JwtType type){
@@ -96,12 +232,14 @@ public final class JwtUtils {
             return Optional.empty();
         }
 
-        var subjectIdComponents = subject.split("_");
-        if (subjectIdComponents.length != 2
-                || !type.getValue().equals(subjectIdComponents[0])) {
+        // subject is <type>_<user id>, matched in place instead of splitting it
+        var typeValue = type.getValue();
+        if (subject.length() != typeValue.length() + 1 + CommonUtils.UUID_LENGTH
+                || !subject.startsWith(typeValue)
+                || subject.charAt(typeValue.length()) != SUBJECT_SEPARATOR) {
             return Optional.empty();
         }
-        return CommonUtils.uuidFromString(subjectIdComponents[1]);
+        return CommonUtils.uuidFromString(subject, typeValue.length() + 1);
     }
 
     public static UUID extractUserIdFromValidClaims(Claims claims, JwtType type){
@@ -113,4 +251,99 @@ public final class JwtUtils {
     public static String extractTokenGroupIdFromClaims(Claims claims) {
         return claims.get(TOKEN_GROUP_ID_CUSTOM_CLAIM, String.class);
     }
+
+    // Tokens issued before session epochs were introduced belong to the first epoch
+    public static long extractSessionEpochFromClaims(Claims claims) {
+
+        var sessionEpoch = claims.get(SESSION_EPOCH_CUSTOM_CLAIM);
+        return sessionEpoch instanceof Number ? ((Number) sessionEpoch).longValue() : 0;
+    }
+
+    public static Optional<List<String>> extractRoleNamesFromClaims(Claims claims) {
+
+        var roleNames = claims.get(ROLES_CUSTOM_CLAIM);
+        if (!(roleNames instanceof List)) {
+            return Optional.empty();
+        }
+
+        var validRoleNames = new ArrayList<String>();
+        for (var roleName : (List<?>) roleNames) {
+            if (!(roleName instanceof String)) {
+                return Optional.empty();
+            }
+            validRoleNames.add((String) roleName);
+        }
+        return Optional.of(validRoleNames);
+    }
+
+    public static Optional<Boolean> extractEnabledFromClaims(Claims claims) {
+
+        var enabled = claims.get(ENABLED_CUSTOM_CLAIM);
+        return enabled instanceof Boolean ? Optional.of((Boolean) enabled) : Optional.empty();
+    }
+
+    private static final class KeyRingSigningKeyResolver extends SigningKeyResolverAdapter {
+
+        @Override
+        public Key resolveSigningKey(JwsHeader header, Claims claims) {
+            var key = keyRing.findVerificationKey(header.getKeyId());
+            if (key == null) {
+                throw new SignatureException("Unknown jwt signing key id");
+            }
+            return key;
+        }
+    }
+
+    private static final class VerifiedClaims {
+
+        private final Claims claims;
+        private final JwtType type;
+        private final String keyId;
+
+        private VerifiedClaims(Claims claims, JwtType type, String keyId) {
+            this.claims = claims;
+            this.type = type;
+            this.keyId = keyId;
+        }
+
+        private Claims getClaims() {
+            return claims;
+        }
+
+        private JwtType getType() {
+            return type;
+        }
+
+        private String getKeyId() {
+            return keyId;
+        }
+    }
+
+    private static final class VerifiedClaimsExpiry implements Expiry<ByteBuffer, VerifiedClaims> {
+
+        private final long maximumExpirationMillis;
+
+        private VerifiedClaimsExpiry(Duration maximumExpiration) {
+            this.maximumExpirationMillis = maximumExpiration.toMillis();
+        }
+
+        @Override
+        public long expireAfterCreate(ByteBuffer tokenDigest, VerifiedClaims verifiedClaims, long currentTime) {
+            var expiresInMillis = verifiedClaims.getClaims().getExpiration().getTime() - System.currentTimeMillis();
+            var ttlMillis = Math.min(Math.max(expiresInMillis, 0), maximumExpirationMillis);
+            return TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        }
+
+        @Override
+        public long expireAfterUpdate(ByteBuffer tokenDigest, VerifiedClaims verifiedClaims, long currentTime,
+                                      long currentDuration) {
+            return expireAfterCreate(tokenDigest, verifiedClaims, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(ByteBuffer tokenDigest, VerifiedClaims verifiedClaims, long currentTime,
+                                    long currentDuration) {
+            return currentDuration;
+        }
+    }
 }
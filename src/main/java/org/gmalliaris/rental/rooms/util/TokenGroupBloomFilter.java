@@ -0,0 +1,92 @@
+package org.gmalliaris.rental.rooms.util;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public final class TokenGroupBloomFilter {
+
+    private static final double LN_2 = Math.log(2);
+
+    private final AtomicLongArray words;
+    private final long numberOfBits;
+    private final int numberOfHashFunctions;
+    private final AtomicLong setBits = new AtomicLong();
+
+    public TokenGroupBloomFilter(long expectedInsertions, double falsePositiveProbability) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("Expected insertions must be positive");
+        }
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("False positive probability must be in (0, 1)");
+        }
+
+        var optimalBits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveProbability) / (LN_2 * LN_2));
+        var numberOfWords = (int) ((optimalBits + Long.SIZE - 1) / Long.SIZE);
+        this.words = new AtomicLongArray(numberOfWords);
+        this.numberOfBits = (long) numberOfWords * Long.SIZE;
+        this.numberOfHashFunctions = Math.max(1, (int) Math.round((double) numberOfBits / expectedInsertions * LN_2));
+    }
+
+    public void put(UUID tokenGroupId) {
+        var hash1 = mix(tokenGroupId.getMostSignificantBits());
+        var hash2 = mix(tokenGroupId.getLeastSignificantBits()) | 1L;
+        for (var i = 0; i < numberOfHashFunctions; i++) {
+            setBit(Math.floorMod(hash1 + i * hash2, numberOfBits));
+        }
+    }
+
+    public boolean mightContain(UUID tokenGroupId) {
+        var hash1 = mix(tokenGroupId.getMostSignificantBits());
+        var hash2 = mix(tokenGroupId.getLeastSignificantBits()) | 1L;
+        for (var i = 0; i < numberOfHashFunctions; i++) {
+            if (!getBit(Math.floorMod(hash1 + i * hash2, numberOfBits))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public double saturation() {
+        return (double) setBits.get() / numberOfBits;
+    }
+
+    public double expectedFalsePositiveProbability() {
+        return Math.pow(saturation(), numberOfHashFunctions);
+    }
+
+    public long getNumberOfBits() {
+        return numberOfBits;
+    }
+
+    public int getNumberOfHashFunctions() {
+        return numberOfHashFunctions;
+    }
+
+    private void setBit(long bitIndex) {
+        var wordIndex = (int) (bitIndex >>> 6);
+        var mask = 1L << bitIndex;
+        long current;
+        do {
+            current = words.get(wordIndex);
+            if ((current & mask) != 0) {
+                return;
+            }
+        } while (!words.compareAndSet(wordIndex, current, current | mask));
+        setBits.incrementAndGet();
+    }
+
+    private boolean getBit(long bitIndex) {
+        return (words.get((int) (bitIndex >>> 6)) & (1L << bitIndex)) != 0;
+    }
+
+    // murmur3 finalizer, spreads the (mostly random) uuid halves over all bits
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
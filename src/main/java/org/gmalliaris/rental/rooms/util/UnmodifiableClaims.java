@@ -0,0 +1,117 @@
+package org.gmalliaris.rental.rooms.util;
+
+import io.jsonwebtoken.Claims;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
+// Read-only view of verified claims, a single instance is shared by every request presenting the same token
+final class UnmodifiableClaims extends AbstractMap<String, Object> implements Claims {
+
+    private final Claims claims;
+    private final Set<Entry<String, Object>> entrySet;
+
+    UnmodifiableClaims(Claims claims) {
+        this.claims = claims;
+        this.entrySet = Collections.unmodifiableMap(claims).entrySet();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return entrySet;
+    }
+
+    @Override
+    public Object get(Object key) {
+        var value = claims.get(key);
+        return value instanceof List ? Collections.unmodifiableList((List<?>) value) : value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return claims.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return claims.size();
+    }
+
+    @Override
+    public String getIssuer() {
+        return claims.getIssuer();
+    }
+
+    @Override
+    public Claims setIssuer(String iss) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getSubject() {
+        return claims.getSubject();
+    }
+
+    @Override
+    public Claims setSubject(String sub) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getAudience() {
+        return claims.getAudience();
+    }
+
+    @Override
+    public Claims setAudience(String aud) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Date getExpiration() {
+        return claims.getExpiration();
+    }
+
+    @Override
+    public Claims setExpiration(Date exp) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Date getNotBefore() {
+        return claims.getNotBefore();
+    }
+
+    @Override
+    public Claims setNotBefore(Date nbf) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Date getIssuedAt() {
+        return claims.getIssuedAt();
+    }
+
+    @Override
+    public Claims setIssuedAt(Date iat) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getId() {
+        return claims.getId();
+    }
+
+    @Override
+    public Claims setId(String jti) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> T get(String claimName, Class<T> requiredType) {
+        return claims.get(claimName, requiredType);
+    }
+}
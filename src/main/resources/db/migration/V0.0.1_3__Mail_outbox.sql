@@ -0,0 +1,14 @@
+CREATE TABLE MAIL_OUTBOX(
+    ID uuid,
+    RECIPIENT VARCHAR(255) NOT NULL,
+    SUBJECT VARCHAR(255) NOT NULL,
+    BODY TEXT NOT NULL,
+    STATUS VARCHAR(255) NOT NULL,
+    ATTEMPTS INTEGER NOT NULL,
+    NEXT_ATTEMPT_AT timestamp NOT NULL,
+    LAST_ERROR VARCHAR(1024),
+    CREATED_AT timestamp NOT NULL,
+    PRIMARY KEY (ID)
+);
+
+CREATE INDEX MAIL_OUTBOX_STATUS_NEXT_ATTEMPT_AT ON MAIL_OUTBOX(STATUS, NEXT_ATTEMPT_AT);
@@ -0,0 +1,6 @@
+-- keyset pagination over users filtered by enabled flag, unfiltered listing uses the primary key and email unique index
+CREATE INDEX USERS_ENABLED_ID_IDX ON USERS(ENABLED, ID);
+CREATE INDEX USERS_ENABLED_EMAIL_IDX ON USERS(ENABLED, EMAIL);
+
+-- role filter, the primary key only serves lookups by user
+CREATE INDEX USERS_X_USER_ROLES_ROLE_ID_USER_ID_IDX ON USERS_X_USER_ROLES(USER_ROLE_ID, USER_ID);
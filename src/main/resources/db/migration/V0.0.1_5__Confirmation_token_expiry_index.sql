@@ -0,0 +1,2 @@
+-- expiry job, finds pending tokens past their expiration date and expired ones past the purge grace period
+CREATE INDEX CONFIRMATION_TOKEN_STATUS_EXPIRATION_DATE_IDX ON CONFIRMATION_TOKEN(STATUS, EXPIRATION_DATE);
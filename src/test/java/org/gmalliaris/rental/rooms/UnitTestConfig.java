@@ -1,6 +1,8 @@
 package org.gmalliaris.rental.rooms;
 
+import org.gmalliaris.rental.rooms.config.MailTemplateConfigurationProperties;
 import org.gmalliaris.rental.rooms.config.WebSecurityConfigService;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
@@ -9,6 +11,7 @@ import org.springframework.context.annotation.Profile;
 @Configuration
 @Profile("disable-jwt-auth")
 @ComponentScan("org.gmalliaris.rental.rooms.config")
+@EnableConfigurationProperties(MailTemplateConfigurationProperties.class)
 public class UnitTestConfig {
 
     @Bean
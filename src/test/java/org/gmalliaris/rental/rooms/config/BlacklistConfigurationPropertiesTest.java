@@ -0,0 +1,138 @@
+package org.gmalliaris.rental.rooms.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@ExtendWith(SpringExtension.class)
+@EnableConfigurationProperties(BlacklistConfigurationProperties.class)
+class BlacklistConfigurationPropertiesTest {
+
+    @Autowired
+    private BlacklistConfigurationProperties blacklistConfigurationProperties;
+    private static final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Test
+    void defaultValuesTest() {
+        assertEquals(100_000, blacklistConfigurationProperties.getNearCacheMaximumSize());
+        assertEquals(5, blacklistConfigurationProperties.getNearCacheNegativeExpirationSeconds());
+        assertEquals(1_000_000, blacklistConfigurationProperties.getFilterExpectedInsertions());
+        assertEquals(5, blacklistConfigurationProperties.getBreakerFailureThreshold());
+        assertEquals(10, blacklistConfigurationProperties.getBreakerOpenSeconds());
+        assertEquals(1_000_000, blacklistConfigurationProperties.getSnapshotMaximumSize());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideNearCacheMaximumSize")
+    void nearCacheMaximumSizeTest(int value, int errorsSize) {
+        String nearCacheMaximumSize = "nearCacheMaximumSize";
+        ReflectionTestUtils.setField(blacklistConfigurationProperties, nearCacheMaximumSize, value);
+        var errorSet = validator.validateProperty(blacklistConfigurationProperties, nearCacheMaximumSize);
+        assertEquals(errorsSize, errorSet.size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideNearCacheNegativeExpirationSeconds")
+    void nearCacheNegativeExpirationSecondsTest(int value, int errorsSize) {
+        String nearCacheNegativeExpirationSeconds = "nearCacheNegativeExpirationSeconds";
+        ReflectionTestUtils.setField(blacklistConfigurationProperties, nearCacheNegativeExpirationSeconds, value);
+        var errorSet = validator.validateProperty(blacklistConfigurationProperties, nearCacheNegativeExpirationSeconds);
+        assertEquals(errorsSize, errorSet.size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideFilterExpectedInsertions")
+    void filterExpectedInsertionsTest(int value, int errorsSize) {
+        String filterExpectedInsertions = "filterExpectedInsertions";
+        ReflectionTestUtils.setField(blacklistConfigurationProperties, filterExpectedInsertions, value);
+        var errorSet = validator.validateProperty(blacklistConfigurationProperties, filterExpectedInsertions);
+        assertEquals(errorsSize, errorSet.size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideBreakerFailureThreshold")
+    void breakerFailureThresholdTest(int value, int errorsSize) {
+        String breakerFailureThreshold = "breakerFailureThreshold";
+        var original = blacklistConfigurationProperties.getBreakerFailureThreshold();
+        ReflectionTestUtils.setField(blacklistConfigurationProperties, breakerFailureThreshold, value);
+        var errorSet = validator.validateProperty(blacklistConfigurationProperties, breakerFailureThreshold);
+        ReflectionTestUtils.setField(blacklistConfigurationProperties, breakerFailureThreshold, original);
+        assertEquals(errorsSize, errorSet.size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideBreakerOpenSeconds")
+    void breakerOpenSecondsTest(int value, int errorsSize) {
+        String breakerOpenSeconds = "breakerOpenSeconds";
+        var original = blacklistConfigurationProperties.getBreakerOpenSeconds();
+        ReflectionTestUtils.setField(blacklistConfigurationProperties, breakerOpenSeconds, value);
+        var errorSet = validator.validateProperty(blacklistConfigurationProperties, breakerOpenSeconds);
+        ReflectionTestUtils.setField(blacklistConfigurationProperties, breakerOpenSeconds, original);
+        assertEquals(errorsSize, errorSet.size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideSnapshotMaximumSize")
+    void snapshotMaximumSizeTest(int value, int errorsSize) {
+        String snapshotMaximumSize = "snapshotMaximumSize";
+        var original = blacklistConfigurationProperties.getSnapshotMaximumSize();
+        ReflectionTestUtils.setField(blacklistConfigurationProperties, snapshotMaximumSize, value);
+        var errorSet = validator.validateProperty(blacklistConfigurationProperties, snapshotMaximumSize);
+        ReflectionTestUtils.setField(blacklistConfigurationProperties, snapshotMaximumSize, original);
+        assertEquals(errorsSize, errorSet.size());
+    }
+
+    private static Stream<Arguments> provideNearCacheMaximumSize() {
+        return Stream.of(Arguments.of(999, 1),
+                Arguments.of(1_000, 0),
+                Arguments.of(1_000_000, 0),
+                Arguments.of(1_000_001, 1));
+    }
+
+    private static Stream<Arguments> provideNearCacheNegativeExpirationSeconds() {
+        return Stream.of(Arguments.of(0, 1),
+                Arguments.of(1, 0),
+                Arguments.of(60, 0),
+                Arguments.of(61, 1));
+    }
+
+    private static Stream<Arguments> provideFilterExpectedInsertions() {
+        return Stream.of(Arguments.of(9_999, 1),
+                Arguments.of(10_000, 0),
+                Arguments.of(100_000_000, 0),
+                Arguments.of(100_000_001, 1));
+    }
+
+    private static Stream<Arguments> provideBreakerFailureThreshold() {
+        return Stream.of(Arguments.of(0, 1),
+                Arguments.of(1, 0),
+                Arguments.of(100, 0),
+                Arguments.of(101, 1));
+    }
+
+    private static Stream<Arguments> provideBreakerOpenSeconds() {
+        return Stream.of(Arguments.of(0, 1),
+                Arguments.of(1, 0),
+                Arguments.of(300, 0),
+                Arguments.of(301, 1));
+    }
+
+    private static Stream<Arguments> provideSnapshotMaximumSize() {
+        return Stream.of(Arguments.of(9_999, 1),
+                Arguments.of(10_000, 0),
+                Arguments.of(10_000_000, 0),
+                Arguments.of(10_000_001, 1));
+    }
+}
@@ -0,0 +1,68 @@
+package org.gmalliaris.rental.rooms.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@ExtendWith(SpringExtension.class)
+@EnableConfigurationProperties(ConfirmationExpiryConfigurationProperties.class)
+class ConfirmationExpiryConfigurationPropertiesTest {
+
+    @Autowired
+    private ConfirmationExpiryConfigurationProperties confirmationExpiryConfigurationProperties;
+    private static final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Test
+    void defaultValuesTest() {
+        assertEquals(1000, confirmationExpiryConfigurationProperties.getBatchSize());
+        assertFalse(confirmationExpiryConfigurationProperties.isPurgeUnconfirmedUsers());
+        assertEquals(30, confirmationExpiryConfigurationProperties.getUnconfirmedUserGraceDays());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideBatchSize")
+    void batchSizeTest(int value, int errorsSize) {
+        var original = confirmationExpiryConfigurationProperties.getBatchSize();
+        ReflectionTestUtils.setField(confirmationExpiryConfigurationProperties, "batchSize", value);
+        var errorSet = validator.validateProperty(confirmationExpiryConfigurationProperties, "batchSize");
+        ReflectionTestUtils.setField(confirmationExpiryConfigurationProperties, "batchSize", original);
+        assertEquals(errorsSize, errorSet.size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideUnconfirmedUserGraceDays")
+    void unconfirmedUserGraceDaysTest(int value, int errorsSize) {
+        var original = confirmationExpiryConfigurationProperties.getUnconfirmedUserGraceDays();
+        ReflectionTestUtils.setField(confirmationExpiryConfigurationProperties, "unconfirmedUserGraceDays", value);
+        var errorSet = validator.validateProperty(confirmationExpiryConfigurationProperties, "unconfirmedUserGraceDays");
+        ReflectionTestUtils.setField(confirmationExpiryConfigurationProperties, "unconfirmedUserGraceDays", original);
+        assertEquals(errorsSize, errorSet.size());
+    }
+
+    private static Stream<Arguments> provideBatchSize() {
+        return Stream.of(Arguments.of(0, 1),
+                Arguments.of(1, 0),
+                Arguments.of(10_000, 0),
+                Arguments.of(10_001, 1));
+    }
+
+    private static Stream<Arguments> provideUnconfirmedUserGraceDays() {
+        return Stream.of(Arguments.of(0, 1),
+                Arguments.of(1, 0),
+                Arguments.of(3650, 0),
+                Arguments.of(3651, 1));
+    }
+}
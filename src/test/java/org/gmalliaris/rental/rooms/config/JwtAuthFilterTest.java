@@ -1,15 +1,26 @@
 package org.gmalliaris.rental.rooms.config;
 
 import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.gmalliaris.rental.rooms.dto.AccountUserSecurityDetails;
 import org.gmalliaris.rental.rooms.dto.JwtType;
 import org.gmalliaris.rental.rooms.service.AccountUserSecurityService;
 import org.gmalliaris.rental.rooms.service.BlacklistService;
+import org.gmalliaris.rental.rooms.service.SessionEpochService;
 import org.gmalliaris.rental.rooms.util.JwtUtils;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -23,20 +34,38 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class JwtAuthFilterTest {
 
-    @InjectMocks
+    private static final String TOKEN = "header.payload.signature";
+    private static final String HEADER = "Bearer " + TOKEN;
+
     private JwtAuthFilter filter;
 
     @Mock
     private AccountUserSecurityService accountUserSecurityService;
     @Mock
     private BlacklistService blacklistService;
+    @Mock
+    private SessionEpochService sessionEpochService;
+    @Mock
+    private JwtConfigurationProperties jwtConfigurationProperties;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        filter = new JwtAuthFilter(accountUserSecurityService, blacklistService, sessionEpochService,
+                jwtConfigurationProperties, meterRegistry);
+    }
 
     @Test
     void doFilterInternalTest_emptyClaims() throws ServletException, IOException {
@@ -44,19 +73,19 @@ class JwtAuthFilterTest {
         when(mockRequest.getRequestURI())
                 .thenReturn("/irrelevant");
         when(mockRequest.getHeader(anyString()))
-                .thenReturn(null);
+                .thenReturn(HEADER);
 
         try(var jwtUtils = mockStatic(JwtUtils.class);
             var ctxUtils = mockStatic(SecurityContextHolder.class)){
             var ctx = mock(SecurityContext.class);
             ctxUtils.when(SecurityContextHolder::getContext)
                             .thenReturn(ctx);
-            jwtUtils.when(() -> JwtUtils.extractValidClaimsFromHeader(nullable(String.class), any(JwtType.class)))
-                    .thenCallRealMethod();
+            jwtUtils.when(() -> JwtUtils.extractValidClaimsFromToken(anyString(), any(JwtType.class)))
+                    .thenReturn(Optional.empty());
 
             filter.doFilterInternal(mockRequest, mock(HttpServletResponse.class), mock(FilterChain.class));
 
-            jwtUtils.verify(() -> JwtUtils.extractValidClaimsFromHeader(null, JwtType.ACCESS));
+            jwtUtils.verify(() -> JwtUtils.extractValidClaimsFromToken(TOKEN, JwtType.ACCESS));
             jwtUtils.verifyNoMoreInteractions();
             verifyNoInteractions(accountUserSecurityService);
             verifyNoInteractions(ctx);
@@ -69,7 +98,7 @@ class JwtAuthFilterTest {
         when(mockRequest.getRequestURI())
                 .thenReturn("/irrelevant");
         when(mockRequest.getHeader(anyString()))
-                .thenReturn(null);
+                .thenReturn(HEADER);
 
 
         try(var jwtUtils = mockStatic(JwtUtils.class);
@@ -78,14 +107,14 @@ class JwtAuthFilterTest {
             ctxUtils.when(SecurityContextHolder::getContext)
                     .thenReturn(ctx);
             var mockClaims = mock(Claims.class);
-            jwtUtils.when(() -> JwtUtils.extractValidClaimsFromHeader(nullable(String.class), any(JwtType.class)))
+            jwtUtils.when(() -> JwtUtils.extractValidClaimsFromToken(anyString(), any(JwtType.class)))
                     .thenReturn(Optional.of(mockClaims));
             when(blacklistService.tokenWithClaimsIsBlackListed(any(Claims.class)))
                     .thenReturn(true);
 
             filter.doFilterInternal(mockRequest, mock(HttpServletResponse.class), mock(FilterChain.class));
 
-            jwtUtils.verify(() -> JwtUtils.extractValidClaimsFromHeader(null, JwtType.ACCESS));
+            jwtUtils.verify(() -> JwtUtils.extractValidClaimsFromToken(TOKEN, JwtType.ACCESS));
             verify(blacklistService).tokenWithClaimsIsBlackListed(mockClaims);
             jwtUtils.verify(() -> JwtUtils.extractUserIdFromValidClaims(mockClaims, JwtType.ACCESS), never());
             verifyNoInteractions(accountUserSecurityService);
@@ -99,7 +128,7 @@ class JwtAuthFilterTest {
         when(mockRequest.getRequestURI())
                 .thenReturn("/irrelevant");
         when(mockRequest.getHeader(anyString()))
-                .thenReturn(null);
+                .thenReturn(HEADER);
 
 
         try(var jwtUtils = mockStatic(JwtUtils.class);
@@ -108,7 +137,7 @@ class JwtAuthFilterTest {
             ctxUtils.when(SecurityContextHolder::getContext)
                     .thenReturn(ctx);
             var mockClaims = mock(Claims.class);
-            jwtUtils.when(() -> JwtUtils.extractValidClaimsFromHeader(nullable(String.class), any(JwtType.class)))
+            jwtUtils.when(() -> JwtUtils.extractValidClaimsFromToken(anyString(), any(JwtType.class)))
                     .thenReturn(Optional.of(mockClaims));
             when(blacklistService.tokenWithClaimsIsBlackListed(any(Claims.class)))
                     .thenReturn(false);
@@ -117,7 +146,7 @@ class JwtAuthFilterTest {
 
             filter.doFilterInternal(mockRequest, mock(HttpServletResponse.class), mock(FilterChain.class));
 
-            jwtUtils.verify(() -> JwtUtils.extractValidClaimsFromHeader(null, JwtType.ACCESS));
+            jwtUtils.verify(() -> JwtUtils.extractValidClaimsFromToken(TOKEN, JwtType.ACCESS));
             verify(blacklistService).tokenWithClaimsIsBlackListed(mockClaims);
             jwtUtils.verify(() -> JwtUtils.extractUserIdFromValidClaims(mockClaims, JwtType.ACCESS));
             verifyNoInteractions(accountUserSecurityService);
@@ -125,12 +154,46 @@ class JwtAuthFilterTest {
         }
     }
 
+    @Test
+    void doFilterInternalTest_sessionRevoked() throws ServletException, IOException {
+        var mockRequest = mock(HttpServletRequest.class);
+        when(mockRequest.getRequestURI())
+                .thenReturn("/irrelevant");
+        var header = HEADER;
+        when(mockRequest.getHeader(anyString()))
+                .thenReturn(header);
+
+        try (var jwtUtils = mockStatic(JwtUtils.class);
+            var ctxUtils = mockStatic(SecurityContextHolder.class)){
+
+            var ctx = mock(SecurityContext.class);
+            ctxUtils.when(SecurityContextHolder::getContext)
+                    .thenReturn(ctx);
+            var userId = UUID.randomUUID();
+            var mockClaims = mock(Claims.class);
+            jwtUtils.when(() -> JwtUtils.extractValidClaimsFromToken(anyString(), any(JwtType.class)))
+                    .thenReturn(Optional.of(mockClaims));
+            when(blacklistService.tokenWithClaimsIsBlackListed(any(Claims.class)))
+                    .thenReturn(false);
+            jwtUtils.when(() -> JwtUtils.extractUserIdFromValidClaims(any(Claims.class), any(JwtType.class)))
+                    .thenReturn(userId);
+            when(sessionEpochService.tokenWithClaimsIsRevoked(any(UUID.class), any(Claims.class)))
+                    .thenReturn(true);
+
+            filter.doFilterInternal(mockRequest, mock(HttpServletResponse.class), mock(FilterChain.class));
+
+            verify(sessionEpochService).tokenWithClaimsIsRevoked(userId, mockClaims);
+            verifyNoInteractions(accountUserSecurityService);
+            verifyNoInteractions(ctx);
+        }
+    }
+
     @Test
     void doFilterInternalTest_userNotFound() throws ServletException, IOException {
         var mockRequest = mock(HttpServletRequest.class);
         when(mockRequest.getRequestURI())
                 .thenReturn("/irrelevant");
-        var header = "randomToken";
+        var header = HEADER;
         when(mockRequest.getHeader(anyString()))
                 .thenReturn(header);
 
@@ -142,7 +205,7 @@ class JwtAuthFilterTest {
                     .thenReturn(ctx);
             var userId = UUID.randomUUID();
             var mockClaims = mock(Claims.class);
-            jwtUtils.when(() -> JwtUtils.extractValidClaimsFromHeader(nullable(String.class), any(JwtType.class)))
+            jwtUtils.when(() -> JwtUtils.extractValidClaimsFromToken(anyString(), any(JwtType.class)))
                     .thenReturn(Optional.of(mockClaims));
             when(blacklistService.tokenWithClaimsIsBlackListed(any(Claims.class)))
                     .thenReturn(false);
@@ -153,7 +216,7 @@ class JwtAuthFilterTest {
 
             filter.doFilterInternal(mockRequest, mock(HttpServletResponse.class), mock(FilterChain.class));
 
-            jwtUtils.verify(() -> JwtUtils.extractValidClaimsFromHeader(header, JwtType.ACCESS));
+            jwtUtils.verify(() -> JwtUtils.extractValidClaimsFromToken(TOKEN, JwtType.ACCESS));
             verify(blacklistService).tokenWithClaimsIsBlackListed(mockClaims);
             jwtUtils.verify(() -> JwtUtils.extractUserIdFromValidClaims(mockClaims, JwtType.ACCESS));
             verify(accountUserSecurityService).loadUserById(userId);
@@ -166,7 +229,7 @@ class JwtAuthFilterTest {
         var mockRequest = mock(HttpServletRequest.class);
         when(mockRequest.getRequestURI())
                 .thenReturn("/irrelevant");
-        var header = "randomHeader";
+        var header = HEADER;
         when(mockRequest.getHeader(anyString()))
                 .thenReturn(header);
 
@@ -178,7 +241,7 @@ class JwtAuthFilterTest {
                     .thenReturn(ctx);
             var userId = UUID.randomUUID();
             var mockClaims = mock(Claims.class);
-            jwtUtils.when(() -> JwtUtils.extractValidClaimsFromHeader(nullable(String.class), any(JwtType.class)))
+            jwtUtils.when(() -> JwtUtils.extractValidClaimsFromToken(anyString(), any(JwtType.class)))
                     .thenReturn(Optional.of(mockClaims));
             when(blacklistService.tokenWithClaimsIsBlackListed(any(Claims.class)))
                     .thenReturn(false);
@@ -193,7 +256,7 @@ class JwtAuthFilterTest {
 
             filter.doFilterInternal(mockRequest, mock(HttpServletResponse.class), mock(FilterChain.class));
 
-            jwtUtils.verify(() -> JwtUtils.extractValidClaimsFromHeader(header, JwtType.ACCESS));
+            jwtUtils.verify(() -> JwtUtils.extractValidClaimsFromToken(TOKEN, JwtType.ACCESS));
             verify(blacklistService).tokenWithClaimsIsBlackListed(mockClaims);
             jwtUtils.verify(() -> JwtUtils.extractUserIdFromValidClaims(mockClaims, JwtType.ACCESS));
             verify(accountUserSecurityService).loadUserById(userId);
@@ -208,7 +271,7 @@ class JwtAuthFilterTest {
         var mockRequest = mock(HttpServletRequest.class);
         when(mockRequest.getRequestURI())
                 .thenReturn(refreshUri);
-        var header = "randomHeader";
+        var header = HEADER;
         when(mockRequest.getHeader(anyString()))
                 .thenReturn(header);
 
@@ -220,7 +283,7 @@ class JwtAuthFilterTest {
                     .thenReturn(ctx);
             var userId = UUID.randomUUID();
             var mockClaims = mock(Claims.class);
-            jwtUtils.when(() -> JwtUtils.extractValidClaimsFromHeader(nullable(String.class), any(JwtType.class)))
+            jwtUtils.when(() -> JwtUtils.extractValidClaimsFromToken(anyString(), any(JwtType.class)))
                     .thenReturn(Optional.of(mockClaims));
             when(blacklistService.tokenWithClaimsIsBlackListed(any(Claims.class)))
                     .thenReturn(false);
@@ -235,11 +298,202 @@ class JwtAuthFilterTest {
 
             filter.doFilterInternal(mockRequest, mock(HttpServletResponse.class), mock(FilterChain.class));
 
-            jwtUtils.verify(() -> JwtUtils.extractValidClaimsFromHeader(header, JwtType.REFRESH));
+            jwtUtils.verify(() -> JwtUtils.extractValidClaimsFromToken(TOKEN, JwtType.REFRESH));
             verify(blacklistService).tokenWithClaimsIsBlackListed(mockClaims);
             jwtUtils.verify(() -> JwtUtils.extractUserIdFromValidClaims(mockClaims, JwtType.REFRESH));
             verify(accountUserSecurityService).loadUserById(userId);
             verify(ctx).setAuthentication(any());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void doFilterInternalTest_stateless() throws ServletException, IOException {
+        var mockRequest = mock(HttpServletRequest.class);
+        when(mockRequest.getRequestURI())
+                .thenReturn("/irrelevant");
+        var header = HEADER;
+        when(mockRequest.getHeader(anyString()))
+                .thenReturn(header);
+        when(jwtConfigurationProperties.isStateless())
+                .thenReturn(true);
+
+        try (var jwtUtils = mockStatic(JwtUtils.class);
+             var ctxUtils = mockStatic(SecurityContextHolder.class)){
+
+            var ctx = mock(SecurityContext.class);
+            ctxUtils.when(SecurityContextHolder::getContext)
+                    .thenReturn(ctx);
+            var userId = UUID.randomUUID();
+            var mockClaims = mock(Claims.class);
+            jwtUtils.when(() -> JwtUtils.extractValidClaimsFromToken(anyString(), any(JwtType.class)))
+                    .thenReturn(Optional.of(mockClaims));
+            when(blacklistService.tokenWithClaimsIsBlackListed(any(Claims.class)))
+                    .thenReturn(false);
+            jwtUtils.when(() -> JwtUtils.extractUserIdFromValidClaims(any(Claims.class), any(JwtType.class)))
+                    .thenReturn(userId);
+            jwtUtils.when(() -> JwtUtils.extractRoleNamesFromClaims(any(Claims.class)))
+                    .thenReturn(Optional.of(List.of("HOST")));
+            jwtUtils.when(() -> JwtUtils.extractEnabledFromClaims(any(Claims.class)))
+                    .thenReturn(Optional.of(true));
+
+            filter.doFilterInternal(mockRequest, mock(HttpServletResponse.class), mock(FilterChain.class));
+
+            verifyNoInteractions(accountUserSecurityService);
+            var authCaptor = ArgumentCaptor.forClass(Authentication.class);
+            verify(ctx).setAuthentication(authCaptor.capture());
+            var principal = (AccountUserSecurityDetails) authCaptor.getValue().getPrincipal();
+            assertEquals(userId, principal.getId());
+            assertTrue(principal.isEnabled());
+            assertEquals(List.of(new SimpleGrantedAuthority("ROLE_HOST")), principal.getAuthorities());
+        }
+    }
+
+    @Test
+    void doFilterInternalTest_stateless_claimsMissing() throws ServletException, IOException {
+        var mockRequest = mock(HttpServletRequest.class);
+        when(mockRequest.getRequestURI())
+                .thenReturn("/irrelevant");
+        var header = HEADER;
+        when(mockRequest.getHeader(anyString()))
+                .thenReturn(header);
+        when(jwtConfigurationProperties.isStateless())
+                .thenReturn(true);
+
+        try (var jwtUtils = mockStatic(JwtUtils.class);
+             var ctxUtils = mockStatic(SecurityContextHolder.class)){
+
+            var ctx = mock(SecurityContext.class);
+            ctxUtils.when(SecurityContextHolder::getContext)
+                    .thenReturn(ctx);
+            var userId = UUID.randomUUID();
+            var mockClaims = mock(Claims.class);
+            jwtUtils.when(() -> JwtUtils.extractValidClaimsFromToken(anyString(), any(JwtType.class)))
+                    .thenReturn(Optional.of(mockClaims));
+            when(blacklistService.tokenWithClaimsIsBlackListed(any(Claims.class)))
+                    .thenReturn(false);
+            jwtUtils.when(() -> JwtUtils.extractUserIdFromValidClaims(any(Claims.class), any(JwtType.class)))
+                    .thenReturn(userId);
+            jwtUtils.when(() -> JwtUtils.extractRoleNamesFromClaims(any(Claims.class)))
+                    .thenReturn(Optional.empty());
+
+            var mockUserDetails = mock(UserDetails.class);
+            when(mockUserDetails.getAuthorities())
+                    .thenReturn(List.of());
+            when(accountUserSecurityService.loadUserById(any(UUID.class)))
+                    .thenReturn(mockUserDetails);
+
+            filter.doFilterInternal(mockRequest, mock(HttpServletResponse.class), mock(FilterChain.class));
+
+            verify(accountUserSecurityService).loadUserById(userId);
+            verify(ctx).setAuthentication(any());
+        }
+    }
+
+    @Test
+    void doFilterInternalTest_stateless_withTypeRefresh() throws ServletException, IOException {
+        var refreshUri = (String) ReflectionTestUtils.getField(JwtAuthFilter.class,
+                "REFRESH_URI");
+        var mockRequest = mock(HttpServletRequest.class);
+        when(mockRequest.getRequestURI())
+                .thenReturn(refreshUri);
+        var header = HEADER;
+        when(mockRequest.getHeader(anyString()))
+                .thenReturn(header);
+
+        try (var jwtUtils = mockStatic(JwtUtils.class);
+             var ctxUtils = mockStatic(SecurityContextHolder.class)){
+
+            var ctx = mock(SecurityContext.class);
+            ctxUtils.when(SecurityContextHolder::getContext)
+                    .thenReturn(ctx);
+            var userId = UUID.randomUUID();
+            var mockClaims = mock(Claims.class);
+            jwtUtils.when(() -> JwtUtils.extractValidClaimsFromToken(anyString(), any(JwtType.class)))
+                    .thenReturn(Optional.of(mockClaims));
+            when(blacklistService.tokenWithClaimsIsBlackListed(any(Claims.class)))
+                    .thenReturn(false);
+            jwtUtils.when(() -> JwtUtils.extractUserIdFromValidClaims(any(Claims.class), any(JwtType.class)))
+                    .thenReturn(userId);
+
+            var mockUserDetails = mock(UserDetails.class);
+            when(mockUserDetails.getAuthorities())
+                    .thenReturn(List.of());
+            when(accountUserSecurityService.loadUserById(any(UUID.class)))
+                    .thenReturn(mockUserDetails);
+
+            filter.doFilterInternal(mockRequest, mock(HttpServletResponse.class), mock(FilterChain.class));
+
+            verify(accountUserSecurityService).loadUserById(userId);
+            verify(jwtConfigurationProperties, never()).isStateless();
+            jwtUtils.verify(() -> JwtUtils.extractRoleNamesFromClaims(any(Claims.class)), never());
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/auth/register", "/auth/login", "/auth/confirm/token",
+            "/swagger-ui/index.html", "/v3/api-docs/swagger-config"})
+    void shouldNotFilterTest_publicEndpoint(String uri) {
+        var request = new MockHttpServletRequest("POST", uri);
+        request.setServletPath(uri);
+        request.addHeader("Authorization", HEADER);
+
+        assertTrue(filter.shouldNotFilter(request));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/auth/refresh", "/auth/logout", "/auth/registered", "/users/me", "/actuator/health"})
+    void shouldNotFilterTest_protectedEndpoint(String uri) {
+        var request = new MockHttpServletRequest("GET", uri);
+        request.setServletPath(uri);
+
+        assertFalse(filter.shouldNotFilter(request));
+    }
+
+    @Test
+    void doFilterInternalTest_missingHeader() throws ServletException, IOException {
+        var mockRequest = mock(HttpServletRequest.class);
+        when(mockRequest.getRequestURI())
+                .thenReturn("/irrelevant");
+        var filterChain = mock(FilterChain.class);
+
+        try (var jwtUtils = mockStatic(JwtUtils.class)) {
+            filter.doFilterInternal(mockRequest, mock(HttpServletResponse.class), filterChain);
+
+            jwtUtils.verifyNoInteractions();
+            verify(filterChain).doFilter(eq(mockRequest), any(HttpServletResponse.class));
+            assertEquals(0, meterRegistry.find("jwt.filter.fast.rejects").counters().stream()
+                    .mapToDouble(counter -> counter.count()).sum());
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideMalformedHeaders")
+    void doFilterInternalTest_malformedHeaderRejectedBeforeParsing(String header, String reason)
+            throws ServletException, IOException {
+        var mockRequest = mock(HttpServletRequest.class);
+        when(mockRequest.getRequestURI())
+                .thenReturn("/irrelevant");
+        when(mockRequest.getHeader(anyString()))
+                .thenReturn(header);
+        var filterChain = mock(FilterChain.class);
+
+        try (var jwtUtils = mockStatic(JwtUtils.class)) {
+            filter.doFilterInternal(mockRequest, mock(HttpServletResponse.class), filterChain);
+
+            jwtUtils.verifyNoInteractions();
+            verifyNoInteractions(blacklistService, sessionEpochService, accountUserSecurityService);
+            verify(filterChain).doFilter(eq(mockRequest), any(HttpServletResponse.class));
+            assertEquals(1, meterRegistry.get("jwt.filter.fast.rejects")
+                    .tag("reason", reason).counter().count());
+        }
+    }
+
+    private static Stream<Arguments> provideMalformedHeaders() {
+        return Stream.of(Arguments.of("Basic dXNlcjpwd2Q=", "scheme"),
+                Arguments.of(TOKEN, "scheme"),
+                Arguments.of("Bearer " + "a".repeat(4096) + ".b.c", "size"),
+                Arguments.of("Bearer header.payload", "segments"),
+                Arguments.of("Bearer header.payload.signature.extra", "segments"),
+                Arguments.of("Bearer ", "segments"));
+    }
+}
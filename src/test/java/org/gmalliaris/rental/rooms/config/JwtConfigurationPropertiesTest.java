@@ -15,6 +15,7 @@ import javax.validation.Validator;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 
 @ExtendWith(SpringExtension.class)
 @EnableConfigurationProperties(JwtConfigurationProperties.class)
@@ -29,6 +30,9 @@ class JwtConfigurationPropertiesTest {
         assertEquals(120, jwtConfigurationProperties.getAccessExpirationSeconds());
         assertEquals(60, jwtConfigurationProperties.getRefreshExpirationMinutes());
         assertEquals(120, jwtConfigurationProperties.getRefreshExpirationThresholdSeconds());
+        assertFalse(jwtConfigurationProperties.isStateless());
+        assertEquals(10_000, jwtConfigurationProperties.getVerifiedClaimsCacheMaximumSize());
+        assertEquals(300, jwtConfigurationProperties.getVerifiedClaimsCacheExpirationSeconds());
     }
 
     @ParameterizedTest
@@ -58,6 +62,26 @@ class JwtConfigurationPropertiesTest {
         assertEquals(errorsSize, errorSet.size());
     }
 
+    @ParameterizedTest
+    @MethodSource("provideVerifiedClaimsCacheMaximumSize")
+    void verifiedClaimsCacheMaximumSizeTest(int value, int errorsSize) {
+        var original = jwtConfigurationProperties.getVerifiedClaimsCacheMaximumSize();
+        ReflectionTestUtils.setField(jwtConfigurationProperties, "verifiedClaimsCacheMaximumSize", value);
+        var errorSet = validator.validateProperty(jwtConfigurationProperties, "verifiedClaimsCacheMaximumSize");
+        ReflectionTestUtils.setField(jwtConfigurationProperties, "verifiedClaimsCacheMaximumSize", original);
+        assertEquals(errorsSize, errorSet.size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideVerifiedClaimsCacheExpirationSeconds")
+    void verifiedClaimsCacheExpirationSecondsTest(int value, int errorsSize) {
+        var original = jwtConfigurationProperties.getVerifiedClaimsCacheExpirationSeconds();
+        ReflectionTestUtils.setField(jwtConfigurationProperties, "verifiedClaimsCacheExpirationSeconds", value);
+        var errorSet = validator.validateProperty(jwtConfigurationProperties, "verifiedClaimsCacheExpirationSeconds");
+        ReflectionTestUtils.setField(jwtConfigurationProperties, "verifiedClaimsCacheExpirationSeconds", original);
+        assertEquals(errorsSize, errorSet.size());
+    }
+
     private static Stream<Arguments> provideAccessExpirationSeconds() {
         return Stream.of(Arguments.of(119, 1),
                 Arguments.of(120, 0),
@@ -78,4 +102,18 @@ class JwtConfigurationPropertiesTest {
                 Arguments.of(300, 0),
                 Arguments.of(301, 1));
     }
-}
\ No newline at end of file
+
+    private static Stream<Arguments> provideVerifiedClaimsCacheMaximumSize() {
+        return Stream.of(Arguments.of(-1, 1),
+                Arguments.of(0, 0),
+                Arguments.of(1_000_000, 0),
+                Arguments.of(1_000_001, 1));
+    }
+
+    private static Stream<Arguments> provideVerifiedClaimsCacheExpirationSeconds() {
+        return Stream.of(Arguments.of(0, 1),
+                Arguments.of(1, 0),
+                Arguments.of(3600, 0),
+                Arguments.of(3601, 1));
+    }
+}
@@ -0,0 +1,66 @@
+package org.gmalliaris.rental.rooms.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.time.Instant;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@ExtendWith(SpringExtension.class)
+@EnableConfigurationProperties(JwtKeyRingConfigurationProperties.class)
+class JwtKeyRingConfigurationPropertiesTest {
+
+    @Autowired
+    private JwtKeyRingConfigurationProperties jwtKeyRingConfigurationProperties;
+    private static final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Test
+    void defaultValuesTest() {
+        assertNull(jwtKeyRingConfigurationProperties.getKeystorePath());
+        assertNull(jwtKeyRingConfigurationProperties.getKeystorePassword());
+        assertEquals("PKCS12", jwtKeyRingConfigurationProperties.getKeystoreType());
+        assertEquals(Map.of(), jwtKeyRingConfigurationProperties.getActivations());
+    }
+
+    @Test
+    void activationsTest() {
+        var source = new MapConfigurationPropertySource(
+                Map.of("jwt.keyring.activations.key-1", "2026-01-01T00:00:00Z"));
+
+        var properties = new Binder(source)
+                .bind("jwt.keyring", JwtKeyRingConfigurationProperties.class)
+                .get();
+        assertEquals(Map.of("key-1", Instant.parse("2026-01-01T00:00:00Z")), properties.getActivations());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideKeystoreType")
+    void keystoreTypeTest(String value, int errorsSize) {
+        var original = jwtKeyRingConfigurationProperties.getKeystoreType();
+        ReflectionTestUtils.setField(jwtKeyRingConfigurationProperties, "keystoreType", value);
+        var errorSet = validator.validateProperty(jwtKeyRingConfigurationProperties, "keystoreType");
+        ReflectionTestUtils.setField(jwtKeyRingConfigurationProperties, "keystoreType", original);
+        assertEquals(errorsSize, errorSet.size());
+    }
+
+    private static Stream<Arguments> provideKeystoreType() {
+        return Stream.of(Arguments.of(null, 1),
+                Arguments.of(" ", 1),
+                Arguments.of("JCEKS", 0));
+    }
+}
@@ -0,0 +1,106 @@
+package org.gmalliaris.rental.rooms.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@ExtendWith(SpringExtension.class)
+@EnableConfigurationProperties(MailOutboxConfigurationProperties.class)
+class MailOutboxConfigurationPropertiesTest {
+
+    @Autowired
+    private MailOutboxConfigurationProperties mailOutboxConfigurationProperties;
+    private static final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Test
+    void defaultValuesTest() {
+        assertEquals(50, mailOutboxConfigurationProperties.getBatchSize());
+        assertEquals(2, mailOutboxConfigurationProperties.getWorkerThreads());
+        assertEquals(5, mailOutboxConfigurationProperties.getMaxAttempts());
+        assertEquals(30, mailOutboxConfigurationProperties.getRetryBackoffSeconds());
+        assertEquals(300, mailOutboxConfigurationProperties.getClaimLeaseSeconds());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideBatchSize")
+    void batchSizeTest(int value, int errorsSize) {
+        assertErrors("batchSize", value, errorsSize);
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideWorkerThreads")
+    void workerThreadsTest(int value, int errorsSize) {
+        assertErrors("workerThreads", value, errorsSize);
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideMaxAttempts")
+    void maxAttemptsTest(int value, int errorsSize) {
+        assertErrors("maxAttempts", value, errorsSize);
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideRetryBackoffSeconds")
+    void retryBackoffSecondsTest(int value, int errorsSize) {
+        assertErrors("retryBackoffSeconds", value, errorsSize);
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideClaimLeaseSeconds")
+    void claimLeaseSecondsTest(int value, int errorsSize) {
+        assertErrors("claimLeaseSeconds", value, errorsSize);
+    }
+
+    private void assertErrors(String property, int value, int errorsSize) {
+        ReflectionTestUtils.setField(mailOutboxConfigurationProperties, property, value);
+        var errorSet = validator.validateProperty(mailOutboxConfigurationProperties, property);
+        assertEquals(errorsSize, errorSet.size());
+    }
+
+    private static Stream<Arguments> provideBatchSize() {
+        return Stream.of(Arguments.of(0, 1),
+                Arguments.of(1, 0),
+                Arguments.of(500, 0),
+                Arguments.of(501, 1));
+    }
+
+    private static Stream<Arguments> provideWorkerThreads() {
+        return Stream.of(Arguments.of(0, 1),
+                Arguments.of(1, 0),
+                Arguments.of(16, 0),
+                Arguments.of(17, 1));
+    }
+
+    private static Stream<Arguments> provideMaxAttempts() {
+        return Stream.of(Arguments.of(0, 1),
+                Arguments.of(1, 0),
+                Arguments.of(20, 0),
+                Arguments.of(21, 1));
+    }
+
+    private static Stream<Arguments> provideRetryBackoffSeconds() {
+        return Stream.of(Arguments.of(0, 1),
+                Arguments.of(1, 0),
+                Arguments.of(3600, 0),
+                Arguments.of(3601, 1));
+    }
+
+    private static Stream<Arguments> provideClaimLeaseSeconds() {
+        return Stream.of(Arguments.of(59, 1),
+                Arguments.of(60, 0),
+                Arguments.of(3600, 0),
+                Arguments.of(3601, 1));
+    }
+}
@@ -0,0 +1,48 @@
+package org.gmalliaris.rental.rooms.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(SpringExtension.class)
+@EnableConfigurationProperties(MailTemplateConfigurationProperties.class)
+class MailTemplateConfigurationPropertiesTest {
+
+    @Autowired
+    private MailTemplateConfigurationProperties mailTemplateConfigurationProperties;
+    private static final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Test
+    void defaultValuesTest() {
+        assertTrue(mailTemplateConfigurationProperties.isCacheable());
+        assertEquals(60, mailTemplateConfigurationProperties.getCacheTtlMinutes());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideCacheTtlMinutes")
+    void cacheTtlMinutesTest(int value, int errorsSize) {
+        ReflectionTestUtils.setField(mailTemplateConfigurationProperties, "cacheTtlMinutes", value);
+        var errorSet = validator.validateProperty(mailTemplateConfigurationProperties, "cacheTtlMinutes");
+        assertEquals(errorsSize, errorSet.size());
+    }
+
+    private static Stream<Arguments> provideCacheTtlMinutes() {
+        return Stream.of(Arguments.of(0, 1),
+                Arguments.of(1, 0),
+                Arguments.of(1440, 0),
+                Arguments.of(1441, 1));
+    }
+}
@@ -0,0 +1,96 @@
+package org.gmalliaris.rental.rooms.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@ExtendWith(SpringExtension.class)
+@EnableConfigurationProperties(PasswordHashingConfigurationProperties.class)
+class PasswordHashingConfigurationPropertiesTest {
+
+    @Autowired
+    private PasswordHashingConfigurationProperties passwordHashingConfigurationProperties;
+    private static final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Test
+    void defaultValuesTest() {
+        assertEquals(2, passwordHashingConfigurationProperties.getThreads());
+        assertEquals(64, passwordHashingConfigurationProperties.getQueueCapacity());
+        assertEquals(10, passwordHashingConfigurationProperties.getStrength());
+        assertFalse(passwordHashingConfigurationProperties.isCalibrate());
+        assertEquals(250, passwordHashingConfigurationProperties.getCalibrationTargetMillis());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideThreads")
+    void threadsTest(int value, int errorsSize) {
+        assertErrors("threads", value, errorsSize);
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideQueueCapacity")
+    void queueCapacityTest(int value, int errorsSize) {
+        assertErrors("queueCapacity", value, errorsSize);
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideStrength")
+    void strengthTest(int value, int errorsSize) {
+        assertErrors("strength", value, errorsSize);
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideCalibrationTargetMillis")
+    void calibrationTargetMillisTest(int value, int errorsSize) {
+        assertErrors("calibrationTargetMillis", value, errorsSize);
+    }
+
+    private void assertErrors(String property, int value, int errorsSize) {
+        var original = ReflectionTestUtils.getField(passwordHashingConfigurationProperties, property);
+        ReflectionTestUtils.setField(passwordHashingConfigurationProperties, property, value);
+        var errorSet = validator.validateProperty(passwordHashingConfigurationProperties, property);
+        ReflectionTestUtils.setField(passwordHashingConfigurationProperties, property, original);
+        assertEquals(errorsSize, errorSet.size());
+    }
+
+    private static Stream<Arguments> provideThreads() {
+        return Stream.of(Arguments.of(0, 1),
+                Arguments.of(1, 0),
+                Arguments.of(64, 0),
+                Arguments.of(65, 1));
+    }
+
+    private static Stream<Arguments> provideQueueCapacity() {
+        return Stream.of(Arguments.of(0, 1),
+                Arguments.of(1, 0),
+                Arguments.of(10_000, 0),
+                Arguments.of(10_001, 1));
+    }
+
+    private static Stream<Arguments> provideStrength() {
+        return Stream.of(Arguments.of(3, 1),
+                Arguments.of(4, 0),
+                Arguments.of(16, 0),
+                Arguments.of(17, 1));
+    }
+
+    private static Stream<Arguments> provideCalibrationTargetMillis() {
+        return Stream.of(Arguments.of(9, 1),
+                Arguments.of(10, 0),
+                Arguments.of(5_000, 0),
+                Arguments.of(5_001, 1));
+    }
+}
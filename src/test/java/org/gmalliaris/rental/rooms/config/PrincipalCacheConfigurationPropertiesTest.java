@@ -0,0 +1,64 @@
+package org.gmalliaris.rental.rooms.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@ExtendWith(SpringExtension.class)
+@EnableConfigurationProperties(PrincipalCacheConfigurationProperties.class)
+class PrincipalCacheConfigurationPropertiesTest {
+
+    @Autowired
+    private PrincipalCacheConfigurationProperties principalCacheConfigurationProperties;
+    private static final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Test
+    void defaultValuesTest() {
+        assertEquals(30, principalCacheConfigurationProperties.getCacheExpirationSeconds());
+        assertEquals(10_000, principalCacheConfigurationProperties.getCacheMaximumSize());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideCacheExpirationSeconds")
+    void cacheExpirationSecondsTest(int value, int errorsSize) {
+        String cacheExpirationSeconds = "cacheExpirationSeconds";
+        ReflectionTestUtils.setField(principalCacheConfigurationProperties, cacheExpirationSeconds, value);
+        var errorSet = validator.validateProperty(principalCacheConfigurationProperties, cacheExpirationSeconds);
+        assertEquals(errorsSize, errorSet.size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideCacheMaximumSize")
+    void cacheMaximumSizeTest(int value, int errorsSize) {
+        String cacheMaximumSize = "cacheMaximumSize";
+        ReflectionTestUtils.setField(principalCacheConfigurationProperties, cacheMaximumSize, value);
+        var errorSet = validator.validateProperty(principalCacheConfigurationProperties, cacheMaximumSize);
+        assertEquals(errorsSize, errorSet.size());
+    }
+
+    private static Stream<Arguments> provideCacheExpirationSeconds() {
+        return Stream.of(Arguments.of(0, 1),
+                Arguments.of(1, 0),
+                Arguments.of(300, 0),
+                Arguments.of(301, 1));
+    }
+
+    private static Stream<Arguments> provideCacheMaximumSize() {
+        return Stream.of(Arguments.of(99, 1),
+                Arguments.of(100, 0),
+                Arguments.of(1_000_000, 0),
+                Arguments.of(1_000_001, 1));
+    }
+}
@@ -0,0 +1,66 @@
+package org.gmalliaris.rental.rooms.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@ExtendWith(SpringExtension.class)
+@EnableConfigurationProperties(RateLimitConfigurationProperties.class)
+class RateLimitConfigurationPropertiesTest {
+
+    @Autowired
+    private RateLimitConfigurationProperties rateLimitConfigurationProperties;
+    private static final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Test
+    void defaultValuesTest() {
+        assertEquals(3, rateLimitConfigurationProperties.getConfirmResetMaxRequests());
+        assertEquals(600, rateLimitConfigurationProperties.getConfirmResetWindowSeconds());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideConfirmResetMaxRequests")
+    void confirmResetMaxRequestsTest(int value, int errorsSize) {
+        var original = rateLimitConfigurationProperties.getConfirmResetMaxRequests();
+        ReflectionTestUtils.setField(rateLimitConfigurationProperties, "confirmResetMaxRequests", value);
+        var errorSet = validator.validateProperty(rateLimitConfigurationProperties, "confirmResetMaxRequests");
+        ReflectionTestUtils.setField(rateLimitConfigurationProperties, "confirmResetMaxRequests", original);
+        assertEquals(errorsSize, errorSet.size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideConfirmResetWindowSeconds")
+    void confirmResetWindowSecondsTest(int value, int errorsSize) {
+        var original = rateLimitConfigurationProperties.getConfirmResetWindowSeconds();
+        ReflectionTestUtils.setField(rateLimitConfigurationProperties, "confirmResetWindowSeconds", value);
+        var errorSet = validator.validateProperty(rateLimitConfigurationProperties, "confirmResetWindowSeconds");
+        ReflectionTestUtils.setField(rateLimitConfigurationProperties, "confirmResetWindowSeconds", original);
+        assertEquals(errorsSize, errorSet.size());
+    }
+
+    private static Stream<Arguments> provideConfirmResetMaxRequests() {
+        return Stream.of(Arguments.of(0, 1),
+                Arguments.of(1, 0),
+                Arguments.of(100, 0),
+                Arguments.of(101, 1));
+    }
+
+    private static Stream<Arguments> provideConfirmResetWindowSeconds() {
+        return Stream.of(Arguments.of(9, 1),
+                Arguments.of(10, 0),
+                Arguments.of(86_400, 0),
+                Arguments.of(86_401, 1));
+    }
+}
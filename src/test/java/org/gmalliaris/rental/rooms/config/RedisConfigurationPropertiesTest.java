@@ -1,10 +1,12 @@
 package org.gmalliaris.rental.rooms.config;
 
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
@@ -29,6 +31,17 @@ class RedisConfigurationPropertiesTest {
     private RedisConfigurationProperties redisConfigurationProperties;
     private static final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
 
+    @Test
+    void defaultValuesTest() {
+        assertEquals(RedisProperties.ClientType.JEDIS, redisConfigurationProperties.getClientType());
+        assertEquals(16, redisConfigurationProperties.getPoolMaxActive());
+        assertEquals(16, redisConfigurationProperties.getPoolMaxIdle());
+        assertEquals(2, redisConfigurationProperties.getPoolMinIdle());
+        assertEquals(500, redisConfigurationProperties.getPoolMaxWaitMillis());
+        assertEquals(2000, redisConfigurationProperties.getConnectTimeoutMillis());
+        assertEquals(2000, redisConfigurationProperties.getCommandTimeoutMillis());
+    }
+
     @ParameterizedTest
     @MethodSource("provideHost")
     void redisHostTest(String value, int errorsSize) {
@@ -56,6 +69,26 @@ class RedisConfigurationPropertiesTest {
         assertEquals(errorsSize, errorsSet.size());
     }
 
+    @ParameterizedTest
+    @MethodSource("providePoolSize")
+    void redisPoolSizeTest(String field, int value, int errorsSize) {
+        var original = ReflectionTestUtils.getField(redisConfigurationProperties, field);
+        ReflectionTestUtils.setField(redisConfigurationProperties, field, value);
+        var errorsSet = validator.validateProperty(redisConfigurationProperties, field);
+        ReflectionTestUtils.setField(redisConfigurationProperties, field, original);
+        assertEquals(errorsSize, errorsSet.size());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideTimeout")
+    void redisTimeoutTest(String field, int value, int errorsSize) {
+        var original = ReflectionTestUtils.getField(redisConfigurationProperties, field);
+        ReflectionTestUtils.setField(redisConfigurationProperties, field, value);
+        var errorsSet = validator.validateProperty(redisConfigurationProperties, field);
+        ReflectionTestUtils.setField(redisConfigurationProperties, field, original);
+        assertEquals(errorsSize, errorsSet.size());
+    }
+
     private static Stream<Arguments> provideHost() {
         return Stream.of(Arguments.of(null, 1),
                 Arguments.of("", 1),
@@ -74,4 +107,28 @@ class RedisConfigurationPropertiesTest {
                 Arguments.of(" ", 1),
                 Arguments.of("redis", 0));
     }
-}
\ No newline at end of file
+
+    private static Stream<Arguments> providePoolSize() {
+        return Stream.of(Arguments.of("poolMaxActive", 0, 1),
+                Arguments.of("poolMaxActive", 1, 0),
+                Arguments.of("poolMaxActive", 513, 1),
+                Arguments.of("poolMaxIdle", -1, 1),
+                Arguments.of("poolMaxIdle", 0, 0),
+                Arguments.of("poolMaxIdle", 513, 1),
+                Arguments.of("poolMinIdle", -1, 1),
+                Arguments.of("poolMinIdle", 512, 0),
+                Arguments.of("poolMinIdle", 513, 1));
+    }
+
+    private static Stream<Arguments> provideTimeout() {
+        return Stream.of(Arguments.of("poolMaxWaitMillis", 0, 1),
+                Arguments.of("poolMaxWaitMillis", 1, 0),
+                Arguments.of("poolMaxWaitMillis", 60_001, 1),
+                Arguments.of("connectTimeoutMillis", 99, 1),
+                Arguments.of("connectTimeoutMillis", 60_000, 0),
+                Arguments.of("connectTimeoutMillis", 60_001, 1),
+                Arguments.of("commandTimeoutMillis", 99, 1),
+                Arguments.of("commandTimeoutMillis", 100, 0),
+                Arguments.of("commandTimeoutMillis", 60_001, 1));
+    }
+}
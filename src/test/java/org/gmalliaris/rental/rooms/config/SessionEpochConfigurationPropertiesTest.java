@@ -0,0 +1,97 @@
+package org.gmalliaris.rental.rooms.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@ExtendWith(SpringExtension.class)
+@EnableConfigurationProperties(SessionEpochConfigurationProperties.class)
+class SessionEpochConfigurationPropertiesTest {
+
+    @Autowired
+    private SessionEpochConfigurationProperties sessionEpochConfigurationProperties;
+    private static final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Test
+    void defaultValuesTest() {
+        assertEquals(100_000, sessionEpochConfigurationProperties.getCacheMaximumSize());
+        assertEquals(5, sessionEpochConfigurationProperties.getCacheRefreshSeconds());
+        assertEquals(5, sessionEpochConfigurationProperties.getBreakerFailureThreshold());
+        assertEquals(10, sessionEpochConfigurationProperties.getBreakerOpenSeconds());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideCacheMaximumSize")
+    void cacheMaximumSizeTest(int value, int errorsSize) {
+        assertPropertyErrors("cacheMaximumSize", sessionEpochConfigurationProperties.getCacheMaximumSize(),
+                value, errorsSize);
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideCacheRefreshSeconds")
+    void cacheRefreshSecondsTest(int value, int errorsSize) {
+        assertPropertyErrors("cacheRefreshSeconds", sessionEpochConfigurationProperties.getCacheRefreshSeconds(),
+                value, errorsSize);
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideBreakerFailureThreshold")
+    void breakerFailureThresholdTest(int value, int errorsSize) {
+        assertPropertyErrors("breakerFailureThreshold", sessionEpochConfigurationProperties.getBreakerFailureThreshold(),
+                value, errorsSize);
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideBreakerOpenSeconds")
+    void breakerOpenSecondsTest(int value, int errorsSize) {
+        assertPropertyErrors("breakerOpenSeconds", sessionEpochConfigurationProperties.getBreakerOpenSeconds(),
+                value, errorsSize);
+    }
+
+    private void assertPropertyErrors(String property, Integer original, int value, int errorsSize) {
+        ReflectionTestUtils.setField(sessionEpochConfigurationProperties, property, value);
+        var errorSet = validator.validateProperty(sessionEpochConfigurationProperties, property);
+        ReflectionTestUtils.setField(sessionEpochConfigurationProperties, property, original);
+        assertEquals(errorsSize, errorSet.size());
+    }
+
+    private static Stream<Arguments> provideCacheMaximumSize() {
+        return Stream.of(Arguments.of(999, 1),
+                Arguments.of(1_000, 0),
+                Arguments.of(1_000_000, 0),
+                Arguments.of(1_000_001, 1));
+    }
+
+    private static Stream<Arguments> provideCacheRefreshSeconds() {
+        return Stream.of(Arguments.of(0, 1),
+                Arguments.of(1, 0),
+                Arguments.of(60, 0),
+                Arguments.of(61, 1));
+    }
+
+    private static Stream<Arguments> provideBreakerFailureThreshold() {
+        return Stream.of(Arguments.of(0, 1),
+                Arguments.of(1, 0),
+                Arguments.of(100, 0),
+                Arguments.of(101, 1));
+    }
+
+    private static Stream<Arguments> provideBreakerOpenSeconds() {
+        return Stream.of(Arguments.of(0, 1),
+                Arguments.of(1, 0),
+                Arguments.of(300, 0),
+                Arguments.of(301, 1));
+    }
+}
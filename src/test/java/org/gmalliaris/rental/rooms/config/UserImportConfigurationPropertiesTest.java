@@ -0,0 +1,48 @@
+package org.gmalliaris.rental.rooms.config;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.validation.Validation;
+import javax.validation.Validator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@ExtendWith(SpringExtension.class)
+@EnableConfigurationProperties(UserImportConfigurationProperties.class)
+class UserImportConfigurationPropertiesTest {
+
+    @Autowired
+    private UserImportConfigurationProperties userImportConfigurationProperties;
+    private static final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Test
+    void defaultValuesTest() {
+        assertEquals(500, userImportConfigurationProperties.getBatchSize());
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideBatchSize")
+    void batchSizeTest(int value, int errorsSize) {
+        var original = userImportConfigurationProperties.getBatchSize();
+        ReflectionTestUtils.setField(userImportConfigurationProperties, "batchSize", value);
+        var errorSet = validator.validateProperty(userImportConfigurationProperties, "batchSize");
+        ReflectionTestUtils.setField(userImportConfigurationProperties, "batchSize", original);
+        assertEquals(errorsSize, errorSet.size());
+    }
+
+    private static Stream<Arguments> provideBatchSize() {
+        return Stream.of(Arguments.of(0, 1),
+                Arguments.of(1, 0),
+                Arguments.of(5_000, 0),
+                Arguments.of(5_001, 1));
+    }
+}
@@ -1,6 +1,7 @@
 package org.gmalliaris.rental.rooms.config;
 
 import org.gmalliaris.rental.rooms.service.AccountUserSecurityService;
+import org.gmalliaris.rental.rooms.service.PasswordHashingService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
@@ -10,7 +11,6 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.test.util.ReflectionTestUtils;
 
@@ -32,7 +32,7 @@ class WebSecurityConfigServiceImplTest {
     private AccountUserSecurityService accountUserSecurityService;
 
     @Mock
-    private BCryptPasswordEncoder bCryptPasswordEncoder;
+    private PasswordHashingService passwordHashingService;
 
     @Test
     void configureHttpSecurityJwtFilterTest() {
@@ -54,7 +54,7 @@ class WebSecurityConfigServiceImplTest {
         var authProvider = authProviderCaptor.getValue();
         assertNotNull(authProvider);
         assertEquals(DaoAuthenticationProvider.class, authProvider.getClass());
-        assertEquals(bCryptPasswordEncoder,
+        assertEquals(passwordHashingService,
                 ReflectionTestUtils.invokeGetterMethod(authProvider, "getPasswordEncoder"));
         assertEquals(accountUserSecurityService,
                 ReflectionTestUtils.invokeGetterMethod(authProvider, "getUserDetailsService"));
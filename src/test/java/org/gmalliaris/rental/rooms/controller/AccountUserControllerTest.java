@@ -2,9 +2,13 @@ package org.gmalliaris.rental.rooms.controller;
 
 import org.gmalliaris.rental.rooms.UnitTestConfig;
 import org.gmalliaris.rental.rooms.config.exception.ApiExceptionMessageConstants;
+import org.gmalliaris.rental.rooms.dto.AccountUserPageResponse;
+import org.gmalliaris.rental.rooms.dto.AccountUserSortKey;
+import org.gmalliaris.rental.rooms.dto.AccountUserSummaryResponse;
 import org.gmalliaris.rental.rooms.entity.AccountUser;
 import org.gmalliaris.rental.rooms.entity.UserRole;
 import org.gmalliaris.rental.rooms.entity.UserRoleName;
+import org.gmalliaris.rental.rooms.service.AccountUserImportService;
 import org.gmalliaris.rental.rooms.service.AccountUserService;
 import org.gmalliaris.rental.rooms.service.SecurityService;
 import org.hamcrest.Matchers;
@@ -13,19 +17,25 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.UUID;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
-import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(AccountUserController.class)
 @Import(UnitTestConfig.class)
@@ -35,6 +45,9 @@ class AccountUserControllerTest {
     @MockBean
     private AccountUserService accountUserService;
 
+    @MockBean
+    private AccountUserImportService accountUserImportService;
+
     @MockBean
     private SecurityService securityService;
 
@@ -85,4 +98,79 @@ class AccountUserControllerTest {
                 .andExpect(jsonPath("$.roles", Matchers.hasItem("ROLE_ADMIN")));
         verify(accountUserService).findAccountUserById(userId);
     }
-}
\ No newline at end of file
+
+    @Test
+    @WithMockUser(roles = "HOST")
+    void findAccountUsersTest_isForbidden() throws Exception {
+        mockMvc.perform(get("/users"))
+                .andExpect(status().isForbidden());
+        verifyNoInteractions(accountUserService);
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void findAccountUsersTest() throws Exception {
+        var user = new AccountUserSummaryResponse(UUID.randomUUID(), "user@example.eg", "firstName",
+                "lastName", null, true);
+        when(accountUserService.findAccountUsers(any(AccountUserSortKey.class), any(), any(), any(), anyInt()))
+                .thenReturn(new AccountUserPageResponse(List.of(user), user.getEmail()));
+
+        mockMvc.perform(get("/users")
+                        .param("sortBy", "EMAIL")
+                        .param("after", "a@example.eg")
+                        .param("role", "ROLE_HOST")
+                        .param("enabled", "true")
+                        .param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users.length()").value(1))
+                .andExpect(jsonPath("$.users[0].id").value(user.getId().toString()))
+                .andExpect(jsonPath("$.users[0].email").value(user.getEmail()))
+                .andExpect(jsonPath("$.users[0].roles").doesNotExist())
+                .andExpect(jsonPath("$.nextCursor").value(user.getEmail()));
+        verify(accountUserService).findAccountUsers(AccountUserSortKey.EMAIL, "a@example.eg",
+                UserRoleName.ROLE_HOST, true, 1);
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void findAccountUsersTest_defaults() throws Exception {
+        when(accountUserService.findAccountUsers(any(AccountUserSortKey.class), any(), any(), any(), anyInt()))
+                .thenReturn(new AccountUserPageResponse(List.of(), null));
+
+        mockMvc.perform(get("/users"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users.length()").value(0))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+        verify(accountUserService).findAccountUsers(AccountUserSortKey.ID, null, null, null, 50);
+    }
+
+    @Test
+    @WithMockUser(roles = "HOST")
+    void importUsersTest_isForbidden() throws Exception {
+        mockMvc.perform(post("/users/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("{}"))
+                .andExpect(status().isForbidden());
+        verifyNoInteractions(accountUserImportService);
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void importUsersTest() throws Exception {
+        var body = "{\"email\": \"user@example.eg\"}";
+        doAnswer(i -> {
+            var input = (InputStream) i.getArgument(0);
+            var output = (OutputStream) i.getArgument(1);
+            assertEquals(body, new String(input.readAllBytes(), StandardCharsets.UTF_8));
+            output.write("{\"index\":0}".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(accountUserImportService).importUsers(any(InputStream.class), any(OutputStream.class));
+
+        mockMvc.perform(post("/users/import")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("{\"index\":0}"));
+    }
+}
@@ -2,6 +2,7 @@ package org.gmalliaris.rental.rooms.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.gmalliaris.rental.rooms.UnitTestConfig;
+import org.gmalliaris.rental.rooms.config.exception.ApiException;
 import org.gmalliaris.rental.rooms.config.exception.ApiExceptionMessageConstants;
 import org.gmalliaris.rental.rooms.dto.AccountUserAuthResponse;
 import org.gmalliaris.rental.rooms.dto.CreateUserRequest;
@@ -15,6 +16,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.ActiveProfiles;
@@ -161,6 +163,20 @@ class AuthControllerTest {
         assertEquals(body.getPassword(), request.getPassword());
     }
 
+    @Test
+    void loginTest_sessionsUnavailable() throws Exception {
+        var body = new LoginRequest("test@example.eg", "12345678");
+        when(accountUserService.login(any(LoginRequest.class)))
+                .thenThrow(new ApiException(HttpStatus.SERVICE_UNAVAILABLE,
+                        ApiExceptionMessageConstants.SESSION_UNAVAILABLE));
+
+        mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(body)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(jsonPath("$.message").value(ApiExceptionMessageConstants.SESSION_UNAVAILABLE));
+    }
+
     @Test
     void refreshAuthTokens_isUnauthorized() throws Exception {
         mockMvc.perform(get("/auth/refresh"))
@@ -246,4 +262,27 @@ class AuthControllerTest {
 
         verify(accountUserService).logoutUser(header);
     }
+
+    @Test
+    void logoutAccountUserEverywhereTest_isUnauthorized() throws Exception {
+
+        mockMvc.perform(post("/auth/logout-all"))
+                .andExpect(status().isUnauthorized())
+                .andExpect(jsonPath("$.message").value(ApiExceptionMessageConstants.UNAUTHORIZED_MESSAGE));
+    }
+
+    @Test
+    @WithMockUser
+    void logoutAccountUserEverywhereTest() throws Exception {
+
+        var userId = UUID.randomUUID();
+        when(securityService.getCurrentUserId())
+                .thenReturn(userId);
+
+        mockMvc.perform(post("/auth/logout-all"))
+                .andExpect(status().isNoContent());
+
+        verify(securityService).getCurrentUserId();
+        verify(accountUserService).logoutUserEverywhere(userId);
+    }
 }
\ No newline at end of file
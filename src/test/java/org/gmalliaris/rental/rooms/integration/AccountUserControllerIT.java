@@ -0,0 +1,91 @@
+package org.gmalliaris.rental.rooms.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import org.gmalliaris.rental.rooms.MailHogTestContainer;
+import org.gmalliaris.rental.rooms.PostgresTestContainer;
+import org.gmalliaris.rental.rooms.RedisTestContainer;
+import org.gmalliaris.rental.rooms.dto.LoginRequest;
+import org.gmalliaris.rental.rooms.entity.UserRoleName;
+import org.gmalliaris.rental.rooms.repository.AccountUserRepository;
+import org.gmalliaris.rental.rooms.service.AccountUserSecurityService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import static org.gmalliaris.rental.rooms.RequestUtils.Auth.performLogin;
+import static org.gmalliaris.rental.rooms.RequestUtils.Users.performMe;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@Transactional
+@AutoConfigureMockMvc
+@TestPropertySource(properties = {"spring.jpa.properties.hibernate.generate_statistics=true"})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class AccountUserControllerIT implements PostgresTestContainer, MailHogTestContainer, RedisTestContainer {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AccountUserRepository accountUserRepository;
+
+    @Autowired
+    private AccountUserSecurityService accountUserSecurityService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void findCurrentUser_loadsUserWithRolesInOneStatement() throws Exception {
+        var loginRequest = new LoginRequest("admin@example.eg", "12345678");
+        var result = performLogin(mockMvc, objectMapper.writeValueAsString(loginRequest))
+                .andExpect(status().isOk())
+                .andReturn();
+        var accessToken = JsonPath.read(result.getResponse().getContentAsString(), "$.accessToken").toString();
+        var admin = accountUserRepository.findByEmail("admin@example.eg").orElseThrow();
+
+        // principal not cached, the filter and the controller share the user loaded with its roles
+        accountUserSecurityService.evictUser(admin.getId());
+        entityManager.clear();
+        statistics.clear();
+        performMe(mockMvc, accessToken)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.roles[0]").value(UserRoleName.ROLE_ADMIN.toString()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+
+        // principal cached, only the controller loads the user
+        entityManager.clear();
+        statistics.clear();
+        performMe(mockMvc, accessToken)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.roles[0]").value(UserRoleName.ROLE_ADMIN.toString()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
@@ -9,6 +9,8 @@ import org.gmalliaris.rental.rooms.dto.JwtType;
 import org.gmalliaris.rental.rooms.dto.LoginRequest;
 import org.gmalliaris.rental.rooms.entity.UserRoleName;
 import org.gmalliaris.rental.rooms.repository.AccountUserRepository;
+import org.gmalliaris.rental.rooms.service.MailOutboxService;
+import org.gmalliaris.rental.rooms.service.PasswordHashingService;
 import org.gmalliaris.rental.rooms.util.JwtUtils;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Test;
@@ -17,6 +19,8 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpMethod;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.RestTemplate;
@@ -44,6 +48,15 @@ class AuthControllerIT implements PostgresTestContainer, MailHogTestContainer, R
     @Autowired
     private AccountUserRepository accountUserRepository;
 
+    @Autowired
+    private MailOutboxService mailOutboxService;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     @Test
     void adminUserExistsAndCanLogin() throws Exception {
         var adminUsersCount = accountUserRepository.countAdminAccountUsers();
@@ -234,6 +247,8 @@ class AuthControllerIT implements PostgresTestContainer, MailHogTestContainer, R
         performRegister(mockMvc, objectMapper.writeValueAsString(reqBody))
                 .andExpect(status().isCreated());
 
+        // the test transaction is never committed, so the outbox is drained on this thread
+        assertEquals(1, mailOutboxService.sendPendingBatch());
         var restTemplate = new RestTemplate();
 
         var response = restTemplate.exchange(getMailhogHttpUrl(), HttpMethod.GET,
@@ -279,6 +294,8 @@ class AuthControllerIT implements PostgresTestContainer, MailHogTestContainer, R
         performRegister(mockMvc, objectMapper.writeValueAsString(reqBody))
                 .andExpect(status().isCreated());
 
+        // the test transaction is never committed, so the outbox is drained on this thread
+        assertEquals(1, mailOutboxService.sendPendingBatch());
         var restTemplate = new RestTemplate();
 
         var response = restTemplate.exchange(getMailhogHttpUrl(), HttpMethod.GET,
@@ -305,6 +322,7 @@ class AuthControllerIT implements PostgresTestContainer, MailHogTestContainer, R
 
         performResetConfirm(mockMvc, accessToken.toString())
                 .andExpect(status().isCreated());
+        assertEquals(1, mailOutboxService.sendPendingBatch());
 
         response = restTemplate.exchange(getMailhogHttpUrl(), HttpMethod.GET,
                 null, String.class);
@@ -333,4 +351,28 @@ class AuthControllerIT implements PostgresTestContainer, MailHogTestContainer, R
                 .andExpect(jsonPath("$.message")
                         .value(ApiExceptionMessageConstants.CONFIRMATION_TOKEN_ALREADY_USED));
     }
+
+    @Test
+    void userLogsInWithCheaperHash_passwordRehashed() throws Exception {
+        var email = "testUser@example.eg";
+        var password = "12345678aA!";
+        var registerRequest = new CreateUserRequest(password, email, "first-name", "last-name",
+                "+30 6988888888", List.of(UserRoleName.ROLE_HOST));
+        performRegister(mockMvc, objectMapper.writeValueAsString(registerRequest))
+                .andExpect(status().isCreated());
+
+        var cheaperStrength = passwordHashingService.getStrength() - 1;
+        jdbcTemplate.update("UPDATE users SET password = ? WHERE email = ?",
+                new BCryptPasswordEncoder(cheaperStrength).encode(password), email);
+
+        var loginRequest = new LoginRequest(email, password);
+        performLogin(mockMvc, objectMapper.writeValueAsString(loginRequest))
+                .andExpect(status().isOk());
+
+        var storedHash = jdbcTemplate.queryForObject("SELECT password FROM users WHERE email = ?",
+                String.class, email);
+        assertNotNull(storedHash);
+        assertEquals(String.format("%02d", passwordHashingService.getStrength()), storedHash.substring(4, 6));
+        assertTrue(passwordHashingService.matches(password, storedHash));
+    }
 }
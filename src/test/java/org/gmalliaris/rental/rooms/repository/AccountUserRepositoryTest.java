@@ -1,16 +1,25 @@
 package org.gmalliaris.rental.rooms.repository;
 
 import org.gmalliaris.rental.rooms.PostgresTestContainer;
+import org.gmalliaris.rental.rooms.dto.AccountUserSortKey;
+import org.gmalliaris.rental.rooms.dto.AccountUserSummaryResponse;
 import org.gmalliaris.rental.rooms.entity.AccountUser;
 import org.gmalliaris.rental.rooms.entity.UserRole;
 import org.gmalliaris.rental.rooms.entity.UserRoleName;
+import org.hibernate.Hibernate;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.TestPropertySource;
 
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @DataJpaTest
@@ -26,6 +35,9 @@ class AccountUserRepositoryTest {
     @Autowired
     private AccountUserRepository accountUserRepository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
     @Test
     void saveTest_emailNotNull(){
 
@@ -115,6 +127,25 @@ class AccountUserRepositoryTest {
                 () -> accountUserRepository.saveAndFlush(secondUser));
     }
 
+    @Test
+    void updatePasswordTest(){
+
+        var user = new AccountUser();
+        user.setEmail("test@example.eg");
+        user.setPassword("old-hash");
+        user.setFirstName("firstName");
+        accountUserRepository.saveAndFlush(user);
+        entityManager.clear();
+
+        assertEquals(0, accountUserRepository.updatePassword(user.getId(), "other-hash", "new-hash"));
+        assertEquals(1, accountUserRepository.updatePassword(user.getId(), "old-hash", "new-hash"));
+        entityManager.clear();
+
+        var stored = accountUserRepository.findById(user.getId());
+        assertTrue(stored.isPresent());
+        assertEquals("new-hash", stored.get().getPassword());
+    }
+
     @Test
     void findByEmailTest(){
 
@@ -136,38 +167,77 @@ class AccountUserRepositoryTest {
     }
 
     @Test
-    void countByEmailTest(){
+    void findByIdAndEmailTest_fetchRoles(){
+
+        var userRole = new UserRole();
+        userRole.setName(UserRoleName.ROLE_GUEST);
+        userRoleRepository.saveAndFlush(userRole);
+
+        var user = new AccountUser();
+        user.setEmail("test@example.eg");
+        user.setPassword("12345678");
+        user.setFirstName("firstName");
+        user.addRole(userRole);
+        accountUserRepository.saveAndFlush(user);
+        entityManager.clear();
+
+        var byId = accountUserRepository.findById(user.getId());
+        assertTrue(byId.isPresent());
+        assertTrue(Hibernate.isInitialized(byId.get().getRoles()));
+        assertEquals(Set.of(userRole), byId.get().getRoles());
+        entityManager.clear();
+
+        var byEmail = accountUserRepository.findByEmail(user.getEmail());
+        assertTrue(byEmail.isPresent());
+        assertTrue(Hibernate.isInitialized(byEmail.get().getRoles()));
+        assertEquals(Set.of(userRole), byEmail.get().getRoles());
+    }
+
+    @Test
+    void findEmailsByEmailOrPhoneNumberTest(){
 
         var email = "test@example.eg";
+        var phoneNumber = "123456789";
         var notExistingEmail = "test@test.test";
+        var notExistingPhoneNumber = "123456788";
 
         var user = new AccountUser();
         user.setEmail(email);
         user.setPassword("12345678");
         user.setFirstName("firstName");
+        user.setPhoneNumber(phoneNumber);
         accountUserRepository.saveAndFlush(user);
 
-        assertEquals(1, accountUserRepository.countByEmail(email));
-        assertEquals(0, accountUserRepository.countByEmail(notExistingEmail));
+        assertEquals(List.of(email), accountUserRepository
+                .findEmailsByEmailOrPhoneNumber(email, notExistingPhoneNumber));
+        assertEquals(List.of(email), accountUserRepository
+                .findEmailsByEmailOrPhoneNumber(notExistingEmail, phoneNumber));
+        assertEquals(List.of(email), accountUserRepository
+                .findEmailsByEmailOrPhoneNumber(email, null));
+        assertTrue(accountUserRepository
+                .findEmailsByEmailOrPhoneNumber(notExistingEmail, notExistingPhoneNumber).isEmpty());
+        assertTrue(accountUserRepository
+                .findEmailsByEmailOrPhoneNumber(notExistingEmail, null).isEmpty());
     }
 
     @Test
-    void countByPhoneNumberTest(){
-
-        var phoneNumber = "123456789";
-        var notExistingPhoneNumber = "123456788";
+    void saveTest_uniqueConstraintNames(){
 
         var user = new AccountUser();
         user.setEmail("test@example.eg");
         user.setPassword("12345678");
         user.setFirstName("firstName");
-        user.setPhoneNumber(phoneNumber);
+        user.setPhoneNumber("123456789");
         accountUserRepository.saveAndFlush(user);
 
-        assertEquals(1, accountUserRepository
-                .countByPhoneNumber(phoneNumber));
-        assertEquals(0, accountUserRepository
-                .countByPhoneNumber(notExistingPhoneNumber));
+        var sameEmail = new AccountUser();
+        sameEmail.setEmail("test@example.eg");
+        sameEmail.setPassword("12345678");
+        sameEmail.setFirstName("firstName");
+        var exception = assertThrows(DataIntegrityViolationException.class,
+                () -> accountUserRepository.saveAndFlush(sameEmail));
+        var cause = assertInstanceOf(ConstraintViolationException.class, exception.getCause());
+        assertEquals("users_email_key", cause.getConstraintName());
     }
 
     @Test
@@ -193,4 +263,48 @@ class AccountUserRepositoryTest {
 
         assertEquals(2, accountUserRepository.countAdminAccountUsers());
     }
-}
\ No newline at end of file
+
+    @Test
+    void findSummariesAfterTest(){
+
+        var host = new UserRole();
+        host.setName(UserRoleName.ROLE_HOST);
+        userRoleRepository.saveAndFlush(host);
+        var guest = new UserRole();
+        guest.setName(UserRoleName.ROLE_GUEST);
+        userRoleRepository.saveAndFlush(guest);
+        for (var i = 0; i < 5; i++) {
+            var user = new AccountUser();
+            user.setEmail("user" + i + "@example.eg");
+            user.setPassword("12345678");
+            user.setFirstName("firstName");
+            user.setEnabled(i % 2 == 0);
+            user.addRole(i < 3 ? host : guest);
+            accountUserRepository.save(user);
+        }
+        accountUserRepository.flush();
+
+        var firstPage = accountUserRepository.findSummariesAfter(AccountUserSortKey.EMAIL, null, null, null, 2);
+        assertEquals(List.of("user0@example.eg", "user1@example.eg"), emails(firstPage));
+        var secondPage = accountUserRepository.findSummariesAfter(AccountUserSortKey.EMAIL,
+                firstPage.get(1).getEmail(), null, null, 2);
+        assertEquals(List.of("user2@example.eg", "user3@example.eg"), emails(secondPage));
+
+        var enabledHosts = accountUserRepository.findSummariesAfter(AccountUserSortKey.EMAIL, null,
+                UserRoleName.ROLE_HOST, true, 10);
+        assertEquals(List.of("user0@example.eg", "user2@example.eg"), emails(enabledHosts));
+
+        var byId = accountUserRepository.findSummariesAfter(AccountUserSortKey.ID, null, null, null, 10);
+        assertEquals(5, byId.size());
+        var afterSecondId = accountUserRepository.findSummariesAfter(AccountUserSortKey.ID,
+                byId.get(1).getId(), null, null, 10);
+        assertEquals(byId.subList(2, 5).stream().map(AccountUserSummaryResponse::getId).collect(Collectors.toList()),
+                afterSecondId.stream().map(AccountUserSummaryResponse::getId).collect(Collectors.toList()));
+    }
+
+    private static List<String> emails(List<AccountUserSummaryResponse> users){
+        return users.stream()
+                .map(AccountUserSummaryResponse::getEmail)
+                .collect(Collectors.toList());
+    }
+}
@@ -1,18 +1,27 @@
 package org.gmalliaris.rental.rooms.repository;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.gmalliaris.rental.rooms.PostgresTestContainer;
+import org.gmalliaris.rental.rooms.config.ConfirmationExpiryConfigurationProperties;
 import org.gmalliaris.rental.rooms.entity.AccountUser;
 import org.gmalliaris.rental.rooms.entity.ConfirmationToken;
 import org.gmalliaris.rental.rooms.entity.ConfirmationTokenStatus;
+import org.gmalliaris.rental.rooms.service.ConfirmationTokenExpiryService;
+import org.gmalliaris.rental.rooms.service.ConfirmationTokenService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.time.LocalDate;
+import java.util.Optional;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -29,6 +38,12 @@ class ConfirmationTokenRepositoryTest {
     @Autowired
     private ConfirmationTokenRepository tokenRepository;
 
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     private AccountUser user;
 
     @BeforeEach
@@ -116,4 +131,111 @@ class ConfirmationTokenRepositoryTest {
         assertTrue(result2.isPresent());
         assertEquals(token2, result2.get());
     }
-}
\ No newline at end of file
+
+    @Test
+    void consumePendingTokenTest(){
+        var today = LocalDate.now();
+        var token = new ConfirmationToken();
+        token.setStatus(ConfirmationTokenStatus.PENDING);
+        token.setExpirationDate(today);
+        token.setAccountUser(user);
+        tokenRepository.saveAndFlush(token);
+
+        assertTrue(tokenRepository.consumePendingToken(token.getId(), today.plusDays(1)).isEmpty());
+
+        var result = tokenRepository.consumePendingToken(token.getId(), today);
+        assertEquals(Optional.of(user.getId().toString()), result);
+        assertTrue(tokenRepository.consumePendingToken(token.getId(), today).isEmpty());
+
+        entityManager.clear();
+        var consumed = tokenRepository.findById(token.getId());
+        assertTrue(consumed.isPresent());
+        assertEquals(ConfirmationTokenStatus.ACTIVATED, consumed.get().getStatus());
+    }
+
+    @Test
+    void enableAccountUserTest(){
+        assertEquals(1, userRepository.enableAccountUser(user.getId()));
+        assertEquals(0, userRepository.enableAccountUser(user.getId()));
+
+        entityManager.clear();
+        var enabled = userRepository.findById(user.getId());
+        assertTrue(enabled.isPresent());
+        assertTrue(enabled.get().isEnabled());
+    }
+
+    @Test
+    void rotatePendingTokenTest(){
+        var token = new ConfirmationToken();
+        token.setStatus(ConfirmationTokenStatus.PENDING);
+        token.setExpirationDate(LocalDate.now());
+        token.setAccountUser(user);
+        tokenRepository.saveAndFlush(token);
+        entityManager.clear();
+
+        var newId = UUID.randomUUID();
+        var expirationDate = LocalDate.now().plusDays(7);
+        assertEquals(1, tokenRepository.rotatePendingToken(user.getId(), newId, expirationDate));
+
+        assertTrue(tokenRepository.findById(token.getId()).isEmpty());
+        var rotated = tokenRepository.findByAccountUserId(user.getId());
+        assertTrue(rotated.isPresent());
+        assertEquals(newId, rotated.get().getId());
+        assertEquals(expirationDate, rotated.get().getExpirationDate());
+        assertEquals(ConfirmationTokenStatus.PENDING, rotated.get().getStatus());
+
+        entityManager.clear();
+        tokenRepository.consumePendingToken(newId, LocalDate.now());
+        assertEquals(0, tokenRepository.rotatePendingToken(user.getId(), UUID.randomUUID(), expirationDate));
+    }
+
+    @Test
+    void rotatePendingTokenTest_expiredToken(){
+        var token = new ConfirmationToken();
+        token.setStatus(ConfirmationTokenStatus.EXPIRED);
+        token.setExpirationDate(LocalDate.now().minusDays(1));
+        token.setAccountUser(user);
+        tokenRepository.saveAndFlush(token);
+        entityManager.clear();
+
+        var newId = UUID.randomUUID();
+        var expirationDate = LocalDate.now().plusDays(7);
+        assertEquals(1, tokenRepository.rotatePendingToken(user.getId(), newId, expirationDate));
+
+        entityManager.clear();
+        var rotated = tokenRepository.findByAccountUserId(user.getId());
+        assertTrue(rotated.isPresent());
+        assertEquals(newId, rotated.get().getId());
+        assertEquals(expirationDate, rotated.get().getExpirationDate());
+        assertEquals(ConfirmationTokenStatus.PENDING, rotated.get().getStatus());
+    }
+
+    @Test
+    void replaceConfirmationTokenAfterExpiryJobTest(){
+        var token = new ConfirmationToken();
+        token.setStatus(ConfirmationTokenStatus.PENDING);
+        token.setExpirationDate(LocalDate.now().minusDays(1));
+        token.setAccountUser(user);
+        tokenRepository.saveAndFlush(token);
+        entityManager.clear();
+
+        var expiryService = new ConfirmationTokenExpiryService(jdbcTemplate,
+                new ConfirmationExpiryConfigurationProperties(null, null, null), new SimpleMeterRegistry());
+        expiryService.expireConfirmationTokens();
+        var expired = tokenRepository.findById(token.getId());
+        assertTrue(expired.isPresent());
+        assertEquals(ConfirmationTokenStatus.EXPIRED, expired.get().getStatus());
+        entityManager.clear();
+
+        var tokenService = new ConfirmationTokenService(tokenRepository);
+        ReflectionTestUtils.setField(tokenService, "durationInDays", 7);
+        var replaced = tokenService.replaceConfirmationTokenForUser(user);
+
+        entityManager.clear();
+        var rotated = tokenRepository.findByAccountUserId(user.getId());
+        assertTrue(rotated.isPresent());
+        assertEquals(replaced.getId(), rotated.get().getId());
+        assertEquals(ConfirmationTokenStatus.PENDING, rotated.get().getStatus());
+        assertFalse(rotated.get().getExpirationDate().isBefore(LocalDate.now()));
+    }
+}
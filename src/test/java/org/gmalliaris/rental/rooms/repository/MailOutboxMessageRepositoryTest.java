@@ -0,0 +1,74 @@
+package org.gmalliaris.rental.rooms.repository;
+
+import org.gmalliaris.rental.rooms.PostgresTestContainer;
+import org.gmalliaris.rental.rooms.entity.MailOutboxMessage;
+import org.gmalliaris.rental.rooms.entity.MailOutboxStatus;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+        PostgresTestContainer.DATA_JPA_TEST_JDBC_URL_PROPERTY
+})
+class MailOutboxMessageRepositoryTest {
+
+    @Autowired
+    private MailOutboxMessageRepository mailOutboxMessageRepository;
+
+    @Test
+    void saveMailOutboxMessageTest_recipientNull() {
+        var message = message(MailOutboxStatus.PENDING, Instant.now());
+        message.setRecipient(null);
+
+        assertThrows(DataIntegrityViolationException.class,
+                () -> mailOutboxMessageRepository.saveAndFlush(message));
+    }
+
+    @Test
+    void saveMailOutboxMessageTest() {
+        var message = message(MailOutboxStatus.PENDING, Instant.now());
+
+        mailOutboxMessageRepository.saveAndFlush(message);
+        assertNotNull(message.getId());
+    }
+
+    @Test
+    void findDueForUpdateTest() {
+        var now = Instant.now();
+        var dueLater = message(MailOutboxStatus.PENDING, now.minus(1, ChronoUnit.MINUTES));
+        var dueFirst = message(MailOutboxStatus.PENDING, now.minus(2, ChronoUnit.MINUTES));
+        var notDue = message(MailOutboxStatus.PENDING, now.plus(1, ChronoUnit.MINUTES));
+        var dead = message(MailOutboxStatus.DEAD, now.minus(3, ChronoUnit.MINUTES));
+        mailOutboxMessageRepository.saveAllAndFlush(List.of(dueLater, dueFirst, notDue, dead));
+
+        var result = mailOutboxMessageRepository.findDueForUpdate(MailOutboxStatus.PENDING, now, Pageable.ofSize(10));
+        assertEquals(List.of(dueFirst, dueLater), result);
+
+        var limited = mailOutboxMessageRepository.findDueForUpdate(MailOutboxStatus.PENDING, now, Pageable.ofSize(1));
+        assertEquals(List.of(dueFirst), limited);
+    }
+
+    private static MailOutboxMessage message(MailOutboxStatus status, Instant nextAttemptAt) {
+        var message = new MailOutboxMessage();
+        message.setRecipient("test@example.eg");
+        message.setSubject("subject");
+        message.setBody("<h1>body</h1>");
+        message.setStatus(status);
+        message.setAttempts(0);
+        message.setNextAttemptAt(nextAttemptAt);
+        message.setCreatedAt(Instant.now());
+        return message;
+    }
+}
@@ -0,0 +1,242 @@
+package org.gmalliaris.rental.rooms.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.gmalliaris.rental.rooms.config.UserImportConfigurationProperties;
+import org.gmalliaris.rental.rooms.config.exception.ApiExceptionMessageConstants;
+import org.gmalliaris.rental.rooms.dto.CreateUserRequest;
+import org.gmalliaris.rental.rooms.dto.UserImportStatus;
+import org.gmalliaris.rental.rooms.entity.UserRole;
+import org.gmalliaris.rental.rooms.entity.UserRoleName;
+import org.gmalliaris.rental.rooms.repository.AccountUserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.validation.Validation;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AccountUserImportServiceTest {
+
+    private static final String PASSWORD = "Str0ng!Passw0rd";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private AccountUserRepository accountUserRepository;
+
+    @Mock
+    private UserRoleService userRoleService;
+
+    @Mock
+    private PasswordHashingService passwordHashingService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        var roles = Arrays.stream(UserRoleName.values())
+                .map(name -> {
+                    var role = new UserRole();
+                    role.setId(UUID.randomUUID());
+                    role.setName(name);
+                    return role;
+                })
+                .collect(Collectors.toMap(UserRole::getName, Function.identity()));
+        lenient().when(userRoleService.findAllUserRoles()).thenReturn(roles);
+        lenient().when(passwordHashingService.encodeAll(anyList()))
+                .then(i -> ((List<?>) i.getArgument(0)).stream()
+                        .map(password -> "encoded-" + password)
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    void importUsersTest_ndjson() throws IOException {
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT INTO USERS "), anyList(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class)))
+                .thenReturn(new int[][]{{1, 0}});
+        when(accountUserRepository.findEmailsByEmailIn(anyCollection()))
+                .thenReturn(List.of("used@example.eg"));
+
+        var input = String.join("\n",
+                user("first@example.eg", "+30 6912345678", "ROLE_HOST", "ROLE_GUEST"),
+                user("used@example.eg", null, "ROLE_GUEST"),
+                user("first@example.eg", null, "ROLE_GUEST"),
+                user("not-an-email", null, "ROLE_GUEST"),
+                user("admin@example.eg", null, "ROLE_ADMIN"),
+                "{\"email\": \"unknown@example.eg\", \"roles\": [\"ROLE_OWNER\"]}");
+
+        var results = importUsers(createService(500), input);
+
+        assertEquals(6, results.size());
+        assertResult(results.get(0), 0, "first@example.eg", UserImportStatus.CREATED, null);
+        assertResult(results.get(1), 1, "used@example.eg", UserImportStatus.CONFLICT,
+                ApiExceptionMessageConstants.USED_EMAIL);
+        assertResult(results.get(2), 2, "first@example.eg", UserImportStatus.CONFLICT,
+                ApiExceptionMessageConstants.USED_EMAIL);
+        assertResult(results.get(3), 3, "not-an-email", UserImportStatus.INVALID,
+                "Email must be a valid email address");
+        assertResult(results.get(4), 4, "admin@example.eg", UserImportStatus.INVALID,
+                ApiExceptionMessageConstants.INVALID_USER_ROLES_REGISTRATION);
+        assertEquals(5, results.get(5).get("index"));
+        assertEquals("unknown@example.eg", results.get(5).get("email"));
+        assertEquals(UserImportStatus.INVALID.name(), results.get(5).get("status"));
+
+        var passwordsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(passwordHashingService).encodeAll(passwordsCaptor.capture());
+        assertEquals(List.of(PASSWORD, PASSWORD), passwordsCaptor.getValue());
+
+        var userRolesCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO USERS_X_USER_ROLES"), userRolesCaptor.capture(),
+                eq(500), any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(2, userRolesCaptor.getValue().size());
+        verify(accountUserRepository).findEmailsByEmailIn(List.of("used@example.eg"));
+    }
+
+    @Test
+    void importUsersTest_jsonArrayInChunks() throws IOException {
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT INTO USERS "), anyList(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class)))
+                .thenReturn(new int[][]{{1}}, new int[][]{{0}});
+        when(accountUserRepository.findEmailsByEmailIn(anyCollection()))
+                .thenReturn(List.of());
+
+        var input = "[" + String.join(",",
+                user("first@example.eg", "+30 6912345678", "ROLE_HOST"),
+                user("second@example.eg", "+30 6912345678", "ROLE_HOST")) + "]";
+
+        var results = importUsers(createService(1), input);
+
+        assertEquals(2, results.size());
+        assertResult(results.get(0), 0, "first@example.eg", UserImportStatus.CREATED, null);
+        // the second chunk finds the phone number already taken by the first
+        assertResult(results.get(1), 1, "second@example.eg", UserImportStatus.CONFLICT,
+                ApiExceptionMessageConstants.USED_PHONE_NUMBER);
+        verify(passwordHashingService, times(2)).encodeAll(anyList());
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    void importUsersTest_malformedInput() throws IOException {
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT INTO USERS "), anyList(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class)))
+                .thenReturn(new int[][]{{1}});
+
+        var input = user("first@example.eg", null, "ROLE_HOST") + "\n{\"email\": ";
+
+        var results = importUsers(createService(500), input);
+
+        assertEquals(2, results.size());
+        assertResult(results.get(0), 0, "first@example.eg", UserImportStatus.CREATED, null);
+        assertEquals(1, results.get(1).get("index"));
+        assertEquals(UserImportStatus.INVALID.name(), results.get(1).get("status"));
+        assertTrue(((String) results.get(1).get("message")).startsWith("Malformed JSON input"));
+    }
+
+    @Test
+    void importChunkTest_unknownRolesRejectedBeforeInsert() {
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT INTO USERS "), anyList(), anyInt(),
+                any(ParameterizedPreparedStatementSetter.class)))
+                .thenReturn(new int[][]{{1}});
+
+        var roleIds = new EnumMap<UserRoleName, UUID>(UserRoleName.class);
+        roleIds.put(UserRoleName.ROLE_HOST, UUID.randomUUID());
+        var roles = new ArrayList<UserRoleName>();
+        roles.add(null);
+        var chunk = List.of(
+                importRecord(0, "host@example.eg", List.of(UserRoleName.ROLE_HOST)),
+                importRecord(1, "guest@example.eg", List.of(UserRoleName.ROLE_GUEST)),
+                importRecord(2, "none@example.eg", roles));
+
+        var results = createService(500).importChunk(chunk, roleIds);
+
+        assertEquals(UserImportStatus.CREATED, results.get(0).getStatus());
+        for (var result : results.subList(1, 3)) {
+            assertEquals(UserImportStatus.INVALID, result.getStatus());
+            assertEquals(ApiExceptionMessageConstants.UNKNOWN_USER_ROLES, result.getMessage());
+        }
+
+        var usersCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO USERS "), usersCaptor.capture(), eq(500),
+                any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(1, usersCaptor.getValue().size());
+        var userRolesCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO USERS_X_USER_ROLES"), userRolesCaptor.capture(),
+                eq(500), any(ParameterizedPreparedStatementSetter.class));
+        assertEquals(1, userRolesCaptor.getValue().size());
+    }
+
+    @Test
+    void importUsersTest_emptyInput() throws IOException {
+        var results = importUsers(createService(500), "[]");
+
+        assertTrue(results.isEmpty());
+        verifyNoInteractions(jdbcTemplate, passwordHashingService);
+    }
+
+    private AccountUserImportService createService(int batchSize) {
+        var validator = Validation.buildDefaultValidatorFactory().getValidator();
+        return new AccountUserImportService(objectMapper, validator, jdbcTemplate, accountUserRepository,
+                userRoleService, passwordHashingService, transactionManager,
+                new UserImportConfigurationProperties(batchSize));
+    }
+
+    private static AccountUserImportService.ImportRecord importRecord(long index, String email,
+                                                                      List<UserRoleName> roles) {
+        return new AccountUserImportService.ImportRecord(index,
+                new CreateUserRequest(PASSWORD, email, "firstName", null, null, roles));
+    }
+
+    private List<Map<String, Object>> importUsers(AccountUserImportService service, String input) throws IOException {
+        var output = new ByteArrayOutputStream();
+        service.importUsers(new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)), output);
+
+        var results = new ArrayList<Map<String, Object>>();
+        try (var iterator = objectMapper.readerForMapOf(Object.class).readValues(output.toByteArray())) {
+            while (iterator.hasNext()) {
+                @SuppressWarnings("unchecked")
+                var result = (Map<String, Object>) iterator.next();
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    private String user(String email, String phoneNumber, String... roles) throws IOException {
+        var user = new LinkedHashMap<String, Object>();
+        user.put("password", PASSWORD);
+        user.put("email", email);
+        user.put("firstName", "firstName");
+        user.put("phoneNumber", phoneNumber);
+        user.put("roles", List.of(roles));
+        return objectMapper.writeValueAsString(user);
+    }
+
+    private static void assertResult(Map<String, Object> result, int index, String email,
+                                     UserImportStatus status, String message) {
+        assertEquals(index, result.get("index"));
+        assertEquals(email, result.get("email"));
+        assertEquals(status.name(), result.get("status"));
+        assertEquals(message, result.get("message"));
+    }
+}
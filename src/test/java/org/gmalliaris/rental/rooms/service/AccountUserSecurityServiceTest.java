@@ -1,12 +1,16 @@
 package org.gmalliaris.rental.rooms.service;
 
+import org.gmalliaris.rental.rooms.config.PrincipalCacheConfigurationProperties;
 import org.gmalliaris.rental.rooms.entity.AccountUser;
 import org.gmalliaris.rental.rooms.repository.AccountUserRepository;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.Optional;
 import java.util.UUID;
@@ -14,18 +18,25 @@ import java.util.UUID;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class AccountUserSecurityServiceTest {
 
-    @InjectMocks
     private AccountUserSecurityService accountUserSecurityService;
 
     @Mock
     private AccountUserRepository accountUserRepository;
 
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        accountUserSecurityService = new AccountUserSecurityService(accountUserRepository, transactionManager,
+                new PrincipalCacheConfigurationProperties(null, null));
+    }
+
     @Test
     void loadUserByUsername_noUserFound() {
         when(accountUserRepository.findByEmail(anyString()))
@@ -74,4 +85,72 @@ class AccountUserSecurityServiceTest {
         assertNotNull(result);
         assertEquals(email, result.getUsername());
     }
-}
\ No newline at end of file
+
+    @Test
+    void loadUserById_cachedAfterFirstLoad() {
+        var userId = UUID.randomUUID();
+        var user = mock(AccountUser.class);
+        when(user.getEmail()).thenReturn("random@example.eg");
+
+        when(accountUserRepository.findById(any(UUID.class)))
+                .thenReturn(Optional.of(user));
+
+        var first = accountUserSecurityService.loadUserById(userId);
+        var second = accountUserSecurityService.loadUserById(userId);
+        assertNotNull(first);
+        assertSame(first, second);
+        verify(accountUserRepository, times(1)).findById(userId);
+        verify(transactionManager, times(1)).getTransaction(any());
+    }
+
+    @Test
+    void loadUserById_missingUserNotCached() {
+        when(accountUserRepository.findById(any(UUID.class)))
+                .thenReturn(Optional.empty());
+
+        var userId = UUID.randomUUID();
+        assertNull(accountUserSecurityService.loadUserById(userId));
+        assertNull(accountUserSecurityService.loadUserById(userId));
+        verify(accountUserRepository, times(2)).findById(userId);
+    }
+
+    @Test
+    void evictUserTest() {
+        var userId = UUID.randomUUID();
+        var user = mock(AccountUser.class);
+
+        when(accountUserRepository.findById(any(UUID.class)))
+                .thenReturn(Optional.of(user));
+
+        var first = accountUserSecurityService.loadUserById(userId);
+        accountUserSecurityService.evictUser(userId);
+        var second = accountUserSecurityService.loadUserById(userId);
+        assertNotSame(first, second);
+        verify(accountUserRepository, times(2)).findById(userId);
+    }
+
+    @Test
+    void evictUserTest_evictsAgainAfterCompletion() {
+        var userId = UUID.randomUUID();
+        var user = mock(AccountUser.class);
+
+        when(accountUserRepository.findById(any(UUID.class)))
+                .thenReturn(Optional.of(user));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            accountUserSecurityService.evictUser(userId);
+            var stale = accountUserSecurityService.loadUserById(userId);
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(synchronization -> synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+            var fresh = accountUserSecurityService.loadUserById(userId);
+            assertNotSame(stale, fresh);
+            verify(accountUserRepository, times(2)).findById(userId);
+        }
+        finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
@@ -3,7 +3,11 @@ package org.gmalliaris.rental.rooms.service;
 import io.jsonwebtoken.Claims;
 import org.gmalliaris.rental.rooms.config.exception.ApiException;
 import org.gmalliaris.rental.rooms.config.exception.ApiExceptionMessageConstants;
+import org.gmalliaris.rental.rooms.dto.AccountUserSortKey;
+import org.gmalliaris.rental.rooms.dto.AccountUserSummaryResponse;
 import org.gmalliaris.rental.rooms.dto.CreateUserRequest;
+import org.gmalliaris.rental.rooms.dto.IssuedToken;
+import org.gmalliaris.rental.rooms.dto.IssuedTokenPair;
 import org.gmalliaris.rental.rooms.dto.JwtType;
 import org.gmalliaris.rental.rooms.dto.LoginRequest;
 import org.gmalliaris.rental.rooms.entity.AccountUser;
@@ -12,23 +16,30 @@ import org.gmalliaris.rental.rooms.entity.UserRole;
 import org.gmalliaris.rental.rooms.entity.UserRoleName;
 import org.gmalliaris.rental.rooms.repository.AccountUserRepository;
 import org.gmalliaris.rental.rooms.util.JwtUtils;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
-import javax.mail.MessagingException;
 import java.sql.Date;
+import java.sql.SQLException;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -45,7 +56,7 @@ class AccountUserServiceTest {
     private UserRoleService userRoleService;
 
     @Mock
-    private BCryptPasswordEncoder bCryptPasswordEncoder;
+    private PasswordHashingService passwordHashingService;
 
     @Mock
     private JwtService jwtService;
@@ -56,6 +67,12 @@ class AccountUserServiceTest {
     @Mock
     private MailService mailService;
 
+    @Mock
+    private AccountUserSecurityService accountUserSecurityService;
+
+    @Mock
+    private RateLimitService rateLimitService;
+
     @Test
     void createAccountUserTest_throwsBecauseAdminUser(){
         var roles = List.of(UserRoleName.ROLE_ADMIN);
@@ -71,13 +88,16 @@ class AccountUserServiceTest {
 
     @Test
     void createAccountUserTest_throwsBecauseUsedEmail(){
-        when(accountUserRepository.countByEmail(anyString()))
-                .thenReturn(1L);
-
         var email = "admin@example.eg";
+        var phoneNumber = "123456789";
+        when(accountUserRepository.findEmailsByEmailOrPhoneNumber(anyString(), anyString()))
+                .thenReturn(List.of(email));
+
         var mockRequest = mock(CreateUserRequest.class);
         when(mockRequest.getEmail())
                 .thenReturn(email);
+        when(mockRequest.getPhoneNumber())
+                .thenReturn(phoneNumber);
 
         var exception = assertThrows(ApiException.class,
                 () -> accountUserService.createAccountUser(mockRequest));
@@ -85,16 +105,15 @@ class AccountUserServiceTest {
                 exception.getMessage());
         assertEquals(HttpStatus.CONFLICT, exception.getStatus());
 
-        verify(accountUserRepository).countByEmail(email);
-        verify(accountUserRepository, never()).save(any(AccountUser.class));
+        verify(accountUserRepository).findEmailsByEmailOrPhoneNumber(email, phoneNumber);
+        verify(accountUserRepository, never()).saveAndFlush(any(AccountUser.class));
+        verifyNoInteractions(passwordHashingService);
     }
 
     @Test
     void createAccountUserTest_throwsBecauseUsedPhoneNumber(){
-        when(accountUserRepository.countByEmail(anyString()))
-                .thenReturn(0L);
-        when(accountUserRepository.countByPhoneNumber(anyString()))
-                .thenReturn(1L);
+        when(accountUserRepository.findEmailsByEmailOrPhoneNumber(anyString(), anyString()))
+                .thenReturn(List.of("other@example.eg"));
 
         var email = "admin@example.eg";
         var phoneNumber = "123456789";
@@ -110,18 +129,58 @@ class AccountUserServiceTest {
                 exception.getMessage());
         assertEquals(HttpStatus.CONFLICT, exception.getStatus());
 
-        verify(accountUserRepository).countByEmail(email);
-        verify(accountUserRepository).countByPhoneNumber(phoneNumber);
-        verify(accountUserRepository, never()).save(any(AccountUser.class));
+        verify(accountUserRepository).findEmailsByEmailOrPhoneNumber(email, phoneNumber);
+        verify(accountUserRepository, never()).saveAndFlush(any(AccountUser.class));
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideUniqueConstraintViolations")
+    void createAccountUserTest_throwsBecauseOfConcurrentRegistration(String constraintName, String errMsg){
+        when(accountUserRepository.findEmailsByEmailOrPhoneNumber(anyString(), anyString()))
+                .thenReturn(List.of());
+        when(userRoleService.findUserRoleByName(any(UserRoleName.class)))
+                .thenReturn(new UserRole());
+        var violation = new ConstraintViolationException("duplicate key",
+                new SQLException("duplicate key"), constraintName);
+        when(accountUserRepository.saveAndFlush(any(AccountUser.class)))
+                .thenThrow(new DataIntegrityViolationException("could not execute statement", violation));
+
+        var request = new CreateUserRequest("12345678", "admin@example.eg",
+                "firstName", null, "123456789", List.of(UserRoleName.ROLE_GUEST));
+
+        var exception = assertThrows(ApiException.class,
+                () -> accountUserService.createAccountUser(request));
+        assertEquals(errMsg, exception.getMessage());
+        assertEquals(HttpStatus.CONFLICT, exception.getStatus());
+
+        verifyNoInteractions(tokenService, mailService);
+    }
+
+    @Test
+    void createAccountUserTest_rethrowsOtherIntegrityViolations(){
+        when(accountUserRepository.findEmailsByEmailOrPhoneNumber(anyString(), anyString()))
+                .thenReturn(List.of());
+        when(userRoleService.findUserRoleByName(any(UserRoleName.class)))
+                .thenReturn(new UserRole());
+        var integrityViolation = new DataIntegrityViolationException("not-null violation");
+        when(accountUserRepository.saveAndFlush(any(AccountUser.class)))
+                .thenThrow(integrityViolation);
+
+        var request = new CreateUserRequest("12345678", "admin@example.eg",
+                "firstName", null, "123456789", List.of(UserRoleName.ROLE_GUEST));
+
+        var exception = assertThrows(DataIntegrityViolationException.class,
+                () -> accountUserService.createAccountUser(request));
+        assertSame(integrityViolation, exception);
     }
 
     @Test
-    void createAccountUserTest() throws MessagingException {
-        when(accountUserRepository.countByEmail(anyString()))
-                .thenReturn(0L);
+    void createAccountUserTest() {
+        when(accountUserRepository.findEmailsByEmailOrPhoneNumber(anyString(), anyString()))
+                .thenReturn(List.of());
 
         var encoded = "encoded";
-        when(bCryptPasswordEncoder.encode(anyString()))
+        when(passwordHashingService.encode(anyString()))
                 .thenReturn(encoded);
 
         when(userRoleService.findUserRoleByName(any(UserRoleName.class)))
@@ -142,11 +201,11 @@ class AccountUserServiceTest {
 
         accountUserService.createAccountUser(request);
 
-        verify(bCryptPasswordEncoder).encode(request.getPassword());
+        verify(passwordHashingService).encode(request.getPassword());
         roles.forEach(role -> verify(userRoleService)
                 .findUserRoleByName(role));
         var argCaptor = ArgumentCaptor.forClass(AccountUser.class);
-        verify(accountUserRepository).save(argCaptor.capture());
+        verify(accountUserRepository).saveAndFlush(argCaptor.capture());
 
         var user = argCaptor.getValue();
         assertNotNull(user);
@@ -159,42 +218,12 @@ class AccountUserServiceTest {
         assertEquals(new HashSet<>(request.getRoles()).size(), user.getRoles().size());
 
         verify(tokenService).createTokenForUser(user);
-        verify(mailService).sendRegistrationConfirmationEmail(mockToken);
+        verify(mailService).queueRegistrationConfirmationEmail(mockToken);
     }
 
-    @Test
-    void createAccountUserTest_throwsMessageException() throws MessagingException {
-        when(accountUserRepository.countByEmail(anyString()))
-                .thenReturn(0L);
-
-        var encoded = "encoded";
-        when(bCryptPasswordEncoder.encode(anyString()))
-                .thenReturn(encoded);
-
-        when(userRoleService.findUserRoleByName(any(UserRoleName.class)))
-                .then(i -> {
-                    var role = new UserRole();
-                    role.setName(i.getArgument(0));
-                    return role;
-                });
-
-        var roles = List.of(UserRoleName.ROLE_HOST,
-                UserRoleName.ROLE_GUEST, UserRoleName.ROLE_HOST);
-        var request = new CreateUserRequest("12345678", "admin@example.eg",
-                "firstName", null, "123456789", roles);
-
-        var mockToken = mock(ConfirmationToken.class);
-        when(tokenService.createTokenForUser(any(AccountUser.class)))
-                .thenReturn(mockToken);
-        doThrow(MessagingException.class).when(mailService)
-                .sendRegistrationConfirmationEmail(any(ConfirmationToken.class));
-
-        var exception = assertThrows(ApiException.class,
-                () -> accountUserService.createAccountUser(request));
-        assertEquals(String.format(ApiExceptionMessageConstants.FAILED_EMAIL,
-                        "Registration Confirmation"),
-                exception.getMessage());
-        assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, exception.getStatus());
+    private static Stream<Arguments> provideUniqueConstraintViolations() {
+        return Stream.of(Arguments.of("users_email_key", ApiExceptionMessageConstants.USED_EMAIL),
+                Arguments.of("users_phone_number_key", ApiExceptionMessageConstants.USED_PHONE_NUMBER));
     }
 
     @Test
@@ -221,7 +250,7 @@ class AccountUserServiceTest {
         when(accountUserRepository.findByEmail(anyString()))
                 .thenReturn(Optional.of(mockUser));
 
-        when(bCryptPasswordEncoder.matches(anyString(), anyString()))
+        when(passwordHashingService.matches(anyString(), anyString()))
                 .thenReturn(false);
 
         var loginRequest = new LoginRequest("test@example.eg", "12345678");
@@ -232,7 +261,7 @@ class AccountUserServiceTest {
         assertEquals(HttpStatus.UNAUTHORIZED, exception.getStatus());
 
         verify(accountUserRepository).findByEmail(loginRequest.getUsername());
-        verify(bCryptPasswordEncoder).matches(loginRequest.getPassword(), mockUser.getPassword());
+        verify(passwordHashingService).matches(loginRequest.getPassword(), mockUser.getPassword());
     }
 
     @Test
@@ -244,13 +273,11 @@ class AccountUserServiceTest {
         when(accountUserRepository.findByEmail(anyString()))
                 .thenReturn(Optional.of(mockUser));
 
-        when(bCryptPasswordEncoder.matches(anyString(), anyString()))
+        when(passwordHashingService.matches(anyString(), anyString()))
                 .thenReturn(true);
 
-        when(jwtService.generateAccessToken(any(AccountUser.class), any(String.class)))
-                .thenReturn("access");
-        when(jwtService.generateRefreshToken(any(AccountUser.class), any(String.class)))
-                .thenReturn("refresh");
+        when(jwtService.issueTokenPair(any(AccountUser.class)))
+                .thenReturn(new IssuedTokenPair(issuedToken("access"), issuedToken("refresh")));
 
         var loginRequest = new LoginRequest("test@example.eg", "12345678");
 
@@ -260,13 +287,133 @@ class AccountUserServiceTest {
         assertEquals("refresh", result.getRefreshToken());
 
         verify(accountUserRepository).findByEmail(loginRequest.getUsername());
-        verify(bCryptPasswordEncoder).matches(loginRequest.getPassword(), mockUser.getPassword());
-        var tgidCaptor = ArgumentCaptor.forClass(String.class);
-        verify(jwtService).generateAccessToken(eq(mockUser), tgidCaptor.capture());
-        verify(jwtService).generateRefreshToken(eq(mockUser), tgidCaptor.capture());
-        var tgids = tgidCaptor.getAllValues();
-        assertEquals(2, tgids.size());
-        assertEquals(tgids.get(0), tgids.get(1));
+        verify(passwordHashingService).matches(loginRequest.getPassword(), mockUser.getPassword());
+        verify(jwtService).issueTokenPair(mockUser);
+        verify(accountUserRepository, never()).updatePassword(any(UUID.class), anyString(), anyString());
+    }
+
+    @Test
+    void loginTest_rehashesPasswordWithDifferentCost(){
+
+        var userId = UUID.randomUUID();
+        var user = new AccountUser();
+        user.setId(userId);
+        user.setPassword("old-hash");
+
+        when(accountUserRepository.findByEmail(anyString()))
+                .thenReturn(Optional.of(user));
+        when(passwordHashingService.matches(anyString(), anyString()))
+                .thenReturn(true);
+        when(passwordHashingService.upgradeEncoding(anyString()))
+                .thenReturn(true);
+        when(passwordHashingService.encode(anyString()))
+                .thenReturn("new-hash");
+        when(accountUserRepository.updatePassword(any(UUID.class), anyString(), anyString()))
+                .thenReturn(1);
+        when(jwtService.issueTokenPair(any(AccountUser.class)))
+                .thenReturn(new IssuedTokenPair(issuedToken("access"), issuedToken("refresh")));
+
+        var loginRequest = new LoginRequest("test@example.eg", "12345678");
+
+        accountUserService.login(loginRequest);
+
+        verify(passwordHashingService).upgradeEncoding("old-hash");
+        verify(passwordHashingService).encode(loginRequest.getPassword());
+        verify(accountUserRepository).updatePassword(userId, "old-hash", "new-hash");
+        assertEquals("new-hash", user.getPassword());
+        verify(accountUserSecurityService).evictUser(userId);
+    }
+
+    @Test
+    void loginTest_rehashSkippedWhenPasswordChanged(){
+
+        var userId = UUID.randomUUID();
+        var user = new AccountUser();
+        user.setId(userId);
+        user.setPassword("old-hash");
+
+        when(accountUserRepository.findByEmail(anyString()))
+                .thenReturn(Optional.of(user));
+        when(passwordHashingService.matches(anyString(), anyString()))
+                .thenReturn(true);
+        when(passwordHashingService.upgradeEncoding(anyString()))
+                .thenReturn(true);
+        when(passwordHashingService.encode(anyString()))
+                .thenReturn("new-hash");
+        when(accountUserRepository.updatePassword(any(UUID.class), anyString(), anyString()))
+                .thenReturn(0);
+        when(jwtService.issueTokenPair(any(AccountUser.class)))
+                .thenReturn(new IssuedTokenPair(issuedToken("access"), issuedToken("refresh")));
+
+        var loginRequest = new LoginRequest("test@example.eg", "12345678");
+
+        accountUserService.login(loginRequest);
+
+        verify(accountUserRepository).updatePassword(userId, "old-hash", "new-hash");
+        assertEquals("old-hash", user.getPassword());
+        verify(accountUserSecurityService, never()).evictUser(any(UUID.class));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, AccountUserService.MAX_PAGE_LIMIT + 1})
+    void findAccountUsersTest_throwsBecauseInvalidLimit(int limit){
+        var exception = assertThrows(ApiException.class,
+                () -> accountUserService.findAccountUsers(AccountUserSortKey.ID, null, null, null, limit));
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+        verifyNoInteractions(accountUserRepository);
+    }
+
+    @Test
+    void findAccountUsersTest_throwsBecauseInvalidCursor(){
+        var exception = assertThrows(ApiException.class,
+                () -> accountUserService.findAccountUsers(AccountUserSortKey.ID, "not-a-uuid", null, null, 10));
+        assertEquals(ApiExceptionMessageConstants.INVALID_PAGE_CURSOR, exception.getMessage());
+        assertEquals(HttpStatus.BAD_REQUEST, exception.getStatus());
+        verifyNoInteractions(accountUserRepository);
+    }
+
+    @Test
+    void findAccountUsersTest_hasNextPage(){
+        var after = UUID.randomUUID();
+        var users = List.of(summary("first@example.eg"), summary("second@example.eg"), summary("third@example.eg"));
+        when(accountUserRepository.findSummariesAfter(any(AccountUserSortKey.class), any(), any(), any(), anyInt()))
+                .thenReturn(users);
+
+        var result = accountUserService.findAccountUsers(AccountUserSortKey.ID, after.toString(),
+                UserRoleName.ROLE_HOST, true, 2);
+
+        assertEquals(users.subList(0, 2), result.getUsers());
+        assertEquals(users.get(1).getId().toString(), result.getNextCursor());
+        verify(accountUserRepository).findSummariesAfter(AccountUserSortKey.ID, after, UserRoleName.ROLE_HOST, true, 3);
+    }
+
+    @Test
+    void findAccountUsersTest_lastPage(){
+        var users = List.of(summary("first@example.eg"), summary("second@example.eg"));
+        when(accountUserRepository.findSummariesAfter(any(AccountUserSortKey.class), any(), any(), any(), anyInt()))
+                .thenReturn(users);
+
+        var result = accountUserService.findAccountUsers(AccountUserSortKey.EMAIL, "a@example.eg", null, null, 2);
+
+        assertEquals(users, result.getUsers());
+        assertNull(result.getNextCursor());
+        verify(accountUserRepository).findSummariesAfter(AccountUserSortKey.EMAIL, "a@example.eg", null, null, 3);
+    }
+
+    @Test
+    void findAccountUsersTest_emailCursor(){
+        var users = List.of(summary("first@example.eg"), summary("second@example.eg"));
+        when(accountUserRepository.findSummariesAfter(any(AccountUserSortKey.class), any(), any(), any(), anyInt()))
+                .thenReturn(users);
+
+        var result = accountUserService.findAccountUsers(AccountUserSortKey.EMAIL, null, null, null, 1);
+
+        assertEquals(List.of(users.get(0)), result.getUsers());
+        assertEquals("first@example.eg", result.getNextCursor());
+    }
+
+    private static AccountUserSummaryResponse summary(String email){
+        return new AccountUserSummaryResponse(UUID.randomUUID(), email, "firstName", null, null, true);
     }
 
     @Test
@@ -327,11 +474,8 @@ class AccountUserServiceTest {
                     .thenReturn(tokenGroupId);
             when(accountUserRepository.findById(any(UUID.class)))
                     .thenReturn(Optional.of(user));
-            when(jwtService.generateRefreshTokenIfNeeded(any(AccountUser.class), any(Date.class),
-                    anyString()))
-                    .thenReturn(Optional.empty());
-            when(jwtService.generateAccessToken(any(AccountUser.class), anyString()))
-                    .thenReturn(accessToken);
+            when(jwtService.refreshTokens(any(AccountUser.class), anyString(), any(Date.class)))
+                    .thenReturn(new IssuedTokenPair(issuedToken(accessToken), null));
 
             var result = accountUserService.refreshAuthTokens(userId, header);
             assertNotNull(result);
@@ -341,8 +485,7 @@ class AccountUserServiceTest {
             jwtUtils.verify(() -> JwtUtils.extractValidClaimsFromHeader(header, JwtType.REFRESH));
             jwtUtils.verify(() -> JwtUtils.extractTokenGroupIdFromClaims(mockClaims));
             verify(accountUserRepository).findById(userId);
-            verify(jwtService).generateRefreshTokenIfNeeded(user, exp, tokenGroupId);
-            verify(jwtService).generateAccessToken(user, tokenGroupId);
+            verify(jwtService).refreshTokens(user, tokenGroupId, exp);
         }
     }
 
@@ -352,7 +495,6 @@ class AccountUserServiceTest {
         var userId = UUID.randomUUID();
         var user = mock(AccountUser.class);
         var tokenGroupId = UUID.randomUUID().toString();
-        var newTokenGroupId = UUID.randomUUID().toString();
         var exp = mock(Date.class);
         var accessToken = "access";
         var refreshToken = "refreshToken";
@@ -367,18 +509,8 @@ class AccountUserServiceTest {
                     .thenReturn(tokenGroupId);
             when(accountUserRepository.findById(any(UUID.class)))
                     .thenReturn(Optional.of(user));
-            when(jwtService.generateRefreshTokenIfNeeded(any(AccountUser.class), any(Date.class),
-                    anyString()))
-                    .thenReturn(Optional.of(refreshToken));
-
-            var refreshClaims = mock(Claims.class);
-            jwtUtils.when(() -> JwtUtils.extractValidClaimsFromToken(anyString(), any(JwtType.class)))
-                    .thenReturn(Optional.of(refreshClaims));
-            jwtUtils.when(() -> JwtUtils.extractTokenGroupIdFromClaims(refreshClaims))
-                    .thenReturn(newTokenGroupId);
-
-            when(jwtService.generateAccessToken(any(AccountUser.class), anyString()))
-                    .thenReturn(accessToken);
+            when(jwtService.refreshTokens(any(AccountUser.class), anyString(), any(Date.class)))
+                    .thenReturn(new IssuedTokenPair(issuedToken(accessToken), issuedToken(refreshToken)));
 
             var result = accountUserService.refreshAuthTokens(userId, header);
             assertNotNull(result);
@@ -387,61 +519,20 @@ class AccountUserServiceTest {
 
             jwtUtils.verify(() -> JwtUtils.extractValidClaimsFromHeader(header, JwtType.REFRESH));
             jwtUtils.verify(() -> JwtUtils.extractTokenGroupIdFromClaims(mockClaims));
+            // freshly issued tokens are not verified again
+            jwtUtils.verify(() -> JwtUtils.extractValidClaimsFromToken(anyString(), any(JwtType.class)), never());
             verify(accountUserRepository).findById(userId);
-            jwtUtils.verify(() -> JwtUtils.extractValidClaimsFromToken(refreshToken, JwtType.REFRESH));
-            jwtUtils.verify(() -> JwtUtils.extractTokenGroupIdFromClaims(refreshClaims));
-            verify(jwtService).generateRefreshTokenIfNeeded(user, exp, tokenGroupId);
-            verify(jwtService).generateAccessToken(user, newTokenGroupId);
-        }
-    }
-
-    @Test
-    void refreshAuthTokensTest_invalidRefreshTokenGenerated(){
-        var header = "header";
-        var userId = UUID.randomUUID();
-        var user = mock(AccountUser.class);
-        var tokenGroupId = UUID.randomUUID().toString();
-        var exp = mock(Date.class);
-        var refreshToken = "refreshToken";
-
-        try(var jwtUtils = mockStatic(JwtUtils.class)) {
-            var mockClaims = mock(Claims.class);
-            when(mockClaims.getExpiration())
-                    .thenReturn(exp);
-            jwtUtils.when(() -> JwtUtils.extractValidClaimsFromHeader(anyString(), any(JwtType.class)))
-                    .thenReturn(Optional.of(mockClaims));
-            jwtUtils.when(() -> JwtUtils.extractTokenGroupIdFromClaims(mockClaims))
-                    .thenReturn(tokenGroupId);
-            when(accountUserRepository.findById(any(UUID.class)))
-                    .thenReturn(Optional.of(user));
-            when(jwtService.generateRefreshTokenIfNeeded(any(AccountUser.class), any(Date.class),
-                    anyString()))
-                    .thenReturn(Optional.of(refreshToken));
-
-            jwtUtils.when(() -> JwtUtils.extractValidClaimsFromToken(anyString(), any(JwtType.class)))
-                    .thenReturn(Optional.empty());
-
-            var exception = assertThrows(IllegalStateException.class,
-                    () -> accountUserService.refreshAuthTokens(userId, header));
-            assertEquals("Invalid token, token group id is missing.", exception.getMessage());
-
-            jwtUtils.verify(() -> JwtUtils.extractValidClaimsFromHeader(header, JwtType.REFRESH));
-            jwtUtils.verify(() -> JwtUtils.extractTokenGroupIdFromClaims(mockClaims));
-            verify(accountUserRepository).findById(userId);
-            jwtUtils.verify(() -> JwtUtils.extractValidClaimsFromToken(refreshToken, JwtType.REFRESH));
+            verify(jwtService).refreshTokens(user, tokenGroupId, exp);
         }
     }
 
     @Test
     void confirmAccountUserRegistrationTest_throwsBecauseAlreadyActivated(){
-        var user = new AccountUser();
-        user.setEnabled(true);
-
-        var token = new ConfirmationToken();
-        token.setAccountUser(user);
-
+        var userId = UUID.randomUUID();
         when(tokenService.useConfirmationToken(any(UUID.class)))
-                .thenReturn(token);
+                .thenReturn(userId);
+        when(accountUserRepository.enableAccountUser(any(UUID.class)))
+                .thenReturn(0);
 
         var uuid = UUID.randomUUID();
         var exception = assertThrows(ApiException.class,
@@ -451,29 +542,51 @@ class AccountUserServiceTest {
         assertEquals(HttpStatus.CONFLICT, exception.getStatus());
 
         verify(tokenService).useConfirmationToken(uuid);
+        verify(accountUserRepository).enableAccountUser(userId);
+        verifyNoInteractions(accountUserSecurityService);
     }
 
     @Test
     void confirmAccountUserRegistrationTest(){
-        var user = new AccountUser();
-        user.setEnabled(false);
-
-        var token = new ConfirmationToken();
-        token.setAccountUser(user);
-
+        var userId = UUID.randomUUID();
         when(tokenService.useConfirmationToken(any(UUID.class)))
-                .thenReturn(token);
+                .thenReturn(userId);
+        when(accountUserRepository.enableAccountUser(any(UUID.class)))
+                .thenReturn(1);
 
         var uuid = UUID.randomUUID();
         accountUserService.confirmAccountUserRegistration(uuid);
 
         verify(tokenService).useConfirmationToken(uuid);
-        verify(accountUserRepository).save(user);
+        verify(accountUserRepository).enableAccountUser(userId);
+        verify(accountUserRepository, never()).save(any());
+        verify(accountUserSecurityService).evictUser(userId);
+    }
+
+    @Test
+    void resetConfirmationProcessTest_throwsBecauseRateLimited() {
+
+        when(rateLimitService.tryAcquireConfirmationReset(any(UUID.class)))
+                .thenReturn(false);
+
+        var uuid = UUID.randomUUID();
+        var exception = assertThrows(ApiException.class,
+                () -> accountUserService.resetConfirmationProcess(uuid));
+        assertEquals(ApiExceptionMessageConstants.CONFIRMATION_RESET_RATE_LIMITED,
+                exception.getMessage());
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, exception.getStatus());
+
+        verify(rateLimitService).tryAcquireConfirmationReset(uuid);
+        verifyNoInteractions(accountUserRepository);
+        verifyNoInteractions(tokenService);
+        verifyNoInteractions(mailService);
     }
 
     @Test
     void resetConfirmationProcessTest_throwsBecauseIsEnabled() {
 
+        when(rateLimitService.tryAcquireConfirmationReset(any(UUID.class)))
+                .thenReturn(true);
         var user = mock(AccountUser.class);
         when(user.isEnabled()).thenReturn(true);
 
@@ -493,8 +606,10 @@ class AccountUserServiceTest {
     }
 
     @Test
-    void resetConfirmationProcessTest() throws MessagingException {
+    void resetConfirmationProcessTest() {
 
+        when(rateLimitService.tryAcquireConfirmationReset(any(UUID.class)))
+                .thenReturn(true);
         var user = mock(AccountUser.class);
         var token = mock(ConfirmationToken.class);
 
@@ -508,7 +623,7 @@ class AccountUserServiceTest {
 
         verify(accountUserRepository).findById(uuid);
         verify(tokenService).replaceConfirmationTokenForUser(user);
-        verify(mailService).sendRegistrationConfirmationEmail(token);
+        verify(mailService).queueRegistrationConfirmationEmail(token);
     }
 
     @Test
@@ -521,12 +636,29 @@ class AccountUserServiceTest {
                     .thenReturn(Optional.of(mockClaims));
             jwtUtils.when(() -> JwtUtils.extractTokenGroupIdFromClaims(any(Claims.class)))
                     .thenReturn(tgid);
+            var issuedAt = new Date(System.currentTimeMillis());
+            when(mockClaims.getIssuedAt())
+                    .thenReturn(issuedAt);
 
             var header = "header";
             accountUserService.logoutUser(header);
             jwtUtils.verify(() -> JwtUtils.extractValidClaimsFromHeader(header, JwtType.ACCESS));
             jwtUtils.verify(() -> JwtUtils.extractTokenGroupIdFromClaims(mockClaims));
-            verify(jwtService).blacklistTokenGroup(tgid);
+            verify(jwtService).blacklistTokenGroup(tgid, issuedAt);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void logoutUserEverywhereTest() {
+
+        var userId = UUID.randomUUID();
+        accountUserService.logoutUserEverywhere(userId);
+
+        verify(jwtService).revokeAllTokens(userId);
+        verify(jwtService, never()).blacklistTokenGroup(anyString(), any());
+    }
+
+    private static IssuedToken issuedToken(String token) {
+        return new IssuedToken(token, UUID.randomUUID().toString(), UUID.randomUUID().toString(), mock(Date.class));
+    }
+}
@@ -1,72 +1,149 @@
 package org.gmalliaris.rental.rooms.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.gmalliaris.rental.rooms.config.BlacklistConfigurationProperties;
 import org.gmalliaris.rental.rooms.config.JwtConfigurationProperties;
 import org.gmalliaris.rental.rooms.util.JwtUtils;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisKeyCommands;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
-import static org.junit.jupiter.api.Assertions.assertFalse;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 
 @ExtendWith(MockitoExtension.class)
 class BlacklistServiceTest {
-    private static final String TOKEN_GROUP_ENTRY_DUMMY_VALUE = "group";
+    private static final byte[] CHANNEL = BlacklistService.TOKEN_GROUP_BLACKLIST_CHANNEL.getBytes(StandardCharsets.UTF_8);
 
-    @InjectMocks
     private BlacklistService blacklistService;
 
     @Mock
     private RedisTemplate<String, String> redisTemplate;
     @Mock
-    private JwtConfigurationProperties jwtConfigurationProperties;
+    private RedisConnection connection;
+    @Mock
+    private RedisKeyCommands keyCommands;
+    @Mock
+    private RedisStringCommands stringCommands;
+
+    private final JwtConfigurationProperties jwtConfigurationProperties = new JwtConfigurationProperties(null, null, null, null, null, null);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        blacklistService = new BlacklistService(redisTemplate, jwtConfigurationProperties,
+                new BlacklistConfigurationProperties(null, null, 10_000, null, null, null), meterRegistry);
+    }
+
+    @Test
+    void tokenGroupKeyTest() {
+        var tokenGroupId = UUID.randomUUID();
+
+        var key = BlacklistService.tokenGroupKey(tokenGroupId);
+        assertEquals(19, key.length);
+        assertEquals("bl:", new String(key, 0, 3, StandardCharsets.UTF_8));
+        assertEquals(Optional.of(tokenGroupId), BlacklistService.tokenGroupIdFromKey(key));
+        assertTrue(BlacklistService.tokenGroupIdFromKey("bl:other".getBytes(StandardCharsets.UTF_8)).isEmpty());
+    }
 
     @Test
-    void blacklistTokenWithClaimsTest() {
+    void blacklistTokenGroupTest() {
+        var tokenGroupId = UUID.randomUUID();
+        var expiration = Date.from(Instant.now().plusSeconds(600));
+        mockPipeline();
+
+        blacklistService.blacklistTokenGroup(tokenGroupId.toString(), expiration);
+
+        verify(redisTemplate).executePipelined(any(RedisCallback.class));
+        var expirationCaptor = ArgumentCaptor.forClass(Expiration.class);
+        verify(stringCommands).set(aryEq(BlacklistService.tokenGroupKey(tokenGroupId)), aryEq(new byte[0]),
+                expirationCaptor.capture(), eq(RedisStringCommands.SetOption.upsert()));
+        // the entry expires together with the tokens of the group
+        var timeToLive = expirationCaptor.getValue().getConverted(TimeUnit.SECONDS);
+        assertTrue(timeToLive > 590 && timeToLive <= 600);
+        verify(connection).publish(aryEq(CHANNEL), aryEq(tokenGroupId.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void blacklistTokenGroupTest_alreadyExpired() {
         var tokenGroupId = UUID.randomUUID().toString();
-        var timeout = 60;
-        var mockOps = mock(ValueOperations.class);
-        when(redisTemplate.opsForValue())
-                .thenReturn(mockOps);
+        mockPipeline();
 
-        when(jwtConfigurationProperties.getRefreshExpirationMinutes())
-                .thenReturn(timeout);
+        blacklistService.blacklistTokenGroup(tokenGroupId, Date.from(Instant.now().minusSeconds(1)));
 
-        blacklistService.blacklistTokenGroup(tokenGroupId);
-        verify(redisTemplate).opsForValue();
-        verify(mockOps).set(tokenGroupId, TOKEN_GROUP_ENTRY_DUMMY_VALUE, timeout, TimeUnit.MINUTES);
+        verifyNoInteractions(stringCommands);
+        verify(connection, never()).publish(any(), any());
+        assertEquals(0, meterRegistry.get("blacklist.pending.writes").gauge().value());
     }
 
     @Test
-    void tokenWithClaimsIsBlackListedTest_isBlacklisted() {
+    void blacklistTokenGroupTest_invalidTokenGroupId() {
+        var expiration = new Date();
+        assertThrows(IllegalArgumentException.class,
+                () -> blacklistService.blacklistTokenGroup("group", expiration));
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    void blacklistTokenWithClaimsTest_servedFromNearCache() {
         var mockClaims = mock(Claims.class);
         var tokenGroupId = UUID.randomUUID().toString();
+        mockPipeline();
+
+        blacklistService.blacklistTokenGroup(tokenGroupId, expiresLater());
         try (var jwtUtils = mockStatic(JwtUtils.class)) {
             jwtUtils.when(() -> JwtUtils.extractTokenGroupIdFromClaims(any(Claims.class)))
                     .thenReturn(tokenGroupId);
 
-            var mockOps = mock(ValueOperations.class);
-            when(mockOps.get(tokenGroupId))
-                    .thenReturn(TOKEN_GROUP_ENTRY_DUMMY_VALUE);
-            when(redisTemplate.opsForValue())
-                    .thenReturn(mockOps);
-
             var result = blacklistService.tokenWithClaimsIsBlackListed(mockClaims);
             assertTrue(result);
-            verify(mockOps).get(tokenGroupId);
-            verify(redisTemplate).opsForValue();
+            verify(redisTemplate, never()).execute(any(RedisCallback.class));
+        }
+    }
 
+    @Test
+    void tokenWithClaimsIsBlackListedTest_isBlacklisted() {
+        var mockClaims = mock(Claims.class);
+        var tokenGroupId = UUID.randomUUID();
+        try (var jwtUtils = mockStatic(JwtUtils.class)) {
+            jwtUtils.when(() -> JwtUtils.extractTokenGroupIdFromClaims(any(Claims.class)))
+                    .thenReturn(tokenGroupId.toString());
+            mockExecute();
+            when(keyCommands.exists(any(byte[].class), any(byte[].class)))
+                    .thenReturn(1L);
+
+            var result = blacklistService.tokenWithClaimsIsBlackListed(mockClaims);
+            assertTrue(result);
+            // entries written before the binary encoding are still honoured
+            verify(keyCommands).exists(aryEq(BlacklistService.tokenGroupKey(tokenGroupId)),
+                    aryEq(tokenGroupId.toString().getBytes(StandardCharsets.UTF_8)));
         }
     }
 
@@ -77,18 +154,267 @@ class BlacklistServiceTest {
         try (var jwtUtils = mockStatic(JwtUtils.class)) {
             jwtUtils.when(() -> JwtUtils.extractTokenGroupIdFromClaims(any(Claims.class)))
                     .thenReturn(tokenGroupId);
-
-            var mockOps = mock(ValueOperations.class);
-            when(mockOps.get(tokenGroupId))
-                    .thenReturn("NOT_" + TOKEN_GROUP_ENTRY_DUMMY_VALUE);
-            when(redisTemplate.opsForValue())
-                    .thenReturn(mockOps);
+            mockExecute();
+            when(keyCommands.exists(any(byte[].class), any(byte[].class)))
+                    .thenReturn(0L);
 
             var result = blacklistService.tokenWithClaimsIsBlackListed(mockClaims);
             assertFalse(result);
-            verify(mockOps).get(tokenGroupId);
-            verify(redisTemplate).opsForValue();
+            verify(keyCommands).exists(any(byte[].class), any(byte[].class));
+        }
+    }
+
+    @Test
+    void tokenWithClaimsIsBlackListedTest_secondLookupServedFromNearCache() {
+        var mockClaims = mock(Claims.class);
+        var tokenGroupId = UUID.randomUUID().toString();
+        try (var jwtUtils = mockStatic(JwtUtils.class)) {
+            jwtUtils.when(() -> JwtUtils.extractTokenGroupIdFromClaims(any(Claims.class)))
+                    .thenReturn(tokenGroupId);
+            mockExecute();
+            when(keyCommands.exists(any(byte[].class), any(byte[].class)))
+                    .thenReturn(0L);
+
+            assertFalse(blacklistService.tokenWithClaimsIsBlackListed(mockClaims));
+            assertFalse(blacklistService.tokenWithClaimsIsBlackListed(mockClaims));
+            verify(keyCommands, times(1)).exists(any(byte[].class), any(byte[].class));
+        }
+    }
+
+    @Test
+    void onMessageTest_marksTokenGroupAsBlacklisted() {
+        var mockClaims = mock(Claims.class);
+        var tokenGroupId = UUID.randomUUID().toString();
+        try (var jwtUtils = mockStatic(JwtUtils.class)) {
+            jwtUtils.when(() -> JwtUtils.extractTokenGroupIdFromClaims(any(Claims.class)))
+                    .thenReturn(tokenGroupId);
+            mockExecute();
+            when(keyCommands.exists(any(byte[].class), any(byte[].class)))
+                    .thenReturn(0L);
+
+            assertFalse(blacklistService.tokenWithClaimsIsBlackListed(mockClaims));
+
+            var body = tokenGroupId.getBytes(StandardCharsets.UTF_8);
+            blacklistService.onMessage(new DefaultMessage(CHANNEL, body), null);
+
+            assertTrue(blacklistService.tokenWithClaimsIsBlackListed(mockClaims));
+            verify(keyCommands, times(1)).exists(any(byte[].class), any(byte[].class));
+        }
+    }
+
+    @Test
+    void tokenWithClaimsIsBlackListedTest_filterNegativeSkipsRedis() {
+        var mockClaims = mock(Claims.class);
+        var blacklistedTokenGroupId = UUID.randomUUID();
+        var tokenGroupId = UUID.randomUUID().toString();
+        mockScannedTokenGroups(List.of(blacklistedTokenGroupId), List.of());
+
+        blacklistService.rebuildFilter();
+
+        try (var jwtUtils = mockStatic(JwtUtils.class)) {
+            jwtUtils.when(() -> JwtUtils.extractTokenGroupIdFromClaims(any(Claims.class)))
+                    .thenReturn(tokenGroupId);
+
+            assertFalse(blacklistService.tokenWithClaimsIsBlackListed(mockClaims));
+            verify(keyCommands, never()).exists(any(byte[].class), any(byte[].class));
+            assertEquals(1, meterRegistry.get("blacklist.filter.checks")
+                    .tag("result", "negative").counter().count());
+        }
+    }
+
+    @Test
+    void tokenWithClaimsIsBlackListedTest_filterPositiveChecksRedis() {
+        var mockClaims = mock(Claims.class);
+        var tokenGroupId = UUID.randomUUID();
+        mockScannedTokenGroups(List.of(tokenGroupId), List.of());
 
+        blacklistService.rebuildFilter();
+
+        try (var jwtUtils = mockStatic(JwtUtils.class)) {
+            jwtUtils.when(() -> JwtUtils.extractTokenGroupIdFromClaims(any(Claims.class)))
+                    .thenReturn(tokenGroupId.toString());
+            when(keyCommands.exists(any(byte[].class), any(byte[].class)))
+                    .thenReturn(0L);
+
+            assertFalse(blacklistService.tokenWithClaimsIsBlackListed(mockClaims));
+            verify(keyCommands).exists(any(byte[].class), any(byte[].class));
+            assertEquals(1, meterRegistry.get("blacklist.filter.checks")
+                    .tag("result", "positive").counter().count());
+            assertEquals(1, meterRegistry.get("blacklist.filter.false.positives").counter().count());
+            assertEquals(1, meterRegistry.get("blacklist.filter.false.positive.rate").gauge().value());
+            assertTrue(meterRegistry.get("blacklist.filter.saturation").gauge().value() > 0);
+        }
+    }
+
+    @Test
+    void tokenWithClaimsIsBlackListedTest_legacyEntriesInFilterAndSnapshot() {
+        var mockClaims = mock(Claims.class);
+        var legacyTokenGroupId = UUID.randomUUID();
+        mockScannedTokenGroups(List.of(), List.of(legacyTokenGroupId));
+
+        blacklistService.rebuildFilter();
+
+        try (var jwtUtils = mockStatic(JwtUtils.class)) {
+            jwtUtils.when(() -> JwtUtils.extractTokenGroupIdFromClaims(any(Claims.class)))
+                    .thenReturn(legacyTokenGroupId.toString());
+            when(keyCommands.exists(any(byte[].class), any(byte[].class)))
+                    .thenThrow(new RedisConnectionFailureException("down"));
+
+            assertTrue(blacklistService.tokenWithClaimsIsBlackListed(mockClaims));
+            assertEquals(1, meterRegistry.get("blacklist.filter.checks")
+                    .tag("result", "positive").counter().count());
+        }
+    }
+
+    @Test
+    void tokenWithClaimsIsBlackListedTest_blacklistedAfterFilterRebuild() {
+        var mockClaims = mock(Claims.class);
+        var tokenGroupId = UUID.randomUUID().toString();
+        mockScannedTokenGroups(List.of(), List.of());
+        mockPipeline();
+
+        blacklistService.rebuildFilter();
+        blacklistService.blacklistTokenGroup(tokenGroupId, expiresLater());
+
+        try (var jwtUtils = mockStatic(JwtUtils.class)) {
+            jwtUtils.when(() -> JwtUtils.extractTokenGroupIdFromClaims(any(Claims.class)))
+                    .thenReturn(tokenGroupId);
+
+            assertTrue(blacklistService.tokenWithClaimsIsBlackListed(mockClaims));
+            verify(keyCommands, never()).exists(any(byte[].class), any(byte[].class));
+        }
+    }
+
+    @Test
+    void tokenWithClaimsIsBlackListedTest_redisUnavailableAnsweredFromSnapshot() {
+        var mockClaims = mock(Claims.class);
+        var blacklistedTokenGroupId = UUID.randomUUID();
+        var tokenGroupId = UUID.randomUUID().toString();
+        mockScannedTokenGroups(List.of(blacklistedTokenGroupId), List.of());
+        blacklistService.rebuildFilter();
+
+        when(keyCommands.exists(any(byte[].class), any(byte[].class)))
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        try (var jwtUtils = mockStatic(JwtUtils.class)) {
+            jwtUtils.when(() -> JwtUtils.extractTokenGroupIdFromClaims(any(Claims.class)))
+                    .thenReturn(blacklistedTokenGroupId.toString(), tokenGroupId, tokenGroupId);
+
+            assertTrue(blacklistService.tokenWithClaimsIsBlackListed(mockClaims));
+            ReflectionTestUtils.setField(blacklistService, "filterReady", false);
+            assertFalse(blacklistService.tokenWithClaimsIsBlackListed(mockClaims));
+            // fallback answers are not kept in the near-cache
+            assertFalse(blacklistService.tokenWithClaimsIsBlackListed(mockClaims));
+
+            verify(keyCommands, times(3)).exists(any(byte[].class), any(byte[].class));
+            assertEquals(3, meterRegistry.get("blacklist.fallback.lookups").counter().count());
+        }
+    }
+
+    @Test
+    void snapshotTest_boundedAndNeverSyncedUntilRebuild() {
+        var snapshot = (Cache<?, ?>) ReflectionTestUtils.getField(blacklistService, "snapshot");
+        assertNotNull(snapshot);
+        assertEquals(1_000_000, snapshot.policy().eviction().orElseThrow().getMaximum());
+
+        var staleness = meterRegistry.get("blacklist.snapshot.staleness.seconds").gauge();
+        assertTrue(Double.isNaN(staleness.value()));
+
+        mockScannedTokenGroups(List.of(), List.of());
+        blacklistService.rebuildFilter();
+        assertEquals(0, staleness.value());
+    }
+
+    @Test
+    void tokenWithClaimsIsBlackListedTest_breakerOpenSkipsRedis() {
+        blacklistService = new BlacklistService(redisTemplate, jwtConfigurationProperties,
+                new BlacklistConfigurationProperties(null, null, 10_000, 2, null, null), new SimpleMeterRegistry());
+        var mockClaims = mock(Claims.class);
+        mockExecute();
+        when(keyCommands.exists(any(byte[].class), any(byte[].class)))
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        try (var jwtUtils = mockStatic(JwtUtils.class)) {
+            jwtUtils.when(() -> JwtUtils.extractTokenGroupIdFromClaims(any(Claims.class)))
+                    .thenAnswer(invocation -> UUID.randomUUID().toString());
+
+            for (var i = 0; i < 5; i++) {
+                assertFalse(blacklistService.tokenWithClaimsIsBlackListed(mockClaims));
+            }
+            verify(keyCommands, times(2)).exists(any(byte[].class), any(byte[].class));
         }
+
+        blacklistService.blacklistTokenGroup(UUID.randomUUID().toString(), expiresLater());
+        verify(redisTemplate, never()).executePipelined(any(RedisCallback.class));
+    }
+
+    @Test
+    void blacklistTokenGroupTest_redisUnavailableReplayedOnRecovery() {
+        var tokenGroupId = UUID.randomUUID();
+        when(redisTemplate.executePipelined(any(RedisCallback.class)))
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        blacklistService.blacklistTokenGroup(tokenGroupId.toString(), expiresLater());
+        assertEquals(1, meterRegistry.get("blacklist.pending.writes").gauge().value());
+
+        reset(redisTemplate);
+        mockPipeline();
+
+        blacklistService.replayPendingTokenGroups();
+        verify(stringCommands).set(aryEq(BlacklistService.tokenGroupKey(tokenGroupId)), aryEq(new byte[0]),
+                any(Expiration.class), eq(RedisStringCommands.SetOption.upsert()));
+        verify(connection).publish(aryEq(CHANNEL), aryEq(tokenGroupId.toString().getBytes(StandardCharsets.UTF_8)));
+        assertEquals(0, meterRegistry.get("blacklist.pending.writes").gauge().value());
+
+        blacklistService.replayPendingTokenGroups();
+        verify(redisTemplate, times(1)).executePipelined(any(RedisCallback.class));
+    }
+
+    private static Date expiresLater() {
+        return Date.from(Instant.now().plusSeconds(600));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockExecute() {
+        lenient().when(connection.keyCommands())
+                .thenReturn(keyCommands);
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .then(invocation -> ((RedisCallback<?>) invocation.getArgument(0)).doInRedis(connection));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockPipeline() {
+        lenient().when(connection.stringCommands())
+                .thenReturn(stringCommands);
+        when(redisTemplate.executePipelined(any(RedisCallback.class)))
+                .then(invocation -> {
+                    ((RedisCallback<?>) invocation.getArgument(0)).doInRedis(connection);
+                    return List.of();
+                });
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockScannedTokenGroups(List<UUID> tokenGroupIds, List<UUID> legacyTokenGroupIds) {
+        var keys = tokenGroupIds.stream()
+                .map(BlacklistService::tokenGroupKey)
+                .iterator();
+        var cursor = mock(Cursor.class);
+        doAnswer(invocation -> {
+            keys.forEachRemaining(invocation.getArgument(0));
+            return null;
+        }).when(cursor).forEachRemaining(any());
+
+        var legacyKeys = legacyTokenGroupIds.stream()
+                .map(id -> id.toString().getBytes(StandardCharsets.UTF_8))
+                .iterator();
+        var legacyCursor = mock(Cursor.class);
+        doAnswer(invocation -> {
+            legacyKeys.forEachRemaining(invocation.getArgument(0));
+            return null;
+        }).when(legacyCursor).forEachRemaining(any());
+
+        when(keyCommands.scan(any(ScanOptions.class)))
+                .thenReturn(cursor, legacyCursor);
+        mockExecute();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,100 @@
+package org.gmalliaris.rental.rooms.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.gmalliaris.rental.rooms.config.ConfirmationExpiryConfigurationProperties;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+
+import static org.gmalliaris.rental.rooms.service.ConfirmationTokenExpiryService.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ConfirmationTokenExpiryServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2022, 9, 1);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private JdbcOperations connectionTemplate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void runExclusivelyTest_lockedByAnotherNode() {
+        var service = createService(false);
+        when(connectionTemplate.queryForObject(TRY_LOCK_SQL, Boolean.class, EXPIRY_LOCK_KEY))
+                .thenReturn(false);
+
+        service.runExclusively(connectionTemplate, TODAY);
+
+        verify(connectionTemplate).queryForObject(TRY_LOCK_SQL, Boolean.class, EXPIRY_LOCK_KEY);
+        verifyNoMoreInteractions(connectionTemplate);
+    }
+
+    @Test
+    void runExclusivelyTest_expiresInChunks() {
+        var service = createService(false);
+        when(connectionTemplate.queryForObject(TRY_LOCK_SQL, Boolean.class, EXPIRY_LOCK_KEY))
+                .thenReturn(true);
+        when(connectionTemplate.update(EXPIRE_TOKENS_SQL, TODAY, 10))
+                .thenReturn(10, 10, 3);
+
+        service.runExclusively(connectionTemplate, TODAY);
+
+        InOrder inOrder = inOrder(connectionTemplate);
+        inOrder.verify(connectionTemplate).queryForObject(TRY_LOCK_SQL, Boolean.class, EXPIRY_LOCK_KEY);
+        inOrder.verify(connectionTemplate, times(3)).update(EXPIRE_TOKENS_SQL, TODAY, 10);
+        inOrder.verify(connectionTemplate).queryForObject(UNLOCK_SQL, Boolean.class, EXPIRY_LOCK_KEY);
+        verify(connectionTemplate, never()).update(eq(PURGE_USERS_SQL), any(), any());
+        assertEquals(23, meterRegistry.get("confirmation.tokens.expired").counter().count());
+    }
+
+    @Test
+    void runExclusivelyTest_purgesUnconfirmedUsers() {
+        var service = createService(true);
+        when(connectionTemplate.queryForObject(TRY_LOCK_SQL, Boolean.class, EXPIRY_LOCK_KEY))
+                .thenReturn(true);
+        when(connectionTemplate.update(EXPIRE_TOKENS_SQL, TODAY, 10))
+                .thenReturn(0);
+        when(connectionTemplate.update(PURGE_USERS_SQL, TODAY.minusDays(30), 10))
+                .thenReturn(10, 1);
+
+        service.runExclusively(connectionTemplate, TODAY);
+
+        verify(connectionTemplate, times(2)).update(PURGE_USERS_SQL, TODAY.minusDays(30), 10);
+        verify(connectionTemplate).queryForObject(UNLOCK_SQL, Boolean.class, EXPIRY_LOCK_KEY);
+        assertEquals(0, meterRegistry.get("confirmation.tokens.expired").counter().count());
+        assertEquals(11, meterRegistry.get("users.unconfirmed.purged").counter().count());
+    }
+
+    @Test
+    void runExclusivelyTest_unlocksOnFailure() {
+        var service = createService(false);
+        when(connectionTemplate.queryForObject(TRY_LOCK_SQL, Boolean.class, EXPIRY_LOCK_KEY))
+                .thenReturn(true);
+        when(connectionTemplate.update(EXPIRE_TOKENS_SQL, TODAY, 10))
+                .thenThrow(new QueryTimeoutException("timeout"));
+
+        assertThrows(QueryTimeoutException.class, () -> service.runExclusively(connectionTemplate, TODAY));
+
+        verify(connectionTemplate).queryForObject(UNLOCK_SQL, Boolean.class, EXPIRY_LOCK_KEY);
+    }
+
+    private ConfirmationTokenExpiryService createService(boolean purgeUnconfirmedUsers) {
+        return new ConfirmationTokenExpiryService(jdbcTemplate,
+                new ConfirmationExpiryConfigurationProperties(10, purgeUnconfirmedUsers, null), meterRegistry);
+    }
+}
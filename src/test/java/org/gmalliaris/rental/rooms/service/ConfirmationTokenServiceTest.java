@@ -60,6 +60,8 @@ class ConfirmationTokenServiceTest {
     void useConfirmationTokenTest_throwsBecauseNotFound(){
         var uuid = UUID.randomUUID();
 
+        when(tokenRepository.consumePendingToken(any(UUID.class), any(LocalDate.class)))
+                .thenReturn(Optional.empty());
         when(tokenRepository.findById(any(UUID.class)))
                 .thenReturn(Optional.empty());
 
@@ -80,6 +82,8 @@ class ConfirmationTokenServiceTest {
 
         var token = new ConfirmationToken();
         token.setStatus(ConfirmationTokenStatus.EXPIRED);
+        when(tokenRepository.consumePendingToken(any(UUID.class), any(LocalDate.class)))
+                .thenReturn(Optional.empty());
         when(tokenRepository.findById(any(UUID.class)))
                 .thenReturn(Optional.of(token));
 
@@ -91,12 +95,33 @@ class ConfirmationTokenServiceTest {
         verify(tokenRepository).findById(uuid);
     }
 
+    @Test
+    void useConfirmationTokenTest_throwsTokenPastExpirationDate(){
+        var uuid = UUID.randomUUID();
+
+        var token = new ConfirmationToken();
+        token.setStatus(ConfirmationTokenStatus.PENDING);
+        token.setExpirationDate(LocalDate.now().minusDays(1));
+        when(tokenRepository.consumePendingToken(any(UUID.class), any(LocalDate.class)))
+                .thenReturn(Optional.empty());
+        when(tokenRepository.findById(any(UUID.class)))
+                .thenReturn(Optional.of(token));
+
+        var exception = assertThrows(ApiException.class,
+                () -> tokenService.useConfirmationToken(uuid));
+        assertEquals(ApiExceptionMessageConstants.CONFIRMATION_TOKEN_EXPIRED, exception.getMessage());
+        assertEquals(HttpStatus.CONFLICT, exception.getStatus());
+        assertEquals(ConfirmationTokenStatus.PENDING, token.getStatus());
+    }
+
     @Test
     void useConfirmationTokenTest_throwsTokenActivated(){
         var uuid = UUID.randomUUID();
 
         var token = new ConfirmationToken();
         token.setStatus(ConfirmationTokenStatus.ACTIVATED);
+        when(tokenRepository.consumePendingToken(any(UUID.class), any(LocalDate.class)))
+                .thenReturn(Optional.empty());
         when(tokenRepository.findById(any(UUID.class)))
                 .thenReturn(Optional.of(token));
 
@@ -111,20 +136,21 @@ class ConfirmationTokenServiceTest {
     @Test
     void useConfirmationTokenTest(){
         var uuid = UUID.randomUUID();
+        var userId = UUID.randomUUID();
 
-        var token = new ConfirmationToken();
-        token.setStatus(ConfirmationTokenStatus.PENDING);
-        when(tokenRepository.findById(any(UUID.class)))
-                .thenReturn(Optional.of(token));
-        when(tokenRepository.save(any(ConfirmationToken.class)))
-                .then(i -> i.getArgument(0));
+        var today = LocalDate.now();
+        try(var dateUtils = mockStatic(LocalDate.class)){
+            dateUtils.when(LocalDate::now)
+                    .thenReturn(today);
+            when(tokenRepository.consumePendingToken(uuid, today))
+                    .thenReturn(Optional.of(userId.toString()));
 
-        var result = tokenService.useConfirmationToken(uuid);
-        assertEquals(token, result);
-        assertEquals(ConfirmationTokenStatus.ACTIVATED ,token.getStatus());
+            var result = tokenService.useConfirmationToken(uuid);
+            assertEquals(userId, result);
+        }
 
-        verify(tokenRepository).findById(uuid);
-        verify(tokenRepository).save(token);
+        verify(tokenRepository).consumePendingToken(uuid, today);
+        verifyNoMoreInteractions(tokenRepository);
     }
 
     @Test
@@ -147,25 +173,61 @@ class ConfirmationTokenServiceTest {
     }
 
     @Test
-    void replaceConfirmationTokenForUserTest(){
+    void replaceConfirmationTokenForUserTest_throwsTokenActivated(){
         var user = new AccountUser();
         user.setId(UUID.randomUUID());
 
-        var oldToken = new ConfirmationToken();
-        oldToken.setStatus(ConfirmationTokenStatus.PENDING);
-        oldToken.setAccountUser(user);
+        var token = new ConfirmationToken();
+        token.setStatus(ConfirmationTokenStatus.ACTIVATED);
+        when(tokenRepository.rotatePendingToken(any(UUID.class), any(UUID.class), any(LocalDate.class)))
+                .thenReturn(0);
+        when(tokenRepository.findByAccountUserId(any(UUID.class)))
+                .thenReturn(Optional.of(token));
 
+        var exception = assertThrows(ApiException.class,
+                () -> tokenService.replaceConfirmationTokenForUser(user));
+        assertEquals(ApiExceptionMessageConstants.CONFIRMATION_TOKEN_ALREADY_USED, exception.getMessage());
+        assertEquals(HttpStatus.CONFLICT, exception.getStatus());
+    }
+
+    @Test
+    void replaceConfirmationTokenForUserTest_expiredTokenChangedConcurrently(){
+        var user = new AccountUser();
+        user.setId(UUID.randomUUID());
+
+        var token = new ConfirmationToken();
+        token.setStatus(ConfirmationTokenStatus.EXPIRED);
+        when(tokenRepository.rotatePendingToken(any(UUID.class), any(UUID.class), any(LocalDate.class)))
+                .thenReturn(0);
         when(tokenRepository.findByAccountUserId(any(UUID.class)))
-                .thenReturn(Optional.of(oldToken));
-        when(tokenRepository.save(any(ConfirmationToken.class)))
-                .then(i -> i.getArgument(0));
+                .thenReturn(Optional.of(token));
+
+        // expired tokens are replaceable, so they are never reported as expired here
+        assertThrows(IllegalStateException.class,
+                () -> tokenService.replaceConfirmationTokenForUser(user));
+    }
+
+    @Test
+    void replaceConfirmationTokenForUserTest(){
+        var user = new AccountUser();
+        user.setId(UUID.randomUUID());
+
+        var tokenDuration = 14;
+        ReflectionTestUtils.setField(tokenService, "durationInDays", tokenDuration);
+        when(tokenRepository.rotatePendingToken(any(UUID.class), any(UUID.class), any(LocalDate.class)))
+                .thenReturn(1);
 
         var result = tokenService.replaceConfirmationTokenForUser(user);
 
-        verify(tokenRepository).findByAccountUserId(user.getId());
-        verify(tokenRepository).delete(oldToken);
-        var newTokenCaptor = ArgumentCaptor.forClass(ConfirmationToken.class);
-        verify(tokenRepository).save(newTokenCaptor.capture());
-        assertNotEquals(newTokenCaptor.getValue(), oldToken);
+        var newIdCaptor = ArgumentCaptor.forClass(UUID.class);
+        var expirationCaptor = ArgumentCaptor.forClass(LocalDate.class);
+        verify(tokenRepository).rotatePendingToken(eq(user.getId()), newIdCaptor.capture(), expirationCaptor.capture());
+        verifyNoMoreInteractions(tokenRepository);
+
+        assertEquals(newIdCaptor.getValue(), result.getId());
+        assertEquals(expirationCaptor.getValue(), result.getExpirationDate());
+        assertTrue(result.getExpirationDate().isAfter(LocalDate.now().plusDays(tokenDuration - 1L)));
+        assertEquals(ConfirmationTokenStatus.PENDING, result.getStatus());
+        assertEquals(user, result.getAccountUser());
     }
 }
\ No newline at end of file
@@ -0,0 +1,171 @@
+package org.gmalliaris.rental.rooms.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.gmalliaris.rental.rooms.config.JwtConfigurationProperties;
+import org.gmalliaris.rental.rooms.config.JwtKeyRingConfigurationProperties;
+import org.gmalliaris.rental.rooms.util.JwtKeyRing;
+import org.gmalliaris.rental.rooms.util.JwtUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.KeyGenerator;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyStore;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtKeyRingServiceTest {
+
+    private static final String PASSWORD = "changeit";
+    private static final JwtConfigurationProperties JWT_PROPERTIES =
+            new JwtConfigurationProperties(null, null, null, null, null, null);
+    private static final Map<String, Instant> ACTIVATIONS = Map.of("key-a", Instant.parse("2026-01-01T00:00:00Z"));
+
+    @TempDir
+    Path tempDir;
+
+    private JwtKeyRing originalKeyRing;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        originalKeyRing = currentKeyRing();
+    }
+
+    @AfterEach
+    void tearDown() {
+        JwtUtils.useKeyRing(originalKeyRing);
+    }
+
+    @Test
+    void constructorTest_noKeystore() {
+        var service = new JwtKeyRingService(new JwtKeyRingConfigurationProperties(null, null, null, null),
+                JWT_PROPERTIES, meterRegistry);
+
+        service.reloadKeyRing();
+        assertSame(originalKeyRing, currentKeyRing());
+    }
+
+    @Test
+    void constructorTest_blankKeystorePath() {
+        var service = new JwtKeyRingService(new JwtKeyRingConfigurationProperties("", null, null, null),
+                JWT_PROPERTIES, meterRegistry);
+
+        service.reloadKeyRing();
+        assertSame(originalKeyRing, currentKeyRing());
+    }
+
+    @Test
+    void constructorTest_loadsKeystore() throws Exception {
+        var keystore = createKeystore("key-a", "key-b");
+
+        new JwtKeyRingService(
+                new JwtKeyRingConfigurationProperties(keystore.toString(), null, PASSWORD, ACTIVATIONS),
+                JWT_PROPERTIES, meterRegistry);
+
+        var keyRing = currentKeyRing();
+        assertNotSame(originalKeyRing, keyRing);
+        assertEquals(2, keyRing.size());
+        // key-b has no activation, it only verifies
+        assertEquals("key-a", keyRing.getSigningKeyId());
+        assertNotNull(keyRing.findVerificationKey("key-b"));
+        assertEquals(2, meterRegistry.get("jwt.keyring.keys").gauge().value());
+    }
+
+    @Test
+    void constructorTest_noActiveKey() throws Exception {
+        var keystore = createKeystore("key-a");
+        var properties = new JwtKeyRingConfigurationProperties(keystore.toString(), null, PASSWORD,
+                Map.of("key-a", Instant.now().plus(Duration.ofDays(1))));
+
+        assertThrows(IllegalStateException.class,
+                () -> new JwtKeyRingService(properties, JWT_PROPERTIES, meterRegistry));
+    }
+
+    @Test
+    void constructorTest_missingPassword() throws Exception {
+        var keystore = createKeystore("key-a");
+        var properties = new JwtKeyRingConfigurationProperties(keystore.toString(), null, null, ACTIVATIONS);
+
+        assertThrows(IllegalStateException.class,
+                () -> new JwtKeyRingService(properties, JWT_PROPERTIES, meterRegistry));
+    }
+
+    @Test
+    void reloadKeyRingTest_failureKeepsPreviousKeys() throws Exception {
+        var keystore = createKeystore("key-a");
+        var service = new JwtKeyRingService(
+                new JwtKeyRingConfigurationProperties(keystore.toString(), null, PASSWORD, ACTIVATIONS),
+                JWT_PROPERTIES, meterRegistry);
+        var loadedKeyRing = currentKeyRing();
+
+        Files.write(keystore, new byte[]{1, 2, 3});
+        service.reloadKeyRing();
+        assertSame(loadedKeyRing, currentKeyRing());
+        assertEquals(1, meterRegistry.get("jwt.keyring.reload.failures").counter().count());
+    }
+
+    @Test
+    void selectSigningKeyIdTest_latestActivation() {
+        var now = Instant.now();
+        var activations = Map.of("old", now.minus(Duration.ofDays(2)),
+                "current", now.minus(Duration.ofDays(1)),
+                "next", now.plusSeconds(60));
+        var signingKeyIds = Set.of("old", "current", "next");
+
+        assertEquals(Optional.of("current"),
+                JwtKeyRingService.selectSigningKeyId(activations, signingKeyIds, now));
+        assertEquals(Optional.of("next"),
+                JwtKeyRingService.selectSigningKeyId(activations, signingKeyIds, now.plusSeconds(60)));
+    }
+
+    @Test
+    void selectSigningKeyIdTest_sameActivationPicksGreatestAlias() {
+        var now = Instant.now();
+        var activations = Map.of("key-a", now, "key-b", now);
+
+        assertEquals(Optional.of("key-b"),
+                JwtKeyRingService.selectSigningKeyId(activations, Set.of("key-a", "key-b"), now));
+    }
+
+    @Test
+    void selectSigningKeyIdTest_keyMissingFromKeystore() {
+        var now = Instant.now();
+        var activations = Map.of("current", now.minus(Duration.ofDays(1)), "next", now.minusSeconds(60));
+
+        assertEquals(Optional.of("current"),
+                JwtKeyRingService.selectSigningKeyId(activations, Set.of("current"), now));
+        assertEquals(Optional.empty(),
+                JwtKeyRingService.selectSigningKeyId(Map.of(), Set.of("current"), now));
+    }
+
+    private Path createKeystore(String... aliases) throws Exception {
+        var keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        var keyGenerator = KeyGenerator.getInstance("HmacSHA256");
+        keyGenerator.init(256);
+        for (var alias : aliases) {
+            keyStore.setEntry(alias, new KeyStore.SecretKeyEntry(keyGenerator.generateKey()),
+                    new KeyStore.PasswordProtection(PASSWORD.toCharArray()));
+        }
+
+        var path = Files.createTempFile(tempDir, "jwt", ".p12");
+        try (var outputStream = Files.newOutputStream(path)) {
+            keyStore.store(outputStream, PASSWORD.toCharArray());
+        }
+        return path;
+    }
+
+    private static JwtKeyRing currentKeyRing() {
+        return (JwtKeyRing) ReflectionTestUtils.getField(JwtUtils.class, "keyRing");
+    }
+}
@@ -1,8 +1,13 @@
 package org.gmalliaris.rental.rooms.service;
 
 import org.gmalliaris.rental.rooms.config.JwtConfigurationProperties;
+import org.gmalliaris.rental.rooms.config.exception.ApiException;
+import org.gmalliaris.rental.rooms.config.exception.ApiExceptionMessageConstants;
+import org.gmalliaris.rental.rooms.dto.IssuedToken;
 import org.gmalliaris.rental.rooms.dto.JwtType;
 import org.gmalliaris.rental.rooms.entity.AccountUser;
+import org.gmalliaris.rental.rooms.entity.UserRole;
+import org.gmalliaris.rental.rooms.entity.UserRoleName;
 import org.gmalliaris.rental.rooms.util.JwtUtils;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,10 +15,12 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -30,133 +37,193 @@ class JwtServiceTest {
     private JwtConfigurationProperties jwtConfigurationProperties;
     @Mock
     private BlacklistService blacklistService;
+    @Mock
+    private SessionEpochService sessionEpochService;
 
     @Test
-    void generateAccessTokenTest() {
+    void issueTokenPairTest() {
 
         var accessTokenDuration = 120;
+        var refreshTokenDuration = 60;
         when(jwtConfigurationProperties.getAccessExpirationSeconds())
                 .thenReturn(accessTokenDuration);
+        when(jwtConfigurationProperties.getRefreshExpirationMinutes())
+                .thenReturn(refreshTokenDuration);
 
         var accountUser = new AccountUser();
         accountUser.setId(UUID.randomUUID());
+        when(sessionEpochService.currentEpoch(any(UUID.class)))
+                .thenReturn(3L);
 
         try (var jwtUtils = mockStatic(JwtUtils.class)) {
-            jwtUtils.when(() -> JwtUtils.generateToken(any(Date.class),
-                            any(Date.class), any(JwtType.class), any(UUID.class), anyString()))
-                    .thenReturn("generatedToken");
+            jwtUtils.when(() -> JwtUtils.issueToken(any(Date.class), any(Date.class), any(JwtType.class),
+                            any(UUID.class), anyString(), anyLong()))
+                    .then(invocation -> new IssuedToken(invocation.getArgument(2).toString(),
+                            UUID.randomUUID().toString(), invocation.getArgument(4), invocation.getArgument(1)));
 
-            var token = jwtService.generateAccessToken(accountUser, UUID.randomUUID().toString());
-            assertNotNull(token);
-            assertEquals("generatedToken", token);
+            var tokens = jwtService.issueTokenPair(accountUser);
+            assertEquals(JwtType.ACCESS.toString(), tokens.getAccessToken().getToken());
+            assertEquals(JwtType.REFRESH.toString(), tokens.getRefreshToken().getToken());
 
             var dateCapturer = ArgumentCaptor.forClass(Date.class);
             var typeCapturer = ArgumentCaptor.forClass(JwtType.class);
             var uuidCapturer = ArgumentCaptor.forClass(UUID.class);
-            jwtUtils.verify(() -> JwtUtils.generateToken(
+            var tgidCapturer = ArgumentCaptor.forClass(String.class);
+            var epochCapturer = ArgumentCaptor.forClass(Long.class);
+            jwtUtils.verify(() -> JwtUtils.issueToken(
                     dateCapturer.capture(), dateCapturer.capture(),
-                    typeCapturer.capture(), uuidCapturer.capture(), anyString()));
+                    typeCapturer.capture(), uuidCapturer.capture(),
+                    tgidCapturer.capture(), epochCapturer.capture()), times(2));
             var dates = dateCapturer.getAllValues();
-            var issuedAt = dates.get(0);
-            var expiration = dates.get(1);
-            var type = typeCapturer.getValue();
-            var uuid = uuidCapturer.getValue();
-            assertNotNull(issuedAt);
-            assertNotNull(expiration);
-            var diff = ChronoUnit.SECONDS.between(issuedAt.toInstant(), expiration.toInstant());
-            assertEquals(accessTokenDuration, diff);
-            assertEquals(accountUser.getId(), uuid);
-            assertEquals(JwtType.ACCESS, type);
+            // both tokens share a single issue time
+            assertEquals(dates.get(0), dates.get(2));
+            assertEquals(accessTokenDuration,
+                    ChronoUnit.SECONDS.between(dates.get(0).toInstant(), dates.get(1).toInstant()));
+            assertEquals(refreshTokenDuration,
+                    ChronoUnit.MINUTES.between(dates.get(2).toInstant(), dates.get(3).toInstant()));
+            assertEquals(List.of(JwtType.ACCESS, JwtType.REFRESH), typeCapturer.getAllValues());
+            assertEquals(List.of(accountUser.getId(), accountUser.getId()), uuidCapturer.getAllValues());
+            var tgids = tgidCapturer.getAllValues();
+            assertEquals(tgids.get(0), tgids.get(1));
+            assertEquals(tgids.get(0), tokens.getAccessToken().getTokenGroupId());
+            assertEquals(tgids.get(0), tokens.getRefreshToken().getTokenGroupId());
+            assertEquals(List.of(3L, 3L), epochCapturer.getAllValues());
+            verify(sessionEpochService, times(1)).currentEpoch(accountUser.getId());
         }
     }
 
     @Test
-    void generateRefreshTokenTest() {
+    void issueTokenPairTest_stateless() {
 
-        var refreshTokenDuration = 60;
+        when(jwtConfigurationProperties.getAccessExpirationSeconds())
+                .thenReturn(120);
         when(jwtConfigurationProperties.getRefreshExpirationMinutes())
-                .thenReturn(refreshTokenDuration);
+                .thenReturn(60);
+        when(jwtConfigurationProperties.isStateless())
+                .thenReturn(true);
 
+        var role = new UserRole();
+        role.setName(UserRoleName.ROLE_HOST);
         var accountUser = new AccountUser();
         accountUser.setId(UUID.randomUUID());
+        accountUser.setEnabled(true);
+        accountUser.addRole(role);
 
         try (var jwtUtils = mockStatic(JwtUtils.class)) {
-            jwtUtils.when(() -> JwtUtils.generateToken(any(Date.class),
-                            any(Date.class), any(JwtType.class),
-                            any(UUID.class), anyString()))
-                    .thenReturn("generatedToken");
-
-            var tgid = UUID.randomUUID();
-            var token = jwtService.generateRefreshToken(accountUser, tgid.toString());
-            assertNotNull(token);
-            assertEquals("generatedToken", token);
-
-            var dateCapturer = ArgumentCaptor.forClass(Date.class);
-            var typeCapturer = ArgumentCaptor.forClass(JwtType.class);
-            var uuidCapturer = ArgumentCaptor.forClass(UUID.class);
-            var tgidCapturer = ArgumentCaptor.forClass(String.class);
-            jwtUtils.verify(() -> JwtUtils.generateToken(
-                    dateCapturer.capture(), dateCapturer.capture(),
-                    typeCapturer.capture(), uuidCapturer.capture(),
-                    tgidCapturer.capture()));
-            var dates = dateCapturer.getAllValues();
-            var issuedAt = dates.get(0);
-            var expiration = dates.get(1);
-            var type = typeCapturer.getValue();
-            var uuid = uuidCapturer.getValue();
-            var tgidCaptured = tgidCapturer.getValue();
-            assertNotNull(issuedAt);
-            assertNotNull(expiration);
-            var diff = ChronoUnit.MINUTES.between(issuedAt.toInstant(), expiration.toInstant());
-            assertEquals(refreshTokenDuration, diff);
-            assertEquals(accountUser.getId(), uuid);
-            assertEquals(tgid.toString(), tgidCaptured);
-            assertEquals(JwtType.REFRESH, type);
+            var accessToken = mock(IssuedToken.class);
+            var refreshToken = mock(IssuedToken.class);
+            jwtUtils.when(() -> JwtUtils.issueToken(any(Date.class), any(Date.class), any(JwtType.class),
+                            any(UUID.class), anyString(), anyLong(), anyList(), anyBoolean()))
+                    .thenReturn(accessToken);
+            jwtUtils.when(() -> JwtUtils.issueToken(any(Date.class), any(Date.class), any(JwtType.class),
+                            any(UUID.class), anyString(), anyLong()))
+                    .thenReturn(refreshToken);
+
+            var tokens = jwtService.issueTokenPair(accountUser);
+            assertSame(accessToken, tokens.getAccessToken());
+            assertSame(refreshToken, tokens.getRefreshToken());
+
+            jwtUtils.verify(() -> JwtUtils.issueToken(any(Date.class), any(Date.class), eq(JwtType.ACCESS),
+                    eq(accountUser.getId()), anyString(), eq(0L), eq(List.of("HOST")), eq(true)));
+            jwtUtils.verify(() -> JwtUtils.issueToken(any(Date.class), any(Date.class), eq(JwtType.REFRESH),
+                    eq(accountUser.getId()), anyString(), eq(0L)));
+            verify(jwtConfigurationProperties, times(1)).isStateless();
         }
     }
 
     @Test
-    void generateRefreshTokenIfNeededTest_notNeeded() {
-
-        var now = Instant.now();
-        var expInstant = now.plusSeconds(60);
+    void refreshTokensTest_refreshTokenNotNeeded() {
 
+        var expInstant = Instant.now().plusSeconds(60);
         when(jwtConfigurationProperties.getRefreshExpirationThresholdSeconds())
                 .thenReturn(6);
+        when(jwtConfigurationProperties.getAccessExpirationSeconds())
+                .thenReturn(120);
 
-        var result = jwtService.generateRefreshTokenIfNeeded(mock(AccountUser.class),
-                Date.from(expInstant), UUID.randomUUID().toString());
-        assertTrue(result.isEmpty());
+        var user = new AccountUser();
+        user.setId(UUID.randomUUID());
+        when(sessionEpochService.currentEpoch(user.getId()))
+                .thenReturn(2L);
+        var tokenGroup = UUID.randomUUID().toString();
+        var tokens = jwtService.refreshTokens(user, tokenGroup, Date.from(expInstant));
+
+        assertNull(tokens.getRefreshToken());
+        assertEquals(tokenGroup, tokens.getAccessToken().getTokenGroupId());
+        var claims = JwtUtils.extractValidClaimsFromToken(tokens.getAccessToken().getToken(), JwtType.ACCESS);
+        assertTrue(claims.isPresent());
+        assertEquals(tokens.getAccessToken().getTokenId(), claims.get().getId());
+        assertEquals(tokenGroup, JwtUtils.extractTokenGroupIdFromClaims(claims.get()));
+        assertEquals(2L, JwtUtils.extractSessionEpochFromClaims(claims.get()));
         verifyNoInteractions(blacklistService);
     }
 
     @Test
-    void generateRefreshTokenIfNeededTest_needed() {
-
-        var now = Instant.now();
-        var expInstant = now.plusSeconds(6);
+    void refreshTokensTest_refreshTokenNeeded() {
 
+        var expInstant = Instant.now().plusSeconds(6);
         when(jwtConfigurationProperties.getRefreshExpirationThresholdSeconds())
                 .thenReturn(60);
-
+        when(jwtConfigurationProperties.getAccessExpirationSeconds())
+                .thenReturn(120);
         when(jwtConfigurationProperties.getRefreshExpirationMinutes())
                 .thenReturn(60);
 
         var user = new AccountUser();
         user.setId(UUID.randomUUID());
         var tokenGroup = UUID.randomUUID().toString();
-        var result = jwtService.generateRefreshTokenIfNeeded(user,
-                Date.from(expInstant), tokenGroup);
-        assertFalse(result.isEmpty());
-        verify(blacklistService).blacklistTokenGroup(tokenGroup);
+        var tokens = jwtService.refreshTokens(user, tokenGroup, Date.from(expInstant));
+
+        var newTokenGroup = tokens.getRefreshToken().getTokenGroupId();
+        assertNotEquals(tokenGroup, newTokenGroup);
+        assertEquals(newTokenGroup, tokens.getAccessToken().getTokenGroupId());
+        var claims = JwtUtils.extractValidClaimsFromToken(tokens.getRefreshToken().getToken(), JwtType.REFRESH);
+        assertTrue(claims.isPresent());
+        assertEquals(tokens.getRefreshToken().getTokenId(), claims.get().getId());
+        assertEquals(tokens.getRefreshToken().getExpiration().getTime() / 1000,
+                claims.get().getExpiration().getTime() / 1000);
+        assertEquals(newTokenGroup, JwtUtils.extractTokenGroupIdFromClaims(claims.get()));
+        verify(blacklistService).blacklistTokenGroup(tokenGroup, Date.from(expInstant));
+    }
+
+    @Test
+    void refreshTokensTest_sessionEpochUnknown() {
+
+        var user = new AccountUser();
+        user.setId(UUID.randomUUID());
+        when(sessionEpochService.currentEpoch(user.getId()))
+                .thenThrow(new ApiException(HttpStatus.SERVICE_UNAVAILABLE,
+                        ApiExceptionMessageConstants.SESSION_UNAVAILABLE));
+        var tokenGroup = UUID.randomUUID().toString();
+        var refreshExpiration = Date.from(Instant.now().plusSeconds(6));
+
+        var exception = assertThrows(ApiException.class,
+                () -> jwtService.refreshTokens(user, tokenGroup, refreshExpiration));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatus());
+        // the current refresh token stays usable for a retry
+        verifyNoInteractions(blacklistService);
     }
 
     @Test
     void blacklistTokenGroup() {
 
+        when(jwtConfigurationProperties.getRefreshExpirationMinutes())
+                .thenReturn(60);
+
         var tokenGroupId = UUID.randomUUID();
-        jwtService.blacklistTokenGroup(tokenGroupId.toString());
+        var issuedAt = Instant.now();
+        jwtService.blacklistTokenGroup(tokenGroupId.toString(), Date.from(issuedAt));
 
-        verify(blacklistService).blacklistTokenGroup(tokenGroupId.toString());
+        verify(blacklistService).blacklistTokenGroup(tokenGroupId.toString(),
+                Date.from(issuedAt.plus(60, ChronoUnit.MINUTES)));
+    }
+
+    @Test
+    void revokeAllTokens() {
+
+        var userId = UUID.randomUUID();
+        jwtService.revokeAllTokens(userId);
+
+        verify(sessionEpochService).advanceEpoch(userId);
+        verifyNoInteractions(blacklistService);
     }
 }
\ No newline at end of file
@@ -0,0 +1,192 @@
+package org.gmalliaris.rental.rooms.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.gmalliaris.rental.rooms.config.MailOutboxConfigurationProperties;
+import org.gmalliaris.rental.rooms.entity.MailOutboxMessage;
+import org.gmalliaris.rental.rooms.entity.MailOutboxStatus;
+import org.gmalliaris.rental.rooms.repository.MailOutboxMessageRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MailOutboxServiceTest {
+
+    private MailOutboxService mailOutboxService;
+
+    @Mock
+    private MailOutboxMessageRepository mailOutboxMessageRepository;
+
+    @Mock
+    private JavaMailSender mailSender;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        mailOutboxService = new MailOutboxService(mailOutboxMessageRepository, mailSender, transactionManager,
+                new MailOutboxConfigurationProperties(null, null, null, null, null), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mailOutboxService.shutdown();
+    }
+
+    @Test
+    void sendPendingBatchTest_nothingPending() {
+        when(mailOutboxMessageRepository.findDueForUpdate(any(MailOutboxStatus.class), any(Instant.class), any(Pageable.class)))
+                .thenReturn(List.of());
+
+        assertEquals(0, mailOutboxService.sendPendingBatch());
+
+        verifyNoInteractions(mailSender);
+        verify(mailOutboxMessageRepository, never()).deleteAllByIdInBatch(any());
+    }
+
+    @Test
+    void sendPendingBatchTest() {
+        var first = pendingMessage(0);
+        var second = pendingMessage(0);
+        when(mailOutboxMessageRepository.findDueForUpdate(any(MailOutboxStatus.class), any(Instant.class), any(Pageable.class)))
+                .thenReturn(List.of(first, second));
+        var firstMime = new MimeMessage((Session) null);
+        var secondMime = new MimeMessage((Session) null);
+        when(mailSender.createMimeMessage())
+                .thenReturn(firstMime, secondMime);
+
+        var before = Instant.now();
+        assertEquals(2, mailOutboxService.sendPendingBatch());
+
+        verify(mailOutboxMessageRepository).findDueForUpdate(eq(MailOutboxStatus.PENDING), any(Instant.class),
+                eq(Pageable.ofSize(50)));
+        // claimed for the lease duration before sending
+        assertFalse(first.getNextAttemptAt().isBefore(before.plusSeconds(300)));
+        verify(mailSender).send(firstMime, secondMime);
+        verify(mailOutboxMessageRepository).deleteAllByIdInBatch(List.of(first.getId(), second.getId()));
+        verify(mailOutboxMessageRepository, never()).saveAll(any());
+        assertEquals(2, meterRegistry.counter("mail.outbox.sent").count());
+    }
+
+    @Test
+    void sendPendingBatchTest_partialFailure() throws MessagingException {
+        var first = pendingMessage(0);
+        var second = pendingMessage(0);
+        when(mailOutboxMessageRepository.findDueForUpdate(any(MailOutboxStatus.class), any(Instant.class), any(Pageable.class)))
+                .thenReturn(List.of(first, second));
+        var firstMime = new MimeMessage((Session) null);
+        var secondMime = new MimeMessage((Session) null);
+        when(mailSender.createMimeMessage())
+                .thenReturn(firstMime, secondMime);
+        doThrow(new MailSendException(Map.of(secondMime, new MessagingException("rejected"))))
+                .when(mailSender).send(firstMime, secondMime);
+
+        var before = Instant.now();
+        mailOutboxService.sendPendingBatch();
+
+        verify(mailOutboxMessageRepository).deleteAllByIdInBatch(List.of(first.getId()));
+        verify(mailOutboxMessageRepository).saveAll(List.of(second));
+        assertEquals(MailOutboxStatus.PENDING, second.getStatus());
+        assertEquals(1, second.getAttempts());
+        assertEquals("rejected", second.getLastError());
+        var backoff = ChronoUnit.SECONDS.between(before, second.getNextAttemptAt());
+        assertTrue(backoff >= 29 && backoff <= 31);
+        assertEquals(1, meterRegistry.counter("mail.outbox.retried").count());
+    }
+
+    @Test
+    void sendPendingBatchTest_backoffGrows() {
+        var message = pendingMessage(2);
+        when(mailOutboxMessageRepository.findDueForUpdate(any(MailOutboxStatus.class), any(Instant.class), any(Pageable.class)))
+                .thenReturn(List.of(message));
+        var mime = new MimeMessage((Session) null);
+        when(mailSender.createMimeMessage())
+                .thenReturn(mime);
+        doThrow(new MailSendException("connection refused"))
+                .when(mailSender).send(new MimeMessage[]{mime});
+
+        var before = Instant.now();
+        mailOutboxService.sendPendingBatch();
+
+        assertEquals(3, message.getAttempts());
+        var backoff = ChronoUnit.SECONDS.between(before, message.getNextAttemptAt());
+        assertTrue(backoff >= 119 && backoff <= 121);
+    }
+
+    @Test
+    void sendPendingBatchTest_deadLetter() {
+        var message = pendingMessage(4);
+        when(mailOutboxMessageRepository.findDueForUpdate(any(MailOutboxStatus.class), any(Instant.class), any(Pageable.class)))
+                .thenReturn(List.of(message));
+        var mime = new MimeMessage((Session) null);
+        when(mailSender.createMimeMessage())
+                .thenReturn(mime);
+        doThrow(new MailSendException("connection refused"))
+                .when(mailSender).send(new MimeMessage[]{mime});
+
+        mailOutboxService.sendPendingBatch();
+
+        verify(mailOutboxMessageRepository).saveAll(List.of(message));
+        verify(mailOutboxMessageRepository, never()).deleteAllByIdInBatch(any());
+        assertEquals(MailOutboxStatus.DEAD, message.getStatus());
+        assertEquals(5, message.getAttempts());
+        assertEquals("connection refused", message.getLastError());
+        assertEquals(1, meterRegistry.counter("mail.outbox.dead").count());
+    }
+
+    @Test
+    void drainOutboxTest() {
+        var message = pendingMessage(0);
+        var batches = new ArrayList<List<MailOutboxMessage>>(List.of(List.of(message), List.of()));
+        when(mailOutboxMessageRepository.findDueForUpdate(any(MailOutboxStatus.class), any(Instant.class), any(Pageable.class)))
+                .then(invocation -> batches.isEmpty() ? List.of() : batches.remove(0));
+        var mime = new MimeMessage((Session) null);
+        when(mailSender.createMimeMessage())
+                .thenReturn(mime);
+
+        mailOutboxService.drainOutbox();
+
+        verify(mailSender, timeout(5_000)).send(new MimeMessage[]{mime});
+        var idsCaptor = ArgumentCaptor.forClass(Iterable.class);
+        verify(mailOutboxMessageRepository, timeout(5_000)).deleteAllByIdInBatch(idsCaptor.capture());
+        assertEquals(List.of(message.getId()), idsCaptor.getValue());
+    }
+
+    private static MailOutboxMessage pendingMessage(int attempts) {
+        var message = new MailOutboxMessage();
+        message.setId(UUID.randomUUID());
+        message.setRecipient("random@example.eg");
+        message.setSubject("subject");
+        message.setBody("<h1>body</h1>");
+        message.setStatus(MailOutboxStatus.PENDING);
+        message.setAttempts(attempts);
+        message.setNextAttemptAt(Instant.now());
+        message.setCreatedAt(Instant.now());
+        return message;
+    }
+}
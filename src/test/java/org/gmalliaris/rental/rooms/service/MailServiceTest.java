@@ -1,28 +1,28 @@
 package org.gmalliaris.rental.rooms.service;
 
+import org.gmalliaris.rental.rooms.config.MailTemplateConfigurationProperties;
 import org.gmalliaris.rental.rooms.entity.AccountUser;
 import org.gmalliaris.rental.rooms.entity.ConfirmationToken;
+import org.gmalliaris.rental.rooms.entity.MailOutboxMessage;
+import org.gmalliaris.rental.rooms.entity.MailOutboxStatus;
+import org.gmalliaris.rental.rooms.repository.MailOutboxMessageRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.util.Pair;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.thymeleaf.context.Context;
 import org.thymeleaf.spring5.SpringTemplateEngine;
 
-import javax.mail.MessagingException;
-import javax.mail.internet.MimeMessage;
 import java.sql.Date;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.UUID;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
@@ -33,37 +33,37 @@ class MailServiceTest {
     private MailService mailService;
 
     @Mock
-    private JavaMailSender mailSender;
+    private SpringTemplateEngine templateEngine;
 
     @Mock
-    private SpringTemplateEngine templateEngine;
+    private MailOutboxMessageRepository mailOutboxMessageRepository;
+
+    @Mock
+    private MailTemplateConfigurationProperties mailTemplateConfigurationProperties;
 
     @Test
-    void createMimeClassesTest() throws MessagingException {
-        var mockMimeMessage = mock(MimeMessage.class);
-        when(mailSender.createMimeMessage())
-                .thenReturn(mockMimeMessage);
-        var result = mailService.createMimeClasses();
-        assertNotNull(result);
-        assertEquals(mockMimeMessage, result.getFirst());
-        assertNotNull(result.getSecond());
-        assertEquals(mockMimeMessage, result.getSecond().getMimeMessage());
+    void onApplicationEventTest_warmsUpTemplates() {
+        when(mailTemplateConfigurationProperties.isCacheable()).thenReturn(true);
+
+        mailService.onApplicationEvent(mock(ApplicationReadyEvent.class));
+
+        verify(templateEngine).process(eq("registration-confirmation"), any(Context.class));
     }
 
     @Test
-    void sendRegistrationConfirmationEmailTest() throws MessagingException {
-        var spyService = spy(mailService);
+    void onApplicationEventTest_notCacheable() {
+        when(mailTemplateConfigurationProperties.isCacheable()).thenReturn(false);
+
+        mailService.onApplicationEvent(mock(ApplicationReadyEvent.class));
 
-        var mockMimeMessage = mock(MimeMessage.class);
-        var mockMimeMessageHelper = mock(MimeMessageHelper.class);
-        doReturn(Pair.of(mockMimeMessage, mockMimeMessageHelper))
-                .when(spyService).createMimeClasses();
+        verifyNoInteractions(templateEngine);
+    }
 
+    @Test
+    void queueRegistrationConfirmationEmailTest() {
         var htmlText = "<h1>TEST</h1>";
         when(templateEngine.process(anyString(), any(Context.class)))
                 .thenReturn(htmlText);
-        doNothing().when(mailSender)
-                .send(any(MimeMessage.class));
 
         var user = new AccountUser();
         user.setFirstName("random-first");
@@ -76,7 +76,8 @@ class MailServiceTest {
         token.setExpirationDate(now);
         token.setAccountUser(user);
 
-        spyService.sendRegistrationConfirmationEmail(token);
+        var before = Instant.now();
+        mailService.queueRegistrationConfirmationEmail(token);
 
         var contextCaptor = ArgumentCaptor.forClass(Context.class);
         verify(templateEngine).process(eq("registration-confirmation"), contextCaptor.capture());
@@ -96,9 +97,15 @@ class MailServiceTest {
         var tokenExpDateInstant = token.getExpirationDate().atStartOfDay(ZoneId.systemDefault()).toInstant();
         assertEquals(Date.from(tokenExpDateInstant).toString(), expDate.toString());
 
-        verify(mockMimeMessageHelper).setSubject("Registration Confirmation");
-        verify(mockMimeMessageHelper).setTo(user.getEmail());
-        verify(mockMimeMessageHelper).setText(htmlText, true);
-        verify(mailSender).send(mockMimeMessage);
+        var messageCaptor = ArgumentCaptor.forClass(MailOutboxMessage.class);
+        verify(mailOutboxMessageRepository).save(messageCaptor.capture());
+        var message = messageCaptor.getValue();
+        assertEquals("Registration Confirmation", message.getSubject());
+        assertEquals(user.getEmail(), message.getRecipient());
+        assertEquals(htmlText, message.getBody());
+        assertEquals(MailOutboxStatus.PENDING, message.getStatus());
+        assertEquals(0, message.getAttempts());
+        assertFalse(message.getNextAttemptAt().isBefore(before));
+        assertNotNull(message.getCreatedAt());
     }
 }
\ No newline at end of file
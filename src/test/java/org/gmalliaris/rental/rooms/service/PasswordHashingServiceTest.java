@@ -0,0 +1,155 @@
+package org.gmalliaris.rental.rooms.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.gmalliaris.rental.rooms.config.PasswordHashingConfigurationProperties;
+import org.gmalliaris.rental.rooms.config.exception.ApiException;
+import org.gmalliaris.rental.rooms.config.exception.ApiExceptionMessageConstants;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingServiceTest {
+
+    private static final int STRENGTH = 4;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PasswordHashingService passwordHashingService;
+
+    @AfterEach
+    void tearDown() {
+        if (passwordHashingService != null) {
+            passwordHashingService.shutdown();
+        }
+    }
+
+    @Test
+    void encodeAndMatchesTest() {
+        passwordHashingService = createService(1, 1);
+
+        var encoded = passwordHashingService.encode("12345678");
+
+        assertTrue(encoded.startsWith("$2a$04$"));
+        assertTrue(passwordHashingService.matches("12345678", encoded));
+        assertFalse(passwordHashingService.matches("87654321", encoded));
+        assertEquals(1, meterRegistry.get("password.hashing").tag("operation", "encode").timer().count());
+        assertEquals(2, meterRegistry.get("password.hashing").tag("operation", "matches").timer().count());
+    }
+
+    @Test
+    void encodeAllTest() {
+        passwordHashingService = createService(2, 1);
+
+        var rawPasswords = List.of("password-1", "password-2", "password-3", "password-4", "password-5");
+        var encoded = passwordHashingService.encodeAll(rawPasswords);
+
+        assertEquals(rawPasswords.size(), encoded.size());
+        for (var i = 0; i < rawPasswords.size(); i++) {
+            assertTrue(passwordHashingService.matches(rawPasswords.get(i), encoded.get(i)));
+        }
+        assertEquals(0, meterRegistry.get("password.hashing.rejected").counter().count());
+    }
+
+    @Test
+    void upgradeEncodingTest() {
+        passwordHashingService = createService(1, 1, STRENGTH + 1);
+
+        assertFalse(passwordHashingService.upgradeEncoding(new BCryptPasswordEncoder(STRENGTH + 1).encode("12345678")));
+        assertTrue(passwordHashingService.upgradeEncoding(new BCryptPasswordEncoder(STRENGTH).encode("12345678")));
+        assertFalse(passwordHashingService.upgradeEncoding("not-a-bcrypt-hash"));
+        assertFalse(passwordHashingService.upgradeEncoding(null));
+    }
+
+    @Test
+    void upgradeEncodingTest_storedCostHigher() {
+        passwordHashingService = createService(1, 1);
+
+        assertFalse(passwordHashingService.upgradeEncoding(new BCryptPasswordEncoder(STRENGTH + 1).encode("12345678")));
+    }
+
+    @Test
+    void encodeTest_rejectsWhenSaturated() throws Exception {
+        passwordHashingService = createService(1, 1);
+
+        var busy = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        // bcrypt reads the raw password through toString, which blocks the only hashing thread here
+        var blockingPassword = new CharSequence() {
+            @Override
+            public int length() {
+                return toString().length();
+            }
+
+            @Override
+            public char charAt(int index) {
+                return toString().charAt(index);
+            }
+
+            @Override
+            public CharSequence subSequence(int start, int end) {
+                return toString().subSequence(start, end);
+            }
+
+            @Override
+            public String toString() {
+                busy.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+                return "12345678";
+            }
+        };
+
+        // one task running on the single thread, one waiting in the queue
+        var running = CompletableFuture.supplyAsync(() -> passwordHashingService.encode(blockingPassword));
+        assertTrue(busy.await(5, TimeUnit.SECONDS));
+        var queued = CompletableFuture.supplyAsync(() -> passwordHashingService.encode("12345678"));
+        while (meterRegistry.get("password.hashing.queue.depth").gauge().value() < 1) {
+            Thread.onSpinWait();
+        }
+
+        var exception = assertThrows(ApiException.class, () -> passwordHashingService.encode("12345678"));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatus());
+        assertEquals(ApiExceptionMessageConstants.PASSWORD_HASHING_UNAVAILABLE, exception.getMessage());
+        assertEquals(1, meterRegistry.get("password.hashing.rejected").counter().count());
+
+        release.countDown();
+        assertNotNull(running.get(5, TimeUnit.SECONDS));
+        assertNotNull(queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void calibrateStrengthTest() {
+        // hash time doubles with every strength step, 1ms at the minimum strength
+        assertEquals(PasswordHashingService.MIN_STRENGTH,
+                PasswordHashingService.calibrateStrength(TimeUnit.MICROSECONDS.toNanos(500), this::doublingNanos));
+        assertEquals(8, PasswordHashingService.calibrateStrength(TimeUnit.MILLISECONDS.toNanos(16), this::doublingNanos));
+        assertEquals(8, PasswordHashingService.calibrateStrength(TimeUnit.MILLISECONDS.toNanos(20), this::doublingNanos));
+        assertEquals(9, PasswordHashingService.calibrateStrength(TimeUnit.MILLISECONDS.toNanos(30), this::doublingNanos));
+        assertEquals(PasswordHashingService.MAX_STRENGTH,
+                PasswordHashingService.calibrateStrength(TimeUnit.HOURS.toNanos(1), this::doublingNanos));
+    }
+
+    private long doublingNanos(int strength) {
+        return TimeUnit.MILLISECONDS.toNanos(1L << (strength - PasswordHashingService.MIN_STRENGTH));
+    }
+
+    private PasswordHashingService createService(int threads, int queueCapacity) {
+        return createService(threads, queueCapacity, STRENGTH);
+    }
+
+    private PasswordHashingService createService(int threads, int queueCapacity, int strength) {
+        var properties = new PasswordHashingConfigurationProperties(threads, queueCapacity, strength, false, null);
+        return new PasswordHashingService(properties, meterRegistry);
+    }
+}
@@ -0,0 +1,66 @@
+package org.gmalliaris.rental.rooms.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.gmalliaris.rental.rooms.config.RateLimitConfigurationProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RateLimitServiceTest {
+
+    private RateLimitService rateLimitService;
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        rateLimitService = new RateLimitService(redisTemplate, new RateLimitConfigurationProperties(2, 60),
+                meterRegistry);
+    }
+
+    @Test
+    void tryAcquireConfirmationResetTest() {
+        var userId = UUID.randomUUID();
+        var key = "rl:confirm-reset:" + userId;
+        when(redisTemplate.execute(RateLimitService.INCREMENT_SCRIPT, List.of(key), "60"))
+                .thenReturn(1L, 2L, 3L);
+
+        assertTrue(rateLimitService.tryAcquireConfirmationReset(userId));
+        assertTrue(rateLimitService.tryAcquireConfirmationReset(userId));
+        assertFalse(rateLimitService.tryAcquireConfirmationReset(userId));
+
+        assertEquals(1, meterRegistry.get("rate.limit.rejected")
+                .tag("limit", "confirm-reset").counter().count());
+    }
+
+    @Test
+    void tryAcquireConfirmationResetTest_redisUnavailable() {
+        when(redisTemplate.execute(any(), anyList(), any()))
+                .thenThrow(new RedisConnectionFailureException("unavailable"));
+
+        var userId = UUID.randomUUID();
+        assertTrue(rateLimitService.tryAcquireConfirmationReset(userId));
+
+        verify(redisTemplate).execute(RateLimitService.INCREMENT_SCRIPT, List.of("rl:confirm-reset:" + userId), "60");
+        assertEquals(0, meterRegistry.get("rate.limit.rejected").counter().count());
+    }
+}
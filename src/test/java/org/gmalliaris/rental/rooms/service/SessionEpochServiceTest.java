@@ -0,0 +1,232 @@
+package org.gmalliaris.rental.rooms.service;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.gmalliaris.rental.rooms.config.JwtConfigurationProperties;
+import org.gmalliaris.rental.rooms.config.SessionEpochConfigurationProperties;
+import org.gmalliaris.rental.rooms.config.exception.ApiException;
+import org.gmalliaris.rental.rooms.config.exception.ApiExceptionMessageConstants;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SessionEpochServiceTest {
+
+    private SessionEpochService sessionEpochService;
+
+    @Mock
+    private RedisTemplate<String, String> redisTemplate;
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        sessionEpochService = new SessionEpochService(redisTemplate, new JwtConfigurationProperties(null, null, null, null, null, null),
+                new SessionEpochConfigurationProperties(null, null, 2, null), meterRegistry);
+    }
+
+    @Test
+    void currentEpochTest_cachedAfterFirstLookup() {
+        var userId = UUID.randomUUID();
+        when(redisTemplate.opsForValue())
+                .thenReturn(valueOperations);
+        when(valueOperations.get("epoch:" + userId))
+                .thenReturn("4");
+
+        assertEquals(4, sessionEpochService.currentEpoch(userId));
+        assertEquals(4, sessionEpochService.currentEpoch(userId));
+        verify(valueOperations, times(1)).get(anyString());
+    }
+
+    @Test
+    void currentEpochTest_noEntry() {
+        var userId = UUID.randomUUID();
+        when(redisTemplate.opsForValue())
+                .thenReturn(valueOperations);
+
+        assertEquals(0, sessionEpochService.currentEpoch(userId));
+        verify(valueOperations).get("epoch:" + userId);
+    }
+
+    @Test
+    void currentEpochTest_redisUnavailable() {
+        when(redisTemplate.opsForValue())
+                .thenReturn(valueOperations);
+        when(valueOperations.get(anyString()))
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        var userId = UUID.randomUUID();
+        var exception = assertThrows(ApiException.class, () -> sessionEpochService.currentEpoch(userId));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatus());
+        assertEquals(ApiExceptionMessageConstants.SESSION_UNAVAILABLE, exception.getMessage());
+        assertEquals(1, meterRegistry.get("session.epoch.lookup.failures").counter().count());
+    }
+
+    @Test
+    void currentEpochTest_outageFallbackNotCached() {
+        var userId = UUID.randomUUID();
+        when(redisTemplate.opsForValue())
+                .thenReturn(valueOperations);
+        when(valueOperations.get("epoch:" + userId))
+                .thenThrow(new RedisConnectionFailureException("down"))
+                .thenReturn("4");
+
+        assertThrows(ApiException.class, () -> sessionEpochService.currentEpoch(userId));
+        // the epoch advanced before the outage applies as soon as redis answers again
+        assertEquals(4, sessionEpochService.currentEpoch(userId));
+        assertEquals(4, sessionEpochService.currentEpoch(userId));
+        verify(valueOperations, times(2)).get(anyString());
+    }
+
+    @Test
+    void currentEpochTest_breakerOpenSkipsRedis() {
+        when(redisTemplate.opsForValue())
+                .thenReturn(valueOperations);
+        when(valueOperations.get(anyString()))
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        var userId = UUID.randomUUID();
+        assertThrows(ApiException.class, () -> sessionEpochService.currentEpoch(userId));
+        assertThrows(ApiException.class, () -> sessionEpochService.currentEpoch(userId));
+        assertThrows(ApiException.class, () -> sessionEpochService.currentEpoch(userId));
+        verify(valueOperations, times(2)).get(anyString());
+    }
+
+    @Test
+    void advanceEpochTest() {
+        var userId = UUID.randomUUID();
+        when(redisTemplate.opsForValue())
+                .thenReturn(valueOperations);
+        when(valueOperations.increment("epoch:" + userId))
+                .thenReturn(5L);
+
+        assertEquals(5, sessionEpochService.advanceEpoch(userId));
+        verify(redisTemplate).convertAndSend(SessionEpochService.SESSION_EPOCH_CHANNEL, userId + " 5");
+        // the advanced epoch applies on this node right away
+        assertEquals(5, sessionEpochService.currentEpoch(userId));
+        verify(valueOperations, never()).get(anyString());
+        assertEquals(1, meterRegistry.get("session.epoch.advances").counter().count());
+    }
+
+    @Test
+    void advanceEpochTest_publishFails() {
+        var userId = UUID.randomUUID();
+        when(redisTemplate.opsForValue())
+                .thenReturn(valueOperations);
+        when(valueOperations.increment(anyString()))
+                .thenReturn(2L);
+        doThrow(new RedisConnectionFailureException("down"))
+                .when(redisTemplate).convertAndSend(anyString(), anyString());
+
+        assertEquals(2, sessionEpochService.advanceEpoch(userId));
+        assertEquals(2, sessionEpochService.currentEpoch(userId));
+    }
+
+    @Test
+    void advanceEpochTest_redisUnavailable() {
+        var userId = UUID.randomUUID();
+        when(redisTemplate.opsForValue())
+                .thenReturn(valueOperations);
+        when(valueOperations.increment(anyString()))
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        var exception = assertThrows(ApiException.class, () -> sessionEpochService.advanceEpoch(userId));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatus());
+        assertEquals(ApiExceptionMessageConstants.SESSION_REVOCATION_UNAVAILABLE, exception.getMessage());
+        verify(redisTemplate, never()).convertAndSend(anyString(), anyString());
+    }
+
+    @Test
+    void tokenWithClaimsIsRevokedTest() {
+        var userId = UUID.randomUUID();
+        when(redisTemplate.opsForValue())
+                .thenReturn(valueOperations);
+        when(valueOperations.get("epoch:" + userId))
+                .thenReturn("2");
+
+        var previousEpochClaims = mock(Claims.class);
+        when(previousEpochClaims.get("sep"))
+                .thenReturn(1);
+        var currentEpochClaims = mock(Claims.class);
+        when(currentEpochClaims.get("sep"))
+                .thenReturn(2);
+
+        assertTrue(sessionEpochService.tokenWithClaimsIsRevoked(userId, previousEpochClaims));
+        assertFalse(sessionEpochService.tokenWithClaimsIsRevoked(userId, currentEpochClaims));
+        // tokens without the claim were issued before any epoch advance
+        assertTrue(sessionEpochService.tokenWithClaimsIsRevoked(userId, mock(Claims.class)));
+    }
+
+    @Test
+    void tokenWithClaimsIsRevokedTest_redisUnavailableFailsOpen() {
+        var userId = UUID.randomUUID();
+        when(redisTemplate.opsForValue())
+                .thenReturn(valueOperations);
+        when(valueOperations.get(anyString()))
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        // the epoch of the user is unknown, their tokens are accepted instead of logging them out
+        assertFalse(sessionEpochService.tokenWithClaimsIsRevoked(userId, mock(Claims.class)));
+        assertEquals(1, meterRegistry.get("session.epoch.unchecked").counter().count());
+    }
+
+    @Test
+    void onMessageTest() {
+        var userId = UUID.randomUUID();
+        when(redisTemplate.opsForValue())
+                .thenReturn(valueOperations);
+        when(valueOperations.get("epoch:" + userId))
+                .thenReturn("1");
+        sessionEpochService.currentEpoch(userId);
+
+        sessionEpochService.onMessage(message(userId + " 3"), null);
+        assertEquals(3, sessionEpochService.currentEpoch(userId));
+
+        // an older epoch delivered late does not move it back
+        sessionEpochService.onMessage(message(userId + " 2"), null);
+        assertEquals(3, sessionEpochService.currentEpoch(userId));
+        verify(valueOperations, times(1)).get(anyString());
+    }
+
+    @Test
+    void onMessageTest_userNotCached() {
+        sessionEpochService.onMessage(message(UUID.randomUUID() + " 3"), null);
+
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    void onMessageTest_malformed() {
+        var userId = UUID.randomUUID();
+        when(redisTemplate.opsForValue())
+                .thenReturn(valueOperations);
+        sessionEpochService.currentEpoch(userId);
+
+        sessionEpochService.onMessage(message(userId.toString()), null);
+        sessionEpochService.onMessage(message(userId + " x"), null);
+        sessionEpochService.onMessage(message("user 3"), null);
+        assertEquals(0, sessionEpochService.currentEpoch(userId));
+    }
+
+    private static DefaultMessage message(String body) {
+        return new DefaultMessage(SessionEpochService.SESSION_EPOCH_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                body.getBytes(StandardCharsets.UTF_8));
+    }
+}
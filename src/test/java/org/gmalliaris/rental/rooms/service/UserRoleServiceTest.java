@@ -1,32 +1,46 @@
 package org.gmalliaris.rental.rooms.service;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.gmalliaris.rental.rooms.config.exception.ApiException;
+import org.gmalliaris.rental.rooms.entity.UserRole;
 import org.gmalliaris.rental.rooms.entity.UserRoleName;
 import org.gmalliaris.rental.rooms.repository.UserRoleRepository;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
 class UserRoleServiceTest {
 
-    @InjectMocks
     private UserRoleService userRoleService;
 
     @Mock
     private UserRoleRepository userRoleRepository;
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        userRoleService = new UserRoleService(userRoleRepository, meterRegistry);
+    }
+
     @Test
     void findUserRoleByNameTest_notFound(){
         when(userRoleRepository.findByName(any(UserRoleName.class)))
@@ -40,4 +54,65 @@ class UserRoleServiceTest {
 
         verify(userRoleRepository).findByName(UserRoleName.ROLE_GUEST);
     }
-}
\ No newline at end of file
+
+    @Test
+    void findUserRoleByNameTest_registered(){
+        var roles = createRoles();
+        userRoleService.registerUserRoles(roles);
+
+        roles.forEach(role -> assertSame(role, userRoleService.findUserRoleByName(role.getName())));
+
+        verifyNoInteractions(userRoleRepository);
+        assertEquals(roles.size(), lookups("hit"));
+        assertEquals(0, lookups("miss"));
+    }
+
+    @Test
+    void findUserRoleByNameTest_notRegistered(){
+        var role = createRole(UserRoleName.ROLE_HOST);
+        when(userRoleRepository.findByName(UserRoleName.ROLE_HOST))
+                .thenReturn(Optional.of(role));
+
+        assertSame(role, userRoleService.findUserRoleByName(UserRoleName.ROLE_HOST));
+        assertSame(role, userRoleService.findUserRoleByName(UserRoleName.ROLE_HOST));
+
+        verify(userRoleRepository, times(1)).findByName(UserRoleName.ROLE_HOST);
+        assertEquals(1, lookups("hit"));
+        assertEquals(1, lookups("miss"));
+    }
+
+    @Test
+    void findAllUserRolesTest(){
+        var roles = createRoles();
+        when(userRoleRepository.findAll())
+                .thenReturn(roles);
+
+        var registered = userRoleService.findAllUserRoles();
+        assertEquals(roles.size(), registered.size());
+        roles.forEach(role -> assertSame(role, registered.get(role.getName())));
+        assertEquals(registered, userRoleService.findAllUserRoles());
+
+        verify(userRoleRepository, times(1)).findAll();
+        assertEquals(1, lookups("hit"));
+        assertEquals(1, lookups("miss"));
+    }
+
+    private double lookups(String result){
+        return meterRegistry.get("user.roles.lookups")
+                .tag("result", result)
+                .counter()
+                .count();
+    }
+
+    private static List<UserRole> createRoles(){
+        return Arrays.stream(UserRoleName.values())
+                .map(UserRoleServiceTest::createRole)
+                .collect(Collectors.toList());
+    }
+
+    private static UserRole createRole(UserRoleName name){
+        var role = new UserRole();
+        role.setName(name);
+        return role;
+    }
+}
@@ -14,11 +14,11 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.Arrays;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -38,7 +38,10 @@ class UserTablesInitializerTest {
     private UserRoleRepository userRoleRepository;
 
     @Mock
-    private BCryptPasswordEncoder bCryptPasswordEncoder;
+    private UserRoleService userRoleService;
+
+    @Mock
+    private PasswordHashingService passwordHashingService;
 
     @Test
     void onApplicationEvent_rolesExist_adminExists(){
@@ -50,6 +53,7 @@ class UserTablesInitializerTest {
         userTablesInitializer.onApplicationEvent(mock(ApplicationReadyEvent.class));
 
         verify(userRoleRepository, never()).save(any());
+        verify(userRoleService).registerUserRoles(anyCollection());
         verify(accountUserRepository, never()).save(any());
     }
 
@@ -76,7 +80,7 @@ class UserTablesInitializerTest {
         when(accountUserRepository.countAdminAccountUsers())
                 .thenReturn(0L);
         var encoded = "encoded";
-        when(bCryptPasswordEncoder.encode(anyString()))
+        when(passwordHashingService.encode(anyString()))
                 .thenReturn(encoded);
 
         var adminEmail = "admin@example.eg";
@@ -95,8 +99,9 @@ class UserTablesInitializerTest {
         assertEquals(roleNames.size(), userRoles.size());
         assertTrue(roleNames.containsAll(userRoles.stream().map(UserRole::getName)
                 .collect(Collectors.toList())));
+        verify(userRoleService).registerUserRoles(Set.copyOf(userRoles));
 
-        verify(bCryptPasswordEncoder).encode(adminPassword);
+        verify(passwordHashingService).encode(adminPassword);
 
         var adminCaptor = ArgumentCaptor.forClass(AccountUser.class);
         verify(accountUserRepository).save(adminCaptor.capture());
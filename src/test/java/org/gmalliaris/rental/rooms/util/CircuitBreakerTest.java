@@ -0,0 +1,85 @@
+package org.gmalliaris.rental.rooms.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private static final Duration OPEN_DURATION = Duration.ofSeconds(10);
+
+    private final AtomicLong nanoClock = new AtomicLong();
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker(3, OPEN_DURATION, nanoClock::get);
+
+    @Test
+    void constructorTest_invalidArguments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new CircuitBreaker(0, OPEN_DURATION));
+        assertThrows(IllegalArgumentException.class,
+                () -> new CircuitBreaker(1, Duration.ZERO));
+    }
+
+    @Test
+    void onFailureTest_opensAfterConsecutiveFailures() {
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        circuitBreaker.onSuccess();
+        circuitBreaker.onFailure();
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    void tryAcquirePermissionTest_singleTrialAfterOpenDuration() {
+        open();
+
+        nanoClock.addAndGet(OPEN_DURATION.toNanos() - 1);
+        assertFalse(circuitBreaker.tryAcquirePermission());
+
+        nanoClock.incrementAndGet();
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+
+        circuitBreaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    void onFailureTest_failedTrialReopens() {
+        open();
+        nanoClock.addAndGet(OPEN_DURATION.toNanos());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+    }
+
+    @Test
+    void tryAcquirePermissionTest_unreportedTrialRetried() {
+        open();
+        nanoClock.addAndGet(OPEN_DURATION.toNanos());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+
+        nanoClock.addAndGet(OPEN_DURATION.toNanos());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+
+    private void open() {
+        for (var i = 0; i < 3; i++) {
+            circuitBreaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+}
@@ -31,6 +31,31 @@ class CommonUtilsTest {
 
         return Stream.of(Arguments.of(null, Optional.empty()),
                 Arguments.of("blah", Optional.empty()),
-                Arguments.of(randomUUID.toString(), Optional.of(randomUUID)));
+                Arguments.of(randomUUID.toString(), Optional.of(randomUUID)),
+                Arguments.of(randomUUID.toString().toUpperCase(), Optional.of(randomUUID)),
+                Arguments.of("00000000-0000-0000-0000-000000000000", Optional.of(new UUID(0, 0))),
+                Arguments.of("ffffffff-ffff-ffff-ffff-ffffffffffff", Optional.of(new UUID(-1, -1))),
+                Arguments.of("123e4567-e89b-12d3-a456-426614174000",
+                        Optional.of(UUID.fromString("123e4567-e89b-12d3-a456-426614174000"))),
+                Arguments.of("123e4567-e89b-12d3-a456-42661417400", Optional.empty()),
+                Arguments.of("123e4567-e89b-12d3-a456-4266141740000", Optional.empty()),
+                Arguments.of("123e4567+e89b-12d3-a456-426614174000", Optional.empty()),
+                Arguments.of("123e4567-e89b-12d3-a456-42661417400g", Optional.empty()),
+                Arguments.of("123e4567-e89b-12d3-a456-42661417400\uff10", Optional.empty()),
+                Arguments.of("1-1-1-1-1", Optional.empty()));
+    }
+
+    @ParameterizedTest
+    @MethodSource("provideUuidsWithOffset")
+    void uuidFromStringTest_withOffset(String value, int offset, Optional<UUID> expectedResult) {
+        assertEquals(expectedResult, CommonUtils.uuidFromString(value, offset));
+    }
+
+    private static Stream<Arguments> provideUuidsWithOffset() {
+        var randomUUID = UUID.randomUUID();
+
+        return Stream.of(Arguments.of("access_" + randomUUID, 7, Optional.of(randomUUID)),
+                Arguments.of("access_" + randomUUID, 6, Optional.empty()),
+                Arguments.of("access_" + randomUUID, 8, Optional.empty()));
     }
 }
\ No newline at end of file
@@ -1,13 +1,22 @@
 package org.gmalliaris.rental.rooms.util;
 
-import io.jsonwebtoken.*;
+import com.github.benmanes.caffeine.cache.Cache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
 import org.gmalliaris.rental.rooms.dto.JwtType;
+import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.springframework.test.util.ReflectionTestUtils;
 
-import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Date;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -16,6 +25,11 @@ import static org.mockito.Mockito.*;
 
 class JwtUtilsTest {
 
+    @BeforeAll
+    static void setUpAll() {
+        JwtUtils.useVerifiedClaimsCache(100, Duration.ofMinutes(5));
+    }
+
     @Test
     void generateTokenTest() {
 
@@ -32,6 +46,66 @@ class JwtUtilsTest {
         assertTrue(validClaims.isPresent());
     }
 
+    @Test
+    void generateTokenTest_withRolesAndEnabled() {
+
+        var issued = Date.from(Instant.now());
+        var exp = Date.from(Instant.now().plusSeconds(20));
+        var token = JwtUtils.generateToken(issued, exp, JwtType.ACCESS, UUID.randomUUID(),
+                UUID.randomUUID().toString(), List.of("HOST", "GUEST"), true);
+
+        var validClaims = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS);
+        assertTrue(validClaims.isPresent());
+        assertEquals(Optional.of(List.of("HOST", "GUEST")), JwtUtils.extractRoleNamesFromClaims(validClaims.get()));
+        assertEquals(Optional.of(true), JwtUtils.extractEnabledFromClaims(validClaims.get()));
+    }
+
+    @Test
+    void extractRoleNamesAndEnabledFromClaimsTest_missing() {
+
+        var token = signedToken(UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                "access_" + UUID.randomUUID());
+
+        var validClaims = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS);
+        assertTrue(validClaims.isPresent());
+        assertTrue(JwtUtils.extractRoleNamesFromClaims(validClaims.get()).isEmpty());
+        assertTrue(JwtUtils.extractEnabledFromClaims(validClaims.get()).isEmpty());
+    }
+
+    @Test
+    void issueTokenTest_sessionEpoch() {
+
+        var issued = Date.from(Instant.now());
+        var exp = Date.from(Instant.now().plusSeconds(20));
+        var issuedToken = JwtUtils.issueToken(issued, exp, JwtType.ACCESS, UUID.randomUUID(),
+                UUID.randomUUID().toString(), 7);
+
+        var validClaims = JwtUtils.extractValidClaimsFromToken(issuedToken.getToken(), JwtType.ACCESS);
+        assertTrue(validClaims.isPresent());
+        assertEquals(7, JwtUtils.extractSessionEpochFromClaims(validClaims.get()));
+    }
+
+    @Test
+    void extractSessionEpochFromClaimsTest_missing() {
+
+        var token = signedToken(UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                "access_" + UUID.randomUUID());
+
+        var validClaims = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS);
+        assertTrue(validClaims.isPresent());
+        assertEquals(0, JwtUtils.extractSessionEpochFromClaims(validClaims.get()));
+    }
+
+    @Test
+    void extractRoleNamesFromClaimsTest_invalid() {
+
+        var mockClaims = mock(Claims.class);
+        when(mockClaims.get("rol"))
+                .thenReturn(List.of("HOST", 1));
+
+        assertTrue(JwtUtils.extractRoleNamesFromClaims(mockClaims).isEmpty());
+    }
+
     @Test
     void extractValidClaimsFromHeaderTest_headerIsNull() {
 
@@ -58,315 +132,170 @@ class JwtUtilsTest {
         assertTrue(claims.isEmpty());
     }
 
+    @Test
+    void extractValidClaimsFromTokenTest_tokenIsNull() {
+
+        var claims = JwtUtils.extractValidClaimsFromToken(null, JwtType.ACCESS);
+        assertNotNull(claims);
+        assertTrue(claims.isEmpty());
+    }
+
     @Test
     void extractValidClaimsFromTokenTest_tokenIdIsInvalid() {
 
-        try(var jwtsUtil = mockStatic(Jwts.class);
-            var commonUtil = mockStatic(CommonUtils.class)) {
-            commonUtil.when(() -> CommonUtils.uuidFromString(nullable(String.class)))
-                    .thenReturn(Optional.empty());
-
-            var mockClaims = mock(Claims.class);
-            var jwsClaims = mock(Jws.class);
-            when(jwsClaims.getBody())
-                    .thenReturn(mockClaims);
-            var mockParser = mock(JwtParser.class);
-            when(mockParser.parseClaimsJws(anyString()))
-                    .thenReturn(jwsClaims);
-            var mockParserBuilder = mock(JwtParserBuilder.class);
-            when(mockParserBuilder.requireIssuer(anyString()))
-                    .thenReturn(mockParserBuilder);
-            when(mockParserBuilder.requireAudience(anyString()))
-                    .thenReturn(mockParserBuilder);
-            when(mockParserBuilder.setSigningKey(any(SecretKey.class)))
-                    .thenReturn(mockParserBuilder);
-            when(mockParserBuilder.build())
-                    .thenReturn(mockParser);
-            jwtsUtil.when(Jwts::parserBuilder)
-                    .thenReturn(mockParserBuilder);
-
-            var token = "token";
-            var claims = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS);
-            assertNotNull(claims);
-            assertTrue(claims.isEmpty());
-            var issAud = (String) ReflectionTestUtils.getField(JwtUtils.class, "ISS_AUD");
-            verify(mockParserBuilder).requireIssuer(issAud);
-            verify(mockParserBuilder).requireAudience(issAud);
-            var signKey = (SecretKey) ReflectionTestUtils.getField(JwtUtils.class, "SIGN_KEY");
-            verify(mockParserBuilder).setSigningKey(signKey);
-            verify(mockParser).parseClaimsJws(token);
-        }
+        var token = signedToken("invalid", UUID.randomUUID().toString(),
+                "access_" + UUID.randomUUID());
+
+        var claims = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS);
+        assertNotNull(claims);
+        assertTrue(claims.isEmpty());
     }
 
     @Test
     void extractValidClaimsFromTokenTest_tokenGroupIdIsInvalid() {
 
-        try(var jwtsUtil = mockStatic(Jwts.class);
-            var commonUtil = mockStatic(CommonUtils.class)) {
-            var tokenId = UUID.randomUUID();
-            commonUtil.when(() -> CommonUtils.uuidFromString(nullable(String.class)))
-                    .thenReturn(Optional.of(tokenId), Optional.empty());
-
-            var mockClaims = mock(Claims.class);
-            when(mockClaims.getId())
-                    .thenReturn(tokenId.toString());
-            var jwsClaims = mock(Jws.class);
-            when(jwsClaims.getBody())
-                    .thenReturn(mockClaims);
-            var mockParser = mock(JwtParser.class);
-            when(mockParser.parseClaimsJws(anyString()))
-                    .thenReturn(jwsClaims);
-            var mockParserBuilder = mock(JwtParserBuilder.class);
-            when(mockParserBuilder.requireIssuer(anyString()))
-                    .thenReturn(mockParserBuilder);
-            when(mockParserBuilder.requireAudience(anyString()))
-                    .thenReturn(mockParserBuilder);
-            when(mockParserBuilder.setSigningKey(any(SecretKey.class)))
-                    .thenReturn(mockParserBuilder);
-            when(mockParserBuilder.build())
-                    .thenReturn(mockParser);
-            jwtsUtil.when(Jwts::parserBuilder)
-                    .thenReturn(mockParserBuilder);
-
-            var token = "token";
-            var claims = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS);
-            assertNotNull(claims);
-            assertTrue(claims.isEmpty());
-            var issAud = (String) ReflectionTestUtils.getField(JwtUtils.class, "ISS_AUD");
-            verify(mockParserBuilder).requireIssuer(issAud);
-            verify(mockParserBuilder).requireAudience(issAud);
-            var signKey = (SecretKey) ReflectionTestUtils.getField(JwtUtils.class, "SIGN_KEY");
-            verify(mockParserBuilder).setSigningKey(signKey);
-            verify(mockParser).parseClaimsJws(token);
-        }
+        var token = signedToken(UUID.randomUUID().toString(), "invalid",
+                "access_" + UUID.randomUUID());
+
+        var claims = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS);
+        assertNotNull(claims);
+        assertTrue(claims.isEmpty());
     }
 
     @Test
     void extractValidClaimsFromTokenTest_userIdIsInvalid_subjectIsNull() {
 
-        try(var jwtsUtil = mockStatic(Jwts.class)) {
-            var tokenId = UUID.randomUUID();
-            var tokenGroupId = UUID.randomUUID();
-
-            var mockClaims = mock(Claims.class);
-            when(mockClaims.getId())
-                    .thenReturn(tokenId.toString());
-            when(mockClaims.get("tgid", String.class))
-                    .thenReturn(tokenGroupId.toString());
-            var jwsClaims = mock(Jws.class);
-            when(jwsClaims.getBody())
-                    .thenReturn(mockClaims);
-            var mockParser = mock(JwtParser.class);
-            when(mockParser.parseClaimsJws(anyString()))
-                    .thenReturn(jwsClaims);
-            var mockParserBuilder = mock(JwtParserBuilder.class);
-            when(mockParserBuilder.requireIssuer(anyString()))
-                    .thenReturn(mockParserBuilder);
-            when(mockParserBuilder.requireAudience(anyString()))
-                    .thenReturn(mockParserBuilder);
-            when(mockParserBuilder.setSigningKey(any(SecretKey.class)))
-                    .thenReturn(mockParserBuilder);
-            when(mockParserBuilder.build())
-                    .thenReturn(mockParser);
-            jwtsUtil.when(Jwts::parserBuilder)
-                    .thenReturn(mockParserBuilder);
-
-            var token = "token";
-            var claims = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS);
-            assertNotNull(claims);
-            assertTrue(claims.isEmpty());
-            var issAud = (String) ReflectionTestUtils.getField(JwtUtils.class, "ISS_AUD");
-            verify(mockParserBuilder).requireIssuer(issAud);
-            verify(mockParserBuilder).requireAudience(issAud);
-            var signKey = (SecretKey) ReflectionTestUtils.getField(JwtUtils.class, "SIGN_KEY");
-            verify(mockParserBuilder).setSigningKey(signKey);
-            verify(mockParser).parseClaimsJws(token);
-        }
+        var token = signedToken(UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                null);
+
+        var claims = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS);
+        assertNotNull(claims);
+        assertTrue(claims.isEmpty());
     }
 
     @Test
     void extractValidClaimsFromTokenTest_userIdIsInvalid_subjectIsInvalid() {
 
-        try(var jwtsUtil = mockStatic(Jwts.class)) {
-            var tokenId = UUID.randomUUID();
-            var tokenGroupId = UUID.randomUUID();
-
-            var mockClaims = mock(Claims.class);
-            when(mockClaims.getId())
-                    .thenReturn(tokenId.toString());
-            when(mockClaims.getSubject())
-                    .thenReturn("ref");
-            when(mockClaims.get("tgid", String.class))
-                    .thenReturn(tokenGroupId.toString());
-            var jwsClaims = mock(Jws.class);
-            when(jwsClaims.getBody())
-                    .thenReturn(mockClaims);
-            var mockParser = mock(JwtParser.class);
-            when(mockParser.parseClaimsJws(anyString()))
-                    .thenReturn(jwsClaims);
-            var mockParserBuilder = mock(JwtParserBuilder.class);
-            when(mockParserBuilder.requireIssuer(anyString()))
-                    .thenReturn(mockParserBuilder);
-            when(mockParserBuilder.requireAudience(anyString()))
-                    .thenReturn(mockParserBuilder);
-            when(mockParserBuilder.setSigningKey(any(SecretKey.class)))
-                    .thenReturn(mockParserBuilder);
-            when(mockParserBuilder.build())
-                    .thenReturn(mockParser);
-            jwtsUtil.when(Jwts::parserBuilder)
-                    .thenReturn(mockParserBuilder);
-
-            var token = "token";
-            var claims = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS);
-            assertNotNull(claims);
-            assertTrue(claims.isEmpty());
-            var issAud = (String) ReflectionTestUtils.getField(JwtUtils.class, "ISS_AUD");
-            verify(mockParserBuilder).requireIssuer(issAud);
-            verify(mockParserBuilder).requireAudience(issAud);
-            var signKey = (SecretKey) ReflectionTestUtils.getField(JwtUtils.class, "SIGN_KEY");
-            verify(mockParserBuilder).setSigningKey(signKey);
-            verify(mockParser).parseClaimsJws(token);
-        }
+        var token = signedToken(UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                "ref");
+
+        var claims = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS);
+        assertNotNull(claims);
+        assertTrue(claims.isEmpty());
     }
 
     @Test
     void extractValidClaimsFromTokenTest_userIdIsInvalid_subjectIsInvalid_typeIsInvalid() {
 
-        try(var jwtsUtil = mockStatic(Jwts.class)) {
-            var tokenId = UUID.randomUUID();
-            var tokenGroupId = UUID.randomUUID();
-
-            var mockClaims = mock(Claims.class);
-            when(mockClaims.getId())
-                    .thenReturn(tokenId.toString());
-            when(mockClaims.getSubject())
-                    .thenReturn("refresh_" + UUID.randomUUID());
-            when(mockClaims.get("tgid", String.class))
-                    .thenReturn(tokenGroupId.toString());
-            var jwsClaims = mock(Jws.class);
-            when(jwsClaims.getBody())
-                    .thenReturn(mockClaims);
-            var mockParser = mock(JwtParser.class);
-            when(mockParser.parseClaimsJws(anyString()))
-                    .thenReturn(jwsClaims);
-            var mockParserBuilder = mock(JwtParserBuilder.class);
-            when(mockParserBuilder.requireIssuer(anyString()))
-                    .thenReturn(mockParserBuilder);
-            when(mockParserBuilder.requireAudience(anyString()))
-                    .thenReturn(mockParserBuilder);
-            when(mockParserBuilder.setSigningKey(any(SecretKey.class)))
-                    .thenReturn(mockParserBuilder);
-            when(mockParserBuilder.build())
-                    .thenReturn(mockParser);
-            jwtsUtil.when(Jwts::parserBuilder)
-                    .thenReturn(mockParserBuilder);
-
-            var token = "token";
-            var claims = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS);
-            assertNotNull(claims);
-            assertTrue(claims.isEmpty());
-            var issAud = (String) ReflectionTestUtils.getField(JwtUtils.class, "ISS_AUD");
-            verify(mockParserBuilder).requireIssuer(issAud);
-            verify(mockParserBuilder).requireAudience(issAud);
-            var signKey = (SecretKey) ReflectionTestUtils.getField(JwtUtils.class, "SIGN_KEY");
-            verify(mockParserBuilder).setSigningKey(signKey);
-            verify(mockParser).parseClaimsJws(token);
-        }
+        var token = signedToken(UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                "refresh_" + UUID.randomUUID());
+
+        var claims = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS);
+        assertNotNull(claims);
+        assertTrue(claims.isEmpty());
     }
 
     @Test
     void extractValidClaimsFromTokenTest_userIdIsInvalid_subjectIsInvalid_userIdIsInvalid() {
 
-        try(var jwtsUtil = mockStatic(Jwts.class);
-            var commonUtil = mockStatic(CommonUtils.class)) {
-            var tokenId = UUID.randomUUID();
-            var tokenGroupId = UUID.randomUUID();
-            commonUtil.when(() -> CommonUtils.uuidFromString(nullable(String.class)))
-                    .thenReturn(Optional.of(tokenId), Optional.of(tokenGroupId), Optional.empty());
-
-            var mockClaims = mock(Claims.class);
-            when(mockClaims.getId())
-                    .thenReturn(tokenId.toString());
-            when(mockClaims.getSubject())
-                    .thenReturn("access_blah");
-            when(mockClaims.get("tgid", String.class))
-                    .thenReturn(tokenGroupId.toString());
-            var jwsClaims = mock(Jws.class);
-            when(jwsClaims.getBody())
-                    .thenReturn(mockClaims);
-            var mockParser = mock(JwtParser.class);
-            when(mockParser.parseClaimsJws(anyString()))
-                    .thenReturn(jwsClaims);
-            var mockParserBuilder = mock(JwtParserBuilder.class);
-            when(mockParserBuilder.requireIssuer(anyString()))
-                    .thenReturn(mockParserBuilder);
-            when(mockParserBuilder.requireAudience(anyString()))
-                    .thenReturn(mockParserBuilder);
-            when(mockParserBuilder.setSigningKey(any(SecretKey.class)))
-                    .thenReturn(mockParserBuilder);
-            when(mockParserBuilder.build())
-                    .thenReturn(mockParser);
-            jwtsUtil.when(Jwts::parserBuilder)
-                    .thenReturn(mockParserBuilder);
-
-            var token = "token";
-            var claims = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS);
-            assertNotNull(claims);
-            assertTrue(claims.isEmpty());
-            var issAud = (String) ReflectionTestUtils.getField(JwtUtils.class, "ISS_AUD");
-            verify(mockParserBuilder).requireIssuer(issAud);
-            verify(mockParserBuilder).requireAudience(issAud);
-            var signKey = (SecretKey) ReflectionTestUtils.getField(JwtUtils.class, "SIGN_KEY");
-            verify(mockParserBuilder).setSigningKey(signKey);
-            verify(mockParser).parseClaimsJws(token);
-        }
+        var token = signedToken(UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                "access_blah");
+
+        var claims = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS);
+        assertNotNull(claims);
+        assertTrue(claims.isEmpty());
+    }
+
+    @Test
+    void extractValidClaimsFromTokenTest_userIdIsInvalid_subjectHasTrailingCharacters() {
+
+        var token = signedToken(UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                "access_" + UUID.randomUUID() + "_");
+
+        var claims = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS);
+        assertNotNull(claims);
+        assertTrue(claims.isEmpty());
+    }
+
+    @Test
+    void extractValidClaimsFromTokenTest_invalidSignature() {
+
+        var otherKey = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+        var issAud = (String) ReflectionTestUtils.getField(JwtUtils.class, "ISS_AUD");
+        var token = Jwts.builder()
+                .setClaims(Map.of("tgid", UUID.randomUUID().toString()))
+                .setIssuer(issAud)
+                .setAudience(issAud)
+                .setSubject("access_" + UUID.randomUUID())
+                .setExpiration(Date.from(Instant.now().plusSeconds(20)))
+                .setId(UUID.randomUUID().toString())
+                .setHeaderParam(JwsHeader.KEY_ID, currentKeyRing().getSigningKeyId())
+                .signWith(otherKey)
+                .compact();
+
+        var claims = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS);
+        assertNotNull(claims);
+        assertTrue(claims.isEmpty());
+    }
+
+    @Test
+    void extractValidClaimsFromTokenTest_expired() {
+
+        var issued = Date.from(Instant.now().minusSeconds(40));
+        var exp = Date.from(Instant.now().minusSeconds(20));
+        var token = JwtUtils.generateToken(issued, exp, JwtType.ACCESS,
+                UUID.randomUUID(), UUID.randomUUID().toString());
+
+        var claims = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS);
+        assertNotNull(claims);
+        assertTrue(claims.isEmpty());
     }
 
     @Test
     void extractValidClaimsFromTokenTest() {
 
-        try(var jwtsUtil = mockStatic(Jwts.class)) {
-            var tokenId = UUID.randomUUID();
-            var tokenGroupId = UUID.randomUUID();
-
-            var mockClaims = mock(Claims.class);
-            when(mockClaims.getId())
-                    .thenReturn(tokenId.toString());
-            when(mockClaims.getSubject())
-                    .thenReturn("access_" + UUID.randomUUID());
-            when(mockClaims.get("tgid", String.class))
-                    .thenReturn(tokenGroupId.toString());
-            var jwsClaims = mock(Jws.class);
-            when(jwsClaims.getBody())
-                    .thenReturn(mockClaims);
-            var mockParser = mock(JwtParser.class);
-            when(mockParser.parseClaimsJws(anyString()))
-                    .thenReturn(jwsClaims);
-            var mockParserBuilder = mock(JwtParserBuilder.class);
-            when(mockParserBuilder.requireIssuer(anyString()))
-                    .thenReturn(mockParserBuilder);
-            when(mockParserBuilder.requireAudience(anyString()))
-                    .thenReturn(mockParserBuilder);
-            when(mockParserBuilder.setSigningKey(any(SecretKey.class)))
-                    .thenReturn(mockParserBuilder);
-            when(mockParserBuilder.build())
-                    .thenReturn(mockParser);
-            jwtsUtil.when(Jwts::parserBuilder)
-                    .thenReturn(mockParserBuilder);
-
-            var token = "token";
-            var claims = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS);
-            assertNotNull(claims);
-            assertTrue(claims.isPresent());
-            var issAud = (String) ReflectionTestUtils.getField(JwtUtils.class, "ISS_AUD");
-            verify(mockParserBuilder).requireIssuer(issAud);
-            verify(mockParserBuilder).requireAudience(issAud);
-            var signKey = (SecretKey) ReflectionTestUtils.getField(JwtUtils.class, "SIGN_KEY");
-            verify(mockParserBuilder).setSigningKey(signKey);
-            verify(mockParser).parseClaimsJws(token);
+        var tokenId = UUID.randomUUID().toString();
+        var tokenGroupId = UUID.randomUUID().toString();
+        var token = signedToken(tokenId, tokenGroupId, "access_" + UUID.randomUUID());
+
+        var claims = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS);
+        assertNotNull(claims);
+        assertTrue(claims.isPresent());
+        assertEquals(tokenId, claims.get().getId());
+        assertEquals(tokenGroupId, JwtUtils.extractTokenGroupIdFromClaims(claims.get()));
+    }
+
+    @Test
+    void extractValidClaimsFromTokenTest_cachedAfterFirstVerification() {
+
+        var token = signedToken(UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                "access_" + UUID.randomUUID());
+
+        var first = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS);
+        assertTrue(first.isPresent());
+
+        try (var jwtsUtil = mockStatic(Jwts.class)) {
+            var second = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS);
+            assertTrue(second.isPresent());
+            assertSame(first.get(), second.get());
+            jwtsUtil.verifyNoInteractions();
         }
     }
 
+    @Test
+    void extractValidClaimsFromTokenTest_cachedWithOtherType() {
+
+        var token = signedToken(UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                "refresh_" + UUID.randomUUID());
+
+        var refreshClaims = JwtUtils.extractValidClaimsFromToken(token, JwtType.REFRESH);
+        assertTrue(refreshClaims.isPresent());
+
+        var accessClaims = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS);
+        assertNotNull(accessClaims);
+        assertTrue(accessClaims.isEmpty());
+    }
+
     @Test
     void extractUserIdFromValidClaimsTest() {
 
@@ -387,4 +316,232 @@ class JwtUtilsTest {
         assertEquals(userId, result);
     }
 
-}
\ No newline at end of file
+    @Test
+    void extractUserIdFromValidClaimsTest_otherType() {
+
+        var mockClaims = mock(Claims.class);
+        when(mockClaims.getSubject())
+                .thenReturn("refresh_" + UUID.randomUUID());
+
+        assertNull(JwtUtils.extractUserIdFromValidClaims(mockClaims, JwtType.ACCESS));
+    }
+
+    @Test
+    void generateTokenTest_subject() {
+
+        var userId = UUID.randomUUID();
+        var token = JwtUtils.generateToken(Date.from(Instant.now()), Date.from(Instant.now().plusSeconds(20)),
+                JwtType.REFRESH, userId, UUID.randomUUID().toString());
+
+        var claims = JwtUtils.extractValidClaimsFromToken(token, JwtType.REFRESH);
+        assertTrue(claims.isPresent());
+        assertEquals("refresh_" + userId, claims.get().getSubject());
+        assertEquals(userId, JwtUtils.extractUserIdFromValidClaims(claims.get(), JwtType.REFRESH));
+    }
+
+    @Test
+    void generateTokenTest_keyIdHeader() {
+
+        var token = JwtUtils.generateToken(Date.from(Instant.now()), Date.from(Instant.now().plusSeconds(20)),
+                JwtType.ACCESS, UUID.randomUUID(), UUID.randomUUID().toString());
+
+        var keyId = Jwts.parserBuilder()
+                .setSigningKey(currentKeyRing().getSigningKey())
+                .build()
+                .parseClaimsJws(token)
+                .getHeader()
+                .getKeyId();
+        assertEquals(currentKeyRing().getSigningKeyId(), keyId);
+    }
+
+    @Test
+    void extractValidClaimsFromTokenTest_unknownKeyId() {
+
+        var keyRing = currentKeyRing();
+        var token = signedToken(UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                "access_" + UUID.randomUUID());
+        try {
+            JwtUtils.useKeyRing(JwtKeyRing.ephemeral());
+            assertTrue(JwtUtils.verifyClaimsFromToken(token, JwtType.ACCESS).isEmpty());
+        }
+        finally {
+            JwtUtils.useKeyRing(keyRing);
+        }
+    }
+
+    @Test
+    void extractValidClaimsFromTokenTest_cachedClaimsAreReadOnly() {
+
+        var token = JwtUtils.generateToken(Date.from(Instant.now()), Date.from(Instant.now().plusSeconds(20)),
+                JwtType.ACCESS, UUID.randomUUID(), UUID.randomUUID().toString(), List.of("HOST"), true);
+
+        var claims = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS).orElseThrow();
+        assertThrows(UnsupportedOperationException.class, () -> claims.put("tgid", "other"));
+        assertThrows(UnsupportedOperationException.class, () -> claims.setSubject("other"));
+        assertThrows(UnsupportedOperationException.class, () -> ((List<?>) claims.get("rol")).clear());
+
+        var cachedClaims = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS).orElseThrow();
+        assertEquals(claims, cachedClaims);
+        assertEquals(Optional.of(List.of("HOST")), JwtUtils.extractRoleNamesFromClaims(cachedClaims));
+    }
+
+    @Test
+    void extractValidClaimsFromTokenTest_cacheKeyedByDigest() {
+
+        var token = JwtUtils.generateToken(Date.from(Instant.now()), Date.from(Instant.now().plusSeconds(20)),
+                JwtType.ACCESS, UUID.randomUUID(), UUID.randomUUID().toString());
+        assertTrue(JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS).isPresent());
+
+        var cache = (Cache<?, ?>) ReflectionTestUtils.getField(JwtUtils.class, "verifiedClaimsCache");
+        assertNotNull(cache);
+        assertFalse(cache.asMap().containsKey(token));
+        assertTrue(cache.asMap().keySet().stream()
+                .allMatch(key -> key instanceof ByteBuffer && ((ByteBuffer) key).remaining() == 32));
+    }
+
+    @Test
+    void extractValidClaimsFromTokenTest_cacheDisabled() {
+
+        var token = JwtUtils.generateToken(Date.from(Instant.now()), Date.from(Instant.now().plusSeconds(20)),
+                JwtType.ACCESS, UUID.randomUUID(), UUID.randomUUID().toString());
+        try {
+            JwtUtils.useVerifiedClaimsCache(0, Duration.ofMinutes(5));
+            var claims = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS).orElseThrow();
+            assertNotSame(claims, JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS).orElseThrow());
+        }
+        finally {
+            setUpAll();
+        }
+    }
+
+    @Test
+    void extractValidClaimsFromTokenTest_cachedTokenAfterKeyRemoved() {
+
+        var keyRing = currentKeyRing();
+        var token = signedToken(UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                "access_" + UUID.randomUUID());
+        assertTrue(JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS).isPresent());
+        try {
+            JwtUtils.useKeyRing(JwtKeyRing.ephemeral());
+            assertTrue(JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS).isEmpty());
+        }
+        finally {
+            JwtUtils.useKeyRing(keyRing);
+        }
+    }
+
+    @Test
+    void extractValidClaimsFromTokenTest_cachedTokenAfterReloadWithSameKeys() {
+
+        var keyRing = currentKeyRing();
+        var token = signedToken(UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                "access_" + UUID.randomUUID());
+        var claims = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS).orElseThrow();
+        try {
+            JwtUtils.useKeyRing(new JwtKeyRing(Map.of(keyRing.getSigningKeyId(), keyRing.getSigningKey()),
+                    keyRing.getSigningKeyId(), keyRing.getSigningKey()));
+            assertSame(claims, JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS).orElseThrow());
+        }
+        finally {
+            JwtUtils.useKeyRing(keyRing);
+        }
+    }
+
+    @Test
+    void extractValidClaimsFromTokenTest_cachedTokenAfterOtherKeyRemoved() {
+
+        var keyRing = currentKeyRing();
+        var otherKey = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+        try {
+            JwtUtils.useKeyRing(new JwtKeyRing(Map.of(keyRing.getSigningKeyId(), keyRing.getSigningKey(),
+                    "other", otherKey), keyRing.getSigningKeyId(), keyRing.getSigningKey()));
+            var token = signedToken(UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                    "access_" + UUID.randomUUID());
+            var claims = JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS).orElseThrow();
+
+            JwtUtils.useKeyRing(new JwtKeyRing(Map.of(keyRing.getSigningKeyId(), keyRing.getSigningKey()),
+                    keyRing.getSigningKeyId(), keyRing.getSigningKey()));
+            assertSame(claims, JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS).orElseThrow());
+        }
+        finally {
+            JwtUtils.useKeyRing(keyRing);
+        }
+    }
+
+    @Test
+    void extractValidClaimsFromTokenTest_cachedTokenAfterKeyReplaced() {
+
+        var keyRing = currentKeyRing();
+        var token = signedToken(UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                "access_" + UUID.randomUUID());
+        assertTrue(JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS).isPresent());
+        var replacedKey = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+        try {
+            JwtUtils.useKeyRing(new JwtKeyRing(Map.of(keyRing.getSigningKeyId(), replacedKey),
+                    keyRing.getSigningKeyId(), replacedKey));
+            assertTrue(JwtUtils.extractValidClaimsFromToken(token, JwtType.ACCESS).isEmpty());
+        }
+        finally {
+            JwtUtils.useKeyRing(keyRing);
+        }
+    }
+
+    @Test
+    void extractValidClaimsFromTokenTest_previousKeyAfterRotation() {
+
+        var keyRing = currentKeyRing();
+        var token = signedToken(UUID.randomUUID().toString(), UUID.randomUUID().toString(),
+                "access_" + UUID.randomUUID());
+        var newKey = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+        try {
+            JwtUtils.useKeyRing(new JwtKeyRing(Map.of(keyRing.getSigningKeyId(), keyRing.getSigningKey(),
+                    "rotated", newKey), "rotated", newKey));
+            assertTrue(JwtUtils.verifyClaimsFromToken(token, JwtType.ACCESS).isPresent());
+
+            var rotatedToken = JwtUtils.generateToken(Date.from(Instant.now()),
+                    Date.from(Instant.now().plusSeconds(20)), JwtType.ACCESS, UUID.randomUUID(),
+                    UUID.randomUUID().toString());
+            assertTrue(JwtUtils.verifyClaimsFromToken(rotatedToken, JwtType.ACCESS).isPresent());
+        }
+        finally {
+            JwtUtils.useKeyRing(keyRing);
+        }
+    }
+
+    @Test
+    void generateTokenTest_verificationOnlyKeyRing() {
+
+        var keyRing = currentKeyRing();
+        try {
+            JwtUtils.useKeyRing(new JwtKeyRing(Map.of(keyRing.getSigningKeyId(), keyRing.getSigningKey()),
+                    null, null));
+            assertThrows(IllegalStateException.class,
+                    () -> JwtUtils.generateToken(Date.from(Instant.now()), Date.from(Instant.now().plusSeconds(20)),
+                            JwtType.ACCESS, UUID.randomUUID(), UUID.randomUUID().toString()));
+        }
+        finally {
+            JwtUtils.useKeyRing(keyRing);
+        }
+    }
+
+    private static String signedToken(String tokenId, String tokenGroupId, String subject) {
+
+        var keyRing = currentKeyRing();
+        var issAud = (String) ReflectionTestUtils.getField(JwtUtils.class, "ISS_AUD");
+        return Jwts.builder()
+                .setClaims(Map.of("tgid", tokenGroupId))
+                .setIssuer(issAud)
+                .setAudience(issAud)
+                .setSubject(subject)
+                .setIssuedAt(Date.from(Instant.now()))
+                .setExpiration(Date.from(Instant.now().plusSeconds(20)))
+                .setId(tokenId)
+                .setHeaderParam(JwsHeader.KEY_ID, keyRing.getSigningKeyId())
+                .signWith(keyRing.getSigningKey())
+                .compact();
+    }
+
+    private static JwtKeyRing currentKeyRing() {
+        return (JwtKeyRing) ReflectionTestUtils.getField(JwtUtils.class, "keyRing");
+    }
+}
@@ -0,0 +1,63 @@
+package org.gmalliaris.rental.rooms.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenGroupBloomFilterTest {
+
+    @Test
+    void constructorTest_invalidArguments() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new TokenGroupBloomFilter(0, 0.01));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TokenGroupBloomFilter(1_000, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new TokenGroupBloomFilter(1_000, 1));
+    }
+
+    @Test
+    void constructorTest_sizing() {
+        var filter = new TokenGroupBloomFilter(1_000_000, 0.01);
+        assertTrue(filter.getNumberOfBits() >= 9_585_059);
+        assertEquals(7, filter.getNumberOfHashFunctions());
+        assertEquals(0, filter.saturation());
+        assertEquals(0, filter.expectedFalsePositiveProbability());
+    }
+
+    @Test
+    void mightContainTest_noFalseNegatives() {
+        var filter = new TokenGroupBloomFilter(10_000, 0.01);
+        var tokenGroupIds = new ArrayList<UUID>();
+        for (var i = 0; i < 10_000; i++) {
+            var tokenGroupId = UUID.randomUUID();
+            tokenGroupIds.add(tokenGroupId);
+            filter.put(tokenGroupId);
+        }
+
+        tokenGroupIds.forEach(tokenGroupId -> assertTrue(filter.mightContain(tokenGroupId)));
+    }
+
+    @Test
+    void mightContainTest_falsePositiveRateWithinBounds() {
+        var filter = new TokenGroupBloomFilter(10_000, 0.01);
+        for (var i = 0; i < 10_000; i++) {
+            filter.put(UUID.randomUUID());
+        }
+
+        var falsePositives = 0;
+        var lookups = 100_000;
+        for (var i = 0; i < lookups; i++) {
+            if (filter.mightContain(UUID.randomUUID())) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue((double) falsePositives / lookups < 0.02);
+        assertTrue(filter.saturation() > 0.4 && filter.saturation() < 0.6);
+        assertTrue(filter.expectedFalsePositiveProbability() < 0.02);
+    }
+}